@@ -34,6 +34,21 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests.all {
+            // DAO 基准测试默认跳过，指定曲库规模时才运行，并且只在这时加大堆内存，例如
+            // ./gradlew testDebugUnitTest --tests '*MusicDaoJvmBenchmark' -PdaoBenchmarkSizes=1000,10000,100000
+            project.findProperty("daoBenchmarkSizes")?.let { sizes ->
+                it.systemProperty("dao.benchmark.sizes", sizes)
+                it.maxHeapSize = "2g"
+            }
+            // 首页解析的耗时测量默认跳过，例如
+            // ./gradlew testDebugUnitTest --tests '*FeedParsingJvmBenchmark' -PfeedBenchmark
+            if (project.hasProperty("feedBenchmark")) {
+                it.systemProperty("feed.benchmark", "true")
+            }
+        }
+    }
 }
 
 dependencies {
@@ -56,6 +71,7 @@ dependencies {
     implementation(libs.navigation.ui)
     implementation(libs.activity)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
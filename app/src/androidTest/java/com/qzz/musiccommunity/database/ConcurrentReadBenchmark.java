@@ -0,0 +1,106 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 读写并发基准测试：后台线程不断全量重写播放列表时，前台分页读取的延迟
+ * 分别在回滚日志模式和WAL模式下测量
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentReadBenchmark {
+    private static final String TAG = "ConcurrentReadBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "concurrent/";
+    private static final int PLAYLIST_SIZE = 2000;
+    private static final int READS = 200;
+    private static final int PAGE_SIZE = 50;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private DatabaseHelper dbHelper;
+    private List<MusicInfo> playlist;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("ConcurrentReadBenchmark");
+        musicDao = database.musicDao;
+        dbHelper = database.dbHelper;
+
+        playlist = new ArrayList<>(PLAYLIST_SIZE);
+        for (int i = 0; i < PLAYLIST_SIZE; i++) {
+            playlist.add(TestDatabase.track(URL_PREFIX, "Concurrent", i, 50));
+        }
+        musicDao.upsertAll(playlist);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void readsDuringWrites_walHasLowerTailLatency() throws InterruptedException {
+        SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+
+        db.disableWriteAheadLogging();
+        long[] rollback = measureReadsDuringWrites();
+
+        db.enableWriteAheadLogging();
+        long[] wal = measureReadsDuringWrites();
+
+        long rollbackP95 = TestDatabase.percentile(rollback, 95);
+        long walP95 = TestDatabase.percentile(wal, 95);
+        Log.i(TAG, "写入期间读取 " + PAGE_SIZE + " 条: 回滚日志 p50 " + TestDatabase.median(rollback) / 1000 +
+                " us / p95 " + rollbackP95 / 1000 + " us，WAL p50 " + TestDatabase.median(wal) / 1000 +
+                " us / p95 " + walP95 / 1000 + " us");
+        assertTrue(walP95 < rollbackP95);
+    }
+
+    @Test
+    public void diagnostics_doNotCloseSharedDatabase() {
+        SQLiteDatabase before = dbHelper.getReadableDatabaseSafe();
+        assertTrue(dbHelper.checkDatabaseIntegrity());
+        assertNotNull(dbHelper.getDatabaseInfo());
+        assertTrue(before.isOpen());
+        assertSame(before, dbHelper.getReadableDatabaseSafe());
+    }
+
+    private long[] measureReadsDuringWrites() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                musicDao.savePlaylist(playlist);
+            }
+        }, "bench-writer");
+        writer.start();
+
+        long[] samples = new long[READS];
+        try {
+            for (int i = 0; i < READS; i++) {
+                long start = System.nanoTime();
+                musicDao.getMusicSummaryPage(MusicDao.SortOrder.ID, false, null, PAGE_SIZE);
+                samples[i] = System.nanoTime() - start;
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        return samples;
+    }
+}
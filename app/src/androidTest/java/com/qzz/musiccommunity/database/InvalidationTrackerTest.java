@@ -0,0 +1,80 @@
+package com.qzz.musiccommunity.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 观察查询的测试：行内容变化时重新回调，只收到失效通知、内容没变时不回调
+ */
+@RunWith(AndroidJUnit4.class)
+public class InvalidationTrackerTest {
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "observe/";
+    private static final long TIMEOUT_MS = 2000;
+    // 确认没有回调时等待的时间
+    private static final long QUIET_MS = 300;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private long musicId;
+    private InvalidationTracker.Subscription subscription;
+    private final BlockingQueue<MusicInfo> emissions = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("InvalidationTrackerTest");
+        musicDao = database.musicDao;
+        musicId = musicDao.upsertAll(Collections.singletonList(TestDatabase.track(URL_PREFIX, "Observe", 0, 1)))[0];
+        assertTrue(musicId > 0);
+
+        subscription = musicDao.getInvalidationTracker().observe(
+                () -> musicDao.getMusicInfoById(musicId), emissions::add,
+                DatabaseHelper.TABLE_MUSIC_INFO, DatabaseHelper.TABLE_LIKED_MUSIC);
+    }
+
+    @After
+    public void tearDown() {
+        subscription.cancel();
+        database.delete();
+    }
+
+    @Test
+    public void toggleLike_emitsUpdatedRow() throws InterruptedException {
+        MusicInfo first = emissions.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(first);
+        assertFalse(first.isLiked());
+
+        musicDao.setMusicLikedStatus(musicId, true);
+        MusicInfo second = emissions.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("收藏后应再次回调", second);
+        assertTrue(second.isLiked());
+        // 已经回调出去的对象不被修改
+        assertFalse(first.isLiked());
+
+        musicDao.setMusicLikedStatus(musicId, false);
+        MusicInfo third = emissions.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("取消收藏后应再次回调", third);
+        assertFalse(third.isLiked());
+    }
+
+    @Test
+    public void invalidationWithoutChange_doesNotEmit() throws InterruptedException {
+        assertNotNull(emissions.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        musicDao.getInvalidationTracker().notifyTablesChanged(DatabaseHelper.TABLE_MUSIC_INFO);
+        assertNull(emissions.poll(QUIET_MS, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,163 @@
+package com.qzz.musiccommunity.database;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 曲库快照基准测试：导出后删除测试曲目，分别用内存映射和输入流恢复，检查恢复的数据和耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class LibrarySnapshotBenchmark {
+    private static final String TAG = "SnapshotBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "snapshot/";
+    private static final int LIBRARY_SIZE = 100_000;
+    private static final int INSERT_BATCH = 1000;
+    private static final int LIKED_INTERVAL = 10;
+    private static final int PLAYLIST_SIZE = 2000;
+    // 10万首的快照应在数秒内恢复
+    private static final long MAX_RESTORE_MS = 10_000;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private LibrarySnapshot snapshot;
+    private File snapshotFile;
+    private List<MusicInfo> queue;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("LibrarySnapshotBenchmark");
+        musicDao = database.musicDao;
+        snapshot = database.newLibrarySnapshot();
+        snapshotFile = new File(database.context.getCacheDir(), "library-benchmark.snapshot");
+
+        Map<Long, Boolean> liked = new HashMap<>();
+        queue = new ArrayList<>();
+        for (int from = 0; from < LIBRARY_SIZE; from += INSERT_BATCH) {
+            List<MusicInfo> batch = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < from + INSERT_BATCH; i++) {
+                batch.add(track(i));
+            }
+            long[] ids = musicDao.upsertAll(batch);
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(ids[i] > 0);
+                int n = from + i;
+                if (n % LIKED_INTERVAL == 0) {
+                    liked.put(ids[i], true);
+                }
+                if (queue.size() < PLAYLIST_SIZE && n % 7 == 0) {
+                    queue.add(batch.get(i));
+                }
+            }
+        }
+        assertTrue(musicDao.setMusicLikedStatusAll(liked));
+        musicDao.savePlaylist(queue);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            Log.w(TAG, "删除快照文件失败: " + snapshotFile);
+        }
+    }
+
+    @Test
+    public void exportAndRestore_mappedAndStream() throws IOException {
+        LibrarySnapshot.Result exported = snapshot.export(snapshotFile);
+        Log.i(TAG, "导出: " + exported + "，平均每首 " + exported.bytes / Math.max(1, exported.musicCount) + " 字节");
+        assertTrue(exported.musicCount >= LIBRARY_SIZE);
+
+        clearLibrary();
+        LibrarySnapshot.Result mapped = snapshot.restore(snapshotFile);
+        Log.i(TAG, "内存映射恢复: " + mapped);
+        assertRestored(mapped);
+
+        clearLibrary();
+        LibrarySnapshot.Result streamed;
+        try (InputStream in = new FileInputStream(snapshotFile)) {
+            streamed = snapshot.restore(in);
+        }
+        Log.i(TAG, "输入流恢复: " + streamed);
+        assertRestored(streamed);
+    }
+
+    @Test
+    public void corruptedSnapshot_isRejectedWithoutChanges() throws IOException {
+        snapshot.export(snapshotFile);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            long middle = file.length() / 2;
+            file.seek(middle);
+            int b = file.read();
+            file.seek(middle);
+            file.write(b ^ 0xFF);
+        }
+        clearLibrary();
+
+        try {
+            snapshot.restore(snapshotFile);
+            fail("损坏的快照应被拒绝");
+        } catch (IOException expected) {
+            Log.i(TAG, "内存映射恢复拒绝损坏的快照: " + expected.getMessage());
+        }
+        try (InputStream in = new FileInputStream(snapshotFile)) {
+            snapshot.restore(in);
+            fail("损坏的快照应被拒绝");
+        } catch (IOException expected) {
+            Log.i(TAG, "输入流恢复拒绝损坏的快照: " + expected.getMessage());
+        }
+        assertNull(musicDao.getMusicInfoByUrl(track(0).getMusicUrl()));
+        assertTrue(musicDao.loadPlaylist().isEmpty());
+    }
+
+    private void clearLibrary() {
+        musicDao.savePlaylist(Collections.emptyList());
+        musicDao.deleteMusicByUrlPrefix(URL_PREFIX);
+        assertNull(musicDao.getMusicInfoByUrl(track(0).getMusicUrl()));
+    }
+
+    private void assertRestored(LibrarySnapshot.Result result) {
+        assertTrue(result.musicCount >= LIBRARY_SIZE);
+        assertTrue(result.durationMs < MAX_RESTORE_MS);
+
+        MusicInfo first = musicDao.getMusicInfoByUrl(track(0).getMusicUrl());
+        assertNotNull(first);
+        assertEquals(track(0).getMusicName(), first.getMusicName());
+        assertEquals(track(0).getCoverUrl(), first.getCoverUrl());
+        assertTrue(first.isLiked());
+        assertFalse(musicDao.getMusicInfoByUrl(track(1).getMusicUrl()).isLiked());
+
+        List<MusicInfo> restoredQueue = musicDao.loadPlaylist();
+        assertEquals(queue.size(), restoredQueue.size());
+        for (int i = 0; i < queue.size(); i++) {
+            assertEquals(queue.get(i).getMusicUrl(), restoredQueue.get(i).getMusicUrl());
+        }
+    }
+
+    private static MusicInfo track(int n) {
+        MusicInfo music = TestDatabase.track(URL_PREFIX, "Snapshot", n, 500);
+        music.setCoverUrl(URL_PREFIX + "covers/" + n + ".jpg");
+        return music;
+    }
+}
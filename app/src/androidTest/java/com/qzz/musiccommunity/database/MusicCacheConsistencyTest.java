@@ -0,0 +1,76 @@
+package com.qzz.musiccommunity.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 行缓存与并发读取的一致性：savePlaylist 的事务提交之前，其他线程从数据库读到的旧行不能留在缓存中
+ */
+@RunWith(AndroidJUnit4.class)
+public class MusicCacheConsistencyTest {
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "cache/";
+    private static final int ROUNDS = 200;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("MusicCacheConsistencyTest");
+        musicDao = database.musicDao;
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void readDuringSavePlaylist_neverCachesOldRow() throws InterruptedException {
+        MusicInfo track = TestDatabase.track(URL_PREFIX, "Cache", 0, 1);
+        long musicId = musicDao.upsertAll(Collections.singletonList(track))[0];
+        assertTrue(musicId > 0);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String name = "Cache Track v" + round;
+            MusicInfo renamed = new MusicInfo(0, name, track.getAuthor(), track.getMusicUrl());
+
+            // 另一个线程在 savePlaylist 期间不停地从数据库读取这一行并放入缓存；
+            // 最后一次读取可能与事务提交重叠，它放入缓存的结果留到检查时
+            AtomicBoolean writing = new AtomicBoolean(true);
+            CountDownLatch readerStarted = new CountDownLatch(1);
+            Thread reader = new Thread(() -> {
+                readerStarted.countDown();
+                while (writing.get()) {
+                    musicDao.getCache().remove(musicId);
+                    musicDao.getMusicInfoById(musicId);
+                }
+            }, "cache-reader");
+            reader.start();
+            readerStarted.await();
+
+            musicDao.savePlaylist(Collections.singletonList(renamed));
+            writing.set(false);
+            reader.join();
+
+            MusicInfo cached = musicDao.getCache().get(musicId);
+            if (cached != null) {
+                assertEquals("第 " + round + " 轮提交后缓存中仍是旧的行", name, cached.getMusicName());
+            }
+            assertEquals(name, musicDao.getMusicInfoById(musicId).getMusicName());
+        }
+    }
+}
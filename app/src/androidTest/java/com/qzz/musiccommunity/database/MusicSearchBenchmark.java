@@ -0,0 +1,144 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.MusicSearchResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 全文检索基准测试：10万首音乐的曲库中按关键词搜索
+ */
+@RunWith(AndroidJUnit4.class)
+public class MusicSearchBenchmark {
+    private static final String TAG = "SearchBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "search/";
+    private static final int LIBRARY_SIZE = 100000;
+    private static final int NAMED_TRACK_INTERVAL = 100;
+    private static final int FILLER_ARTISTS = 5000;
+    private static final int ITERATIONS = 20;
+    // 搜索耗时中位数上限：设备之间差别很大，只用来发现退化成全表扫描这类问题，实际耗时见日志
+    private static final long MAX_MEDIAN_MS = 100;
+
+    private static final String[] TITLE_WORDS = {"晴天", "七里香", "稻香", "夜曲", "告白气球", "Love", "Story", "Night"};
+    private static final String[] ARTISTS = {"周杰伦", "林俊杰", "陈奕迅", "Taylor Swift", "Coldplay"};
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("MusicSearchBenchmark");
+        musicDao = database.musicDao;
+
+        // 每100首中有1首是带真实歌名/歌手的曲目，其余为不同歌手的填充曲目，
+        // 使每个关键词命中几百首，接近真实曲库的分布
+        List<MusicInfo> library = new ArrayList<>(LIBRARY_SIZE);
+        for (int i = 0; i < LIBRARY_SIZE; i++) {
+            String title;
+            String artist;
+            if (i % NAMED_TRACK_INTERVAL == 0) {
+                int k = i / NAMED_TRACK_INTERVAL;
+                title = TITLE_WORDS[k % TITLE_WORDS.length] + " " + i;
+                artist = ARTISTS[(k / TITLE_WORDS.length) % ARTISTS.length];
+            } else {
+                title = "Track " + i;
+                artist = "Artist " + (i % FILLER_ARTISTS);
+            }
+            library.add(new MusicInfo(0, title, artist, URL_PREFIX + i + ".mp3"));
+        }
+        musicDao.upsertAll(library);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void search_matchesPrefixAndHighlights() {
+        List<MusicSearchResult> results = musicDao.searchMusic("杰伦 晴", 10, "<b>", "</b>");
+        assertFalse(results.isEmpty());
+        for (MusicSearchResult result : results) {
+            assertEquals("周杰伦", result.getMusicInfo().getAuthor());
+            assertTrue(result.getMusicInfo().getMusicName().startsWith("晴天"));
+            assertTrue(result.getHighlightedName().startsWith("<b>晴</b>"));
+            assertEquals("周<b>杰伦</b>", result.getHighlightedAuthor());
+        }
+
+        // 英文按词前缀匹配，不区分大小写
+        results = musicDao.searchMusic("colD", 10, null, null);
+        assertFalse(results.isEmpty());
+        assertEquals("Coldplay", results.get(0).getMusicInfo().getAuthor());
+    }
+
+    @Test
+    public void search_matchesPinyinAndInitials() {
+        List<MusicInfo> results = musicDao.searchMusicByPinyin("zjl", 10);
+        assertFalse(results.isEmpty());
+        for (MusicInfo musicInfo : results) {
+            assertEquals("周杰伦", musicInfo.getAuthor());
+        }
+
+        // 纯字母关键词在 searchMusic 中也会按拼音匹配
+        List<MusicSearchResult> merged = musicDao.searchMusic("qing tian", 10, null, null);
+        assertFalse(merged.isEmpty());
+        assertTrue(merged.get(0).getMusicInfo().getMusicName().startsWith("晴天"));
+    }
+
+    @Test
+    public void search_usesFullTextIndex() {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = database.dbHelper.getReadableDatabase().rawQuery(
+                "EXPLAIN QUERY PLAN " + MusicDao.searchQuery(MusicDao.DEFAULT_SEARCH_LIMIT),
+                new String[]{"晴*", "晴"})) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        }
+        Log.i(TAG, "搜索的查询计划: " + plan);
+
+        boolean usesFts = false;
+        for (String step : plan) {
+            if (step.contains(DatabaseHelper.TABLE_MUSIC_FTS) && step.contains("VIRTUAL TABLE")) {
+                usesFts = true;
+            } else {
+                // 其他表只能按主键查找，不能整表扫描
+                assertFalse("查询计划中有全表扫描: " + plan, step.startsWith("SCAN"));
+            }
+        }
+        assertTrue("查询计划没有使用全文索引: " + plan, usesFts);
+    }
+
+    @Test
+    public void search_staysUnderBudget() {
+        String[] keywords = {"七里", "林俊杰 夜曲", "taylor", "story 12", "zjl", "qilixiang"};
+        for (String keyword : keywords) {
+            long[] samples = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                musicDao.searchMusic(keyword, MusicDao.DEFAULT_SEARCH_LIMIT, "<b>", "</b>");
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            long medianMs = samples[ITERATIONS / 2] / 1_000_000;
+            Log.i(TAG, "曲库 " + LIBRARY_SIZE + " 首，关键词 \"" + keyword + "\": 中位数 " + medianMs + " ms");
+            assertTrue("搜索 \"" + keyword + "\" 耗时 " + medianMs + " ms", medianMs <= MAX_MEDIAN_MS);
+        }
+    }
+}
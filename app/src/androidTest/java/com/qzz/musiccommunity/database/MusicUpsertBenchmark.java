@@ -0,0 +1,154 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量写入基准测试：逐行 SELECT + INSERT/UPDATE vs 预编译 upsert
+ */
+@RunWith(AndroidJUnit4.class)
+public class MusicUpsertBenchmark {
+    private static final String TAG = "UpsertBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "catalog/";
+    private static final int CATALOG_SIZE = 10000;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("MusicUpsertBenchmark");
+        musicDao = database.musicDao;
+        dbHelper = database.dbHelper;
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void ingestCatalog_upsertAllIsFasterThanPerRow() {
+        List<MusicInfo> catalog = newCatalog("v1");
+
+        long start = System.nanoTime();
+        for (MusicInfo musicInfo : catalog) {
+            legacyInsertOrUpdate(musicInfo);
+        }
+        long perRow = System.nanoTime() - start;
+
+        deleteBenchRows();
+
+        start = System.nanoTime();
+        long[] musicIds = musicDao.upsertAll(catalog);
+        long batched = System.nanoTime() - start;
+
+        for (long musicId : musicIds) {
+            assertTrue(musicId > 0);
+        }
+
+        Log.i(TAG, "写入 " + CATALOG_SIZE + " 首: 逐行 " + perRow / 1_000_000 +
+                " ms，批量 upsert " + batched / 1_000_000 + " ms");
+        assertTrue(batched < perRow);
+    }
+
+    @Test
+    public void upsertAll_updatesInPlaceAndKeepsIds() {
+        long[] firstIds = musicDao.upsertAll(newCatalog("v1"));
+        long[] secondIds = musicDao.upsertAll(newCatalog("v2"));
+
+        assertArrayEquals(firstIds, secondIds);
+        MusicInfo updated = musicDao.getMusicInfoById(secondIds[0]);
+        assertNotNull(updated);
+        assertEquals("Catalog Track v2 0", updated.getMusicName());
+    }
+
+    @Test
+    public void setMusicLikedStatusAll_insertsThenUpdates() {
+        List<MusicInfo> catalog = newCatalog("v1").subList(0, 100);
+        long[] musicIds = musicDao.upsertAll(catalog);
+
+        Map<Long, Boolean> liked = new LinkedHashMap<>();
+        for (long musicId : musicIds) {
+            liked.put(musicId, true);
+        }
+        assertTrue(musicDao.setMusicLikedStatusAll(liked));
+        assertTrue(musicDao.getMusicLikedStatus(musicIds[0]));
+
+        liked.put(musicIds[0], false);
+        assertTrue(musicDao.setMusicLikedStatusAll(liked));
+        assertFalse(musicDao.getMusicLikedStatus(musicIds[0]));
+        assertTrue(musicDao.getMusicLikedStatus(musicIds[1]));
+    }
+
+    private List<MusicInfo> newCatalog(String version) {
+        List<MusicInfo> catalog = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            MusicInfo music = new MusicInfo(0, "Catalog Track " + version + " " + i,
+                    "Catalog Artist " + (i % 200), URL_PREFIX + i + ".mp3");
+            music.setCoverUrl(URL_PREFIX + i + ".jpg");
+            catalog.add(music);
+        }
+        return catalog;
+    }
+
+    /**
+     * 旧的写入方式：先按 URL 查询，再分别 UPDATE 或 INSERT，每行一个事务
+     * （URL 按不使用前缀字典的方式保存）
+     */
+    private void legacyInsertOrUpdate(MusicInfo musicInfo) {
+        SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+        db.beginTransaction();
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_MUSIC_INFO,
+                new String[]{DatabaseHelper.COLUMN_MUSIC_ID},
+                DatabaseHelper.COLUMN_URL_HASH + " = ? AND " + DatabaseHelper.COLUMN_URL_PREFIX_ID + " = ? AND " +
+                        DatabaseHelper.COLUMN_URL_PATH + " = ?",
+                new String[]{String.valueOf(MusicUrls.hash(musicInfo.getMusicUrl())),
+                        String.valueOf(UrlPrefixDictionary.NO_PREFIX), musicInfo.getMusicUrl()},
+                null, null, null)) {
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_MUSIC_NAME, musicInfo.getMusicName());
+            values.put(DatabaseHelper.COLUMN_AUTHOR, musicInfo.getAuthor());
+            values.put(DatabaseHelper.COLUMN_URL_HASH, MusicUrls.hash(musicInfo.getMusicUrl()));
+            values.put(DatabaseHelper.COLUMN_URL_PREFIX_ID, UrlPrefixDictionary.NO_PREFIX);
+            values.put(DatabaseHelper.COLUMN_URL_PATH, musicInfo.getMusicUrl());
+            values.put(DatabaseHelper.COLUMN_COVER_URL, musicInfo.getCoverUrl());
+            values.put(DatabaseHelper.COLUMN_LYRIC_URL, musicInfo.getLyricUrl());
+
+            if (cursor.moveToFirst()) {
+                db.update(DatabaseHelper.TABLE_MUSIC_INFO, values,
+                        DatabaseHelper.COLUMN_MUSIC_ID + " = ?",
+                        new String[]{String.valueOf(cursor.getLong(0))});
+            } else {
+                db.insert(DatabaseHelper.TABLE_MUSIC_INFO, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void deleteBenchRows() {
+        musicDao.deleteMusicByUrlPrefix(URL_PREFIX);
+    }
+}
@@ -0,0 +1,171 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 播放列表稀疏排序键基准测试：10000 首的队列上移动歌曲只修改一行
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlaylistOrderingBenchmark {
+    private static final String TAG = "PlaylistOrderBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "order/";
+    private static final String BENCH_PLAYLIST_NAME = "Bench Playlist";
+    private static final int QUEUE_SIZE = 10_000;
+    private static final int MOVES = 200;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private DatabaseHelper dbHelper;
+    private List<MusicInfo> queue;
+    private int nextTrack = 0;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("PlaylistOrderingBenchmark");
+        musicDao = database.musicDao;
+        dbHelper = database.dbHelper;
+
+        queue = new ArrayList<>();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            queue.add(newTrack());
+        }
+        musicDao.savePlaylist(queue);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void moves_onLargeQueue_writeSingleRow() {
+        Random random = new Random(42);
+        long[] moveToFront = new long[MOVES];
+        long[] dragMiddle = new long[MOVES];
+
+        for (int i = 0; i < MOVES; i++) {
+            int from = random.nextInt(QUEUE_SIZE);
+            moveToFront[i] = timeMove(from, 0);
+
+            from = random.nextInt(QUEUE_SIZE);
+            int to = Math.max(0, Math.min(QUEUE_SIZE - 1, from + random.nextInt(21) - 10));
+            dragMiddle[i] = timeMove(from, to);
+        }
+
+        assertSameOrder(queue, musicDao.loadPlaylist());
+        Log.i(TAG, "队列 " + QUEUE_SIZE + " 首，移动到开头中位数 " + TestDatabase.median(moveToFront) / 1000 +
+                " us，拖动排序中位数 " + TestDatabase.median(dragMiddle) / 1000 + " us");
+    }
+
+    @Test
+    public void move_changesOnlyTheMovedRow() {
+        Map<Long, Long> before = readSortKeys(DatabaseHelper.DEFAULT_PLAYLIST_ID);
+
+        MusicInfo moved = queue.remove(QUEUE_SIZE - 1);
+        queue.add(0, moved);
+        assertTrue(musicDao.applyPlaylistChanges(
+                Collections.singletonList(PlaylistChange.move(moved, QUEUE_SIZE - 1, 0))));
+
+        Map<Long, Long> after = readSortKeys(DatabaseHelper.DEFAULT_PLAYLIST_ID);
+        int changed = 0;
+        for (Map.Entry<Long, Long> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                changed++;
+            }
+        }
+        assertEquals(1, changed);
+        assertSameOrder(queue, musicDao.loadPlaylist());
+    }
+
+    @Test
+    public void repeatedInsertAtSamePosition_rebalancesAndKeepsOrder() {
+        // 每次插入都把位置1前后的空隙对半分，超过 log2(GAP) 次后必须重新编号
+        List<PlaylistChange> changes = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            MusicInfo track = newTrack();
+            queue.add(1, track);
+            changes.add(PlaylistChange.insert(track, 1));
+        }
+        assertTrue(musicDao.applyPlaylistChanges(changes));
+        assertSameOrder(queue, musicDao.loadPlaylist());
+        assertSameOrder(queue.subList(100, 150), musicDao.getPlaylistPage(100, 50));
+    }
+
+    @Test
+    public void namedPlaylists_areOrderedIndependently() {
+        long playlistId = musicDao.createPlaylist(BENCH_PLAYLIST_NAME);
+        assertTrue(playlistId > 0);
+        assertEquals(-1, musicDao.createPlaylist(BENCH_PLAYLIST_NAME));
+
+        List<MusicInfo> named = new ArrayList<>(queue.subList(0, 100));
+        Collections.reverse(named);
+        musicDao.savePlaylist(playlistId, named);
+
+        MusicInfo moved = named.remove(50);
+        named.add(0, moved);
+        assertTrue(musicDao.applyPlaylistChanges(playlistId,
+                Collections.singletonList(PlaylistChange.move(moved, 50, 0))));
+
+        assertSameOrder(named, musicDao.loadPlaylist(playlistId));
+        assertSameOrder(queue.subList(0, 100), musicDao.loadPlaylist().subList(0, 100));
+
+        assertTrue(musicDao.deletePlaylist(playlistId));
+        assertTrue(readSortKeys(playlistId).isEmpty());
+        assertFalse(musicDao.deletePlaylist(DatabaseHelper.DEFAULT_PLAYLIST_ID));
+    }
+
+    private long timeMove(int from, int to) {
+        MusicInfo moved = queue.remove(from);
+        queue.add(to, moved);
+        long start = System.nanoTime();
+        assertTrue(musicDao.applyPlaylistChanges(
+                Collections.singletonList(PlaylistChange.move(moved, from, to))));
+        return System.nanoTime() - start;
+    }
+
+    private Map<Long, Long> readSortKeys(long playlistId) {
+        Map<Long, Long> sortKeys = new HashMap<>();
+        try (Cursor cursor = dbHelper.getReadableDatabaseSafe().query(DatabaseHelper.TABLE_PLAYLIST,
+                new String[]{DatabaseHelper.COLUMN_PLAYLIST_ID, DatabaseHelper.COLUMN_SORT_KEY},
+                DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?",
+                new String[]{String.valueOf(playlistId)}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                sortKeys.put(cursor.getLong(0), cursor.getLong(1));
+            }
+        }
+        return sortKeys;
+    }
+
+    private MusicInfo newTrack() {
+        int n = nextTrack++;
+        return TestDatabase.track(URL_PREFIX, "Order", n, 50);
+    }
+
+    private static void assertSameOrder(List<MusicInfo> expected, List<MusicInfo> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getMusicUrl(), actual.get(i).getMusicUrl());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.qzz.musiccommunity.database;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 播放列表持久化基准测试：全量重写 vs 增量写入
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlaylistPersistenceBenchmark {
+    private static final String TAG = "PlaylistBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "playlist/";
+    private static final int QUEUE_SIZE = 2000;
+    private static final int ITERATIONS = 5;
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private List<MusicInfo> queue;
+    private int nextTrack = 0;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("PlaylistPersistenceBenchmark");
+        musicDao = database.musicDao;
+
+        queue = new ArrayList<>();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            queue.add(newTrack());
+        }
+        musicDao.savePlaylist(queue);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void addToFront_journaledIsFasterThanFullRewrite() {
+        long[] fullRewrite = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            queue.add(0, newTrack());
+            long start = System.nanoTime();
+            musicDao.savePlaylist(queue);
+            fullRewrite[i] = System.nanoTime() - start;
+        }
+
+        long[] journaled = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            MusicInfo track = newTrack();
+            queue.add(0, track);
+            long start = System.nanoTime();
+            assertTrue(musicDao.applyPlaylistChanges(
+                    Collections.singletonList(PlaylistChange.insert(track, 0))));
+            journaled[i] = System.nanoTime() - start;
+        }
+
+        assertSameOrder(queue, musicDao.loadPlaylist());
+
+        long fullMedian = TestDatabase.median(fullRewrite);
+        long journaledMedian = TestDatabase.median(journaled);
+        Log.i(TAG, "队列 " + QUEUE_SIZE + " 首，插入到开头: 全量重写 " + fullMedian / 1_000_000 +
+                " ms，增量写入 " + journaledMedian / 1_000_000 + " ms");
+        assertTrue(journaledMedian < fullMedian);
+    }
+
+    @Test
+    public void mixedChanges_matchInMemoryList() {
+        List<PlaylistChange> changes = new ArrayList<>();
+
+        MusicInfo moved = queue.remove(QUEUE_SIZE / 2);
+        queue.add(0, moved);
+        changes.add(PlaylistChange.move(moved, QUEUE_SIZE / 2, 0));
+
+        MusicInfo removed = queue.remove(10);
+        changes.add(PlaylistChange.remove(removed, 10));
+
+        MusicInfo appended = newTrack();
+        queue.add(appended);
+        changes.add(PlaylistChange.insert(appended, queue.size() - 1));
+
+        assertTrue(musicDao.applyPlaylistChanges(changes));
+        assertSameOrder(queue, musicDao.loadPlaylist());
+    }
+
+    private MusicInfo newTrack() {
+        int n = nextTrack++;
+        MusicInfo music = TestDatabase.track(URL_PREFIX, "Bench", n, 50);
+        music.setCoverUrl(URL_PREFIX + n + ".jpg");
+        return music;
+    }
+
+    private static void assertSameOrder(List<MusicInfo> expected, List<MusicInfo> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getMusicUrl(), actual.get(i).getMusicUrl());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.MusicPage;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 查询计划回归测试：收集 MusicDao 执行的每条查询，用 EXPLAIN QUERY PLAN 检查是否退化为全表扫描或临时排序
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+    private static final String TAG = "QueryPlanTest";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "plan/";
+    private static final int TRACK_COUNT = 200;
+
+    private enum Problem {
+        // 不使用索引扫描整张表
+        FULL_SCAN,
+        // 结果需要额外排序
+        TEMP_SORT
+    }
+
+    // 允许的计划，每一项都需要说明原因
+    private static final Map<String, Set<Problem>> ALLOWED = new HashMap<>();
+
+    static {
+        // 读取全部音乐，本来就要扫描全表
+        ALLOWED.put("getAllMusicInfo", EnumSet.of(Problem.FULL_SCAN));
+        // playlist_info 只有几行
+        ALLOWED.put("getPlaylists", EnumSet.of(Problem.FULL_SCAN));
+        // 按 rowid 倒序扫描，LIMIT 后停止，第二页起为 rowid 范围查找
+        ALLOWED.put("getMusicPage(ID)", EnumSet.of(Problem.FULL_SCAN));
+        // 相关度排序只作用于全文索引或拼音索引命中的行
+        ALLOWED.put("searchMusic", EnumSet.of(Problem.TEMP_SORT));
+        ALLOWED.put("searchMusicByPinyin", EnumSet.of(Problem.TEMP_SORT));
+        // 外层排序只作用于子查询取出的一页
+        ALLOWED.put("getPlaylistPage", EnumSet.of(Problem.TEMP_SORT));
+        // 只看收藏时先从 idx_liked_state_time 取出已收藏的行，再按 music_info 的列排序，排序的只是收藏
+        ALLOWED.put("getMusicPage(ID, liked)", EnumSet.of(Problem.TEMP_SORT));
+        ALLOWED.put("getMusicPage(NAME, liked)", EnumSet.of(Problem.TEMP_SORT));
+        ALLOWED.put("getMusicPage(AUTHOR, liked)", EnumSet.of(Problem.TEMP_SORT));
+        ALLOWED.put("getMusicPage(ADDED_TIME, liked)", EnumSet.of(Problem.TEMP_SORT));
+    }
+
+    private static class CapturedQuery {
+        final String label;
+        final String sql;
+        final String[] args;
+
+        CapturedQuery(String label, String sql, String[] args) {
+            this.label = label;
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+
+    private TestDatabase database;
+    private MusicDao musicDao;
+    private DatabaseHelper dbHelper;
+    private List<MusicInfo> tracks;
+    private final List<CapturedQuery> captured = new ArrayList<>();
+    private volatile String currentLabel;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("QueryPlanTest");
+        musicDao = database.musicDao;
+        dbHelper = database.dbHelper;
+
+        tracks = new ArrayList<>(TRACK_COUNT);
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            tracks.add(TestDatabase.track(URL_PREFIX, "Plan", i, 20));
+        }
+        long[] ids = musicDao.upsertAll(tracks);
+        Map<Long, Boolean> liked = new LinkedHashMap<>();
+        long[] playedTimes = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            tracks.get(i).setId(ids[i]);
+            liked.put(ids[i], i % 2 == 0);
+            playedTimes[i] = System.currentTimeMillis() + i;
+        }
+        musicDao.setMusicLikedStatusAll(liked);
+        musicDao.appendPlayHistory(ids, playedTimes);
+        musicDao.savePlaylist(tracks.subList(0, 100));
+
+        musicDao.getMetrics().setQueryListener((sql, args) ->
+                captured.add(new CapturedQuery(currentLabel, sql, args)));
+    }
+
+    @After
+    public void tearDown() {
+        musicDao.getMetrics().setQueryListener(null);
+        database.delete();
+    }
+
+    @Test
+    public void everyDaoQuery_usesIndexes() {
+        MusicInfo first = tracks.get(0);
+        // 清空行缓存，保证单行查询真正访问数据库
+        musicDao.getCache().invalidateAll();
+        exercise("getMusicInfoById", () -> musicDao.getMusicInfoById(first.getId()));
+        exercise("getMusicInfoByUrl", () -> musicDao.getMusicInfoByUrl(tracks.get(1).getMusicUrl()));
+        exercise("getMusicLikedStatus", () -> musicDao.getMusicLikedStatus(tracks.get(2).getId()));
+        exercise("loadPlaylist", () -> musicDao.loadPlaylist());
+        exercise("getPlaylistPage", () -> musicDao.getPlaylistPage(40, 20));
+        exercise("getPlaylists", () -> musicDao.getPlaylists());
+        exercise("applyPlaylistChanges", () -> musicDao.applyPlaylistChanges(
+                Collections.singletonList(PlaylistChange.move(tracks.get(90), 90, 10))));
+        exercise("getLikedMusicList", () -> musicDao.getLikedMusicList());
+        exercise("getLikedMusicUrls", () -> musicDao.getLikedMusicUrls());
+        exercise("getRecentlyPlayed", () -> musicDao.getRecentlyPlayed(20));
+        exercise("getMostPlayed", () -> musicDao.getMostPlayed(20));
+        exercise("searchMusic", () -> musicDao.searchMusic("Plan"));
+        exercise("searchMusicByPinyin", () -> musicDao.searchMusicByPinyin("plan", 20));
+        exercise("getAllMusicInfo", () -> musicDao.getAllMusicInfo());
+        for (MusicDao.SortOrder sortOrder : MusicDao.SortOrder.values()) {
+            exercise("getMusicPage(" + sortOrder + ")", () -> readTwoPages(sortOrder, false));
+            exercise("getMusicPage(" + sortOrder + ", liked)", () -> readTwoPages(sortOrder, true));
+        }
+        musicDao.getMetrics().setQueryListener(null);
+
+        List<String> violations = new ArrayList<>();
+        for (CapturedQuery query : captured) {
+            List<String> plan = explain(query.sql, query.args);
+            Set<Problem> allowed = ALLOWED.containsKey(query.label)
+                    ? ALLOWED.get(query.label) : EnumSet.noneOf(Problem.class);
+            for (String line : plan) {
+                Problem problem = classify(line);
+                if (problem != null && !allowed.contains(problem)) {
+                    violations.add(query.label + ": " + line + "\n    " + query.sql);
+                }
+            }
+        }
+        Log.i(TAG, "检查了 " + captured.size() + " 条查询");
+        assertTrue("查询计划退化:\n" + String.join("\n", violations), violations.isEmpty());
+    }
+
+    @Test
+    public void likedList_readsOnlyLikedRowsFromIndex() {
+        exercise("getLikedMusicList", () -> musicDao.getLikedMusicList());
+        String plan = String.join("\n", explain(captured.get(0).sql, captured.get(0).args));
+        assertTrue(plan, plan.contains("idx_liked_state_time (is_liked=?)"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void playlistJoin_walksPlaylistOrderIndex() {
+        exercise("loadPlaylist", () -> musicDao.loadPlaylist());
+        String plan = String.join("\n", explain(captured.get(0).sql, captured.get(0).args));
+        assertTrue(plan, plan.contains("idx_playlist_order (playlist_id=?)"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void metrics_recordLatencyRowsAndSlowQueries() {
+        DaoMetrics metrics = new DaoMetrics(DatabaseConfig.defaults().setSlowQueryThresholdMs(0));
+        long start = metrics.start();
+        metrics.onQuery("SELECT 1", null);
+        metrics.record("query", start, 3);
+        metrics.record("query", metrics.start(), 2);
+
+        List<DaoMetrics.MethodStats> stats = metrics.snapshot();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getCount());
+        assertEquals(5, stats.get(0).getRows());
+        assertEquals(2, Arrays.stream(stats.get(0).getBuckets()).sum());
+
+        List<DaoMetrics.SlowQuery> slowQueries = metrics.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals("SELECT 1", slowQueries.get(0).sql);
+        // start() 清除上一次调用的 SQL，不会把它记到没有执行查询的调用上
+        assertNull(slowQueries.get(1).sql);
+
+        musicDao.getLikedMusicList();
+        boolean recorded = false;
+        for (DaoMetrics.MethodStats methodStats : musicDao.getMetrics().snapshot()) {
+            if (methodStats.method.equals("getLikedMusicList")) {
+                recorded = methodStats.getCount() > 0 && methodStats.getRows() > 0;
+            }
+        }
+        assertTrue(recorded);
+    }
+
+    private void exercise(String label, Runnable call) {
+        currentLabel = label;
+        int before = captured.size();
+        call.run();
+        assertTrue(label + " 没有执行查询", captured.size() > before);
+    }
+
+    private void readTwoPages(MusicDao.SortOrder sortOrder, boolean likedOnly) {
+        MusicPage<MusicInfo> page = musicDao.getMusicPage(sortOrder, likedOnly, null, 20);
+        assertNotNull(page.getNextKey());
+        musicDao.getMusicPage(sortOrder, likedOnly, page.getNextKey(), 20);
+    }
+
+    private List<String> explain(String sql, String[] args) {
+        SQLiteDatabase db = dbHelper.getReadableDatabaseSafe();
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+        return plan;
+    }
+
+    private static Problem classify(String planLine) {
+        // "SCAN m" 为全表扫描；"SCAN m USING INDEX ..." 按索引顺序读取，"SCAN music_fts VIRTUAL TABLE ..." 为全文索引
+        if (planLine.startsWith("SCAN ") && !planLine.contains(" USING ") && !planLine.contains("VIRTUAL TABLE")
+                && !planLine.startsWith("SCAN CONSTANT ROW")) {
+            return Problem.FULL_SCAN;
+        }
+        if (planLine.contains("USE TEMP B-TREE FOR ORDER BY")) {
+            return Problem.TEMP_SORT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.MusicSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 行映射基准测试：
+ * 1. SELECT m.* + 每行按列名查找下标（旧的 cursorToMusicInfo）
+ * 2. 明确的列 + 每个 Cursor 解析一次下标（MusicInfoRowMapper）
+ * 3. 列表摘要投影（MusicSummaryRowMapper）
+ */
+@RunWith(AndroidJUnit4.class)
+public class RowMapperBenchmark {
+    private static final String TAG = "RowMapperBenchmark";
+
+    private static final String URL_PREFIX = TestDatabase.BENCH_URL_PREFIX + "mapper/";
+    private static final int ROW_COUNT = 5000;
+    private static final int ITERATIONS = 7;
+
+    private static final String FROM_CLAUSE = " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+            " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+            " WHERE m." + DatabaseHelper.COLUMN_URL_PATH + " LIKE '" +
+            URL_PREFIX.substring(MusicUrls.prefixLength(URL_PREFIX)) + "%'";
+
+    private TestDatabase database;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        database = TestDatabase.create("RowMapperBenchmark");
+        dbHelper = database.dbHelper;
+
+        List<MusicInfo> rows = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            MusicInfo music = new MusicInfo(0, "Mapper Track " + i, "Mapper Artist " + (i % 100),
+                    URL_PREFIX + i + ".mp3");
+            music.setCoverUrl(URL_PREFIX + i + ".jpg");
+            music.setLyricUrl(URL_PREFIX + i + ".lrc");
+            rows.add(music);
+        }
+        database.musicDao.upsertAll(rows);
+    }
+
+    @After
+    public void tearDown() {
+        database.delete();
+    }
+
+    @Test
+    public void mapRows_precompiledMappersBeatPerRowLookup() {
+        SQLiteDatabase db = dbHelper.getReadableDatabaseSafe();
+        long[] legacy = new long[ITERATIONS];
+        long[] full = new long[ITERATIONS];
+        long[] summary = new long[ITERATIONS];
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            List<MusicInfo> legacyRows = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery("SELECT m.*, COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED +
+                    ", 0) as is_liked" + FROM_CLAUSE, null)) {
+                while (cursor.moveToNext()) {
+                    legacyRows.add(legacyMap(cursor, dbHelper.getUrlPrefixes()));
+                }
+            }
+            legacy[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<MusicInfo> fullRows = queryAll(db, new MusicInfoRowMapper(dbHelper.getUrlPrefixes()));
+            full[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<MusicSummary> summaryRows = queryAll(db, new MusicSummaryRowMapper());
+            summary[i] = System.nanoTime() - start;
+
+            assertEquals(ROW_COUNT, legacyRows.size());
+            assertEquals(ROW_COUNT, fullRows.size());
+            assertEquals(ROW_COUNT, summaryRows.size());
+        }
+
+        long legacyMedian = TestDatabase.median(legacy);
+        long fullMedian = TestDatabase.median(full);
+        long summaryMedian = TestDatabase.median(summary);
+        Log.i(TAG, ROW_COUNT + " 行: 每行查找下标 " + legacyMedian / 1000 + " us，" +
+                "预解析下标 " + fullMedian / 1000 + " us，摘要投影 " + summaryMedian / 1000 + " us");
+        assertTrue(fullMedian < legacyMedian);
+        assertTrue(summaryMedian < legacyMedian);
+    }
+
+    private static <T> List<T> queryAll(SQLiteDatabase db, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + mapper.projection() + FROM_CLAUSE, null)) {
+            mapper.bind(cursor);
+            while (cursor.moveToNext()) {
+                rows.add(mapper.map(cursor));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 旧的映射方式：每一行、每一列都按列名查找下标
+     */
+    private static MusicInfo legacyMap(Cursor cursor, UrlPrefixDictionary urlPrefixes) {
+        MusicInfo musicInfo = new MusicInfo();
+        musicInfo.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID)));
+        musicInfo.setMusicName(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_NAME)));
+        musicInfo.setAuthor(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR)));
+        musicInfo.setMusicUrl(urlPrefixes.decode(
+                cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_URL_PREFIX_ID)),
+                cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_URL_PATH))));
+        musicInfo.setCoverUrl(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_URL)));
+        musicInfo.setLyricUrl(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LYRIC_URL)));
+        int isLikedIndex = cursor.getColumnIndex("is_liked");
+        if (isLikedIndex != -1) {
+            musicInfo.setLiked(cursor.getInt(isLikedIndex) == 1);
+        }
+        return musicInfo;
+    }
+}
@@ -0,0 +1,77 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import java.util.Arrays;
+
+/**
+ * 数据库测试使用的独立数据库和公共工具
+ * 每个测试在自己的数据库文件上运行，不读写应用的 music_player.db，设备上的曲库和播放列表不受影响；
+ * 测试结束后调用 delete() 删除数据库文件
+ */
+final class TestDatabase {
+
+    static final String BENCH_URL_PREFIX = "https://bench.musiccommunity.test/track/";
+
+    final Context context;
+    final DatabaseHelper dbHelper;
+    final MusicDao musicDao;
+    private final String name;
+
+    private TestDatabase(Context context, String name) {
+        this.context = context;
+        this.name = name;
+        dbHelper = new DatabaseHelper(context, name, DatabaseConfig.defaults());
+        musicDao = new MusicDao(dbHelper);
+    }
+
+    /**
+     * 创建空的独立数据库；上次测试异常退出留下的同名文件先删除
+     * @param testName 测试类名，用于区分数据库文件
+     */
+    static TestDatabase create(String testName) {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String name = "test_" + testName + ".db";
+        context.deleteDatabase(name);
+        return new TestDatabase(context, name);
+    }
+
+    /**
+     * 在这个数据库上导出和恢复的曲库快照
+     */
+    LibrarySnapshot newLibrarySnapshot() {
+        return new LibrarySnapshot(dbHelper, musicDao);
+    }
+
+    /**
+     * 关闭并删除数据库文件
+     */
+    void delete() {
+        dbHelper.close();
+        context.deleteDatabase(name);
+    }
+
+    /**
+     * 测试曲目，URL 为 urlPrefix + n + ".mp3"
+     * @param label 歌名和歌手的前缀
+     * @param artists 不同歌手的数量
+     */
+    static MusicInfo track(String urlPrefix, String label, int n, int artists) {
+        return new MusicInfo(0, label + " Track " + n, label + " Artist " + (n % artists),
+                urlPrefix + n + ".mp3");
+    }
+
+    static long median(long[] samples) {
+        return percentile(samples, 50);
+    }
+
+    static long percentile(long[] samples, int percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,98 @@
+package com.qzz.musiccommunity.Service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.util.Log;
+
+import com.qzz.musiccommunity.database.DatabaseMaintenance;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库维护任务
+ * 注册两个周期任务：设备空闲时一个、充电时一个，满足任一条件即可执行；
+ * 两个任务共用 DatabaseMaintenance 的最短间隔，一天内只会完整执行一次
+ */
+public class DatabaseMaintenanceJobService extends JobService {
+
+    private static final String TAG = "DbMaintenanceJob";
+
+    private static final int JOB_ID_IDLE = 1001;
+    private static final int JOB_ID_CHARGING = 1002;
+    private static final String EXTRA_CHARGING = "charging";
+
+    private static final long PERIOD_MS = TimeUnit.HOURS.toMillis(24);
+    // 空闲时的预算较短，充电时允许执行一次性的 VACUUM
+    private static final long IDLE_BUDGET_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long CHARGING_BUDGET_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private volatile boolean stopped;
+
+    /**
+     * 注册维护任务，已注册时不重复注册
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null) {
+            Log.w(TAG, "JobScheduler 不可用，跳过数据库维护任务注册");
+            return;
+        }
+        ComponentName component = new ComponentName(context, DatabaseMaintenanceJobService.class);
+
+        if (scheduler.getPendingJob(JOB_ID_IDLE) == null) {
+            PersistableBundle extras = new PersistableBundle();
+            extras.putBoolean(EXTRA_CHARGING, false);
+            scheduler.schedule(new JobInfo.Builder(JOB_ID_IDLE, component)
+                    .setRequiresDeviceIdle(true)
+                    .setRequiresBatteryNotLow(true)
+                    .setPeriodic(PERIOD_MS)
+                    .setExtras(extras)
+                    .build());
+        }
+        if (scheduler.getPendingJob(JOB_ID_CHARGING) == null) {
+            PersistableBundle extras = new PersistableBundle();
+            extras.putBoolean(EXTRA_CHARGING, true);
+            scheduler.schedule(new JobInfo.Builder(JOB_ID_CHARGING, component)
+                    .setRequiresCharging(true)
+                    .setPeriodic(PERIOD_MS)
+                    .setExtras(extras)
+                    .build());
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        DatabaseMaintenance maintenance = DatabaseMaintenance.getInstance(this);
+        if (!maintenance.isDue()) {
+            Log.d(TAG, "距离上次维护时间过短，跳过");
+            return false;
+        }
+
+        boolean charging = params.getExtras().getBoolean(EXTRA_CHARGING, false);
+        stopped = false;
+        Thread worker = new Thread(() -> {
+            DatabaseMaintenance.Report report = maintenance.run(
+                    charging ? CHARGING_BUDGET_MS : IDLE_BUDGET_MS, charging, () -> stopped);
+            // 被系统停止时由 onStopJob 决定是否重试，这里不再通知
+            if (!stopped) {
+                jobFinished(params, report != null && !report.completed);
+            }
+        }, "db-maintenance");
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Log.d(TAG, "维护任务被系统停止");
+        stopped = true;
+        // 未完成的部分在下一个周期继续执行
+        return false;
+    }
+}
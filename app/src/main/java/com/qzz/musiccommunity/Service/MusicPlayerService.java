@@ -16,6 +16,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.qzz.musiccommunity.R;
 import com.qzz.musiccommunity.instance.MusicManager;
+import com.qzz.musiccommunity.database.PersistenceQueue;
 import com.qzz.musiccommunity.database.dto.MusicInfo;
 import com.qzz.musiccommunity.ui.views.MusicPlayer.MusicPlayerActivity;
 
@@ -362,6 +363,18 @@ public class MusicPlayerService extends Service implements MediaPlayer.OnPrepare
         play();
         // 启动进度更新
         progressHandler.post(progressUpdateRunnable);
+        recordPlay();
+    }
+
+    /**
+     * 记录一次播放，只加入后台写入队列，不阻塞切歌
+     */
+    private void recordPlay() {
+        MusicInfo musicInfo = musicManager.incrementCurrentPlayCount();
+        if (musicInfo == null) {
+            return;
+        }
+        PersistenceQueue.getInstance(this).submitPlay(musicInfo, System.currentTimeMillis());
     }
 
     @Override
@@ -510,6 +523,8 @@ public class MusicPlayerService extends Service implements MediaPlayer.OnPrepare
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "Service onDestroy");
+        // 服务销毁时进程可能随后被回收，立即提交待写入的修改；在后台线程执行，不阻塞主线程
+        PersistenceQueue.getInstance(this).requestFlush();
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
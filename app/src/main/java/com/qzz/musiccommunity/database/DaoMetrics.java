@@ -0,0 +1,273 @@
+package com.qzz.musiccommunity.database;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MusicDao 调用的耗时统计
+ * 每个方法记录调用次数、返回行数、耗时直方图和最大耗时；
+ * 超过阈值的调用写入慢查询日志（Log.w，并保留最近 SLOW_LOG_CAPACITY 条），附带该线程最后执行的 SQL
+ * 命中内存缓存或参数无效而提前返回的调用不计入统计
+ */
+public class DaoMetrics {
+    private static final String TAG = "DaoMetrics";
+
+    // 直方图各桶的上限（微秒），最后一桶不设上限
+    private static final long[] BUCKET_BOUNDS_US = {
+            250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 32_000, 64_000, 128_000, 256_000
+    };
+    // 保留的慢查询条数
+    private static final int SLOW_LOG_CAPACITY = 32;
+
+    /**
+     * 单个方法的统计，snapshot() 返回的是副本
+     */
+    public static class MethodStats {
+        public final String method;
+        private long count;
+        private long rows;
+        private long totalNanos;
+        private long maxNanos;
+        private long slowCount;
+        private final long[] buckets = new long[BUCKET_BOUNDS_US.length + 1];
+
+        MethodStats(String method) {
+            this.method = method;
+        }
+
+        MethodStats(MethodStats other) {
+            this.method = other.method;
+            this.count = other.count;
+            this.rows = other.rows;
+            this.totalNanos = other.totalNanos;
+            this.maxNanos = other.maxNanos;
+            this.slowCount = other.slowCount;
+            System.arraycopy(other.buckets, 0, buckets, 0, buckets.length);
+        }
+
+        void add(long nanos, int rowCount, boolean slow) {
+            count++;
+            rows += Math.max(0, rowCount);
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (slow) {
+                slowCount++;
+            }
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_US.length && micros > BUCKET_BOUNDS_US[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getSlowCount() {
+            return slowCount;
+        }
+
+        public double getAverageMs() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double getMaxMs() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * 按直方图估算的分位耗时（所在桶的上限），落在最后一桶时返回最大耗时
+         * @param percentile 0~100
+         */
+        public double getPercentileMs(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_US.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(BUCKET_BOUNDS_US[i] / 1000.0, getMaxMs());
+                }
+            }
+            return getMaxMs();
+        }
+
+        /**
+         * 各桶的计数，与 getBucketBoundsUs() 一一对应，多出的最后一项为超出所有上限的计数
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s{count=%d, rows=%d, avg=%.2fms, p50=%.2fms, p95=%.2fms, max=%.2fms, slow=%d}",
+                    method, count, rows, getAverageMs(), getPercentileMs(50), getPercentileMs(95),
+                    getMaxMs(), slowCount);
+        }
+    }
+
+    /**
+     * 一条慢查询记录
+     */
+    public static class SlowQuery {
+        public final String method;
+        public final double durationMs;
+        public final int rows;
+        // 该线程在这次调用中最后执行的查询，写操作为null
+        public final String sql;
+        public final String thread;
+        public final long time;
+
+        SlowQuery(String method, double durationMs, int rows, String sql, String thread, long time) {
+            this.method = method;
+            this.durationMs = durationMs;
+            this.rows = rows;
+            this.sql = sql;
+            this.thread = thread;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + durationMs + "ms, rows=" + rows + ", thread=" + thread +
+                    (sql == null ? "" : ", sql=" + sql);
+        }
+    }
+
+    /**
+     * 每次执行查询前的回调，用于测试中收集 MusicDao 执行的 SQL 并检查查询计划
+     */
+    interface QueryListener {
+        void onQuery(String sql, String[] args);
+    }
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final Map<String, MethodStats> statsByMethod = new LinkedHashMap<>();
+    private final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final ThreadLocal<String> lastSql = new ThreadLocal<>();
+    private volatile QueryListener queryListener;
+
+    DaoMetrics(DatabaseConfig config) {
+        this.enabled = config.isQueryMetricsEnabled();
+        this.slowThresholdNanos = config.getSlowQueryThresholdMs() * 1_000_000L;
+    }
+
+    /**
+     * 开始计时，返回值传给 record()
+     */
+    long start() {
+        if (!enabled) {
+            return 0;
+        }
+        lastSql.remove();
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * 记录一次调用
+     * @param method 方法名
+     * @param startNanos start() 的返回值
+     * @param rows 读取或写入的行数
+     */
+    void record(String method, long startNanos, int rows) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        boolean slow = nanos >= slowThresholdNanos;
+        SlowQuery slowQuery = null;
+        synchronized (this) {
+            MethodStats stats = statsByMethod.get(method);
+            if (stats == null) {
+                stats = new MethodStats(method);
+                statsByMethod.put(method, stats);
+            }
+            stats.add(nanos, rows, slow);
+            if (slow) {
+                slowQuery = new SlowQuery(method, nanos / 1e6, rows, lastSql.get(),
+                        Thread.currentThread().getName(), System.currentTimeMillis());
+                if (slowQueries.size() == SLOW_LOG_CAPACITY) {
+                    slowQueries.removeFirst();
+                }
+                slowQueries.addLast(slowQuery);
+            }
+        }
+        if (slowQuery != null) {
+            Log.w(TAG, "慢查询: " + slowQuery);
+        }
+    }
+
+    /**
+     * MusicDao 执行查询前调用
+     */
+    void onQuery(String sql, String[] args) {
+        if (enabled) {
+            lastSql.set(sql);
+        }
+        QueryListener listener = queryListener;
+        if (listener != null) {
+            listener.onQuery(sql, args);
+        }
+    }
+
+    void setQueryListener(QueryListener queryListener) {
+        this.queryListener = queryListener;
+    }
+
+    /**
+     * 各方法统计的副本，按第一次调用的顺序排列
+     */
+    public synchronized List<MethodStats> snapshot() {
+        List<MethodStats> copies = new ArrayList<>(statsByMethod.size());
+        for (MethodStats stats : statsByMethod.values()) {
+            copies.add(new MethodStats(stats));
+        }
+        return copies;
+    }
+
+    /**
+     * 最近的慢查询，旧的在前
+     */
+    public synchronized List<SlowQuery> getSlowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    public synchronized void reset() {
+        statsByMethod.clear();
+        slowQueries.clear();
+    }
+
+    public static long[] getBucketBoundsUs() {
+        return BUCKET_BOUNDS_US.clone();
+    }
+
+    /**
+     * 把当前统计输出到日志，用于调试
+     */
+    public void dump() {
+        for (MethodStats stats : snapshot()) {
+            Log.i(TAG, stats.toString());
+        }
+        for (SlowQuery slowQuery : getSlowQueries()) {
+            Log.i(TAG, "慢查询: " + slowQuery);
+        }
+    }
+}
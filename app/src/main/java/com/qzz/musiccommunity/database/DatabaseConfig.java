@@ -0,0 +1,123 @@
+package com.qzz.musiccommunity.database;
+
+/**
+ * 数据库连接配置
+ * 需要在第一次调用 DatabaseHelper.getInstance() 之前通过 DatabaseHelper.setConfig() 设置，之后修改不生效
+ *
+ * 连接池说明：开启WAL后，系统会为数据库维护一个写连接和若干读连接，
+ * 读连接数由系统资源 db_connection_pool_size 决定（通常为4），应用无法修改；
+ * 读操作在读连接上执行，不再被写事务阻塞
+ */
+public class DatabaseConfig {
+
+    // synchronous 取值
+    public static final String SYNCHRONOUS_OFF = "OFF";
+    public static final String SYNCHRONOUS_NORMAL = "NORMAL";
+    public static final String SYNCHRONOUS_FULL = "FULL";
+
+    private boolean writeAheadLoggingEnabled = true;
+    // WAL模式下 NORMAL 不会损坏数据库，最多丢失最后一次检查点之后已提交的事务
+    private String synchronousMode = SYNCHRONOUS_NORMAL;
+    // 页缓存大小（KB），每个连接独立
+    private int cacheSizeKb = 4096;
+    // 内存映射读取的大小（字节），0 表示关闭
+    private long mmapSizeBytes = 32L * 1024 * 1024;
+    // 临时表和排序使用内存而不是临时文件
+    private boolean tempStoreInMemory = true;
+    // MusicDao 内存行缓存的最大行数
+    private int musicCacheSize = 512;
+    // 是否统计 MusicDao 各方法的耗时
+    private boolean queryMetricsEnabled = true;
+    // 超过该耗时（毫秒）的 DAO 调用记入慢查询日志，默认为一帧的时间
+    private long slowQueryThresholdMs = 16;
+
+    public static DatabaseConfig defaults() {
+        return new DatabaseConfig();
+    }
+
+    public boolean isWriteAheadLoggingEnabled() {
+        return writeAheadLoggingEnabled;
+    }
+
+    public DatabaseConfig setWriteAheadLoggingEnabled(boolean writeAheadLoggingEnabled) {
+        this.writeAheadLoggingEnabled = writeAheadLoggingEnabled;
+        return this;
+    }
+
+    public String getSynchronousMode() {
+        return synchronousMode;
+    }
+
+    public DatabaseConfig setSynchronousMode(String synchronousMode) {
+        this.synchronousMode = synchronousMode;
+        return this;
+    }
+
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
+    }
+
+    public DatabaseConfig setCacheSizeKb(int cacheSizeKb) {
+        this.cacheSizeKb = cacheSizeKb;
+        return this;
+    }
+
+    public long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    public DatabaseConfig setMmapSizeBytes(long mmapSizeBytes) {
+        this.mmapSizeBytes = mmapSizeBytes;
+        return this;
+    }
+
+    public boolean isTempStoreInMemory() {
+        return tempStoreInMemory;
+    }
+
+    public DatabaseConfig setTempStoreInMemory(boolean tempStoreInMemory) {
+        this.tempStoreInMemory = tempStoreInMemory;
+        return this;
+    }
+
+    public int getMusicCacheSize() {
+        return musicCacheSize;
+    }
+
+    public DatabaseConfig setMusicCacheSize(int musicCacheSize) {
+        this.musicCacheSize = musicCacheSize;
+        return this;
+    }
+
+    public boolean isQueryMetricsEnabled() {
+        return queryMetricsEnabled;
+    }
+
+    public DatabaseConfig setQueryMetricsEnabled(boolean queryMetricsEnabled) {
+        this.queryMetricsEnabled = queryMetricsEnabled;
+        return this;
+    }
+
+    public long getSlowQueryThresholdMs() {
+        return slowQueryThresholdMs;
+    }
+
+    public DatabaseConfig setSlowQueryThresholdMs(long slowQueryThresholdMs) {
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseConfig{" +
+                "wal=" + writeAheadLoggingEnabled +
+                ", synchronous=" + synchronousMode +
+                ", cacheSizeKb=" + cacheSizeKb +
+                ", mmapSizeBytes=" + mmapSizeBytes +
+                ", tempStoreInMemory=" + tempStoreInMemory +
+                ", musicCacheSize=" + musicCacheSize +
+                ", queryMetricsEnabled=" + queryMetricsEnabled +
+                ", slowQueryThresholdMs=" + slowQueryThresholdMs +
+                '}';
+    }
+}
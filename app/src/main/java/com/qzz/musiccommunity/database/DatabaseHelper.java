@@ -3,30 +3,45 @@ package com.qzz.musiccommunity.database;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 import android.util.Log;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "DatabaseHelper";
 
     private static final String DATABASE_NAME = "music_player.db";
-    private static final int DATABASE_VERSION = 2; // 增加版本号以支持升级
+    private static final int DATABASE_VERSION = 10; // 版本10：新增首页模块缓存表
 
     // music_info 表
     public static final String TABLE_MUSIC_INFO = "music_info";
     public static final String COLUMN_MUSIC_ID = "id";
     public static final String COLUMN_MUSIC_NAME = "music_name";
     public static final String COLUMN_AUTHOR = "author";
-    public static final String COLUMN_MUSIC_URL = "music_url";
+    public static final String COLUMN_MUSIC_URL = "music_url"; // 完整 URL：music_info 在版本8之前的列，只在升级时使用；module_music 直接保存完整 URL
+    public static final String COLUMN_URL_HASH = "url_hash"; // 完整 URL 的64位哈希，见 MusicUrls
+    public static final String COLUMN_URL_PREFIX_ID = "url_prefix_id"; // url_prefix 表的ID，0 表示不使用前缀
+    public static final String COLUMN_URL_PATH = "url_path"; // 去掉前缀后的 URL
     public static final String COLUMN_COVER_URL = "cover_url";
     public static final String COLUMN_LYRIC_URL = "lyric_url";
     public static final String COLUMN_DURATION = "duration"; // 新增：歌曲时长
     public static final String COLUMN_FILE_SIZE = "file_size"; // 新增：文件大小
     public static final String COLUMN_CREATED_TIME = "created_time"; // 新增：创建时间
+    public static final String COLUMN_NAME_PINYIN = "name_pinyin"; // 歌名全拼
+    public static final String COLUMN_NAME_INITIALS = "name_initials"; // 歌名拼音首字母
+    public static final String COLUMN_AUTHOR_PINYIN = "author_pinyin"; // 歌手全拼
+    public static final String COLUMN_AUTHOR_INITIALS = "author_initials"; // 歌手拼音首字母
+
+    // url_prefix 表，URL 的协议和主机部分，ID 为前缀字符串的64位哈希
+    public static final String TABLE_URL_PREFIX = "url_prefix";
+    public static final String COLUMN_PREFIX_ID = "id";
+    public static final String COLUMN_PREFIX = "prefix";
 
     // liked_music 表
     public static final String TABLE_LIKED_MUSIC = "liked_music";
@@ -34,25 +49,88 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_IS_LIKED = "is_liked";
     public static final String COLUMN_TIMESTAMP = "timestamp";
 
-    // playlist 表
+    // playlist_info 表，每个命名播放列表一行
+    public static final String TABLE_PLAYLIST_INFO = "playlist_info";
+    public static final String COLUMN_PLAYLIST_INFO_ID = "id";
+    public static final String COLUMN_PLAYLIST_NAME = "name";
+    // 当前播放队列，数据库创建时插入，不能删除
+    public static final long DEFAULT_PLAYLIST_ID = 1;
+
+    // playlist 表，播放列表中的歌曲
     public static final String TABLE_PLAYLIST = "playlist";
     public static final String COLUMN_PLAYLIST_ID = "id";
+    public static final String COLUMN_PLAYLIST_OWNER_ID = "playlist_id"; // 所属播放列表
     public static final String COLUMN_PLAYLIST_MUSIC_ID = "music_id";
-    public static final String COLUMN_SEQUENCE_NUM = "sequence_num";
+    public static final String COLUMN_SORT_KEY = "sort_key"; // 稀疏排序键，见 PlaylistOrder
+    public static final String COLUMN_SEQUENCE_NUM = "sequence_num"; // 版本7之前的连续序号，只在升级时使用
     public static final String COLUMN_ADDED_TIME = "added_time"; // 新增：添加时间
 
-    // 创建 music_info 表的 SQL 语句 - 增强版
-    private static final String CREATE_TABLE_MUSIC_INFO = "CREATE TABLE IF NOT EXISTS " +
-            TABLE_MUSIC_INFO + " (" +
+    // music_fts 全文检索表，docid 与 music_info.id 一致，内容为 SearchTokenizer 分词后的文本
+    public static final String TABLE_MUSIC_FTS = "music_fts";
+    public static final String COLUMN_FTS_NAME = "name_tokens";
+    public static final String COLUMN_FTS_AUTHOR = "author_tokens";
+
+    // play_history 表，只追加的播放记录
+    public static final String TABLE_PLAY_HISTORY = "play_history";
+    public static final String COLUMN_HISTORY_ID = "id";
+    public static final String COLUMN_HISTORY_MUSIC_ID = "music_id";
+    public static final String COLUMN_PLAYED_TIME = "played_time"; // 开始播放的时间（毫秒）
+
+    // play_stats 表，每首歌一行的播放统计，与 play_history 在同一事务中更新
+    public static final String TABLE_PLAY_STATS = "play_stats";
+    public static final String COLUMN_STATS_MUSIC_ID = "music_id";
+    public static final String COLUMN_PLAY_COUNT = "play_count";
+    public static final String COLUMN_LAST_PLAYED_TIME = "last_played_time";
+
+    // 首页模块表：缓存 getHomePage 返回的每一页，启动时先显示缓存的内容
+    public static final String TABLE_MODULE = "module";
+    public static final String COLUMN_MODULE_ROW_ID = "id";
+    public static final String COLUMN_MODULE_PAGE = "page"; // 页码，从1开始
+    public static final String COLUMN_MODULE_POSITION = "position"; // 模块在页内的位置
+    public static final String COLUMN_MODULE_CONFIG_ID = "module_config_id"; // 服务器的模块ID
+    public static final String COLUMN_MODULE_NAME = "module_name";
+    public static final String COLUMN_MODULE_STYLE = "style";
+    public static final String COLUMN_PAGE_SIZE = "page_size"; // 请求这一页时的每页条数
+    public static final String COLUMN_PAGE_TOTAL = "page_total"; // 这一页返回的模块总数
+    public static final String COLUMN_FETCHED_TIME = "fetched_time"; // 这一页从网络获取的时间（毫秒）
+
+    // 首页模块中的歌曲表
+    // 首页推荐的歌曲不一定在曲库中，歌曲信息直接保存在这张表里，不引用 music_info，不影响曲库的检索和清理
+    public static final String TABLE_MODULE_MUSIC = "module_music";
+    public static final String COLUMN_MODULE_MUSIC_ID = "id";
+    public static final String COLUMN_MODULE_MUSIC_OWNER_ID = "module_id"; // 所属模块
+    public static final String COLUMN_MODULE_MUSIC_POSITION = "position";
+    public static final String COLUMN_REMOTE_MUSIC_ID = "remote_id"; // 服务器的歌曲ID
+
+    // 创建 music_info 表的 SQL 语句
+    // URL 的唯一性由 url_hash 上的唯一索引保证（索引项只有8字节），哈希相同时由 MusicDao 比较完整的 URL
+    private static final String CREATE_TABLE_MUSIC_INFO = createMusicInfoTableSql(TABLE_MUSIC_INFO);
+
+    private static String createMusicInfoTableSql(String tableName) {
+        return "CREATE TABLE IF NOT EXISTS " +
+            tableName + " (" +
             COLUMN_MUSIC_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
             COLUMN_MUSIC_NAME + " TEXT NOT NULL, " +
             COLUMN_AUTHOR + " TEXT NOT NULL, " +
-            COLUMN_MUSIC_URL + " TEXT NOT NULL UNIQUE, " +
+            COLUMN_URL_HASH + " INTEGER NOT NULL UNIQUE, " +
+            COLUMN_URL_PREFIX_ID + " INTEGER NOT NULL DEFAULT 0, " +
+            COLUMN_URL_PATH + " TEXT NOT NULL, " +
             COLUMN_COVER_URL + " TEXT, " +
             COLUMN_LYRIC_URL + " TEXT, " +
             COLUMN_DURATION + " INTEGER DEFAULT 0, " +
             COLUMN_FILE_SIZE + " INTEGER DEFAULT 0, " +
-            COLUMN_CREATED_TIME + " INTEGER DEFAULT (strftime('%s','now')));";
+            COLUMN_CREATED_TIME + " INTEGER DEFAULT (strftime('%s','now')), " +
+            COLUMN_NAME_PINYIN + " TEXT NOT NULL DEFAULT '', " +
+            COLUMN_NAME_INITIALS + " TEXT NOT NULL DEFAULT '', " +
+            COLUMN_AUTHOR_PINYIN + " TEXT NOT NULL DEFAULT '', " +
+            COLUMN_AUTHOR_INITIALS + " TEXT NOT NULL DEFAULT '');";
+    }
+
+    // 创建 url_prefix 表的 SQL 语句
+    private static final String CREATE_TABLE_URL_PREFIX = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_URL_PREFIX + " (" +
+            COLUMN_PREFIX_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_PREFIX + " TEXT NOT NULL);";
 
     // 创建 liked_music 表的 SQL 语句 - 增强版
     private static final String CREATE_TABLE_LIKED_MUSIC = "CREATE TABLE IF NOT EXISTS " +
@@ -63,39 +141,206 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             "FOREIGN KEY (" + COLUMN_LIKED_MUSIC_ID + ") REFERENCES " +
             TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_ID + ") ON DELETE CASCADE);";
 
-    // 创建 playlist 表的 SQL 语句 - 增强版
+    // 创建 playlist_info 表的 SQL 语句
+    private static final String CREATE_TABLE_PLAYLIST_INFO = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_PLAYLIST_INFO + " (" +
+            COLUMN_PLAYLIST_INFO_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_PLAYLIST_NAME + " TEXT NOT NULL UNIQUE, " +
+            COLUMN_CREATED_TIME + " INTEGER DEFAULT (strftime('%s','now')));";
+
+    private static final String INSERT_DEFAULT_PLAYLIST = "INSERT OR IGNORE INTO " + TABLE_PLAYLIST_INFO +
+            " (" + COLUMN_PLAYLIST_INFO_ID + ", " + COLUMN_PLAYLIST_NAME + ") VALUES (" +
+            DEFAULT_PLAYLIST_ID + ", '当前播放');";
+
+    // 创建 playlist 表的 SQL 语句
+    // 排序键是稀疏的，插入、移动只修改一行；同一首歌可以在列表中出现多次
     private static final String CREATE_TABLE_PLAYLIST = "CREATE TABLE IF NOT EXISTS " +
             TABLE_PLAYLIST + " (" +
-            COLUMN_PLAYLIST_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_PLAYLIST_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_PLAYLIST_OWNER_ID + " INTEGER NOT NULL DEFAULT " + DEFAULT_PLAYLIST_ID + ", " +
             COLUMN_PLAYLIST_MUSIC_ID + " INTEGER NOT NULL, " +
-            COLUMN_SEQUENCE_NUM + " INTEGER NOT NULL, " +
+            COLUMN_SORT_KEY + " INTEGER NOT NULL, " +
             COLUMN_ADDED_TIME + " INTEGER DEFAULT (strftime('%s','now')), " +
-            "UNIQUE (" + COLUMN_PLAYLIST_MUSIC_ID + ", " + COLUMN_SEQUENCE_NUM + "), " +
+            "FOREIGN KEY (" + COLUMN_PLAYLIST_OWNER_ID + ") REFERENCES " +
+            TABLE_PLAYLIST_INFO + " (" + COLUMN_PLAYLIST_INFO_ID + ") ON DELETE CASCADE, " +
             "FOREIGN KEY (" + COLUMN_PLAYLIST_MUSIC_ID + ") REFERENCES " +
             TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_ID + ") ON DELETE CASCADE);";
 
+    // playlist 表的索引依赖版本7的表结构，不放在 CREATE_INDEXES 中，避免版本5、6的升级步骤在旧表上创建
+    private static final String[] CREATE_PLAYLIST_INDEXES = {
+            // 按位置读取和分配排序键时只扫描这个索引（rowid 隐含在索引末尾，ORDER BY sort_key, id 不需要排序）
+            "CREATE INDEX IF NOT EXISTS idx_playlist_order ON " + TABLE_PLAYLIST + " (" + COLUMN_PLAYLIST_OWNER_ID + ", " + COLUMN_SORT_KEY + ");",
+            // 删除音乐时级联删除播放列表项使用
+            "CREATE INDEX IF NOT EXISTS idx_playlist_music ON " + TABLE_PLAYLIST + " (" + COLUMN_PLAYLIST_MUSIC_ID + ");"
+    };
+
+    // 创建全文检索表的 SQL 语句
+    // Android 自带的 SQLite 不保证启用 FTS5，使用所有版本都支持的 FTS4
+    private static final String CREATE_TABLE_MUSIC_FTS = "CREATE VIRTUAL TABLE IF NOT EXISTS " +
+            TABLE_MUSIC_FTS + " USING fts4(" +
+            COLUMN_FTS_NAME + ", " +
+            COLUMN_FTS_AUTHOR + ");";
+
+    // 删除音乐时同步删除检索索引；插入和更新需要 Java 侧分词，由 MusicDao 负责写入
+    private static final String CREATE_TRIGGER_MUSIC_FTS_DELETE = "CREATE TRIGGER IF NOT EXISTS trg_music_fts_delete" +
+            " AFTER DELETE ON " + TABLE_MUSIC_INFO +
+            " BEGIN DELETE FROM " + TABLE_MUSIC_FTS + " WHERE docid = old." + COLUMN_MUSIC_ID + "; END;";
+
+    // 创建 play_history 表的 SQL 语句
+    // 只追加，不使用 AUTOINCREMENT，省去每次插入对 sqlite_sequence 的更新
+    private static final String CREATE_TABLE_PLAY_HISTORY = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_PLAY_HISTORY + " (" +
+            COLUMN_HISTORY_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_HISTORY_MUSIC_ID + " INTEGER NOT NULL, " +
+            COLUMN_PLAYED_TIME + " INTEGER NOT NULL, " +
+            "FOREIGN KEY (" + COLUMN_HISTORY_MUSIC_ID + ") REFERENCES " +
+            TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_ID + ") ON DELETE CASCADE);";
+
+    // 创建 play_stats 表的 SQL 语句
+    // "最近播放"、"最常播放"按这张表的索引读取前N行，不需要对 play_history 分组扫描
+    private static final String CREATE_TABLE_PLAY_STATS = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_PLAY_STATS + " (" +
+            COLUMN_STATS_MUSIC_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_PLAY_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            COLUMN_LAST_PLAYED_TIME + " INTEGER NOT NULL DEFAULT 0, " +
+            "FOREIGN KEY (" + COLUMN_STATS_MUSIC_ID + ") REFERENCES " +
+            TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_ID + ") ON DELETE CASCADE);";
+
+    // 创建 module 表的 SQL 语句，每页整体替换
+    private static final String CREATE_TABLE_MODULE = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_MODULE + " (" +
+            COLUMN_MODULE_ROW_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_MODULE_PAGE + " INTEGER NOT NULL, " +
+            COLUMN_MODULE_POSITION + " INTEGER NOT NULL, " +
+            COLUMN_MODULE_CONFIG_ID + " INTEGER NOT NULL, " +
+            COLUMN_MODULE_NAME + " TEXT, " +
+            COLUMN_MODULE_STYLE + " INTEGER NOT NULL, " +
+            COLUMN_PAGE_SIZE + " INTEGER NOT NULL, " +
+            COLUMN_PAGE_TOTAL + " INTEGER NOT NULL, " +
+            COLUMN_FETCHED_TIME + " INTEGER NOT NULL, " +
+            // 按页读取时直接使用这个唯一索引，不需要排序
+            "UNIQUE (" + COLUMN_MODULE_PAGE + ", " + COLUMN_MODULE_POSITION + "));";
+
+    // 创建 module_music 表的 SQL 语句
+    private static final String CREATE_TABLE_MODULE_MUSIC = "CREATE TABLE IF NOT EXISTS " +
+            TABLE_MODULE_MUSIC + " (" +
+            COLUMN_MODULE_MUSIC_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_MODULE_MUSIC_OWNER_ID + " INTEGER NOT NULL, " +
+            COLUMN_MODULE_MUSIC_POSITION + " INTEGER NOT NULL, " +
+            COLUMN_REMOTE_MUSIC_ID + " INTEGER NOT NULL DEFAULT 0, " +
+            COLUMN_MUSIC_NAME + " TEXT, " +
+            COLUMN_AUTHOR + " TEXT, " +
+            COLUMN_MUSIC_URL + " TEXT, " +
+            COLUMN_COVER_URL + " TEXT, " +
+            COLUMN_LYRIC_URL + " TEXT, " +
+            COLUMN_DURATION + " INTEGER NOT NULL DEFAULT 0, " +
+            // 读取模块的歌曲和级联删除都使用这个唯一索引
+            "UNIQUE (" + COLUMN_MODULE_MUSIC_OWNER_ID + ", " + COLUMN_MODULE_MUSIC_POSITION + "), " +
+            "FOREIGN KEY (" + COLUMN_MODULE_MUSIC_OWNER_ID + ") REFERENCES " +
+            TABLE_MODULE + " (" + COLUMN_MODULE_ROW_ID + ") ON DELETE CASCADE);";
+
+    // 从播放记录重新汇总播放统计
+    private static final String REBUILD_PLAY_STATS = "INSERT OR REPLACE INTO " + TABLE_PLAY_STATS + " (" +
+            COLUMN_STATS_MUSIC_ID + ", " + COLUMN_PLAY_COUNT + ", " + COLUMN_LAST_PLAYED_TIME + ")" +
+            " SELECT " + COLUMN_HISTORY_MUSIC_ID + ", COUNT(*), MAX(" + COLUMN_PLAYED_TIME + ")" +
+            " FROM " + TABLE_PLAY_HISTORY + " GROUP BY " + COLUMN_HISTORY_MUSIC_ID + ";";
+
     // 索引创建语句
     private static final String[] CREATE_INDEXES = {
             "CREATE INDEX IF NOT EXISTS idx_music_name ON " + TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_NAME + ");",
             "CREATE INDEX IF NOT EXISTS idx_author ON " + TABLE_MUSIC_INFO + " (" + COLUMN_AUTHOR + ");",
-            "CREATE INDEX IF NOT EXISTS idx_music_url ON " + TABLE_MUSIC_INFO + " (" + COLUMN_MUSIC_URL + ");",
-            "CREATE INDEX IF NOT EXISTS idx_liked_timestamp ON " + TABLE_LIKED_MUSIC + " (" + COLUMN_TIMESTAMP + ");",
-            "CREATE INDEX IF NOT EXISTS idx_playlist_sequence ON " + TABLE_PLAYLIST + " (" + COLUMN_SEQUENCE_NUM + ");"
+            "CREATE INDEX IF NOT EXISTS idx_name_pinyin ON " + TABLE_MUSIC_INFO + " (" + COLUMN_NAME_PINYIN + ");",
+            "CREATE INDEX IF NOT EXISTS idx_name_initials ON " + TABLE_MUSIC_INFO + " (" + COLUMN_NAME_INITIALS + ");",
+            "CREATE INDEX IF NOT EXISTS idx_author_pinyin ON " + TABLE_MUSIC_INFO + " (" + COLUMN_AUTHOR_PINYIN + ");",
+            "CREATE INDEX IF NOT EXISTS idx_author_initials ON " + TABLE_MUSIC_INFO + " (" + COLUMN_AUTHOR_INITIALS + ");",
+            "CREATE INDEX IF NOT EXISTS idx_created_time ON " + TABLE_MUSIC_INFO + " (" + COLUMN_CREATED_TIME + ");",
+            // 收藏列表只读取 is_liked = 1 的行并按时间排序，两列都在索引中，不需要扫描取消收藏的行
+            "CREATE INDEX IF NOT EXISTS idx_liked_state_time ON " + TABLE_LIKED_MUSIC + " (" + COLUMN_IS_LIKED + ", " + COLUMN_TIMESTAMP + ");"
+    };
+
+    // 播放历史表和播放统计表在版本6才创建，索引不放在 CREATE_INDEXES 中，避免版本5的升级步骤在不存在的表上创建
+    private static final String[] CREATE_PLAY_HISTORY_INDEXES = {
+            // 外键级联删除和单曲播放记录查询使用
+            "CREATE INDEX IF NOT EXISTS idx_play_history_music ON " + TABLE_PLAY_HISTORY + " (" + COLUMN_HISTORY_MUSIC_ID + ", " + COLUMN_PLAYED_TIME + ");",
+            "CREATE INDEX IF NOT EXISTS idx_play_history_time ON " + TABLE_PLAY_HISTORY + " (" + COLUMN_PLAYED_TIME + ");",
+            "CREATE INDEX IF NOT EXISTS idx_play_stats_count ON " + TABLE_PLAY_STATS + " (" + COLUMN_PLAY_COUNT + ", " + COLUMN_LAST_PLAYED_TIME + ");",
+            "CREATE INDEX IF NOT EXISTS idx_play_stats_last ON " + TABLE_PLAY_STATS + " (" + COLUMN_LAST_PLAYED_TIME + ");"
     };
 
     // 所有表名列表
     private static final List<String> ALL_TABLES = Arrays.asList(
             TABLE_MUSIC_INFO,
+            TABLE_URL_PREFIX,
             TABLE_LIKED_MUSIC,
-            TABLE_PLAYLIST
+            TABLE_PLAYLIST_INFO,
+            TABLE_PLAYLIST,
+            TABLE_MUSIC_FTS,
+            TABLE_PLAY_HISTORY,
+            TABLE_PLAY_STATS,
+            TABLE_MODULE,
+            TABLE_MODULE_MUSIC
     );
 
     private static DatabaseHelper instance;
+    private static DatabaseConfig config = DatabaseConfig.defaults();
     private final Context context;
+    private final DatabaseConfig databaseConfig;
+
+    // 按版本号顺序排列的迁移步骤，最后一步的版本号必须等于 DATABASE_VERSION
+    private final List<DatabaseMigration> migrations = Arrays.asList(
+            new DatabaseMigration(2, "新增时长、文件大小、创建时间、加入时间列", this::upgradeToVersion2),
+            new DatabaseMigration(3, "新增全文检索索引", this::upgradeToVersion3),
+            new DatabaseMigration(4, "新增拼音检索/排序键", this::upgradeToVersion4),
+            new DatabaseMigration(5, "新增分页排序索引", this::createIndexes),
+            new DatabaseMigration(6, "新增播放历史表和播放统计表", this::upgradeToVersion6),
+            new DatabaseMigration(7, "播放列表改为稀疏排序键，新增命名播放列表", this::upgradeToVersion7),
+            new DatabaseMigration(8, "music_url 改为哈希键和前缀字典", this::upgradeToVersion8),
+            new DatabaseMigration(9, "收藏索引改为 (is_liked, timestamp)", this::upgradeToVersion9),
+            new DatabaseMigration(10, "新增首页模块缓存表", this::upgradeToVersion10)
+    );
+
+    // 表结构在本进程中是否已经验证通过；验证通过后获取数据库时不再检查
+    private volatile boolean schemaVerified = false;
+    // 本次打开需要执行升级，升级期间外键关闭，见 onConfigure
+    private boolean upgradePending = false;
+
+    private final UrlPrefixDictionary urlPrefixes = new UrlPrefixDictionary(this);
 
-    private DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private DatabaseHelper(Context context, DatabaseConfig databaseConfig) {
+        this(context, DATABASE_NAME, databaseConfig);
+    }
+
+    /**
+     * 打开指定名称的数据库，测试使用独立的数据库文件，不影响应用的 music_player.db
+     */
+    DatabaseHelper(Context context, String databaseName, DatabaseConfig databaseConfig) {
+        super(context, databaseName, null, DATABASE_VERSION);
         this.context = context.getApplicationContext();
+        this.databaseConfig = databaseConfig;
+
+        int lastVersion = migrations.get(migrations.size() - 1).toVersion;
+        if (lastVersion != DATABASE_VERSION) {
+            throw new IllegalStateException("迁移步骤的最高版本 " + lastVersion + " 与数据库版本 " + DATABASE_VERSION + " 不一致");
+        }
+
+        // journal_mode 和 synchronous 由系统在打开每个连接时设置
+        SQLiteDatabase.OpenParams.Builder openParams = new SQLiteDatabase.OpenParams.Builder()
+                .setSynchronousMode(databaseConfig.getSynchronousMode());
+        if (databaseConfig.isWriteAheadLoggingEnabled()) {
+            openParams.addOpenFlags(SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        }
+        setOpenParams(openParams.build());
+    }
+
+    /**
+     * 设置数据库连接配置，必须在第一次调用 getInstance() 之前调用
+     */
+    public static synchronized void setConfig(DatabaseConfig databaseConfig) {
+        if (instance != null) {
+            Log.w(TAG, "数据库已打开，配置修改不生效");
+            return;
+        }
+        config = databaseConfig;
     }
 
     /**
@@ -103,22 +348,43 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
-            instance = new DatabaseHelper(context);
+            instance = new DatabaseHelper(context, config);
         }
         return instance;
     }
 
+    DatabaseConfig getConfig() {
+        return databaseConfig;
+    }
+
+    UrlPrefixDictionary getUrlPrefixes() {
+        return urlPrefixes;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // 以下设置作用于每个连接（包括WAL模式下的读连接），在建表/升级之前执行
+        // 升级步骤会重建被外键引用的表，外键开启时 DROP TABLE 会级联删除子表数据；
+        // PRAGMA foreign_keys 在事务中无效，只能在升级事务开始前关闭，升级完成后在 onOpen 中开启
+        int version = db.getVersion();
+        upgradePending = version > 0 && version < DATABASE_VERSION;
+        db.setForeignKeyConstraintsEnabled(!upgradePending);
+        db.execPerConnectionSQL("PRAGMA cache_size = -" + databaseConfig.getCacheSizeKb(), null);
+        db.execPerConnectionSQL("PRAGMA mmap_size = " + databaseConfig.getMmapSizeBytes(), null);
+        db.execPerConnectionSQL("PRAGMA temp_store = " +
+                (databaseConfig.isTempStoreInMemory() ? "MEMORY" : "DEFAULT"), null);
+        Log.d(TAG, "数据库连接配置: " + databaseConfig);
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         Log.i(TAG, "开始创建数据库，版本: " + DATABASE_VERSION);
 
         try {
-            // 开启事务
+            // 开启事务（外键约束已在 onConfigure 中启用）
             db.beginTransaction();
 
-            // 启用外键约束
-            db.execSQL("PRAGMA foreign_keys=ON;");
-
             // 创建表
             createTables(db);
 
@@ -147,45 +413,66 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.w(TAG, "升级数据库从版本 " + oldVersion + " 到 " + newVersion);
+        long upgradeStart = SystemClock.elapsedRealtime();
 
+        // SQLiteOpenHelper 已在事务中调用 onUpgrade，这里不再开启嵌套事务：
+        // 嵌套事务失败会把外层事务标记为回滚，失败后的重建也会被一起撤销
         try {
-            db.beginTransaction();
-
-            if (oldVersion < 2) {
-                // 从版本1升级到版本2
-                upgradeToVersion2(db);
+            for (DatabaseMigration migration : migrations) {
+                if (migration.toVersion <= oldVersion || migration.toVersion > newVersion) {
+                    continue;
+                }
+                long start = SystemClock.elapsedRealtime();
+                migration.migrate(db);
+                Log.i(TAG, "迁移 " + migration + " 完成，耗时 " + (SystemClock.elapsedRealtime() - start) + " ms");
             }
 
             // 验证升级后的表结构
             validateTables(db);
-            createIndexes(db);
-
-            db.setTransactionSuccessful();
-            Log.i(TAG, "数据库升级成功");
+            logForeignKeyViolations(db);
+            Log.i(TAG, "数据库升级成功，总耗时 " + (SystemClock.elapsedRealtime() - upgradeStart) + " ms");
 
         } catch (Exception e) {
-            Log.e(TAG, "数据库升级失败，进行重建", e);
-            // 升级失败，删除所有表重新创建
+            if (!isDatabaseCorrupt(db)) {
+                // 迁移步骤出错：抛出异常让 SQLiteOpenHelper 回滚整个升级事务，数据库保持旧版本，用户数据不受影响，
+                // 下次打开时重新尝试升级
+                Log.e(TAG, "数据库升级失败，保留版本 " + oldVersion + " 的数据", e);
+                throw new RuntimeException("数据库升级失败", e);
+            }
+            // 数据库文件已损坏，原有数据无法读取，只能删除所有表重新创建
+            Log.e(TAG, "数据库升级失败且数据库已损坏，进行重建", e);
             recreateDatabase(db);
-        } finally {
-            try {
-                db.endTransaction();
-            } catch (Exception e) {
-                Log.e(TAG, "结束升级事务时出错", e);
+        }
+    }
+
+    /**
+     * 用 PRAGMA quick_check 确认数据库文件是否损坏；检查本身无法执行时也视为损坏
+     */
+    private boolean isDatabaseCorrupt(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("PRAGMA quick_check", null)) {
+            String result = cursor.moveToFirst() ? cursor.getString(0) : null;
+            if ("ok".equals(result)) {
+                return false;
             }
+            Log.e(TAG, "数据库快速检查结果: " + result);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "数据库快速检查失败", e);
+            return true;
         }
     }
 
     @Override
     public void onOpen(SQLiteDatabase db) {
         super.onOpen(db);
-        // 每次打开数据库时启用外键约束
-        if (!db.isReadOnly()) {
-            db.execSQL("PRAGMA foreign_keys=ON;");
+
+        if (upgradePending) {
+            upgradePending = false;
+            db.setForeignKeyConstraintsEnabled(true);
         }
 
-        // 检查表的完整性
-        checkAndRepairTables(db);
+        // 每次打开数据库时检查一次表的完整性，之后的读写不再检查
+        schemaVerified = checkAndRepairTables(db);
     }
 
     /**
@@ -196,65 +483,107 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_TABLE_MUSIC_INFO);
         Log.d(TAG, "创建表: " + TABLE_MUSIC_INFO);
 
+        db.execSQL(CREATE_TABLE_URL_PREFIX);
+        Log.d(TAG, "创建表: " + TABLE_URL_PREFIX);
+
         db.execSQL(CREATE_TABLE_LIKED_MUSIC);
         Log.d(TAG, "创建表: " + TABLE_LIKED_MUSIC);
 
-        db.execSQL(CREATE_TABLE_PLAYLIST);
-        Log.d(TAG, "创建表: " + TABLE_PLAYLIST);
+        createPlaylistTables(db);
+        Log.d(TAG, "创建表: " + TABLE_PLAYLIST_INFO + ", " + TABLE_PLAYLIST);
+
+        db.execSQL(CREATE_TABLE_MUSIC_FTS);
+        db.execSQL(CREATE_TRIGGER_MUSIC_FTS_DELETE);
+        Log.d(TAG, "创建表: " + TABLE_MUSIC_FTS);
+
+        createPlayHistoryTables(db);
+        Log.d(TAG, "创建表: " + TABLE_PLAY_HISTORY + ", " + TABLE_PLAY_STATS);
+
+        createModuleTables(db);
+        Log.d(TAG, "创建表: " + TABLE_MODULE + ", " + TABLE_MODULE_MUSIC);
     }
 
     /**
-     * 创建索引
+     * 创建索引；失败时抛出异常，升级时整个迁移回滚，不会留下缺少索引的数据库
      */
     private void createIndexes(SQLiteDatabase db) {
         Log.d(TAG, "开始创建索引");
         for (String indexSql : CREATE_INDEXES) {
-            try {
-                db.execSQL(indexSql);
-            } catch (Exception e) {
-                Log.w(TAG, "创建索引失败: " + indexSql, e);
-            }
+            db.execSQL(indexSql);
         }
     }
 
+    /**
+     * 创建播放历史表、播放统计表和它们的索引
+     */
+    private void createPlayHistoryTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_PLAY_HISTORY);
+        db.execSQL(CREATE_TABLE_PLAY_STATS);
+        for (String indexSql : CREATE_PLAY_HISTORY_INDEXES) {
+            db.execSQL(indexSql);
+        }
+    }
+
+    /**
+     * 创建播放列表相关的表和索引，并插入默认播放列表
+     */
+    private void createPlaylistTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_PLAYLIST_INFO);
+        db.execSQL(INSERT_DEFAULT_PLAYLIST);
+        db.execSQL(CREATE_TABLE_PLAYLIST);
+        for (String indexSql : CREATE_PLAYLIST_INDEXES) {
+            db.execSQL(indexSql);
+        }
+    }
+
+    /**
+     * 创建首页模块缓存的表
+     */
+    private void createModuleTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_MODULE);
+        db.execSQL(CREATE_TABLE_MODULE_MUSIC);
+    }
+
     /**
      * 验证表结构
      */
     private void validateTables(SQLiteDatabase db) {
-        for (String tableName : ALL_TABLES) {
-            if (!isTableExists(db, tableName)) {
-                throw new RuntimeException("表 " + tableName + " 不存在");
-            }
+        List<String> missingTables = findMissingTables(db);
+        if (!missingTables.isEmpty()) {
+            throw new RuntimeException("表 " + missingTables + " 不存在");
         }
         Log.d(TAG, "所有表验证通过");
     }
 
     /**
-     * 检查表是否存在
+     * 一次查询找出所有缺失的表
      */
-    private boolean isTableExists(SQLiteDatabase db, String tableName) {
-        try (Cursor cursor = db.rawQuery(
-                "SELECT name FROM sqlite_master WHERE type='table' AND name=?",
-                new String[]{tableName})) {
-            return cursor.getCount() > 0;
-        } catch (Exception e) {
-            Log.e(TAG, "检查表存在性时出错: " + tableName, e);
-            return false;
+    private List<String> findMissingTables(SQLiteDatabase db) {
+        Set<String> existingTables = new HashSet<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type='table'", null)) {
+            while (cursor.moveToNext()) {
+                existingTables.add(cursor.getString(0));
+            }
+        }
+
+        List<String> missingTables = new ArrayList<>();
+        for (String tableName : ALL_TABLES) {
+            if (!existingTables.contains(tableName)) {
+                missingTables.add(tableName);
+            }
         }
+        return missingTables;
     }
 
     /**
      * 检查并修复表
+     * @return 表结构是否完整（包括修复成功）
      */
-    private void checkAndRepairTables(SQLiteDatabase db) {
+    private boolean checkAndRepairTables(SQLiteDatabase db) {
         try {
-            List<String> missingTables = new ArrayList<>();
-
-            for (String tableName : ALL_TABLES) {
-                if (!isTableExists(db, tableName)) {
-                    missingTables.add(tableName);
-                    Log.w(TAG, "发现缺失的表: " + tableName);
-                }
+            List<String> missingTables = findMissingTables(db);
+            if (!missingTables.isEmpty()) {
+                Log.w(TAG, "发现缺失的表: " + missingTables);
             }
 
             if (!missingTables.isEmpty()) {
@@ -272,8 +601,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     db.endTransaction();
                 }
             }
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "表修复过程中出错", e);
+            return false;
         }
     }
 
@@ -285,11 +616,35 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             case TABLE_MUSIC_INFO:
                 db.execSQL(CREATE_TABLE_MUSIC_INFO);
                 break;
+            case TABLE_URL_PREFIX:
+                // 字典丢失后，使用前缀的 URL 无法还原
+                Log.e(TAG, "URL 前缀字典丢失");
+                db.execSQL(CREATE_TABLE_URL_PREFIX);
+                break;
             case TABLE_LIKED_MUSIC:
                 db.execSQL(CREATE_TABLE_LIKED_MUSIC);
                 break;
+            case TABLE_PLAYLIST_INFO:
             case TABLE_PLAYLIST:
-                db.execSQL(CREATE_TABLE_PLAYLIST);
+                createPlaylistTables(db);
+                break;
+            case TABLE_MUSIC_FTS:
+                db.execSQL(CREATE_TABLE_MUSIC_FTS);
+                db.execSQL(CREATE_TRIGGER_MUSIC_FTS_DELETE);
+                rebuildSearchIndex(db);
+                break;
+            case TABLE_PLAY_HISTORY:
+                createPlayHistoryTables(db);
+                break;
+            case TABLE_PLAY_STATS:
+                createPlayHistoryTables(db);
+                // 统计表可以从播放记录重新汇总
+                db.execSQL(REBUILD_PLAY_STATS);
+                break;
+            case TABLE_MODULE:
+            case TABLE_MODULE_MUSIC:
+                // 只是缓存，丢失后重新从网络获取
+                createModuleTables(db);
                 break;
         }
         Log.d(TAG, "重新创建表: " + tableName);
@@ -299,36 +654,278 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * 升级到版本2
      */
     private void upgradeToVersion2(SQLiteDatabase db) {
-        Log.d(TAG, "执行版本2升级");
+        // ALTER TABLE ADD COLUMN 不允许表达式默认值，时间列先以0为默认值添加，再把已有行设为当前时间
+        addColumnIfMissing(db, TABLE_MUSIC_INFO, COLUMN_DURATION, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, TABLE_MUSIC_INFO, COLUMN_FILE_SIZE, "INTEGER DEFAULT 0");
+        if (addColumnIfMissing(db, TABLE_MUSIC_INFO, COLUMN_CREATED_TIME, "INTEGER DEFAULT 0")) {
+            db.execSQL("UPDATE " + TABLE_MUSIC_INFO + " SET " + COLUMN_CREATED_TIME + " = strftime('%s','now')");
+        }
 
-        // 为music_info表添加新列
-        try {
-            db.execSQL("ALTER TABLE " + TABLE_MUSIC_INFO +
-                    " ADD COLUMN " + COLUMN_DURATION + " INTEGER DEFAULT 0;");
-        } catch (SQLiteException e) {
-            Log.w(TAG, "添加duration列失败，可能已存在", e);
+        // 为playlist表添加新列
+        if (addColumnIfMissing(db, TABLE_PLAYLIST, COLUMN_ADDED_TIME, "INTEGER DEFAULT 0")) {
+            db.execSQL("UPDATE " + TABLE_PLAYLIST + " SET " + COLUMN_ADDED_TIME + " = strftime('%s','now')");
         }
+    }
 
-        try {
-            db.execSQL("ALTER TABLE " + TABLE_MUSIC_INFO +
-                    " ADD COLUMN " + COLUMN_FILE_SIZE + " INTEGER DEFAULT 0;");
-        } catch (SQLiteException e) {
-            Log.w(TAG, "添加file_size列失败，可能已存在", e);
+    /**
+     * 列不存在时添加列；ALTER 失败会抛出异常，由升级流程处理
+     * @return 是否新添加了列
+     */
+    private boolean addColumnIfMissing(SQLiteDatabase db, String table, String column, String definition) {
+        if (hasColumn(db, table, column)) {
+            Log.d(TAG, table + "." + column + " 已存在，跳过");
+            return false;
         }
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition + ";");
+        return true;
+    }
 
-        try {
-            db.execSQL("ALTER TABLE " + TABLE_MUSIC_INFO +
-                    " ADD COLUMN " + COLUMN_CREATED_TIME + " INTEGER DEFAULT (strftime('%s','now'));");
-        } catch (SQLiteException e) {
-            Log.w(TAG, "添加created_time列失败，可能已存在", e);
+    private boolean hasColumn(SQLiteDatabase db, String table, String column) {
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if (column.equals(cursor.getString(nameIndex))) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
 
-        // 为playlist表添加新列
-        try {
-            db.execSQL("ALTER TABLE " + TABLE_PLAYLIST +
-                    " ADD COLUMN " + COLUMN_ADDED_TIME + " INTEGER DEFAULT (strftime('%s','now'));");
-        } catch (SQLiteException e) {
-            Log.w(TAG, "添加added_time列失败，可能已存在", e);
+    /**
+     * 升级到版本3：创建全文检索表并为已有音乐建立索引
+     */
+    private void upgradeToVersion3(SQLiteDatabase db) {
+        Log.d(TAG, "执行版本3升级");
+        db.execSQL(CREATE_TABLE_MUSIC_FTS);
+        db.execSQL(CREATE_TRIGGER_MUSIC_FTS_DELETE);
+        rebuildSearchIndex(db);
+    }
+
+    /**
+     * 根据 music_info 重建全文检索索引
+     */
+    void rebuildSearchIndex(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_MUSIC_FTS);
+
+        int count = 0;
+        try (Cursor cursor = db.query(TABLE_MUSIC_INFO,
+                new String[]{COLUMN_MUSIC_ID, COLUMN_MUSIC_NAME, COLUMN_AUTHOR},
+                null, null, null, null, null);
+             SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_MUSIC_FTS +
+                     " (docid, " + COLUMN_FTS_NAME + ", " + COLUMN_FTS_AUTHOR + ") VALUES (?, ?, ?)")) {
+            while (cursor.moveToNext()) {
+                insert.bindLong(1, cursor.getLong(0));
+                insert.bindString(2, SearchTokenizer.toIndexText(cursor.getString(1)));
+                insert.bindString(3, SearchTokenizer.toIndexText(cursor.getString(2)));
+                insert.executeInsert();
+                count++;
+            }
+        }
+        Log.i(TAG, "全文检索索引重建完成，共 " + count + " 首");
+    }
+
+    /**
+     * 升级到版本4：为music_info添加拼音键列并为已有音乐生成拼音键
+     */
+    private void upgradeToVersion4(SQLiteDatabase db) {
+        Log.d(TAG, "执行版本4升级");
+
+        String[] columns = {COLUMN_NAME_PINYIN, COLUMN_NAME_INITIALS, COLUMN_AUTHOR_PINYIN, COLUMN_AUTHOR_INITIALS};
+        for (String column : columns) {
+            addColumnIfMissing(db, TABLE_MUSIC_INFO, column, "TEXT NOT NULL DEFAULT ''");
+        }
+
+        int count = 0;
+        try (Cursor cursor = db.query(TABLE_MUSIC_INFO,
+                new String[]{COLUMN_MUSIC_ID, COLUMN_MUSIC_NAME, COLUMN_AUTHOR},
+                null, null, null, null, null);
+             SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_MUSIC_INFO + " SET " +
+                     COLUMN_NAME_PINYIN + " = ?, " + COLUMN_NAME_INITIALS + " = ?, " +
+                     COLUMN_AUTHOR_PINYIN + " = ?, " + COLUMN_AUTHOR_INITIALS + " = ?" +
+                     " WHERE " + COLUMN_MUSIC_ID + " = ?")) {
+            while (cursor.moveToNext()) {
+                PinyinKeys name = PinyinKeys.ofTitle(cursor.getString(1));
+                PinyinKeys author = PinyinKeys.ofName(cursor.getString(2));
+                update.bindString(1, name.full);
+                update.bindString(2, name.initials);
+                update.bindString(3, author.full);
+                update.bindString(4, author.initials);
+                update.bindLong(5, cursor.getLong(0));
+                update.executeUpdateDelete();
+                count++;
+            }
+        }
+        Log.i(TAG, "拼音键生成完成，共 " + count + " 首");
+    }
+
+    /**
+     * 升级到版本6：新增播放历史表和播放统计表
+     */
+    private void upgradeToVersion6(SQLiteDatabase db) {
+        createPlayHistoryTables(db);
+    }
+
+    /**
+     * 升级到版本7：播放列表改用稀疏排序键，并支持多个命名播放列表
+     * 原有的连续序号乘以 PlaylistOrder.GAP 作为排序键，原播放列表成为默认播放列表
+     */
+    private void upgradeToVersion7(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_PLAYLIST_INFO);
+        db.execSQL(INSERT_DEFAULT_PLAYLIST);
+
+        if (!hasColumn(db, TABLE_PLAYLIST, COLUMN_SORT_KEY)) {
+            // SQLite 不能删除约束，旧表改名后按新结构重建并复制数据（旧表上的索引随旧表一起删除）
+            String oldTable = TABLE_PLAYLIST + "_v6";
+            db.execSQL("ALTER TABLE " + TABLE_PLAYLIST + " RENAME TO " + oldTable);
+            db.execSQL(CREATE_TABLE_PLAYLIST);
+            db.execSQL("INSERT INTO " + TABLE_PLAYLIST + " (" +
+                    COLUMN_PLAYLIST_ID + ", " + COLUMN_PLAYLIST_OWNER_ID + ", " + COLUMN_PLAYLIST_MUSIC_ID + ", " +
+                    COLUMN_SORT_KEY + ", " + COLUMN_ADDED_TIME + ")" +
+                    " SELECT " + COLUMN_PLAYLIST_ID + ", " + DEFAULT_PLAYLIST_ID + ", " + COLUMN_PLAYLIST_MUSIC_ID + ", " +
+                    COLUMN_SEQUENCE_NUM + " * " + PlaylistOrder.GAP + ", " + COLUMN_ADDED_TIME +
+                    " FROM " + oldTable);
+            db.execSQL("DROP TABLE " + oldTable);
+        }
+        for (String indexSql : CREATE_PLAYLIST_INDEXES) {
+            db.execSQL(indexSql);
+        }
+    }
+
+    /**
+     * 升级到版本8：music_url 拆分为 url_hash、url_prefix_id、url_path
+     * 去掉 music_url 上的 UNIQUE 约束和 idx_music_url 两份完整 URL 的索引，改为8字节的哈希唯一索引；
+     * SQLite 不能删除约束，按新结构重建 music_info，ID 保持不变，子表不需要修改（升级期间外键已关闭）
+     */
+    private void upgradeToVersion8(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_URL_PREFIX);
+        if (hasColumn(db, TABLE_MUSIC_INFO, COLUMN_URL_HASH)) {
+            return;
+        }
+
+        long sequence = 0;
+        try (Cursor cursor = db.rawQuery("SELECT seq FROM sqlite_sequence WHERE name = ?",
+                new String[]{TABLE_MUSIC_INFO})) {
+            if (cursor.moveToFirst()) {
+                sequence = cursor.getLong(0);
+            }
+        }
+
+        String newTable = TABLE_MUSIC_INFO + "_v8";
+        db.execSQL(createMusicInfoTableSql(newTable));
+
+        // 哈希需要在 Java 中计算，逐行复制
+        String[] copiedColumns = {COLUMN_MUSIC_NAME, COLUMN_AUTHOR, COLUMN_COVER_URL, COLUMN_LYRIC_URL,
+                COLUMN_DURATION, COLUMN_FILE_SIZE, COLUMN_CREATED_TIME, COLUMN_NAME_PINYIN, COLUMN_NAME_INITIALS,
+                COLUMN_AUTHOR_PINYIN, COLUMN_AUTHOR_INITIALS};
+        String[] queryColumns = new String[copiedColumns.length + 2];
+        queryColumns[0] = COLUMN_MUSIC_ID;
+        queryColumns[1] = COLUMN_MUSIC_URL;
+        System.arraycopy(copiedColumns, 0, queryColumns, 2, copiedColumns.length);
+
+        StringBuilder insertSql = new StringBuilder("INSERT OR IGNORE INTO ").append(newTable).append(" (")
+                .append(COLUMN_MUSIC_ID).append(", ").append(COLUMN_URL_HASH).append(", ")
+                .append(COLUMN_URL_PREFIX_ID).append(", ").append(COLUMN_URL_PATH);
+        for (String column : copiedColumns) {
+            insertSql.append(", ").append(column);
+        }
+        insertSql.append(") VALUES (?, ?, ?, ?");
+        for (int i = 0; i < copiedColumns.length; i++) {
+            insertSql.append(", ?");
+        }
+        insertSql.append(")");
+
+        int copied = 0;
+        int skipped = 0;
+        try (Cursor cursor = db.query(TABLE_MUSIC_INFO, queryColumns, null, null, null, null, null);
+             SQLiteStatement insert = db.compileStatement(insertSql.toString());
+             SQLiteStatement insertPrefix = db.compileStatement(UrlPrefixDictionary.SQL_INSERT_PREFIX)) {
+            while (cursor.moveToNext()) {
+                String url = cursor.getString(1);
+                long prefixId = urlPrefixes.encodePrefix(db, insertPrefix, url);
+                insert.clearBindings();
+                insert.bindLong(1, cursor.getLong(0));
+                insert.bindLong(2, MusicUrls.hash(url));
+                insert.bindLong(3, prefixId);
+                insert.bindString(4, UrlPrefixDictionary.pathOf(url, prefixId));
+                for (int i = 0; i < copiedColumns.length; i++) {
+                    bindColumn(insert, i + 5, cursor, i + 2);
+                }
+                if (insert.executeInsert() == -1) {
+                    // 两个不同 URL 的64位哈希相同，后一行无法保存
+                    Log.w(TAG, "URL 哈希冲突，丢弃: " + url);
+                    skipped++;
+                } else {
+                    copied++;
+                }
+            }
+        }
+
+        db.execSQL("DROP TABLE " + TABLE_MUSIC_INFO);
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + TABLE_MUSIC_INFO);
+        // 保留原来的自增序号，已删除歌曲的ID不会被重新使用
+        db.execSQL("UPDATE sqlite_sequence SET seq = max(seq, ?) WHERE name = ?",
+                new Object[]{sequence, TABLE_MUSIC_INFO});
+        // 触发器随旧表一起删除，重新创建
+        db.execSQL(CREATE_TRIGGER_MUSIC_FTS_DELETE);
+        if (skipped > 0) {
+            db.execSQL("DELETE FROM " + TABLE_MUSIC_FTS + " WHERE docid NOT IN (SELECT " +
+                    COLUMN_MUSIC_ID + " FROM " + TABLE_MUSIC_INFO + ")");
+        }
+        createIndexes(db);
+        Log.i(TAG, "music_info 重建完成，复制 " + copied + " 行，冲突 " + skipped + " 行");
+    }
+
+    /**
+     * 升级到版本9：idx_liked_timestamp 只有时间列，收藏列表需要扫描整个索引过滤 is_liked，
+     * 替换为 (is_liked, timestamp) 的复合索引
+     */
+    private void upgradeToVersion9(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS idx_liked_timestamp");
+        createIndexes(db);
+    }
+
+    /**
+     * 升级到版本10：新增首页模块缓存表
+     */
+    private void upgradeToVersion10(SQLiteDatabase db) {
+        createModuleTables(db);
+    }
+
+    private static void bindColumn(SQLiteStatement statement, int index, Cursor cursor, int column) {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_NULL:
+                statement.bindNull(index);
+                break;
+            case Cursor.FIELD_TYPE_INTEGER:
+                statement.bindLong(index, cursor.getLong(column));
+                break;
+            case Cursor.FIELD_TYPE_FLOAT:
+                statement.bindDouble(index, cursor.getDouble(column));
+                break;
+            default:
+                statement.bindString(index, cursor.getString(column));
+                break;
+        }
+    }
+
+    /**
+     * 升级期间外键关闭，升级完成后检查是否留下了引用不存在的父行的数据，并删除这些行
+     */
+    private void logForeignKeyViolations(SQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA foreign_key_check", null)) {
+            while (cursor.moveToNext()) {
+                String table = cursor.getString(0);
+                if (!tables.contains(table)) {
+                    tables.add(table);
+                }
+            }
+        }
+        for (String table : tables) {
+            int deleted = db.delete(table, "rowid IN (SELECT rowid FROM pragma_foreign_key_check(?))",
+                    new String[]{table});
+            Log.w(TAG, "升级后删除外键无效的行: " + table + " " + deleted + " 行");
         }
     }
 
@@ -362,8 +959,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public SQLiteDatabase getWritableDatabaseSafe() {
         try {
             SQLiteDatabase db = this.getWritableDatabase();
-            // 确保表存在
-            checkAndRepairTables(db);
+            // 表结构在 onOpen 中已验证，只有验证失败时才在这里重试
+            if (!schemaVerified) {
+                schemaVerified = checkAndRepairTables(db);
+            }
             return db;
         } catch (Exception e) {
             Log.e(TAG, "获取可写数据库时出错", e);
@@ -385,9 +984,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     /**
      * 数据库完整性检查
+     * 注意：数据库实例在整个进程内共享，这里只关闭 Cursor，不能关闭数据库
      */
     public boolean checkDatabaseIntegrity() {
-        try (SQLiteDatabase db = getReadableDatabaseSafe()) {
+        try {
+            SQLiteDatabase db = getReadableDatabaseSafe();
             try (Cursor cursor = db.rawQuery("PRAGMA integrity_check", null)) {
                 if (cursor.moveToFirst()) {
                     String result = cursor.getString(0);
@@ -407,10 +1008,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public String getDatabaseInfo() {
         StringBuilder info = new StringBuilder();
-        try (SQLiteDatabase db = getReadableDatabaseSafe()) {
-            info.append("数据库名称: ").append(DATABASE_NAME).append("\n");
+        try {
+            // 共享的数据库实例不能关闭
+            SQLiteDatabase db = getReadableDatabaseSafe();
+            info.append("数据库名称: ").append(getDatabaseName()).append("\n");
             info.append("数据库版本: ").append(db.getVersion()).append("\n");
             info.append("数据库路径: ").append(db.getPath()).append("\n");
+            info.append("WAL模式: ").append(db.isWriteAheadLoggingEnabled()).append("\n");
 
             for (String tableName : ALL_TABLES) {
                 try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + tableName, null)) {
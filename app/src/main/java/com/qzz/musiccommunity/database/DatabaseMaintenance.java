@@ -0,0 +1,300 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 数据库后台维护
+ * 由 DatabaseMaintenanceJobService 在设备空闲或充电时调用，按顺序执行：
+ * 1. 清理取消收藏的记录和孤立记录
+ * 2. 更新查询规划器的统计信息（ANALYZE）
+ * 3. 增量回收空闲页，把 WAL 文件截断
+ * 4. 快速完整性检查
+ *
+ * 每个任务开始前检查时间预算和取消标记，超出预算或被系统停止时跳过剩余任务，下次再执行；
+ * 每次运行的耗时和行数记录在日志和 SharedPreferences 中
+ */
+public class DatabaseMaintenance {
+    private static final String TAG = "DatabaseMaintenance";
+
+    private static final String PREFS_NAME = "db_maintenance";
+    private static final String KEY_LAST_RUN_TIME = "last_run_time";
+    private static final String KEY_LAST_DURATION_MS = "last_duration_ms";
+    private static final String KEY_LAST_ROWS_DELETED = "last_rows_deleted";
+    private static final String KEY_LAST_PAGES_FREED = "last_pages_freed";
+    private static final String KEY_LAST_INTEGRITY_OK = "last_integrity_ok";
+    private static final String KEY_LAST_COMPLETED = "last_completed";
+    private static final String KEY_RUN_COUNT = "run_count";
+
+    // 两次完整维护之间的最短间隔；上次因预算不足没有完成时不受此限制
+    private static final long MIN_INTERVAL_MS = 20L * 60 * 60 * 1000;
+    // ANALYZE 每个索引最多采样的行数，保证统计耗时与表大小无关
+    private static final int ANALYSIS_LIMIT = 400;
+    // 每次增量回收的页数，两批之间检查预算
+    private static final int INCREMENTAL_VACUUM_PAGES = 256;
+    // 只有数据库小于该大小时才执行一次性的 VACUUM（开启增量回收需要重写整个文件）
+    private static final long FULL_VACUUM_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static DatabaseMaintenance instance;
+
+    private final DatabaseHelper dbHelper;
+    private final MusicDao musicDao;
+    private final SharedPreferences preferences;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 单个维护任务的执行结果
+     */
+    public static class TaskResult {
+        public final String name;
+        public final long durationMs;
+        // 删除的行数或回收的页数，不适用时为0
+        public final long count;
+        public final boolean success;
+
+        TaskResult(String name, long durationMs, long count, boolean success) {
+            this.name = name;
+            this.durationMs = durationMs;
+            this.count = count;
+            this.success = success;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{" + durationMs + "ms, count=" + count + (success ? "" : ", failed") + "}";
+        }
+    }
+
+    /**
+     * 一次维护的执行结果
+     */
+    public static class Report {
+        public final List<TaskResult> tasks = new ArrayList<>();
+        public long durationMs;
+        public long rowsDeleted;
+        public long pagesFreed;
+        public boolean integrityOk = true;
+        // 所有任务都已执行（没有因预算或取消而中断）
+        public boolean completed;
+
+        @Override
+        public String toString() {
+            return "Report{" + durationMs + "ms, rowsDeleted=" + rowsDeleted +
+                    ", pagesFreed=" + pagesFreed + ", integrityOk=" + integrityOk +
+                    ", completed=" + completed + ", tasks=" + tasks + "}";
+        }
+    }
+
+    private DatabaseMaintenance(Context context) {
+        Context appContext = context.getApplicationContext();
+        dbHelper = DatabaseHelper.getInstance(appContext);
+        musicDao = MusicDao.getInstance(appContext);
+        preferences = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 获取维护任务的单例实例
+     */
+    public static synchronized DatabaseMaintenance getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseMaintenance(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 距离上次完整维护是否已超过最短间隔
+     */
+    public boolean isDue() {
+        if (!preferences.getBoolean(KEY_LAST_COMPLETED, true)) {
+            return true;
+        }
+        long lastRunTime = preferences.getLong(KEY_LAST_RUN_TIME, 0);
+        return System.currentTimeMillis() - lastRunTime >= MIN_INTERVAL_MS;
+    }
+
+    /**
+     * 执行一次维护，必须在后台线程调用
+     * @param budgetMs 时间预算，超出后不再开始新的任务
+     * @param allowFullVacuum 是否允许执行一次性的 VACUUM（耗时较长且不可中断，建议只在充电时允许）
+     * @param cancelled 返回true时尽快停止
+     * @return 执行结果；已有维护在执行时返回null
+     */
+    public Report run(long budgetMs, boolean allowFullVacuum, BooleanSupplier cancelled) {
+        if (!running.compareAndSet(false, true)) {
+            Log.d(TAG, "维护任务正在执行，忽略本次请求");
+            return null;
+        }
+
+        Report report = new Report();
+        long start = SystemClock.elapsedRealtime();
+        long deadline = start + budgetMs;
+        try {
+            Log.i(TAG, "开始数据库维护，预算 " + budgetMs + "ms");
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+
+            report.completed = runTask(report, "清理取消收藏", deadline, cancelled, () -> {
+                int deleted = musicDao.purgeUnlikedRecords();
+                report.rowsDeleted += Math.max(0, deleted);
+                return deleted;
+            }) && runTask(report, "清理孤立记录", deadline, cancelled, () -> {
+                int deleted = musicDao.cleanUpInvalidData();
+                report.rowsDeleted += Math.max(0, deleted);
+                return deleted;
+            }) && runTask(report, "更新统计信息", deadline, cancelled, () -> {
+                queryLong(db, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+                db.execSQL("ANALYZE");
+                return 0;
+            }) && runTask(report, "回收空闲页", deadline, cancelled, () -> {
+                long freed = vacuum(db, deadline, allowFullVacuum, cancelled);
+                report.pagesFreed += Math.max(0, freed);
+                return freed;
+            }) && runTask(report, "截断WAL", deadline, cancelled, () -> {
+                queryLong(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+                return 0;
+            }) && runTask(report, "完整性检查", deadline, cancelled, () -> {
+                report.integrityOk = quickCheck(db);
+                return report.integrityOk ? 0 : -1;
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "数据库维护时出错", e);
+            report.completed = false;
+        } finally {
+            report.durationMs = SystemClock.elapsedRealtime() - start;
+            saveReport(report);
+            running.set(false);
+        }
+
+        Log.i(TAG, "数据库维护结束: " + report);
+        return report;
+    }
+
+    private interface Task {
+        /**
+         * @return 删除的行数或回收的页数，小于0表示失败
+         */
+        long execute();
+    }
+
+    /**
+     * @return 任务是否已执行（超出预算或被取消时返回false，后续任务不再执行）
+     */
+    private boolean runTask(Report report, String name, long deadline, BooleanSupplier cancelled, Task task) {
+        if (cancelled.getAsBoolean()) {
+            Log.d(TAG, "维护任务被取消，跳过: " + name);
+            return false;
+        }
+        if (SystemClock.elapsedRealtime() >= deadline) {
+            Log.d(TAG, "时间预算已用完，跳过: " + name);
+            return false;
+        }
+
+        long taskStart = SystemClock.elapsedRealtime();
+        long count;
+        try {
+            count = task.execute();
+        } catch (Exception e) {
+            Log.e(TAG, "维护任务出错: " + name, e);
+            count = -1;
+        }
+        TaskResult result = new TaskResult(name, SystemClock.elapsedRealtime() - taskStart,
+                Math.max(0, count), count >= 0);
+        report.tasks.add(result);
+        Log.d(TAG, "维护任务完成: " + result);
+        return true;
+    }
+
+    /**
+     * 回收空闲页
+     * 数据库未开启增量回收时，在允许的情况下执行一次 VACUUM 并开启；
+     * 已开启时分批执行 incremental_vacuum，每批之间检查预算
+     * @return 回收的页数
+     */
+    private long vacuum(SQLiteDatabase db, long deadline, boolean allowFullVacuum, BooleanSupplier cancelled) {
+        long freeBefore = queryLong(db, "PRAGMA freelist_count");
+        // 0 = NONE，1 = FULL，2 = INCREMENTAL
+        if (queryLong(db, "PRAGMA auto_vacuum") != 2) {
+            long pageCount = queryLong(db, "PRAGMA page_count");
+            long pageSize = queryLong(db, "PRAGMA page_size");
+            if (!allowFullVacuum || pageCount * pageSize > FULL_VACUUM_MAX_BYTES) {
+                Log.d(TAG, "未开启增量回收，本次不执行 VACUUM，空闲页 " + freeBefore);
+                return 0;
+            }
+            // auto_vacuum 的修改在 VACUUM 重写文件后才生效；VACUUM 不能在事务中执行
+            queryLong(db, "PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            Log.i(TAG, "已执行 VACUUM 并开启增量回收");
+            return freeBefore;
+        }
+
+        long free = freeBefore;
+        while (free > 0 && !cancelled.getAsBoolean() && SystemClock.elapsedRealtime() < deadline) {
+            // incremental_vacuum 每执行一步回收一页，必须用 rawQuery 执行到结束，execSQL 只会执行一步
+            queryLong(db, "PRAGMA incremental_vacuum(" + INCREMENTAL_VACUUM_PAGES + ")");
+            long remaining = queryLong(db, "PRAGMA freelist_count");
+            if (remaining >= free) {
+                break;
+            }
+            free = remaining;
+        }
+        return freeBefore - free;
+    }
+
+    private boolean quickCheck(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("PRAGMA quick_check", null)) {
+            if (cursor.moveToFirst()) {
+                String result = cursor.getString(0);
+                if ("ok".equals(result)) {
+                    return true;
+                }
+                Log.e(TAG, "数据库快速完整性检查失败: " + result);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行返回单个数值的语句（PRAGMA 等），没有结果时返回-1
+     */
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    private void saveReport(Report report) {
+        SharedPreferences.Editor editor = preferences.edit()
+                .putLong(KEY_LAST_DURATION_MS, report.durationMs)
+                .putLong(KEY_LAST_ROWS_DELETED, report.rowsDeleted)
+                .putLong(KEY_LAST_PAGES_FREED, report.pagesFreed)
+                .putBoolean(KEY_LAST_INTEGRITY_OK, report.integrityOk)
+                .putBoolean(KEY_LAST_COMPLETED, report.completed)
+                .putInt(KEY_RUN_COUNT, preferences.getInt(KEY_RUN_COUNT, 0) + 1);
+        if (report.completed) {
+            editor.putLong(KEY_LAST_RUN_TIME, System.currentTimeMillis());
+        }
+        editor.apply();
+    }
+
+    /**
+     * 获取最近一次维护的摘要，用于调试
+     */
+    public String getLastRunSummary() {
+        return "上次完成时间: " + preferences.getLong(KEY_LAST_RUN_TIME, 0) +
+                ", 耗时: " + preferences.getLong(KEY_LAST_DURATION_MS, 0) + "ms" +
+                ", 删除行数: " + preferences.getLong(KEY_LAST_ROWS_DELETED, 0) +
+                ", 回收页数: " + preferences.getLong(KEY_LAST_PAGES_FREED, 0) +
+                ", 完整性: " + preferences.getBoolean(KEY_LAST_INTEGRITY_OK, true) +
+                ", 是否完成: " + preferences.getBoolean(KEY_LAST_COMPLETED, true) +
+                ", 运行次数: " + preferences.getInt(KEY_RUN_COUNT, 0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * 数据库迁移步骤：把数据库从 toVersion - 1 升级到 toVersion
+ * 所有步骤在 DatabaseHelper 中按版本号顺序注册，升级时依次执行，
+ * 每一步都在 SQLiteOpenHelper 的升级事务中运行，任何一步失败都不会更新数据库版本号
+ */
+class DatabaseMigration {
+
+    interface Step {
+        void migrate(SQLiteDatabase db);
+    }
+
+    final int toVersion;
+    final String description;
+    private final Step step;
+
+    DatabaseMigration(int toVersion, String description, Step step) {
+        this.toVersion = toVersion;
+        this.description = description;
+        this.step = step;
+    }
+
+    void migrate(SQLiteDatabase db) {
+        step.migrate(db);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + toVersion + " " + description;
+    }
+}
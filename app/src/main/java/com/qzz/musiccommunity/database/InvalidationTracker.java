@@ -0,0 +1,274 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 表级失效通知
+ * MusicDao 的写操作提交后，把被修改的表通知给关心这些表的观察者，界面不再需要轮询或在每次操作后重新读取
+ *
+ * 通知规则：
+ * 1. 只在最外层事务提交后通知；嵌套在 runInTransaction 等事务中的写入等外层提交后一起通知，回滚的写入不通知
+ * 2. 通知在唯一的后台线程上执行；上一轮通知完成前提交的修改合并为一次通知
+ * 3. observe() 注册的查询在后台线程上重新执行，结果与上一次是同样的对象时不回调，否则回调到主线程
+ */
+public class InvalidationTracker {
+    private static final String TAG = "InvalidationTracker";
+
+    /**
+     * 表失效的观察者，在通知线程上回调
+     */
+    public interface Observer {
+        /**
+         * @param tables 本轮通知中被修改、且该观察者关心的表
+         */
+        void onInvalidated(Set<String> tables);
+    }
+
+    /**
+     * observe() 的结果回调，在主线程上执行
+     */
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * observe() 的返回值，界面销毁时调用 cancel()
+     */
+    public interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * 一个观察者及其关心的表
+     */
+    private static class Registration {
+        final Observer observer;
+        final Set<String> tables;
+
+        Registration(Observer observer, Set<String> tables) {
+            this.observer = observer;
+            this.tables = tables;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 当前线程的事务中已修改、尚未提交的表
+    private final ThreadLocal<Set<String>> uncommittedTables = new ThreadLocal<>();
+
+    // 以下字段由 this 保护
+    private final Set<String> invalidatedTables = new HashSet<>();
+    private boolean dispatchScheduled = false;
+
+    InvalidationTracker() {
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "music-db-observer");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * 注册观察者
+     * @param observer 观察者
+     * @param tables 关心的表，取 DatabaseHelper 中的表名常量
+     */
+    public void addObserver(Observer observer, String... tables) {
+        if (observer == null || tables == null || tables.length == 0) {
+            Log.w(TAG, "观察者或表名为空，忽略");
+            return;
+        }
+        registrations.add(new Registration(observer, new HashSet<>(Arrays.asList(tables))));
+    }
+
+    public void removeObserver(Observer observer) {
+        for (Registration registration : registrations) {
+            if (registration.observer == observer) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * 观察一个查询：立即在后台执行一次，之后 tables 中任一表被修改时重新执行
+     * 结果与上一次是同一个对象（列表逐项比较）时不回调；不能用 equals，MusicInfo 的 equals 只比较ID
+     * 音乐行来自 MusicCache，未修改的行是同一个实例，修改后的行是新的实例
+     * @param query 在后台线程执行的查询，通常是一次 MusicDao 调用
+     * @param callback 结果变化时在主线程回调
+     * @param tables 查询读取的表
+     * @return 用于取消观察
+     */
+    public <T> Subscription observe(Callable<T> query, ResultCallback<T> callback, String... tables) {
+        LiveQuery<T> liveQuery = new LiveQuery<>(query, callback);
+        addObserver(liveQuery, tables);
+        dispatcher.execute(liveQuery::run);
+        return liveQuery;
+    }
+
+    /**
+     * 绕过 MusicDao 直接写表后调用，通知观察者这些表已被修改
+     */
+    public void notifyTablesChanged(String... tables) {
+        publish(Arrays.asList(tables));
+    }
+
+    /**
+     * 写操作结束（提交或回滚）后调用
+     * 仍在外层事务中时只记录被修改的表，最外层事务结束时提交则通知，回滚则丢弃
+     * @param db 执行写操作的连接，获取连接失败时为null
+     * @param committed 写操作是否成功
+     * @param tables 写操作修改的表
+     */
+    void onWriteFinished(SQLiteDatabase db, boolean committed, String... tables) {
+        Set<String> pending = uncommittedTables.get();
+        if (committed) {
+            if (pending == null) {
+                pending = new HashSet<>();
+                uncommittedTables.set(pending);
+            }
+            Collections.addAll(pending, tables);
+        }
+        if (db != null && db.inTransaction()) {
+            return;
+        }
+        uncommittedTables.remove();
+        if (committed && pending != null) {
+            publish(pending);
+        }
+    }
+
+    private void publish(Iterable<String> tables) {
+        synchronized (this) {
+            for (String table : tables) {
+                invalidatedTables.add(table);
+            }
+            if (invalidatedTables.isEmpty() || dispatchScheduled) {
+                return;
+            }
+            dispatchScheduled = true;
+        }
+        dispatcher.execute(this::dispatch);
+    }
+
+    /**
+     * 在通知线程上执行：取出累积的失效表，通知关心这些表的观察者
+     */
+    private void dispatch() {
+        Set<String> tables;
+        synchronized (this) {
+            dispatchScheduled = false;
+            tables = new HashSet<>(invalidatedTables);
+            invalidatedTables.clear();
+        }
+        for (Registration registration : registrations) {
+            Set<String> matched = new HashSet<>(registration.tables);
+            matched.retainAll(tables);
+            if (matched.isEmpty()) {
+                continue;
+            }
+            try {
+                registration.observer.onInvalidated(Collections.unmodifiableSet(matched));
+            } catch (Exception e) {
+                Log.e(TAG, "通知观察者时出错", e);
+            }
+        }
+    }
+
+    /**
+     * 随表修改自动重新执行的查询，只在通知线程上执行
+     */
+    private class LiveQuery<T> implements Observer, Subscription {
+        private final Callable<T> query;
+        private final ResultCallback<T> callback;
+        private volatile boolean cancelled = false;
+        private boolean hasResult = false;
+        private T lastResult;
+
+        LiveQuery(Callable<T> query, ResultCallback<T> callback) {
+            this.query = query;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onInvalidated(Set<String> tables) {
+            run();
+        }
+
+        void run() {
+            if (cancelled) {
+                return;
+            }
+            T result;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                Log.e(TAG, "重新执行观察的查询时出错", e);
+                return;
+            }
+            if (hasResult && sameResult(result, lastResult)) {
+                return;
+            }
+            hasResult = true;
+            lastResult = result;
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    callback.onResult(result);
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            removeObserver(this);
+        }
+    }
+
+    /**
+     * 两次查询结果是否相同：列表逐项比较是否为同一个对象，字符串、数字和布尔值比较值，其他对象比较是否为同一个对象
+     */
+    private static boolean sameResult(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof List && b instanceof List) {
+            List<?> listA = (List<?>) a;
+            List<?> listB = (List<?>) b;
+            if (listA.size() != listB.size()) {
+                return false;
+            }
+            for (int i = 0; i < listA.size(); i++) {
+                if (!sameResult(listA.get(i), listB.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof String || a instanceof Number || a instanceof Boolean) {
+            return a.equals(b);
+        }
+        return false;
+    }
+
+    /**
+     * 当前注册的观察者数量，用于调试
+     */
+    public int getObserverCount() {
+        return registrations.size();
+    }
+}
@@ -0,0 +1,529 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 曲库快照：把音乐信息、收藏和播放列表导出为紧凑的二进制文件，用于备份、重装后恢复和导入
+ *
+ * 文件格式（版本1）：
+ * 1. 文件头：魔数 "MCLS"、格式版本、导出时间
+ * 2. 音乐段：按ID升序，每行写出与上一行的ID差值（>= 1），差值为0表示本段结束；
+ *    歌名和 URL 的文件名部分直接写出，歌手和 URL 的目录部分经过字符串表
+ * 3. 收藏段：按音乐ID升序，写法同上
+ * 4. 播放列表段：每个播放列表前写1，全部写完后写0；歌曲按播放顺序写出，音乐ID和排序键写差值
+ * 5. 文件末尾4字节为之前所有字节的 CRC32
+ * 快照中的ID只在文件内部使用，恢复时按 URL 合并到本地曲库，重新对应到本地的ID
+ *
+ * 恢复在一个事务中完成，任何一处出错或校验失败都整体回滚；
+ * 恢复后 MusicManager 中的播放队列不会自动更新，需要调用方重新加载
+ */
+public class LibrarySnapshot {
+    private static final String TAG = "LibrarySnapshot";
+
+    private static final int MAGIC = 0x4D434C53; // "MCLS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int SECTION_MUSIC = 'M';
+    private static final int SECTION_LIKED = 'L';
+    private static final int SECTION_PLAYLISTS = 'P';
+    private static final int SECTION_END = 'E';
+
+    // 恢复时每批交给 upsertAll 的行数
+    private static final int RESTORE_BATCH_SIZE = 1000;
+
+    private static final String SQL_SELECT_MUSIC = "SELECT m." + DatabaseHelper.COLUMN_MUSIC_ID + ", m." +
+            DatabaseHelper.COLUMN_MUSIC_NAME + ", m." + DatabaseHelper.COLUMN_AUTHOR + ", p." +
+            DatabaseHelper.COLUMN_PREFIX + ", m." + DatabaseHelper.COLUMN_URL_PATH + ", m." +
+            DatabaseHelper.COLUMN_COVER_URL + ", m." + DatabaseHelper.COLUMN_LYRIC_URL + ", m." +
+            DatabaseHelper.COLUMN_DURATION + ", m." + DatabaseHelper.COLUMN_CREATED_TIME +
+            " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_URL_PREFIX + " p" +
+            " ON p." + DatabaseHelper.COLUMN_PREFIX_ID + " = m." + DatabaseHelper.COLUMN_URL_PREFIX_ID +
+            " ORDER BY m." + DatabaseHelper.COLUMN_MUSIC_ID;
+
+    private static final String SQL_SELECT_LIKED = "SELECT " + DatabaseHelper.COLUMN_LIKED_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_IS_LIKED + ", " + DatabaseHelper.COLUMN_TIMESTAMP +
+            " FROM " + DatabaseHelper.TABLE_LIKED_MUSIC +
+            " ORDER BY " + DatabaseHelper.COLUMN_LIKED_MUSIC_ID;
+
+    private static final String SQL_SELECT_PLAYLISTS = "SELECT " + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID + ", " +
+            DatabaseHelper.COLUMN_PLAYLIST_NAME + ", " + DatabaseHelper.COLUMN_CREATED_TIME +
+            " FROM " + DatabaseHelper.TABLE_PLAYLIST_INFO +
+            " ORDER BY " + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID;
+
+    // 按 idx_playlist_order 的顺序读取，不需要排序
+    private static final String SQL_SELECT_PLAYLIST_ITEMS = "SELECT " + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_ADDED_TIME +
+            " FROM " + DatabaseHelper.TABLE_PLAYLIST +
+            " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_PLAYLIST_ID;
+
+    // 恢复的加入时间和时长：加入时间保留较早的一个，时长保留已知的一个
+    private static final String SQL_RESTORE_MUSIC_EXTRAS = "UPDATE " + DatabaseHelper.TABLE_MUSIC_INFO + " SET " +
+            DatabaseHelper.COLUMN_CREATED_TIME + " = min(" + DatabaseHelper.COLUMN_CREATED_TIME + ", ?), " +
+            DatabaseHelper.COLUMN_DURATION + " = max(" + DatabaseHelper.COLUMN_DURATION + ", ?)" +
+            " WHERE " + DatabaseHelper.COLUMN_MUSIC_ID + " = ?";
+
+    // 本地已有收藏记录时保留较新的一条
+    private static final String SQL_RESTORE_LIKED = "INSERT INTO " + DatabaseHelper.TABLE_LIKED_MUSIC + " (" +
+            DatabaseHelper.COLUMN_LIKED_MUSIC_ID + ", " + DatabaseHelper.COLUMN_IS_LIKED + ", " +
+            DatabaseHelper.COLUMN_TIMESTAMP + ") VALUES (?, ?, ?)" +
+            " ON CONFLICT(" + DatabaseHelper.COLUMN_LIKED_MUSIC_ID + ") DO UPDATE SET " +
+            DatabaseHelper.COLUMN_IS_LIKED + " = excluded." + DatabaseHelper.COLUMN_IS_LIKED + ", " +
+            DatabaseHelper.COLUMN_TIMESTAMP + " = excluded." + DatabaseHelper.COLUMN_TIMESTAMP +
+            " WHERE excluded." + DatabaseHelper.COLUMN_TIMESTAMP + " >= " + DatabaseHelper.COLUMN_TIMESTAMP;
+
+    private static final String SQL_INSERT_PLAYLIST_INFO = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_PLAYLIST_INFO +
+            " (" + DatabaseHelper.COLUMN_PLAYLIST_NAME + ", " + DatabaseHelper.COLUMN_CREATED_TIME + ") VALUES (?, ?)";
+
+    private static final String SQL_SELECT_PLAYLIST_ID = "SELECT " + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID +
+            " FROM " + DatabaseHelper.TABLE_PLAYLIST_INFO + " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_NAME + " = ?";
+
+    private static final String SQL_RESTORE_PLAYLIST_ITEM = "INSERT INTO " + DatabaseHelper.TABLE_PLAYLIST + " (" +
+            DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + ", " + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_ADDED_TIME + ") VALUES (?, ?, ?, ?)";
+
+    private static LibrarySnapshot instance;
+
+    private final DatabaseHelper dbHelper;
+    private final MusicDao musicDao;
+
+    /**
+     * 导出或恢复的统计
+     */
+    public static class Result {
+        public int musicCount;
+        public int likedCount;
+        public int playlistCount;
+        public int playlistItemCount;
+        // 恢复时因信息无效或没有对应的音乐而跳过的行
+        public int skippedCount;
+        public long bytes;
+        public long durationMs;
+
+        @Override
+        public String toString() {
+            return "Result{music=" + musicCount + ", liked=" + likedCount +
+                    ", playlists=" + playlistCount + ", playlistItems=" + playlistItemCount +
+                    ", skipped=" + skippedCount + ", bytes=" + bytes + ", " + durationMs + "ms}";
+        }
+    }
+
+    private LibrarySnapshot(Context context) {
+        this(DatabaseHelper.getInstance(context.getApplicationContext()),
+                MusicDao.getInstance(context.getApplicationContext()));
+    }
+
+    /**
+     * 使用指定的数据库，测试在独立的数据库上导出和恢复
+     */
+    LibrarySnapshot(DatabaseHelper dbHelper, MusicDao musicDao) {
+        this.dbHelper = dbHelper;
+        this.musicDao = musicDao;
+    }
+
+    /**
+     * 获取曲库快照的单例实例
+     */
+    public static synchronized LibrarySnapshot getInstance(Context context) {
+        if (instance == null) {
+            instance = new LibrarySnapshot(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 导出到文件；先写入临时文件，完成后再替换，导出失败不会破坏已有的快照
+     */
+    public Result export(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Result result;
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            result = export(out);
+            out.getFD().sync();
+        } catch (IOException e) {
+            if (!temp.delete()) {
+                Log.w(TAG, "删除临时文件失败: " + temp);
+            }
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("无法替换快照文件: " + file);
+        }
+        return result;
+    }
+
+    /**
+     * 把曲库写入输出流，不关闭输出流
+     * 导出在一个事务中读取，三部分数据属于同一时刻；导出期间其他写操作会等待
+     */
+    public Result export(OutputStream out) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        Result result = new Result();
+        SnapshotWriter writer = new SnapshotWriter(out);
+        SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+
+        db.beginTransactionNonExclusive();
+        try {
+            writer.writeFixedInt(MAGIC);
+            writer.writeVarLong(FORMAT_VERSION);
+            writer.writeVarLong(System.currentTimeMillis());
+
+            writer.writeByte(SECTION_MUSIC);
+            result.musicCount = exportMusic(db, writer);
+            writer.writeByte(SECTION_LIKED);
+            result.likedCount = exportLiked(db, writer);
+            writer.writeByte(SECTION_PLAYLISTS);
+            exportPlaylists(db, writer, result);
+            writer.writeByte(SECTION_END);
+            writer.finish();
+        } finally {
+            // 只读取，不提交
+            db.endTransaction();
+        }
+
+        result.bytes = writer.getBytesWritten();
+        result.durationMs = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "导出曲库快照完成: " + result + "，字符串表 " + writer.getStringTableSize() + " 项");
+        return result;
+    }
+
+    /**
+     * 从文件恢复，使用内存映射读取，写入数据库前先检查整个文件的校验和
+     */
+    public Result restore(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            SnapshotReader reader = SnapshotReader.fromBuffer(buffer);
+            reader.verifyChecksum();
+            Result result = restore(reader);
+            result.bytes = channel.size();
+            return result;
+        }
+    }
+
+    /**
+     * 从输入流恢复，不关闭输入流；读到末尾才能检查校验和，校验失败时整体回滚
+     */
+    public Result restore(InputStream in) throws IOException {
+        return restore(SnapshotReader.fromStream(in));
+    }
+
+    private Result restore(SnapshotReader reader) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        if (reader.readFixedInt() != MAGIC) {
+            throw new IOException("不是曲库快照文件");
+        }
+        long version = reader.readVarLong();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("不支持的快照版本: " + version);
+        }
+        long exportedTime = reader.readVarLong();
+
+        Result result = new Result();
+        IOException[] failure = new IOException[1];
+        boolean committed = musicDao.runInTransaction(() -> {
+            try {
+                SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+                expectSection(reader, SECTION_MUSIC);
+                Map<Long, Long> localIds = restoreMusic(db, reader, result);
+                expectSection(reader, SECTION_LIKED);
+                restoreLiked(db, reader, localIds, result);
+                expectSection(reader, SECTION_PLAYLISTS);
+                restorePlaylists(db, reader, localIds, result);
+                expectSection(reader, SECTION_END);
+                reader.verifyEnd();
+            } catch (IOException e) {
+                failure[0] = e;
+                throw new IllegalStateException("恢复快照失败", e);
+            }
+        });
+        if (!committed) {
+            throw failure[0] != null ? failure[0] : new IOException("恢复快照失败，已回滚");
+        }
+
+        result.durationMs = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "恢复曲库快照完成（导出于 " + exportedTime + "）: " + result);
+        return result;
+    }
+
+    private static void expectSection(SnapshotReader reader, int section) throws IOException {
+        int actual = reader.readByte();
+        if (actual != section) {
+            throw new IOException("快照段落不正确，应为 " + (char) section + "，实际为 " + actual);
+        }
+    }
+
+    private int exportMusic(SQLiteDatabase db, SnapshotWriter writer) throws IOException {
+        int count = 0;
+        long previousId = 0;
+        long previousCreatedTime = 0;
+        try (Cursor cursor = db.rawQuery(SQL_SELECT_MUSIC, null)) {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                writer.writeVarLong(id - previousId);
+                writer.writeLiteral(cursor.getString(1));
+                writer.writeStringRef(cursor.getString(2));
+                // 不使用前缀字典的行，url_path 即完整的 URL
+                String prefix = cursor.isNull(3) ? "" : cursor.getString(3);
+                writeUrl(writer, prefix + cursor.getString(4));
+                writeUrl(writer, cursor.getString(5));
+                writeUrl(writer, cursor.getString(6));
+                writer.writeVarLong(Math.max(0, cursor.getLong(7)));
+                long createdTime = cursor.getLong(8);
+                writer.writeSignedVarLong(createdTime - previousCreatedTime);
+                previousId = id;
+                previousCreatedTime = createdTime;
+                count++;
+            }
+        }
+        writer.writeVarLong(0);
+        return count;
+    }
+
+    private int exportLiked(SQLiteDatabase db, SnapshotWriter writer) throws IOException {
+        int count = 0;
+        long previousId = 0;
+        long previousTimestamp = 0;
+        try (Cursor cursor = db.rawQuery(SQL_SELECT_LIKED, null)) {
+            while (cursor.moveToNext()) {
+                long musicId = cursor.getLong(0);
+                long timestamp = cursor.getLong(2);
+                writer.writeVarLong(musicId - previousId);
+                writer.writeByte(cursor.getInt(1) != 0 ? 1 : 0);
+                writer.writeSignedVarLong(timestamp - previousTimestamp);
+                previousId = musicId;
+                previousTimestamp = timestamp;
+                count++;
+            }
+        }
+        writer.writeVarLong(0);
+        return count;
+    }
+
+    private void exportPlaylists(SQLiteDatabase db, SnapshotWriter writer, Result result) throws IOException {
+        try (Cursor playlists = db.rawQuery(SQL_SELECT_PLAYLISTS, null)) {
+            while (playlists.moveToNext()) {
+                long playlistId = playlists.getLong(0);
+                writer.writeVarLong(1);
+                writer.writeVarLong(playlistId);
+                writer.writeStringRef(playlists.getString(1));
+                writer.writeVarLong(Math.max(0, playlists.getLong(2)));
+
+                try (Cursor items = db.rawQuery(SQL_SELECT_PLAYLIST_ITEMS,
+                        new String[]{String.valueOf(playlistId)})) {
+                    writer.writeVarLong(items.getCount());
+                    long previousMusicId = 0;
+                    long previousSortKey = 0;
+                    long previousAddedTime = 0;
+                    while (items.moveToNext()) {
+                        long musicId = items.getLong(0);
+                        long sortKey = items.getLong(1);
+                        long addedTime = items.getLong(2);
+                        writer.writeSignedVarLong(musicId - previousMusicId);
+                        writer.writeSignedVarLong(sortKey - previousSortKey);
+                        writer.writeSignedVarLong(addedTime - previousAddedTime);
+                        previousMusicId = musicId;
+                        previousSortKey = sortKey;
+                        previousAddedTime = addedTime;
+                        result.playlistItemCount++;
+                    }
+                }
+                result.playlistCount++;
+            }
+        }
+        writer.writeVarLong(0);
+    }
+
+    /**
+     * 恢复音乐信息，按 URL 合并到本地曲库
+     * @return 快照中的音乐ID -> 本地的音乐ID
+     */
+    private Map<Long, Long> restoreMusic(SQLiteDatabase db, SnapshotReader reader, Result result) throws IOException {
+        Map<Long, Long> localIds = new HashMap<>();
+        List<MusicInfo> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+        long[] snapshotIds = new long[RESTORE_BATCH_SIZE];
+        long[] durations = new long[RESTORE_BATCH_SIZE];
+        long[] createdTimes = new long[RESTORE_BATCH_SIZE];
+
+        try (SQLiteStatement restoreExtras = db.compileStatement(SQL_RESTORE_MUSIC_EXTRAS)) {
+            long snapshotId = 0;
+            long createdTime = 0;
+            long delta;
+            while ((delta = reader.readVarLong()) != 0) {
+                snapshotId += delta;
+                String name = reader.readLiteral();
+                String author = reader.readStringRef();
+                String musicUrl = readUrl(reader);
+                MusicInfo musicInfo = new MusicInfo(0, name, author, musicUrl);
+                musicInfo.setCoverUrl(readUrl(reader));
+                musicInfo.setLyricUrl(readUrl(reader));
+                long duration = reader.readVarLong();
+                createdTime += reader.readSignedVarLong();
+
+                int index = batch.size();
+                batch.add(musicInfo);
+                snapshotIds[index] = snapshotId;
+                durations[index] = duration;
+                createdTimes[index] = createdTime;
+                if (batch.size() == RESTORE_BATCH_SIZE) {
+                    flushMusicBatch(batch, snapshotIds, durations, createdTimes, restoreExtras, localIds, result);
+                }
+            }
+            flushMusicBatch(batch, snapshotIds, durations, createdTimes, restoreExtras, localIds, result);
+        }
+        return localIds;
+    }
+
+    private void flushMusicBatch(List<MusicInfo> batch, long[] snapshotIds, long[] durations, long[] createdTimes,
+                                 SQLiteStatement restoreExtras, Map<Long, Long> localIds, Result result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // 检索索引、拼音键和行缓存由 upsertAll 负责
+        long[] musicIds = musicDao.upsertAll(batch);
+        for (int i = 0; i < musicIds.length; i++) {
+            if (musicIds[i] == -1) {
+                result.skippedCount++;
+                continue;
+            }
+            localIds.put(snapshotIds[i], musicIds[i]);
+            restoreExtras.bindLong(1, createdTimes[i]);
+            restoreExtras.bindLong(2, durations[i]);
+            restoreExtras.bindLong(3, musicIds[i]);
+            restoreExtras.executeUpdateDelete();
+            result.musicCount++;
+        }
+        batch.clear();
+    }
+
+    private void restoreLiked(SQLiteDatabase db, SnapshotReader reader, Map<Long, Long> localIds,
+                              Result result) throws IOException {
+        try (SQLiteStatement upsert = db.compileStatement(SQL_RESTORE_LIKED)) {
+            long snapshotId = 0;
+            long timestamp = 0;
+            long delta;
+            while ((delta = reader.readVarLong()) != 0) {
+                snapshotId += delta;
+                boolean liked = reader.readByte() != 0;
+                timestamp += reader.readSignedVarLong();
+
+                Long musicId = localIds.get(snapshotId);
+                if (musicId == null) {
+                    result.skippedCount++;
+                    continue;
+                }
+                upsert.bindLong(1, musicId);
+                upsert.bindLong(2, liked ? 1 : 0);
+                upsert.bindLong(3, timestamp);
+                upsert.executeUpdateDelete();
+                result.likedCount++;
+            }
+        }
+        // 缓存的行包含收藏状态，也包含上面直接改写的加入时间和时长
+        musicDao.getCache().invalidate(DatabaseHelper.TABLE_LIKED_MUSIC);
+        musicDao.getInvalidationTracker().onWriteFinished(db, true,
+                DatabaseHelper.TABLE_MUSIC_INFO, DatabaseHelper.TABLE_LIKED_MUSIC);
+    }
+
+    /**
+     * 恢复播放列表：当前播放队列和同名的播放列表整体替换，其余的新建
+     */
+    private void restorePlaylists(SQLiteDatabase db, SnapshotReader reader, Map<Long, Long> localIds,
+                                  Result result) throws IOException {
+        try (SQLiteStatement insertInfo = db.compileStatement(SQL_INSERT_PLAYLIST_INFO);
+             SQLiteStatement selectId = db.compileStatement(SQL_SELECT_PLAYLIST_ID);
+             SQLiteStatement insertItem = db.compileStatement(SQL_RESTORE_PLAYLIST_ITEM)) {
+            while (reader.readVarLong() != 0) {
+                long snapshotPlaylistId = reader.readVarLong();
+                String name = reader.readStringRef();
+                long createdTime = reader.readVarLong();
+                int itemCount = reader.readVarInt();
+
+                long playlistId;
+                if (snapshotPlaylistId == DatabaseHelper.DEFAULT_PLAYLIST_ID) {
+                    playlistId = DatabaseHelper.DEFAULT_PLAYLIST_ID;
+                } else {
+                    if (name == null) {
+                        throw new IOException("播放列表缺少名称，快照已损坏");
+                    }
+                    insertInfo.bindString(1, name);
+                    insertInfo.bindLong(2, createdTime);
+                    insertInfo.executeInsert();
+                    selectId.bindString(1, name);
+                    playlistId = selectId.simpleQueryForLong();
+                }
+                db.delete(DatabaseHelper.TABLE_PLAYLIST,
+                        DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?",
+                        new String[]{String.valueOf(playlistId)});
+
+                long musicId = 0;
+                long sortKey = 0;
+                long addedTime = 0;
+                for (int i = 0; i < itemCount; i++) {
+                    musicId += reader.readSignedVarLong();
+                    sortKey += reader.readSignedVarLong();
+                    addedTime += reader.readSignedVarLong();
+
+                    Long localId = localIds.get(musicId);
+                    if (localId == null) {
+                        result.skippedCount++;
+                        continue;
+                    }
+                    insertItem.bindLong(1, playlistId);
+                    insertItem.bindLong(2, localId);
+                    insertItem.bindLong(3, sortKey);
+                    insertItem.bindLong(4, addedTime);
+                    insertItem.executeInsert();
+                    result.playlistItemCount++;
+                }
+                result.playlistCount++;
+            }
+        }
+        musicDao.getInvalidationTracker().onWriteFinished(db, true,
+                DatabaseHelper.TABLE_PLAYLIST_INFO, DatabaseHelper.TABLE_PLAYLIST);
+    }
+
+    /**
+     * URL 拆成目录和文件名两部分，同一目录下的 URL 共用字符串表中的目录
+     */
+    private static void writeUrl(SnapshotWriter writer, String url) throws IOException {
+        if (url == null) {
+            writer.writeStringRef(null);
+            return;
+        }
+        int split = url.lastIndexOf('/') + 1;
+        writer.writeStringRef(url.substring(0, split));
+        writer.writeLiteral(url.substring(split));
+    }
+
+    private static String readUrl(SnapshotReader reader) throws IOException {
+        String directory = reader.readStringRef();
+        if (directory == null) {
+            return null;
+        }
+        String fileName = reader.readLiteral();
+        return fileName == null ? directory : directory + fileName;
+    }
+}
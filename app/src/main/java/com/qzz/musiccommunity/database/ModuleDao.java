@@ -0,0 +1,316 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.network.dto.ModuleConfig;
+import com.qzz.musiccommunity.network.dto.PagedData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 首页模块缓存
+ * 每次从网络获取首页的一页后整页保存，下次启动时先显示缓存的内容，网络返回后再替换
+ * 缓存按页码保存，每页条数不同的页不能拼接在一起，读取时只返回与当前每页条数相同的页
+ */
+public class ModuleDao {
+
+    private static final String TAG = "ModuleDao";
+    private static ModuleDao instance;
+    private final DatabaseHelper dbHelper;
+    // 与 MusicDao 共用耗时统计
+    private final DaoMetrics metrics;
+
+    private static final String SQL_INSERT_MODULE = "INSERT INTO " + DatabaseHelper.TABLE_MODULE + " (" +
+            DatabaseHelper.COLUMN_MODULE_PAGE + ", " +
+            DatabaseHelper.COLUMN_MODULE_POSITION + ", " +
+            DatabaseHelper.COLUMN_MODULE_CONFIG_ID + ", " +
+            DatabaseHelper.COLUMN_MODULE_NAME + ", " +
+            DatabaseHelper.COLUMN_MODULE_STYLE + ", " +
+            DatabaseHelper.COLUMN_PAGE_SIZE + ", " +
+            DatabaseHelper.COLUMN_PAGE_TOTAL + ", " +
+            DatabaseHelper.COLUMN_FETCHED_TIME + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_INSERT_MODULE_MUSIC = "INSERT INTO " + DatabaseHelper.TABLE_MODULE_MUSIC + " (" +
+            DatabaseHelper.COLUMN_MODULE_MUSIC_OWNER_ID + ", " +
+            DatabaseHelper.COLUMN_MODULE_MUSIC_POSITION + ", " +
+            DatabaseHelper.COLUMN_REMOTE_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_MUSIC_NAME + ", " +
+            DatabaseHelper.COLUMN_AUTHOR + ", " +
+            DatabaseHelper.COLUMN_MUSIC_URL + ", " +
+            DatabaseHelper.COLUMN_COVER_URL + ", " +
+            DatabaseHelper.COLUMN_LYRIC_URL + ", " +
+            DatabaseHelper.COLUMN_DURATION + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_SELECT_MODULES = "SELECT " +
+            DatabaseHelper.COLUMN_MODULE_ROW_ID + ", " +
+            DatabaseHelper.COLUMN_MODULE_PAGE + ", " +
+            DatabaseHelper.COLUMN_MODULE_CONFIG_ID + ", " +
+            DatabaseHelper.COLUMN_MODULE_NAME + ", " +
+            DatabaseHelper.COLUMN_MODULE_STYLE + ", " +
+            DatabaseHelper.COLUMN_PAGE_TOTAL + ", " +
+            DatabaseHelper.COLUMN_FETCHED_TIME +
+            " FROM " + DatabaseHelper.TABLE_MODULE +
+            " WHERE " + DatabaseHelper.COLUMN_PAGE_SIZE + " = ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_MODULE_PAGE + ", " + DatabaseHelper.COLUMN_MODULE_POSITION;
+
+    private static final String SQL_SELECT_MODULE_MUSIC = "SELECT " +
+            DatabaseHelper.COLUMN_MODULE_MUSIC_OWNER_ID + ", " +
+            DatabaseHelper.COLUMN_REMOTE_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_MUSIC_NAME + ", " +
+            DatabaseHelper.COLUMN_AUTHOR + ", " +
+            DatabaseHelper.COLUMN_MUSIC_URL + ", " +
+            DatabaseHelper.COLUMN_COVER_URL + ", " +
+            DatabaseHelper.COLUMN_LYRIC_URL + ", " +
+            DatabaseHelper.COLUMN_DURATION +
+            " FROM " + DatabaseHelper.TABLE_MODULE_MUSIC +
+            " WHERE " + DatabaseHelper.COLUMN_MODULE_MUSIC_OWNER_ID + " IN (SELECT " +
+            DatabaseHelper.COLUMN_MODULE_ROW_ID + " FROM " + DatabaseHelper.TABLE_MODULE +
+            " WHERE " + DatabaseHelper.COLUMN_PAGE_SIZE + " = ?)" +
+            " ORDER BY " + DatabaseHelper.COLUMN_MODULE_MUSIC_OWNER_ID + ", " + DatabaseHelper.COLUMN_MODULE_MUSIC_POSITION;
+
+    // 私有构造函数，使用单例模式
+    private ModuleDao(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+        metrics = MusicDao.getInstance(context).getMetrics();
+    }
+
+    /**
+     * 获取 ModuleDao 的单例实例
+     */
+    public static synchronized ModuleDao getInstance(Context context) {
+        if (instance == null) {
+            instance = new ModuleDao(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 保存从网络获取的一页，替换缓存中同一页码的内容
+     * 同时删除已经不存在的页（页码超出新的总页数）和每页条数不同的页，缓存中的页始终可以按页码拼接
+     * @param pagedData getHomePage 返回的一页
+     * @return 是否保存成功
+     */
+    public boolean savePage(PagedData<ModuleConfig> pagedData) {
+        return savePage(pagedData, false);
+    }
+
+    /**
+     * 保存从网络获取的一页
+     * @param pagedData getHomePage 返回的一页
+     * @param dropOtherPages 同时删除缓存中的其他页；刷新后的第1页与缓存不同时，后面的页已经错位，不能再拼接
+     * @return 是否保存成功
+     */
+    public boolean savePage(PagedData<ModuleConfig> pagedData, boolean dropOtherPages) {
+        if (pagedData == null || pagedData.getCurrent() < 1 || pagedData.getSize() < 1) {
+            Log.w(TAG, "分页信息无效，不保存");
+            return false;
+        }
+        long start = metrics.start();
+        SQLiteDatabase db = null;
+        boolean success = false;
+        int rows = 0;
+
+        try {
+            db = dbHelper.getWritableDatabaseSafe();
+            db.beginTransaction();
+
+            int page = pagedData.getCurrent();
+            int size = pagedData.getSize();
+            // 模块中的歌曲随模块级联删除
+            if (dropOtherPages) {
+                db.delete(DatabaseHelper.TABLE_MODULE, null, null);
+            } else {
+                db.delete(DatabaseHelper.TABLE_MODULE,
+                        DatabaseHelper.COLUMN_MODULE_PAGE + " = ? OR " +
+                        DatabaseHelper.COLUMN_MODULE_PAGE + " > ? OR " +
+                        DatabaseHelper.COLUMN_PAGE_SIZE + " != ?",
+                        new String[]{String.valueOf(page), String.valueOf(pageCount(pagedData)), String.valueOf(size)});
+            }
+
+            List<ModuleConfig> records = pagedData.getRecords();
+            if (records != null) {
+                long fetchedTime = System.currentTimeMillis();
+                try (SQLiteStatement insertModule = db.compileStatement(SQL_INSERT_MODULE);
+                     SQLiteStatement insertMusic = db.compileStatement(SQL_INSERT_MODULE_MUSIC)) {
+                    for (int position = 0; position < records.size(); position++) {
+                        ModuleConfig module = records.get(position);
+                        if (module == null) {
+                            continue;
+                        }
+                        insertModule.clearBindings();
+                        insertModule.bindLong(1, page);
+                        insertModule.bindLong(2, position);
+                        insertModule.bindLong(3, module.getModuleConfigId());
+                        bindNullable(insertModule, 4, module.getModuleName());
+                        insertModule.bindLong(5, module.getStyle());
+                        insertModule.bindLong(6, size);
+                        insertModule.bindLong(7, pagedData.getTotal());
+                        insertModule.bindLong(8, fetchedTime);
+                        long moduleRowId = insertModule.executeInsert();
+                        rows++;
+
+                        rows += insertModuleMusic(insertMusic, moduleRowId, module.getMusicInfoList());
+                    }
+                }
+            }
+
+            db.setTransactionSuccessful();
+            success = true;
+            Log.d(TAG, "保存首页第 " + page + " 页，共 " + rows + " 行");
+        } catch (Exception e) {
+            Log.e(TAG, "保存首页模块时出错", e);
+        } finally {
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Log.e(TAG, "结束事务时出错", e);
+                    success = false;
+                }
+            }
+        }
+        metrics.record("saveModulePage", start, rows);
+        return success;
+    }
+
+    private static int insertModuleMusic(SQLiteStatement insertMusic, long moduleRowId, List<MusicInfo> musicList) {
+        if (musicList == null) {
+            return 0;
+        }
+        int rows = 0;
+        for (int position = 0; position < musicList.size(); position++) {
+            MusicInfo music = musicList.get(position);
+            if (music == null) {
+                continue;
+            }
+            insertMusic.clearBindings();
+            insertMusic.bindLong(1, moduleRowId);
+            insertMusic.bindLong(2, position);
+            insertMusic.bindLong(3, music.getId());
+            bindNullable(insertMusic, 4, music.getMusicName());
+            bindNullable(insertMusic, 5, music.getAuthor());
+            bindNullable(insertMusic, 6, music.getMusicUrl());
+            bindNullable(insertMusic, 7, music.getCoverUrl());
+            bindNullable(insertMusic, 8, music.getLyricUrl());
+            insertMusic.bindLong(9, music.getDuration());
+            insertMusic.executeInsert();
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * 读取缓存中从第1页开始连续的所有页
+     * @param pageSize 当前的每页条数，只返回按这个条数保存的页
+     * @return 按页码排列的页，没有缓存时为空列表
+     */
+    public List<PagedData<ModuleConfig>> loadCachedPages(int pageSize) {
+        long start = metrics.start();
+        List<PagedData<ModuleConfig>> pages = new ArrayList<>();
+        LongSparseArray<ModuleConfig> modulesByRowId = new LongSparseArray<>();
+        long oldestFetchedTime = Long.MAX_VALUE;
+        int rows = 0;
+
+        try {
+            SQLiteDatabase db = dbHelper.getReadableDatabaseSafe();
+            String[] args = {String.valueOf(pageSize)};
+
+            try (Cursor cursor = db.rawQuery(SQL_SELECT_MODULES, args)) {
+                PagedData<ModuleConfig> current = null;
+                while (cursor.moveToNext()) {
+                    int page = cursor.getInt(1);
+                    if (current == null || current.getCurrent() != page) {
+                        // 中间缺页时后面的页无法拼接
+                        if (page != pages.size() + 1) {
+                            break;
+                        }
+                        current = new PagedData<>();
+                        current.setCurrent(page);
+                        current.setSize(pageSize);
+                        current.setTotal(cursor.getInt(5));
+                        current.setPages(pageCount(current));
+                        current.setRecords(new ArrayList<>());
+                        pages.add(current);
+                    }
+                    ModuleConfig module = new ModuleConfig();
+                    module.setModuleConfigId(cursor.getInt(2));
+                    module.setModuleName(cursor.getString(3));
+                    module.setStyle(cursor.getInt(4));
+                    module.setMusicInfoList(new ArrayList<>());
+                    current.getRecords().add(module);
+                    modulesByRowId.put(cursor.getLong(0), module);
+                    oldestFetchedTime = Math.min(oldestFetchedTime, cursor.getLong(6));
+                    rows++;
+                }
+            }
+
+            if (modulesByRowId.size() > 0) {
+                try (Cursor cursor = db.rawQuery(SQL_SELECT_MODULE_MUSIC, args)) {
+                    while (cursor.moveToNext()) {
+                        ModuleConfig module = modulesByRowId.get(cursor.getLong(0));
+                        if (module == null) {
+                            // 缺页之后的模块
+                            continue;
+                        }
+                        MusicInfo music = new MusicInfo(cursor.getLong(1), cursor.getString(2),
+                                cursor.getString(3), cursor.getString(4));
+                        music.setCoverUrl(cursor.getString(5));
+                        music.setLyricUrl(cursor.getString(6));
+                        music.setDuration(cursor.getLong(7));
+                        module.getMusicInfoList().add(music);
+                        rows++;
+                    }
+                }
+            }
+
+            if (!pages.isEmpty()) {
+                Log.d(TAG, "读取首页缓存 " + pages.size() + " 页，最早的一页获取于 " +
+                        (System.currentTimeMillis() - oldestFetchedTime) / 1000 + " 秒前");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "读取首页缓存时出错", e);
+            pages.clear();
+        }
+        metrics.record("loadModulePages", start, rows);
+        return pages;
+    }
+
+    /**
+     * 清空首页缓存
+     */
+    public void clear() {
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+            int deleted = db.delete(DatabaseHelper.TABLE_MODULE, null, null);
+            Log.d(TAG, "清空首页缓存，删除 " + deleted + " 个模块");
+        } catch (Exception e) {
+            Log.e(TAG, "清空首页缓存时出错", e);
+        }
+    }
+
+    /**
+     * 总页数；服务器没有返回页数时按总数和每页条数计算
+     */
+    private static int pageCount(PagedData<?> pagedData) {
+        if (pagedData.getPages() > 0) {
+            return pagedData.getPages();
+        }
+        int size = Math.max(1, pagedData.getSize());
+        return Math.max(pagedData.getCurrent(), (pagedData.getTotal() + size - 1) / size);
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.qzz.musiccommunity.database;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MusicDao 的内存行缓存（identity map）
+ * 以音乐ID为主键、music_url为辅助键保存最近读写过的音乐行，容量有限，按最近最少使用淘汰；
+ * 同一首歌在缓存中只有一个 MusicInfo 实例，重复查询返回同一个对象
+ *
+ * 一致性约定：
+ * 1. 缓存中的对象只读：DAO 写入提交后用新的实例替换（write-through），调用方需要修改时先 MusicInfo.copy()
+ * 2. 嵌套在外层事务中的写入等最外层事务提交后才更新缓存，其他线程不会读到未提交的数据
+ * 3. 事务回滚或绕过 DAO 直接写表时，按表调用 invalidate() 使缓存失效
+ */
+public final class MusicCache {
+
+    private final int maxEntries;
+
+    // accessOrder = true，遍历顺序即最近访问顺序，超出容量时淘汰最久未访问的行
+    private final LinkedHashMap<Long, MusicInfo> musicById;
+    private final Map<String, Long> musicIdByUrl = new HashMap<>();
+    // 只查询过收藏状态、没有读取完整行的音乐
+    private final LinkedHashMap<Long, Boolean> likedById;
+
+    // 写事务开始和结束时递增；查询期间有写事务开始或结束时，查询结果不放入缓存，避免旧快照覆盖新数据
+    private long writeVersion;
+    // 正在进行的写事务数，大于0时查询结果不放入缓存（WAL模式下读到的可能是提交前的旧数据）
+    private int activeWrites;
+
+    private long hitCount;
+    private long missCount;
+
+    MusicCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        musicById = new LinkedHashMap<Long, MusicInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MusicInfo> eldest) {
+                if (size() > MusicCache.this.maxEntries) {
+                    musicIdByUrl.remove(eldest.getValue().getMusicUrl());
+                    return true;
+                }
+                return false;
+            }
+        };
+        likedById = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > MusicCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 按ID查找，未命中返回null
+     */
+    synchronized MusicInfo get(long musicId) {
+        return record(musicById.get(musicId));
+    }
+
+    /**
+     * 按 music_url 查找，未命中返回null
+     */
+    synchronized MusicInfo getByUrl(String musicUrl) {
+        Long musicId = musicIdByUrl.get(musicUrl);
+        return record(musicId == null ? null : musicById.get(musicId));
+    }
+
+    /**
+     * 查找收藏状态，未命中返回null
+     */
+    synchronized Boolean getLiked(long musicId) {
+        MusicInfo musicInfo = musicById.get(musicId);
+        Boolean liked = musicInfo != null ? Boolean.valueOf(musicInfo.isLiked()) : likedById.get(musicId);
+        return record(liked);
+    }
+
+    /**
+     * 在查询数据库之前调用，返回值传给 put()/putLiked()
+     */
+    synchronized long beginRead() {
+        return writeVersion;
+    }
+
+    /**
+     * 放入从数据库读取的一行
+     * 已缓存且内容相同时返回缓存中的实例，保证同一首歌只有一个对象；内容不同时以数据库为准替换
+     * @param readVersion 查询前 beginRead() 的返回值
+     */
+    synchronized MusicInfo put(MusicInfo musicInfo, long readVersion) {
+        if (musicInfo == null || musicInfo.getId() <= 0 || musicInfo.getMusicUrl() == null
+                || !canPopulate(readVersion)) {
+            return musicInfo;
+        }
+        return putInternal(musicInfo);
+    }
+
+    /**
+     * 放入从数据库读取的收藏状态
+     * @param readVersion 查询前 beginRead() 的返回值
+     */
+    synchronized void putLiked(long musicId, boolean liked, long readVersion) {
+        if (canPopulate(readVersion) && !musicById.containsKey(musicId)) {
+            likedById.put(musicId, liked);
+        }
+    }
+
+    private MusicInfo putInternal(MusicInfo musicInfo) {
+        MusicInfo cached = musicById.get(musicInfo.getId());
+        if (cached != null && sameContent(cached, musicInfo) && cached.isLiked() == musicInfo.isLiked()) {
+            return cached;
+        }
+        if (cached != null && !cached.getMusicUrl().equals(musicInfo.getMusicUrl())) {
+            musicIdByUrl.remove(cached.getMusicUrl());
+        }
+        musicById.put(musicInfo.getId(), musicInfo);
+        musicIdByUrl.put(musicInfo.getMusicUrl(), musicInfo.getId());
+        likedById.remove(musicInfo.getId());
+        return musicInfo;
+    }
+
+    /**
+     * 写事务开始前调用，必须与 endWrite() 成对调用
+     */
+    synchronized void beginWrite() {
+        activeWrites++;
+        writeVersion++;
+    }
+
+    /**
+     * 写事务结束（提交或回滚）后调用
+     */
+    synchronized void endWrite() {
+        activeWrites--;
+        writeVersion++;
+    }
+
+    /**
+     * 写入音乐信息后同步缓存；只更新已缓存的行，收藏状态保持不变
+     */
+    synchronized void update(long musicId, MusicInfo written) {
+        MusicInfo cached = musicById.get(musicId);
+        if (cached == null || sameContent(cached, written)) {
+            return;
+        }
+        MusicInfo updated = new MusicInfo(musicId, written.getMusicName(), written.getAuthor(), written.getMusicUrl());
+        updated.setCoverUrl(written.getCoverUrl());
+        updated.setLyricUrl(written.getLyricUrl());
+        updated.setLiked(cached.isLiked());
+        putInternal(updated);
+    }
+
+    /**
+     * 写入收藏状态后同步缓存
+     */
+    synchronized void updateLiked(long musicId, boolean liked) {
+        MusicInfo cached = musicById.get(musicId);
+        if (cached == null) {
+            likedById.put(musicId, liked);
+        } else if (cached.isLiked() != liked) {
+            // 替换而不是修改缓存中的对象，已返回给调用方的实例保持不变
+            MusicInfo updated = new MusicInfo(musicId, cached.getMusicName(), cached.getAuthor(), cached.getMusicUrl());
+            updated.setCoverUrl(cached.getCoverUrl());
+            updated.setLyricUrl(cached.getLyricUrl());
+            updated.setLiked(liked);
+            musicById.put(musicId, updated);
+        }
+    }
+
+    /**
+     * 删除音乐后移出缓存
+     */
+    synchronized void remove(long musicId) {
+        MusicInfo removed = musicById.remove(musicId);
+        if (removed != null) {
+            musicIdByUrl.remove(removed.getMusicUrl());
+        }
+        likedById.remove(musicId);
+    }
+
+    /**
+     * 表中数据被批量修改后使缓存失效
+     * @param table 被修改的表；播放列表表不影响缓存内容
+     */
+    public synchronized void invalidate(String table) {
+        // 收藏状态包含在缓存的行中，音乐表和收藏表的修改都使整个缓存失效
+        if (!DatabaseHelper.TABLE_PLAYLIST.equals(table)) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 清空缓存，用于事务回滚等无法确定哪些行被修改的情况
+     */
+    public synchronized void invalidateAll() {
+        writeVersion++;
+        musicById.clear();
+        musicIdByUrl.clear();
+        likedById.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int size() {
+        return musicById.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void resetStats() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    private boolean canPopulate(long readVersion) {
+        return activeWrites == 0 && readVersion == writeVersion;
+    }
+
+    private <T> T record(T value) {
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    private static boolean sameContent(MusicInfo a, MusicInfo b) {
+        return equalsOrNull(a.getMusicName(), b.getMusicName())
+                && equalsOrNull(a.getAuthor(), b.getAuthor())
+                && equalsOrNull(a.getMusicUrl(), b.getMusicUrl())
+                && equalsOrNull(a.getCoverUrl(), b.getCoverUrl())
+                && equalsOrNull(a.getLyricUrl(), b.getLyricUrl());
+    }
+
+    private static boolean equalsOrNull(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hitCount + missCount;
+        return "MusicCache{size=" + musicById.size() + "/" + maxEntries +
+                ", hits=" + hitCount + ", misses=" + missCount +
+                ", hitRate=" + (total == 0 ? 0 : hitCount * 100 / total) + "%}";
+    }
+}
@@ -3,24 +3,220 @@ package com.qzz.musiccommunity.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.MusicPage;
+import com.qzz.musiccommunity.database.dto.MusicPageKey;
+import com.qzz.musiccommunity.database.dto.MusicSearchResult;
+import com.qzz.musiccommunity.database.dto.MusicSummary;
+import com.qzz.musiccommunity.database.dto.NamedPlaylist;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class MusicDao {
 
     private static final String TAG = "MusicDao";
     private static MusicDao instance;
     private DatabaseHelper dbHelper;
+    // 最近读写过的音乐行，单行查询优先从这里读取
+    private final MusicCache cache;
+    // 各方法的耗时统计和慢查询日志
+    private final DaoMetrics metrics;
+    // 写操作提交后通知观察者
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+    // 当前线程的外层事务中已完成、等外层事务提交后才写入缓存的更新
+    private final ThreadLocal<List<Runnable>> pendingCacheUpdates = new ThreadLocal<>();
+
+    // 批量写入使用的预编译语句
+    // url_hash 冲突时原地更新，保留原有的ID，不触发 liked_music/playlist 的级联删除
+    // 内容没有变化时不更新，影响行数为0，据此跳过检索索引的重写；
+    // 哈希相同但 URL 不同（哈希冲突）时同样不更新，随后按完整 URL 取ID会查不到
+    private static final String SQL_UPSERT_MUSIC = "INSERT INTO " + DatabaseHelper.TABLE_MUSIC_INFO + " (" +
+            DatabaseHelper.COLUMN_MUSIC_NAME + ", " +
+            DatabaseHelper.COLUMN_AUTHOR + ", " +
+            DatabaseHelper.COLUMN_URL_HASH + ", " +
+            DatabaseHelper.COLUMN_URL_PREFIX_ID + ", " +
+            DatabaseHelper.COLUMN_URL_PATH + ", " +
+            DatabaseHelper.COLUMN_COVER_URL + ", " +
+            DatabaseHelper.COLUMN_LYRIC_URL + ") VALUES (?, ?, ?, ?, ?, ?, ?)" +
+            " ON CONFLICT(" + DatabaseHelper.COLUMN_URL_HASH + ") DO UPDATE SET " +
+            DatabaseHelper.COLUMN_MUSIC_NAME + " = excluded." + DatabaseHelper.COLUMN_MUSIC_NAME + ", " +
+            DatabaseHelper.COLUMN_AUTHOR + " = excluded." + DatabaseHelper.COLUMN_AUTHOR + ", " +
+            DatabaseHelper.COLUMN_COVER_URL + " = excluded." + DatabaseHelper.COLUMN_COVER_URL + ", " +
+            DatabaseHelper.COLUMN_LYRIC_URL + " = excluded." + DatabaseHelper.COLUMN_LYRIC_URL +
+            " WHERE " + DatabaseHelper.COLUMN_URL_PREFIX_ID + " = excluded." + DatabaseHelper.COLUMN_URL_PREFIX_ID +
+            " AND " + DatabaseHelper.COLUMN_URL_PATH + " = excluded." + DatabaseHelper.COLUMN_URL_PATH +
+            " AND (" + DatabaseHelper.COLUMN_MUSIC_NAME + " IS NOT excluded." + DatabaseHelper.COLUMN_MUSIC_NAME +
+            " OR " + DatabaseHelper.COLUMN_AUTHOR + " IS NOT excluded." + DatabaseHelper.COLUMN_AUTHOR +
+            " OR " + DatabaseHelper.COLUMN_COVER_URL + " IS NOT excluded." + DatabaseHelper.COLUMN_COVER_URL +
+            " OR " + DatabaseHelper.COLUMN_LYRIC_URL + " IS NOT excluded." + DatabaseHelper.COLUMN_LYRIC_URL + ")";
+
+    private static final String SQL_SELECT_MUSIC_ID = "SELECT " + DatabaseHelper.COLUMN_MUSIC_ID +
+            " FROM " + DatabaseHelper.TABLE_MUSIC_INFO +
+            " WHERE " + DatabaseHelper.COLUMN_URL_HASH + " = ?" +
+            " AND " + DatabaseHelper.COLUMN_URL_PREFIX_ID + " = ?" +
+            " AND " + DatabaseHelper.COLUMN_URL_PATH + " = ?";
+
+    private static final String SQL_UPSERT_LIKED = "INSERT INTO " + DatabaseHelper.TABLE_LIKED_MUSIC + " (" +
+            DatabaseHelper.COLUMN_LIKED_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_IS_LIKED + ", " +
+            DatabaseHelper.COLUMN_TIMESTAMP + ") VALUES (?, ?, ?)" +
+            " ON CONFLICT(" + DatabaseHelper.COLUMN_LIKED_MUSIC_ID + ") DO UPDATE SET " +
+            DatabaseHelper.COLUMN_IS_LIKED + " = excluded." + DatabaseHelper.COLUMN_IS_LIKED + ", " +
+            DatabaseHelper.COLUMN_TIMESTAMP + " = excluded." + DatabaseHelper.COLUMN_TIMESTAMP;
+
+    private static final String SQL_DELETE_FTS = "DELETE FROM " + DatabaseHelper.TABLE_MUSIC_FTS +
+            " WHERE docid = ?";
+
+    private static final String SQL_INSERT_FTS = "INSERT INTO " + DatabaseHelper.TABLE_MUSIC_FTS + " (docid, " +
+            DatabaseHelper.COLUMN_FTS_NAME + ", " +
+            DatabaseHelper.COLUMN_FTS_AUTHOR + ") VALUES (?, ?, ?)";
+
+    private static final String SQL_UPDATE_PINYIN = "UPDATE " + DatabaseHelper.TABLE_MUSIC_INFO + " SET " +
+            DatabaseHelper.COLUMN_NAME_PINYIN + " = ?, " +
+            DatabaseHelper.COLUMN_NAME_INITIALS + " = ?, " +
+            DatabaseHelper.COLUMN_AUTHOR_PINYIN + " = ?, " +
+            DatabaseHelper.COLUMN_AUTHOR_INITIALS + " = ?" +
+            " WHERE " + DatabaseHelper.COLUMN_MUSIC_ID + " = ?";
+
+    private static final String SQL_INSERT_PLAY_HISTORY = "INSERT INTO " + DatabaseHelper.TABLE_PLAY_HISTORY + " (" +
+            DatabaseHelper.COLUMN_HISTORY_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_PLAYED_TIME + ") VALUES (?, ?)";
+
+    private static final String SQL_UPSERT_PLAY_STATS = "INSERT INTO " + DatabaseHelper.TABLE_PLAY_STATS + " (" +
+            DatabaseHelper.COLUMN_STATS_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_PLAY_COUNT + ", " +
+            DatabaseHelper.COLUMN_LAST_PLAYED_TIME + ") VALUES (?, 1, ?)" +
+            " ON CONFLICT(" + DatabaseHelper.COLUMN_STATS_MUSIC_ID + ") DO UPDATE SET " +
+            DatabaseHelper.COLUMN_PLAY_COUNT + " = " + DatabaseHelper.COLUMN_PLAY_COUNT + " + 1, " +
+            DatabaseHelper.COLUMN_LAST_PLAYED_TIME + " = max(" + DatabaseHelper.COLUMN_LAST_PLAYED_TIME +
+            ", excluded." + DatabaseHelper.COLUMN_LAST_PLAYED_TIME + ")";
+
+    private static final String SQL_INSERT_PLAYLIST_ITEM = "INSERT INTO " + DatabaseHelper.TABLE_PLAYLIST + " (" +
+            DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + ", " + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID + ", " +
+            DatabaseHelper.COLUMN_SORT_KEY + ") VALUES (?, ?, ?)";
+
+    // 按播放列表顺序读取行ID和排序键，参数依次为：播放列表ID、排除的行ID、LIMIT、OFFSET；只扫描 idx_playlist_order
+    private static final String SQL_SELECT_PLAYLIST_KEYS = "SELECT " + DatabaseHelper.COLUMN_PLAYLIST_ID + ", " +
+            DatabaseHelper.COLUMN_SORT_KEY + " FROM " + DatabaseHelper.TABLE_PLAYLIST +
+            " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ? AND " + DatabaseHelper.COLUMN_PLAYLIST_ID + " != ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_PLAYLIST_ID +
+            " LIMIT ? OFFSET ?";
+
+    // 搜索默认返回的最大结果数
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    // 流式遍历时每次从数据库读取的行数
+    private static final int STREAM_BATCH_SIZE = 256;
+
+    /**
+     * 分页查询的排序方式
+     * 每种排序都以 (排序列, ID) 作为唯一的分页位置，排序列都有索引
+     */
+    public enum SortOrder {
+        ID("m." + DatabaseHelper.COLUMN_MUSIC_ID, "m." + DatabaseHelper.COLUMN_MUSIC_ID, true),                    // 最新加入的在前
+        NAME("m." + DatabaseHelper.COLUMN_NAME_PINYIN, "m." + DatabaseHelper.COLUMN_MUSIC_ID, false),             // 按歌名拼音
+        AUTHOR("m." + DatabaseHelper.COLUMN_AUTHOR_PINYIN, "m." + DatabaseHelper.COLUMN_MUSIC_ID, false),         // 按歌手拼音
+        ADDED_TIME("m." + DatabaseHelper.COLUMN_CREATED_TIME, "m." + DatabaseHelper.COLUMN_MUSIC_ID, true),       // 按加入时间倒序
+        LIKED_TIME("l." + DatabaseHelper.COLUMN_TIMESTAMP, "l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID, true);    // 按收藏时间倒序，只包含已收藏的音乐
+
+        final String sortColumn;
+        final String idColumn;
+        final boolean descending;
+        // 耗时统计中的方法名，按排序方式分开统计
+        final String metricName;
+
+        SortOrder(String sortColumn, String idColumn, boolean descending) {
+            this.sortColumn = sortColumn;
+            this.idColumn = idColumn;
+            this.descending = descending;
+            this.metricName = "getMusicPage." + name();
+        }
+    }
+
+    /**
+     * 流式遍历的回调
+     */
+    public interface MusicCallback {
+        /**
+         * @return 返回false时停止遍历
+         */
+        boolean onMusic(MusicInfo musicInfo);
+    }
+
+    // SQLiteStatement 的参数绑定不是线程安全的，每个线程持有自己的一组语句；
+    // 语句只在最外层事务内复用，事务结束时关闭，不会随写入过的线程一直留着
+    private final ThreadLocal<WriteStatements> writeStatements = new ThreadLocal<>();
+
+    /**
+     * 绑定到某个数据库连接的一组预编译写语句
+     */
+    private static class WriteStatements {
+        final SQLiteDatabase db;
+        final SQLiteStatement upsertMusic;
+        final SQLiteStatement selectMusicId;
+        final SQLiteStatement upsertLiked;
+        final SQLiteStatement deleteFts;
+        final SQLiteStatement insertFts;
+        final SQLiteStatement updatePinyin;
+        final SQLiteStatement insertPlayHistory;
+        final SQLiteStatement upsertPlayStats;
+        final SQLiteStatement insertPrefix;
+
+        WriteStatements(SQLiteDatabase db) {
+            this.db = db;
+            this.upsertMusic = db.compileStatement(SQL_UPSERT_MUSIC);
+            this.selectMusicId = db.compileStatement(SQL_SELECT_MUSIC_ID);
+            this.upsertLiked = db.compileStatement(SQL_UPSERT_LIKED);
+            this.deleteFts = db.compileStatement(SQL_DELETE_FTS);
+            this.insertFts = db.compileStatement(SQL_INSERT_FTS);
+            this.updatePinyin = db.compileStatement(SQL_UPDATE_PINYIN);
+            this.insertPlayHistory = db.compileStatement(SQL_INSERT_PLAY_HISTORY);
+            this.upsertPlayStats = db.compileStatement(SQL_UPSERT_PLAY_STATS);
+            this.insertPrefix = db.compileStatement(UrlPrefixDictionary.SQL_INSERT_PREFIX);
+        }
+
+        void close() {
+            upsertMusic.close();
+            selectMusicId.close();
+            upsertLiked.close();
+            deleteFts.close();
+            insertFts.close();
+            updatePinyin.close();
+            insertPlayHistory.close();
+            upsertPlayStats.close();
+            insertPrefix.close();
+        }
+    }
 
     // 私有构造函数，使用单例模式
     private MusicDao(Context context) {
         // 使用 DatabaseHelper 的单例实例
-        dbHelper = DatabaseHelper.getInstance(context);
+        this(DatabaseHelper.getInstance(context));
+    }
+
+    /**
+     * 使用指定的数据库，测试在独立的数据库上创建 DAO
+     */
+    MusicDao(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        cache = new MusicCache(dbHelper.getConfig().getMusicCacheSize());
+        metrics = new DaoMetrics(dbHelper.getConfig());
     }
 
     /**
@@ -33,6 +229,27 @@ public class MusicDao {
         return instance;
     }
 
+    /**
+     * 获取内存行缓存，用于查看命中统计，或在绕过 DAO 直接修改表后使缓存失效
+     */
+    public MusicCache getCache() {
+        return cache;
+    }
+
+    /**
+     * 获取各方法的耗时统计和慢查询日志
+     */
+    public DaoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取表级失效通知，用于观察收藏、播放列表和音乐信息的变化
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
     /**
      * 插入或更新音乐信息
      * @param musicInfo 音乐信息对象
@@ -43,66 +260,192 @@ public class MusicDao {
             Log.e(TAG, "音乐信息不能为空");
             return -1;
         }
+        return upsertAll(Collections.singletonList(musicInfo))[0];
+    }
+
+    /**
+     * 批量插入或更新音乐信息，整批在一个事务中完成
+     * 以 URL 判断是否已存在，已存在时更新名称、作者、封面和歌词地址
+     * @param musicList 音乐信息列表
+     * @return 与输入一一对应的数据库ID，写入失败或信息无效的位置为-1
+     */
+    public long[] upsertAll(List<MusicInfo> musicList) {
+        long start = metrics.start();
+        long[] musicIds = new long[musicList == null ? 0 : musicList.size()];
+        Arrays.fill(musicIds, -1);
+        if (musicIds.length == 0) {
+            return musicIds;
+        }
 
         SQLiteDatabase db = null;
-        Cursor cursor = null;
-        long musicId = -1;
+        boolean success = false;
+        // 是否有新增或内容变化的行；内容没有变化时不通知观察者
+        boolean modified = false;
 
         try {
-            // 使用安全获取可写数据库的方法
+            cache.beginWrite();
             db = dbHelper.getWritableDatabaseSafe();
+            WriteStatements statements = getWriteStatements(db);
             db.beginTransaction();
 
-            // 检查音乐是否已存在
-            cursor = db.query(
-                    DatabaseHelper.TABLE_MUSIC_INFO,
-                    new String[]{DatabaseHelper.COLUMN_MUSIC_ID},
-                    DatabaseHelper.COLUMN_MUSIC_URL + " = ?",
-                    new String[]{musicInfo.getMusicUrl()},
-                    null, null, null
-            );
+            for (int i = 0; i < musicIds.length; i++) {
+                MusicInfo musicInfo = musicList.get(i);
+                if (musicInfo == null || musicInfo.getMusicUrl() == null) continue;
+
+                String musicUrl = musicInfo.getMusicUrl();
+                long urlHash = MusicUrls.hash(musicUrl);
+                long prefixId = dbHelper.getUrlPrefixes().encodePrefix(db, statements.insertPrefix, musicUrl);
+                String urlPath = UrlPrefixDictionary.pathOf(musicUrl, prefixId);
+
+                SQLiteStatement upsert = statements.upsertMusic;
+                upsert.clearBindings();
+                bindStringOrNull(upsert, 1, musicInfo.getMusicName());
+                bindStringOrNull(upsert, 2, musicInfo.getAuthor());
+                upsert.bindLong(3, urlHash);
+                upsert.bindLong(4, prefixId);
+                upsert.bindString(5, urlPath);
+                bindStringOrNull(upsert, 6, musicInfo.getCoverUrl());
+                bindStringOrNull(upsert, 7, musicInfo.getLyricUrl());
+                int changed;
+                try {
+                    changed = upsert.executeUpdateDelete();
+                } catch (SQLiteConstraintException e) {
+                    // 单条数据不合法（如名称为空）只跳过该条，不影响整批
+                    Log.w(TAG, "音乐信息不合法，跳过: " + musicInfo.getMusicUrl(), e);
+                    continue;
+                }
 
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.COLUMN_MUSIC_NAME, musicInfo.getMusicName());
-            values.put(DatabaseHelper.COLUMN_AUTHOR, musicInfo.getAuthor());
-            values.put(DatabaseHelper.COLUMN_MUSIC_URL, musicInfo.getMusicUrl());
-            values.put(DatabaseHelper.COLUMN_COVER_URL, musicInfo.getCoverUrl());
-            values.put(DatabaseHelper.COLUMN_LYRIC_URL, musicInfo.getLyricUrl());
+                // 冲突更新时 last_insert_rowid 不会变化，需要按 URL 取回ID
+                SQLiteStatement selectId = statements.selectMusicId;
+                selectId.bindLong(1, urlHash);
+                selectId.bindLong(2, prefixId);
+                selectId.bindString(3, urlPath);
+                try {
+                    musicIds[i] = selectId.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    // 已有另一首歌占用了相同的 url_hash
+                    Log.w(TAG, "URL 哈希冲突，跳过: " + musicUrl);
+                    continue;
+                }
 
-            if (cursor != null && cursor.moveToFirst()) {
-                // 音乐已存在，获取其ID并更新
-                musicId = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID));
-                db.update(
-                        DatabaseHelper.TABLE_MUSIC_INFO,
-                        values,
-                        DatabaseHelper.COLUMN_MUSIC_ID + " = ?",
-                        new String[]{String.valueOf(musicId)}
-                );
-                Log.d(TAG, "音乐已存在，ID: " + musicId + ", 更新: " + musicInfo.getMusicName());
-            } else {
-                // 音乐不存在，插入新音乐
-                musicId = db.insert(DatabaseHelper.TABLE_MUSIC_INFO, null, values);
-                Log.d(TAG, "插入新音乐，ID: " + musicId + ", 名称: " + musicInfo.getMusicName());
+                // 只有新增或内容变化时才重新生成检索索引和拼音键
+                if (changed > 0) {
+                    modified = true;
+                    updateSearchIndex(statements, musicIds[i], musicInfo);
+                    updatePinyinKeys(statements, musicIds[i], musicInfo);
+                }
             }
 
             db.setTransactionSuccessful();
+            success = true;
+            if (musicIds.length > 1) {
+                Log.d(TAG, "批量写入音乐信息，共 " + musicIds.length + " 首");
+            }
 
         } catch (Exception e) {
-            Log.e(TAG, "插入或更新音乐信息时出错", e);
-            musicId = -1;
+            Log.e(TAG, "批量插入或更新音乐信息时出错", e);
+            Arrays.fill(musicIds, -1);
+            cache.invalidateAll();
         } finally {
-            if (cursor != null) {
-                cursor.close();
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Log.e(TAG, "结束事务时出错", e);
+                    cache.invalidateAll();
+                    success = false;
+                }
+            }
+            releaseWriteStatements(db);
+            updateCacheAfterCommit(db, success, () -> {
+                for (int i = 0; i < musicIds.length; i++) {
+                    if (musicIds[i] != -1) {
+                        cache.update(musicIds[i], musicList.get(i));
+                    }
+                }
+            });
+            cache.endWrite();
+            invalidationTracker.onWriteFinished(db, success && modified, DatabaseHelper.TABLE_MUSIC_INFO);
+        }
+        metrics.record("upsertAll", start, musicIds.length);
+        return musicIds;
+    }
+
+    /**
+     * 写事务结束后更新缓存，必须在 cache.endWrite() 之前调用
+     * 嵌套在 runInTransaction 中时，等最外层事务提交后再更新，其他线程不会从缓存读到未提交的数据
+     * @param committed 这次写入是否成功；嵌套的写入失败时整个外层事务都会回滚，丢弃之前记下的更新
+     */
+    private void updateCacheAfterCommit(SQLiteDatabase db, boolean committed, Runnable update) {
+        List<Runnable> pending = pendingCacheUpdates.get();
+        if (committed) {
+            if (pending == null) {
+                pending = new ArrayList<>();
+                pendingCacheUpdates.set(pending);
+            }
+            pending.add(update);
+        } else if (pending != null) {
+            pending.clear();
+        }
+        finishCacheUpdates(db, committed);
+    }
+
+    /**
+     * 事务结束（endTransaction）后调用；已经是最外层事务时，提交则应用记下的缓存更新，回滚则丢弃
+     * 会嵌套调用其他DAO写方法的事务（runInTransaction、savePlaylist、applyPlaylistChanges）都要调用
+     */
+    private void finishCacheUpdates(SQLiteDatabase db, boolean committed) {
+        if (db != null && db.inTransaction()) {
+            return;
+        }
+        List<Runnable> pending = pendingCacheUpdates.get();
+        pendingCacheUpdates.remove();
+        if (committed && pending != null) {
+            for (Runnable update : pending) {
+                update.run();
             }
+        }
+    }
+
+    /**
+     * 在一个事务中执行多次写操作，内部调用的DAO方法会合并到同一个事务中
+     * @param work 要执行的写操作
+     * @return 事务是否提交成功
+     */
+    public boolean runInTransaction(Runnable work) {
+        SQLiteDatabase db = null;
+        boolean success = false;
+
+        try {
+            cache.beginWrite();
+            db = dbHelper.getWritableDatabaseSafe();
+            db.beginTransaction();
+            work.run();
+            db.setTransactionSuccessful();
+            success = true;
+        } catch (Exception e) {
+            Log.e(TAG, "执行事务时出错", e);
+        } finally {
             if (db != null) {
                 try {
                     db.endTransaction();
                 } catch (Exception e) {
                     Log.e(TAG, "结束事务时出错", e);
+                    success = false;
                 }
             }
+            // 最外层事务提交时把内部DAO调用的缓存更新写入缓存，回滚时丢弃
+            finishCacheUpdates(db, success);
+            releaseWriteStatements(db);
+            if (!success) {
+                // 内部的DAO调用可能已经移除过缓存中的行，整个事务回滚后缓存不再可信
+                cache.invalidateAll();
+            }
+            cache.endWrite();
+            // 内部的DAO调用修改的表在这里一起通知，回滚时丢弃
+            invalidationTracker.onWriteFinished(db, success);
         }
-        return musicId;
+        return success;
     }
 
     /**
@@ -111,321 +454,1249 @@ public class MusicDao {
      * @return MusicInfo对象，如果不存在则返回null
      */
     public MusicInfo getMusicInfoById(long musicId) {
+        long start = metrics.start();
         if (musicId <= 0) {
             Log.w(TAG, "无效的音乐ID: " + musicId);
             return null;
         }
 
+        MusicInfo musicInfo = cache.get(musicId);
+        if (musicInfo != null) {
+            return musicInfo;
+        }
+        long readVersion = cache.beginRead();
+
         SQLiteDatabase db = null;
         Cursor cursor = null;
-        MusicInfo musicInfo = null;
 
         try {
             db = dbHelper.getReadableDatabaseSafe();
 
             // 联合查询，同时获取收藏状态
-            String query = "SELECT m.*, COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) as is_liked" +
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
                     " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
                     " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
                     " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
                     " WHERE m." + DatabaseHelper.COLUMN_MUSIC_ID + " = ?";
 
-            cursor = db.rawQuery(query, new String[]{String.valueOf(musicId)});
+            cursor = query(db, query, new String[]{String.valueOf(musicId)});
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
+
+            if (cursor != null && cursor.moveToFirst()) {
+                mapper.bind(cursor);
+                musicInfo = cache.put(mapper.map(cursor), readVersion);
+            }
+
+        } catch (Exception e) {
+            Log.e(TAG, "根据ID获取音乐信息时出错", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        metrics.record("getMusicInfoById", start, musicInfo == null ? 0 : 1);
+        return musicInfo;
+    }
+
+    /**
+     * 根据URL获取音乐信息
+     * @param musicUrl 音乐URL
+     * @return MusicInfo对象，如果不存在则返回null
+     */
+    public MusicInfo getMusicInfoByUrl(String musicUrl) {
+        long start = metrics.start();
+        if (TextUtils.isEmpty(musicUrl)) {
+            return null;
+        }
+
+        MusicInfo musicInfo = cache.getByUrl(musicUrl);
+        if (musicInfo != null) {
+            return musicInfo;
+        }
+        long readVersion = cache.beginRead();
+
+        SQLiteDatabase db = null;
+
+        try {
+            db = dbHelper.getReadableDatabaseSafe();
+
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
+                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " WHERE m." + DatabaseHelper.COLUMN_URL_HASH + " = ?";
+
+            try (Cursor cursor = query(db, query, new String[]{String.valueOf(MusicUrls.hash(musicUrl))})) {
+                MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
+                mapper.bind(cursor);
+                if (cursor.moveToFirst()) {
+                    MusicInfo found = mapper.map(cursor);
+                    // 哈希相同的可能是另一首歌
+                    if (musicUrl.equals(found.getMusicUrl())) {
+                        musicInfo = cache.put(found, readVersion);
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            Log.e(TAG, "根据URL获取音乐信息时出错", e);
+        }
+        metrics.record("getMusicInfoByUrl", start, musicInfo == null ? 0 : 1);
+        return musicInfo;
+    }
+
+    /**
+     * 收藏/取消收藏音乐
+     * @param musicId 音乐ID
+     * @param isLiked 是否收藏 (true: 收藏, false: 取消收藏)
+     */
+    public void setMusicLikedStatus(long musicId, boolean isLiked) {
+        if (musicId <= 0) {
+            Log.w(TAG, "无效的音乐ID: " + musicId);
+            return;
+        }
+        setMusicLikedStatusAll(Collections.singletonMap(musicId, isLiked));
+        Log.d(TAG, "设置收藏状态: musicId=" + musicId + ", isLiked=" + isLiked);
+    }
+
+    /**
+     * 批量设置收藏状态，整批在一个事务中完成
+     * @param likedStatusById 音乐ID -> 是否收藏
+     * @return 是否全部写入成功
+     */
+    public boolean setMusicLikedStatusAll(Map<Long, Boolean> likedStatusById) {
+        long start = metrics.start();
+        if (likedStatusById == null || likedStatusById.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase db = null;
+        boolean success = false;
+
+        try {
+            cache.beginWrite();
+            db = dbHelper.getWritableDatabaseSafe();
+            WriteStatements statements = getWriteStatements(db);
+            db.beginTransaction();
+
+            long timestamp = System.currentTimeMillis();
+            SQLiteStatement upsert = statements.upsertLiked;
+            for (Map.Entry<Long, Boolean> entry : likedStatusById.entrySet()) {
+                long musicId = entry.getKey();
+                if (musicId <= 0) {
+                    Log.w(TAG, "无效的音乐ID: " + musicId);
+                    continue;
+                }
+                upsert.bindLong(1, musicId);
+                upsert.bindLong(2, entry.getValue() ? 1 : 0);
+                upsert.bindLong(3, timestamp);
+                upsert.executeUpdateDelete();
+            }
+
+            db.setTransactionSuccessful();
+            success = true;
+
+        } catch (Exception e) {
+            Log.e(TAG, "设置收藏状态时出错", e);
+        } finally {
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Log.e(TAG, "结束事务时出错", e);
+                    success = false;
+                }
+            }
+            releaseWriteStatements(db);
+            if (!success) {
+                cache.invalidate(DatabaseHelper.TABLE_LIKED_MUSIC);
+            }
+            updateCacheAfterCommit(db, success, () -> {
+                for (Map.Entry<Long, Boolean> entry : likedStatusById.entrySet()) {
+                    if (entry.getKey() > 0) {
+                        cache.updateLiked(entry.getKey(), entry.getValue());
+                    }
+                }
+            });
+            cache.endWrite();
+            invalidationTracker.onWriteFinished(db, success, DatabaseHelper.TABLE_LIKED_MUSIC);
+        }
+        metrics.record("setMusicLikedStatusAll", start, likedStatusById.size());
+        return success;
+    }
+
+    /**
+     * 获取音乐的收藏状态
+     * @param musicId 音乐ID
+     * @return true: 已收藏, false: 未收藏
+     */
+    public boolean getMusicLikedStatus(long musicId) {
+        long start = metrics.start();
+        if (musicId <= 0) {
+            return false;
+        }
+
+        Boolean cached = cache.getLiked(musicId);
+        if (cached != null) {
+            return cached;
+        }
+        long readVersion = cache.beginRead();
+
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        boolean isLiked = false;
+
+        try {
+            db = dbHelper.getReadableDatabaseSafe();
+            cursor = query(db, "SELECT " + DatabaseHelper.COLUMN_IS_LIKED +
+                            " FROM " + DatabaseHelper.TABLE_LIKED_MUSIC +
+                            " WHERE " + DatabaseHelper.COLUMN_LIKED_MUSIC_ID + " = ?",
+                    new String[]{String.valueOf(musicId)});
+
+            if (cursor != null && cursor.moveToFirst()) {
+                isLiked = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_LIKED)) == 1;
+            }
+            cache.putLiked(musicId, isLiked, readVersion);
+
+        } catch (Exception e) {
+            Log.e(TAG, "获取收藏状态时出错", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        metrics.record("getMusicLikedStatus", start, 1);
+        return isLiked;
+    }
+
+    /**
+     * 保存播放列表（当前播放队列）
+     * @param playlist 音乐信息列表
+     * @return 是否写入成功
+     */
+    public boolean savePlaylist(List<MusicInfo> playlist) {
+        return savePlaylist(DatabaseHelper.DEFAULT_PLAYLIST_ID, playlist);
+    }
+
+    /**
+     * 全量保存指定的播放列表，排序键重新编号
+     * @param playlistId 播放列表ID
+     * @param playlist 音乐信息列表
+     * @return 是否写入成功；嵌套在外层事务中时，外层事务提交后才真正写入
+     */
+    public boolean savePlaylist(long playlistId, List<MusicInfo> playlist) {
+        long start = metrics.start();
+        if (playlist == null) {
+            Log.w(TAG, "播放列表不能为空");
+            return false;
+        }
+
+        SQLiteDatabase db = null;
+        boolean success = false;
+
+        try {
+            // 整个事务期间都算作写入，内部 upsertAll 结束后其他线程也不能把提交前读到的旧行放入缓存
+            cache.beginWrite();
+            db = dbHelper.getWritableDatabaseSafe();
+            db.beginTransaction();
+
+            // 清空旧的播放列表
+            db.delete(DatabaseHelper.TABLE_PLAYLIST,
+                    DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?",
+                    new String[]{String.valueOf(playlistId)});
+            Log.d(TAG, "旧播放列表已清空");
+
+            // 确保音乐信息已存在并获取ID；内部写入失败时整个事务会被回滚，不能当作成功
+            long[] musicIds = upsertAll(playlist);
+            for (int i = 0; i < playlist.size(); i++) {
+                MusicInfo musicInfo = playlist.get(i);
+                if (musicIds[i] == -1 && musicInfo != null && musicInfo.getMusicUrl() != null) {
+                    throw new IllegalStateException("写入音乐信息失败: " + musicInfo.getMusicUrl());
+                }
+            }
+
+            // 插入新的播放列表，相邻两行的排序键间隔 PlaylistOrder.GAP，之后的插入和移动只修改一行
+            try (SQLiteStatement insert = db.compileStatement(SQL_INSERT_PLAYLIST_ITEM)) {
+                int index = 0;
+                for (int i = 0; i < playlist.size(); i++) {
+                    long musicId = musicIds[i];
+                    if (musicId == -1) continue;
+
+                    insert.bindLong(1, playlistId);
+                    insert.bindLong(2, musicId);
+                    insert.bindLong(3, PlaylistOrder.keyAt(index++));
+                    insert.executeInsert();
+                }
+            }
+
+            db.setTransactionSuccessful();
+            success = true;
+            Log.d(TAG, "播放列表保存成功，共 " + playlist.size() + " 首歌曲");
+
+        } catch (Exception e) {
+            Log.e(TAG, "保存播放列表时出错", e);
+            cache.invalidateAll();
+        } finally {
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Log.e(TAG, "结束事务时出错", e);
+                    success = false;
+                }
+            }
+            finishCacheUpdates(db, success);
+            releaseWriteStatements(db);
+            cache.endWrite();
+            invalidationTracker.onWriteFinished(db, success, DatabaseHelper.TABLE_PLAYLIST);
+        }
+        metrics.record("savePlaylist", start, playlist.size());
+        return success;
+    }
+
+    /**
+     * 增量写入当前播放队列的变更
+     * @see #applyPlaylistChanges(long, List)
+     */
+    public boolean applyPlaylistChanges(List<PlaylistChange> changes) {
+        return applyPlaylistChanges(DatabaseHelper.DEFAULT_PLAYLIST_ID, changes);
+    }
+
+    /**
+     * 增量写入播放列表变更，每条插入、删除、移动只写一行
+     * 按位置定位行需要在 idx_playlist_order 上跳过前面的行，只读索引，不读表
+     * @param playlistId 播放列表ID
+     * @param changes 按发生顺序排列的变更记录
+     * @return 是否全部写入成功；返回false时数据库与内存已不一致，调用方应回退到 savePlaylist 全量重写
+     */
+    public boolean applyPlaylistChanges(long playlistId, List<PlaylistChange> changes) {
+        long start = metrics.start();
+        if (changes == null || changes.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase db = null;
+        boolean success = false;
+
+        try {
+            // 与 savePlaylist 相同，内部写音乐信息时整个事务期间都算作写入
+            cache.beginWrite();
+            db = dbHelper.getWritableDatabaseSafe();
+            db.beginTransaction();
+
+            for (PlaylistChange change : changes) {
+                if (!applyPlaylistChange(db, playlistId, change)) {
+                    Log.w(TAG, "增量写入失败，数据库与内存播放列表不一致: " + change);
+                    return false;
+                }
+            }
+
+            db.setTransactionSuccessful();
+            success = true;
+            Log.d(TAG, "播放列表增量写入成功，共 " + changes.size() + " 条变更");
+
+        } catch (Exception e) {
+            Log.e(TAG, "增量写入播放列表时出错", e);
+        } finally {
+            if (db != null) {
+                try {
+                    db.endTransaction();
+                } catch (Exception e) {
+                    Log.e(TAG, "结束事务时出错", e);
+                    success = false;
+                }
+            }
+            finishCacheUpdates(db, success);
+            releaseWriteStatements(db);
+            if (!success) {
+                cache.invalidateAll();
+            }
+            cache.endWrite();
+            invalidationTracker.onWriteFinished(db, success, DatabaseHelper.TABLE_PLAYLIST);
+        }
+        metrics.record("applyPlaylistChanges", start, changes.size());
+        return success;
+    }
+
+    private boolean applyPlaylistChange(SQLiteDatabase db, long playlistId, PlaylistChange change) {
+        switch (change.getType()) {
+            case INSERT: {
+                long musicId = insertOrUpdateMusicInfo(change.getMusicInfo());
+                if (musicId == -1) {
+                    return false;
+                }
+                long sortKey = allocateSortKey(db, playlistId, change.getToPosition(), -1);
+                if (sortKey == PlaylistOrder.NO_ROOM) {
+                    return false;
+                }
+                ContentValues values = new ContentValues();
+                values.put(DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID, playlistId);
+                values.put(DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID, musicId);
+                values.put(DatabaseHelper.COLUMN_SORT_KEY, sortKey);
+                return db.insert(DatabaseHelper.TABLE_PLAYLIST, null, values) != -1;
+            }
+            case REMOVE: {
+                long rowId = playlistRowAt(db, playlistId, change.getFromPosition());
+                return rowId != -1 && db.delete(DatabaseHelper.TABLE_PLAYLIST,
+                        DatabaseHelper.COLUMN_PLAYLIST_ID + " = ?",
+                        new String[]{String.valueOf(rowId)}) == 1;
+            }
+            case MOVE: {
+                int from = change.getFromPosition();
+                int to = change.getToPosition();
+                if (from == to) {
+                    return true;
+                }
+                long rowId = playlistRowAt(db, playlistId, from);
+                if (rowId == -1) {
+                    return false;
+                }
+                // 分配新键时排除被移动的行本身，to 即移除该行后的插入位置
+                long sortKey = allocateSortKey(db, playlistId, to, rowId);
+                if (sortKey == PlaylistOrder.NO_ROOM) {
+                    return false;
+                }
+                ContentValues values = new ContentValues();
+                values.put(DatabaseHelper.COLUMN_SORT_KEY, sortKey);
+                return db.update(DatabaseHelper.TABLE_PLAYLIST, values,
+                        DatabaseHelper.COLUMN_PLAYLIST_ID + " = ?",
+                        new String[]{String.valueOf(rowId)}) == 1;
+            }
+            case CLEAR:
+                db.delete(DatabaseHelper.TABLE_PLAYLIST,
+                        DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?",
+                        new String[]{String.valueOf(playlistId)});
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 查询位于 position 的播放列表行
+     * @return 行ID，位置超出范围时返回-1
+     */
+    private long playlistRowAt(SQLiteDatabase db, long playlistId, int position) {
+        if (position < 0) {
+            return -1;
+        }
+        try (Cursor cursor = query(db, SQL_SELECT_PLAYLIST_KEYS,
+                new String[]{String.valueOf(playlistId), "-1", "1", String.valueOf(position)})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    /**
+     * 为插入到 position 的行分配排序键，前后两行之间没有空隙时先重新编号
+     * @param excludeRowId 移动时被移动的行，计算位置时不计入；插入时传-1
+     * @return 排序键；位置超出范围时返回 PlaylistOrder.NO_ROOM
+     */
+    private long allocateSortKey(SQLiteDatabase db, long playlistId, int position, long excludeRowId) {
+        Long[] neighbors = neighborSortKeys(db, playlistId, position, excludeRowId);
+        if (neighbors == null) {
+            return PlaylistOrder.NO_ROOM;
+        }
+        long sortKey = PlaylistOrder.keyBetween(neighbors[0], neighbors[1]);
+        if (sortKey == PlaylistOrder.NO_ROOM) {
+            rebalancePlaylist(db, playlistId);
+            neighbors = neighborSortKeys(db, playlistId, position, excludeRowId);
+            sortKey = PlaylistOrder.keyBetween(neighbors[0], neighbors[1]);
+        }
+        return sortKey;
+    }
+
+    /**
+     * 查询插入到 position 时前后相邻两行的排序键
+     * @return {前一行的键, 后一行的键}，不存在的一侧为null；position 超出列表长度时返回null
+     */
+    private Long[] neighborSortKeys(SQLiteDatabase db, long playlistId, int position, long excludeRowId) {
+        if (position < 0) {
+            return null;
+        }
+        Long[] neighbors = new Long[2];
+        int offset = Math.max(0, position - 1);
+        int limit = position == 0 ? 1 : 2;
+        try (Cursor cursor = query(db, SQL_SELECT_PLAYLIST_KEYS, new String[]{String.valueOf(playlistId),
+                String.valueOf(excludeRowId), String.valueOf(limit), String.valueOf(offset)})) {
+            if (position == 0) {
+                if (cursor.moveToFirst()) {
+                    neighbors[1] = cursor.getLong(1);
+                }
+                return neighbors;
+            }
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            neighbors[0] = cursor.getLong(1);
+            if (cursor.moveToNext()) {
+                neighbors[1] = cursor.getLong(1);
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * 按当前顺序把播放列表的排序键重新编号为 0, GAP, 2*GAP...
+     * 只在某处空隙用完时执行，需要更新整个播放列表
+     */
+    private void rebalancePlaylist(SQLiteDatabase db, long playlistId) {
+        long start = SystemClock.elapsedRealtime();
+        // 先读出全部行ID再更新，避免边更新边遍历时顺序变化
+        long[] rowIds;
+        try (Cursor cursor = query(db, "SELECT " + DatabaseHelper.COLUMN_PLAYLIST_ID +
+                        " FROM " + DatabaseHelper.TABLE_PLAYLIST +
+                        " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?" +
+                        " ORDER BY " + DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_PLAYLIST_ID,
+                new String[]{String.valueOf(playlistId)})) {
+            rowIds = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                rowIds[i] = cursor.getLong(0);
+            }
+        }
+        try (SQLiteStatement update = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_PLAYLIST +
+                " SET " + DatabaseHelper.COLUMN_SORT_KEY + " = ? WHERE " + DatabaseHelper.COLUMN_PLAYLIST_ID + " = ?")) {
+            for (int i = 0; i < rowIds.length; i++) {
+                update.bindLong(1, PlaylistOrder.keyAt(i));
+                update.bindLong(2, rowIds[i]);
+                update.executeUpdateDelete();
+            }
+        }
+        Log.i(TAG, "播放列表 " + playlistId + " 重新编号 " + rowIds.length + " 行，耗时 " +
+                (SystemClock.elapsedRealtime() - start) + "ms");
+    }
+
+    /**
+     * 加载播放列表（当前播放队列）
+     * 一次性读取全部歌曲；只需显示一部分时使用 getPlaylistPage
+     * @return 音乐信息列表
+     */
+    public List<MusicInfo> loadPlaylist() {
+        return loadPlaylist(DatabaseHelper.DEFAULT_PLAYLIST_ID);
+    }
+
+    /**
+     * 加载指定的播放列表
+     * @param playlistId 播放列表ID
+     * @return 音乐信息列表
+     */
+    public List<MusicInfo> loadPlaylist(long playlistId) {
+        long start = metrics.start();
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        List<MusicInfo> playlist = new ArrayList<>();
+        long readVersion = cache.beginRead();
+
+        try {
+            db = dbHelper.getReadableDatabaseSafe();
+
+            // 优化的查询，联合三个表获取完整信息
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
+                    " FROM " + DatabaseHelper.TABLE_PLAYLIST + " p" +
+                    " INNER JOIN " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = p." + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID +
+                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " WHERE p." + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?" +
+                    " ORDER BY p." + DatabaseHelper.COLUMN_SORT_KEY + ", p." + DatabaseHelper.COLUMN_PLAYLIST_ID;
+
+            cursor = query(db, query, new String[]{String.valueOf(playlistId)});
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
+
+            if (cursor != null && cursor.moveToFirst()) {
+                mapper.bind(cursor);
+                do {
+                    try {
+                        // 播放列表中的歌曲会被播放页反复查询，放入缓存
+                        MusicInfo musicInfo = cache.put(mapper.map(cursor), readVersion);
+                        playlist.add(musicInfo);
+                    } catch (Exception e) {
+                        Log.w(TAG, "解析播放列表项时出错，跳过", e);
+                    }
+                } while (cursor.moveToNext());
+            }
+
+            Log.d(TAG, "播放列表加载成功，共 " + playlist.size() + " 首歌曲");
+
+        } catch (Exception e) {
+            Log.e(TAG, "加载播放列表时出错", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        metrics.record("loadPlaylist", start, playlist.size());
+        return playlist;
+    }
+
+    /**
+     * 创建命名播放列表
+     * @param name 播放列表名称，不能与已有的重复
+     * @return 新播放列表的ID，名称重复或出错时返回-1
+     */
+    public long createPlaylist(String name) {
+        if (TextUtils.isEmpty(name)) {
+            Log.w(TAG, "播放列表名称不能为空");
+            return -1;
+        }
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_PLAYLIST_NAME, name);
+            long playlistId = db.insert(DatabaseHelper.TABLE_PLAYLIST_INFO, null, values);
+            invalidationTracker.onWriteFinished(db, playlistId != -1, DatabaseHelper.TABLE_PLAYLIST_INFO);
+            Log.d(TAG, "创建播放列表: " + name + "，ID: " + playlistId);
+            return playlistId;
+        } catch (Exception e) {
+            Log.e(TAG, "创建播放列表时出错", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 重命名播放列表
+     * @return 是否成功；名称重复时返回false
+     */
+    public boolean renamePlaylist(long playlistId, String name) {
+        if (TextUtils.isEmpty(name)) {
+            Log.w(TAG, "播放列表名称不能为空");
+            return false;
+        }
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_PLAYLIST_NAME, name);
+            boolean renamed = db.update(DatabaseHelper.TABLE_PLAYLIST_INFO, values,
+                    DatabaseHelper.COLUMN_PLAYLIST_INFO_ID + " = ?",
+                    new String[]{String.valueOf(playlistId)}) == 1;
+            invalidationTracker.onWriteFinished(db, renamed, DatabaseHelper.TABLE_PLAYLIST_INFO);
+            return renamed;
+        } catch (Exception e) {
+            Log.e(TAG, "重命名播放列表时出错", e);
+            return false;
+        }
+    }
+
+    /**
+     * 删除命名播放列表及其中的歌曲（外键级联删除）；当前播放队列不能删除
+     * @return 是否删除成功
+     */
+    public boolean deletePlaylist(long playlistId) {
+        if (playlistId == DatabaseHelper.DEFAULT_PLAYLIST_ID) {
+            Log.w(TAG, "当前播放队列不能删除");
+            return false;
+        }
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+            boolean deleted = db.delete(DatabaseHelper.TABLE_PLAYLIST_INFO,
+                    DatabaseHelper.COLUMN_PLAYLIST_INFO_ID + " = ?",
+                    new String[]{String.valueOf(playlistId)}) == 1;
+            invalidationTracker.onWriteFinished(db, deleted,
+                    DatabaseHelper.TABLE_PLAYLIST_INFO, DatabaseHelper.TABLE_PLAYLIST);
+            return deleted;
+        } catch (Exception e) {
+            Log.e(TAG, "删除播放列表时出错", e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取所有播放列表及其歌曲数，当前播放队列排在第一个
+     */
+    public List<NamedPlaylist> getPlaylists() {
+        long start = metrics.start();
+        List<NamedPlaylist> playlists = new ArrayList<>();
+        String query = "SELECT i." + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID +
+                ", i." + DatabaseHelper.COLUMN_PLAYLIST_NAME +
+                ", i." + DatabaseHelper.COLUMN_CREATED_TIME +
+                ", (SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_PLAYLIST + " p" +
+                " WHERE p." + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = i." + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID + ")" +
+                " FROM " + DatabaseHelper.TABLE_PLAYLIST_INFO + " i" +
+                " ORDER BY i." + DatabaseHelper.COLUMN_PLAYLIST_INFO_ID;
+
+        try (Cursor cursor = query(dbHelper.getReadableDatabaseSafe(), query, null)) {
+            while (cursor.moveToNext()) {
+                playlists.add(new NamedPlaylist(cursor.getLong(0), cursor.getString(1),
+                        cursor.getLong(2), cursor.getInt(3)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "获取播放列表时出错", e);
+        }
+        metrics.record("getPlaylists", start, playlists.size());
+        return playlists;
+    }
+
+    /**
+     * 获取收藏的音乐列表
+     * 一次性读取全部数据；收藏较多时使用 getMusicPage(SortOrder.LIKED_TIME, ...) 分页读取
+     * @return 收藏的音乐列表
+     */
+    public List<MusicInfo> getLikedMusicList() {
+        long start = metrics.start();
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        List<MusicInfo> likedMusicList = new ArrayList<>();
+
+        try {
+            db = dbHelper.getReadableDatabaseSafe();
+
+            // 查询收藏的音乐，按时间倒序排列
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
+                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " INNER JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " WHERE l." + DatabaseHelper.COLUMN_IS_LIKED + " = 1" +
+                    " ORDER BY l." + DatabaseHelper.COLUMN_TIMESTAMP + " DESC";
+
+            cursor = query(db, query, null);
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
 
             if (cursor != null && cursor.moveToFirst()) {
-                musicInfo = cursorToMusicInfo(cursor);
+                mapper.bind(cursor);
+                do {
+                    try {
+                        MusicInfo musicInfo = mapper.map(cursor);
+                        likedMusicList.add(musicInfo);
+                    } catch (Exception e) {
+                        Log.w(TAG, "解析收藏音乐项时出错，跳过", e);
+                    }
+                } while (cursor.moveToNext());
             }
 
+            Log.d(TAG, "收藏音乐列表加载成功，共 " + likedMusicList.size() + " 首歌曲");
+
         } catch (Exception e) {
-            Log.e(TAG, "根据ID获取音乐信息时出错", e);
+            Log.e(TAG, "加载收藏音乐列表时出错", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return musicInfo;
+        metrics.record("getLikedMusicList", start, likedMusicList.size());
+        return likedMusicList;
     }
 
     /**
-     * 收藏/取消收藏音乐
-     * @param musicId 音乐ID
-     * @param isLiked 是否收藏 (true: 收藏, false: 取消收藏)
+     * 批量追加播放记录，同时更新播放统计，整批在一个事务中完成
+     * @param musicIds 音乐ID，值为-1的位置跳过
+     * @param playedTimes 与 musicIds 一一对应的开始播放时间（毫秒）
+     * @return 是否全部写入成功
      */
-    public void setMusicLikedStatus(long musicId, boolean isLiked) {
-        if (musicId <= 0) {
-            Log.w(TAG, "无效的音乐ID: " + musicId);
-            return;
+    public boolean appendPlayHistory(long[] musicIds, long[] playedTimes) {
+        long start = metrics.start();
+        if (musicIds == null || musicIds.length == 0) {
+            return true;
         }
 
         SQLiteDatabase db = null;
+        boolean success = false;
 
         try {
             db = dbHelper.getWritableDatabaseSafe();
+            WriteStatements statements = getWriteStatements(db);
             db.beginTransaction();
 
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.COLUMN_IS_LIKED, isLiked ? 1 : 0);
-            values.put(DatabaseHelper.COLUMN_TIMESTAMP, System.currentTimeMillis());
+            SQLiteStatement insert = statements.insertPlayHistory;
+            SQLiteStatement upsertStats = statements.upsertPlayStats;
+            for (int i = 0; i < musicIds.length; i++) {
+                if (musicIds[i] <= 0) continue;
 
-            int rowsAffected = db.update(
-                    DatabaseHelper.TABLE_LIKED_MUSIC,
-                    values,
-                    DatabaseHelper.COLUMN_LIKED_MUSIC_ID + " = ?",
-                    new String[]{String.valueOf(musicId)}
-            );
+                insert.bindLong(1, musicIds[i]);
+                insert.bindLong(2, playedTimes[i]);
+                insert.executeInsert();
 
-            if (rowsAffected == 0) {
-                // 如果没有更新，说明是第一次设置，则插入
-                values.put(DatabaseHelper.COLUMN_LIKED_MUSIC_ID, musicId);
-                db.insert(DatabaseHelper.TABLE_LIKED_MUSIC, null, values);
-                Log.d(TAG, "插入收藏状态: musicId=" + musicId + ", isLiked=" + isLiked);
-            } else {
-                Log.d(TAG, "更新收藏状态: musicId=" + musicId + ", isLiked=" + isLiked);
+                upsertStats.bindLong(1, musicIds[i]);
+                upsertStats.bindLong(2, playedTimes[i]);
+                upsertStats.executeUpdateDelete();
             }
 
             db.setTransactionSuccessful();
+            success = true;
 
         } catch (Exception e) {
-            Log.e(TAG, "设置收藏状态时出错", e);
+            Log.e(TAG, "写入播放记录时出错", e);
         } finally {
             if (db != null) {
                 try {
                     db.endTransaction();
                 } catch (Exception e) {
                     Log.e(TAG, "结束事务时出错", e);
+                    success = false;
                 }
             }
+            releaseWriteStatements(db);
+            invalidationTracker.onWriteFinished(db, success,
+                    DatabaseHelper.TABLE_PLAY_HISTORY, DatabaseHelper.TABLE_PLAY_STATS);
         }
+        metrics.record("appendPlayHistory", start, musicIds.length);
+        return success;
     }
 
     /**
-     * 获取音乐的收藏状态
-     * @param musicId 音乐ID
-     * @return true: 已收藏, false: 未收藏
+     * 获取最近播放的音乐，每首歌只出现一次
+     * @param limit 最大条数
+     * @return 按最后播放时间倒序排列的音乐列表，playCount 为累计播放次数
      */
-    public boolean getMusicLikedStatus(long musicId) {
-        if (musicId <= 0) {
-            return false;
-        }
+    public List<MusicInfo> getRecentlyPlayed(int limit) {
+        long start = metrics.start();
+        List<MusicInfo> musicList = queryPlayStats("s." + DatabaseHelper.COLUMN_LAST_PLAYED_TIME + " DESC", limit);
+        metrics.record("getRecentlyPlayed", start, musicList.size());
+        return musicList;
+    }
+
+    /**
+     * 获取播放次数最多的音乐
+     * @param limit 最大条数
+     * @return 按播放次数倒序排列的音乐列表，次数相同时最近播放的在前
+     */
+    public List<MusicInfo> getMostPlayed(int limit) {
+        long start = metrics.start();
+        List<MusicInfo> musicList = queryPlayStats("s." + DatabaseHelper.COLUMN_PLAY_COUNT + " DESC, s." +
+                DatabaseHelper.COLUMN_LAST_PLAYED_TIME + " DESC", limit);
+        metrics.record("getMostPlayed", start, musicList.size());
+        return musicList;
+    }
 
+    /**
+     * 按播放统计表的索引顺序读取前 limit 行
+     */
+    private List<MusicInfo> queryPlayStats(String orderBy, int limit) {
         SQLiteDatabase db = null;
-        Cursor cursor = null;
-        boolean isLiked = false;
+        List<MusicInfo> musicList = new ArrayList<>();
 
         try {
             db = dbHelper.getReadableDatabaseSafe();
-            cursor = db.query(
-                    DatabaseHelper.TABLE_LIKED_MUSIC,
-                    new String[]{DatabaseHelper.COLUMN_IS_LIKED},
-                    DatabaseHelper.COLUMN_LIKED_MUSIC_ID + " = ?",
-                    new String[]{String.valueOf(musicId)},
-                    null, null, null
-            );
 
-            if (cursor != null && cursor.moveToFirst()) {
-                isLiked = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_LIKED)) == 1;
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
+                    ", s." + DatabaseHelper.COLUMN_PLAY_COUNT +
+                    " FROM " + DatabaseHelper.TABLE_PLAY_STATS + " s" +
+                    " INNER JOIN " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = s." + DatabaseHelper.COLUMN_STATS_MUSIC_ID +
+                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " ORDER BY " + orderBy +
+                    " LIMIT ?";
+
+            try (Cursor cursor = query(db, query, new String[]{String.valueOf(limit)})) {
+                MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
+                mapper.bind(cursor);
+                int playCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PLAY_COUNT);
+                while (cursor.moveToNext()) {
+                    MusicInfo musicInfo = mapper.map(cursor);
+                    musicInfo.setPlayCount(cursor.getLong(playCountIndex));
+                    musicList.add(musicInfo);
+                }
             }
 
         } catch (Exception e) {
-            Log.e(TAG, "获取收藏状态时出错", e);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+            Log.e(TAG, "查询播放统计时出错", e);
         }
-        return isLiked;
+        return musicList;
     }
 
     /**
-     * 保存播放列表
-     * @param playlist 音乐信息列表
+     * 获取所有收藏音乐的URL，用于预加载收藏索引
+     * @return 收藏音乐的URL列表
      */
-    public void savePlaylist(List<MusicInfo> playlist) {
-        if (playlist == null) {
-            Log.w(TAG, "播放列表不能为空");
-            return;
-        }
-
+    public List<String> getLikedMusicUrls() {
+        long start = metrics.start();
         SQLiteDatabase db = null;
+        List<String> musicUrls = new ArrayList<>();
 
         try {
-            db = dbHelper.getWritableDatabaseSafe();
-            db.beginTransaction();
-
-            // 清空旧的播放列表
-            db.delete(DatabaseHelper.TABLE_PLAYLIST, null, null);
-            Log.d(TAG, "旧播放列表已清空");
-
-            // 插入新的播放列表
-            for (int i = 0; i < playlist.size(); i++) {
-                MusicInfo musicInfo = playlist.get(i);
-                if (musicInfo == null) continue;
+            db = dbHelper.getReadableDatabaseSafe();
 
-                long musicId = insertOrUpdateMusicInfo(musicInfo); // 确保音乐信息已存在并获取ID
-                if (musicId == -1) continue;
+            String query = "SELECT m." + DatabaseHelper.COLUMN_URL_PREFIX_ID +
+                    ", m." + DatabaseHelper.COLUMN_URL_PATH +
+                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " INNER JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " WHERE l." + DatabaseHelper.COLUMN_IS_LIKED + " = 1";
 
-                ContentValues values = new ContentValues();
-                values.put(DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID, musicId);
-                values.put(DatabaseHelper.COLUMN_SEQUENCE_NUM, i);
-                db.insert(DatabaseHelper.TABLE_PLAYLIST, null, values);
+            UrlPrefixDictionary urlPrefixes = dbHelper.getUrlPrefixes();
+            try (Cursor cursor = query(db, query, null)) {
+                while (cursor.moveToNext()) {
+                    musicUrls.add(urlPrefixes.decode(cursor.getLong(0), cursor.getString(1)));
+                }
             }
 
-            db.setTransactionSuccessful();
-            Log.d(TAG, "播放列表保存成功，共 " + playlist.size() + " 首歌曲");
-
         } catch (Exception e) {
-            Log.e(TAG, "保存播放列表时出错", e);
-        } finally {
-            if (db != null) {
-                try {
-                    db.endTransaction();
-                } catch (Exception e) {
-                    Log.e(TAG, "结束事务时出错", e);
-                }
-            }
+            Log.e(TAG, "获取收藏音乐URL时出错", e);
         }
+        metrics.record("getLikedMusicUrls", start, musicUrls.size());
+        return musicUrls;
     }
 
     /**
-     * 加载播放列表
-     * @return 音乐信息列表
+     * 搜索音乐（按名称或作者），使用全文检索索引
+     * @param keyword 搜索关键词
+     * @return 按相关度排序的音乐列表，最多 DEFAULT_SEARCH_LIMIT 条
      */
-    public List<MusicInfo> loadPlaylist() {
+    public List<MusicInfo> searchMusic(String keyword) {
+        List<MusicInfo> searchResults = new ArrayList<>();
+        for (MusicSearchResult result : searchMusic(keyword, DEFAULT_SEARCH_LIMIT, null, null)) {
+            searchResults.add(result.getMusicInfo());
+        }
+        return searchResults;
+    }
+
+    /**
+     * 搜索音乐（按名称或作者），返回带高亮标记的结果
+     * 每个空白分隔的关键词按前缀匹配，多个关键词同时命中才返回。
+     * 排序：名称完全相同 > 名称以关键词开头 > 名称包含关键词 > 作者包含关键词，同级按名称长度
+     * @param keyword 搜索关键词
+     * @param limit 最大结果数
+     * @param highlightOpen 命中部分的起始标记，为null时不生成高亮
+     * @param highlightClose 命中部分的结束标记
+     * @return 搜索结果列表
+     */
+    public List<MusicSearchResult> searchMusic(String keyword, int limit,
+                                               String highlightOpen, String highlightClose) {
+        long start = metrics.start();
+        List<MusicSearchResult> searchResults = new ArrayList<>();
+        String matchQuery = SearchTokenizer.toMatchQuery(keyword);
+        if (matchQuery == null || limit <= 0) {
+            return searchResults;
+        }
+
         SQLiteDatabase db = null;
         Cursor cursor = null;
-        List<MusicInfo> playlist = new ArrayList<>();
+        String normalizedKeyword = keyword.trim().toLowerCase(Locale.ROOT);
 
         try {
             db = dbHelper.getReadableDatabaseSafe();
 
-            // 优化的查询，联合三个表获取完整信息
-            String query = "SELECT m.*, COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) as is_liked" +
-                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
-                    " INNER JOIN " + DatabaseHelper.TABLE_PLAYLIST + " p" +
-                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = p." + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID +
-                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
-                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
-                    " ORDER BY p." + DatabaseHelper.COLUMN_SEQUENCE_NUM + " ASC";
-
-            cursor = db.rawQuery(query, null);
+            cursor = query(db, searchQuery(limit), new String[]{matchQuery, normalizedKeyword});
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
 
             if (cursor != null && cursor.moveToFirst()) {
+                mapper.bind(cursor);
                 do {
                     try {
-                        MusicInfo musicInfo = cursorToMusicInfo(cursor);
-                        playlist.add(musicInfo);
+                        MusicInfo musicInfo = mapper.map(cursor);
+                        String highlightedName = musicInfo.getMusicName();
+                        String highlightedAuthor = musicInfo.getAuthor();
+                        if (highlightOpen != null && highlightClose != null) {
+                            highlightedName = SearchTokenizer.highlight(highlightedName, keyword,
+                                    highlightOpen, highlightClose);
+                            highlightedAuthor = SearchTokenizer.highlight(highlightedAuthor, keyword,
+                                    highlightOpen, highlightClose);
+                        }
+                        searchResults.add(new MusicSearchResult(musicInfo, highlightedName, highlightedAuthor));
                     } catch (Exception e) {
-                        Log.w(TAG, "解析播放列表项时出错，跳过", e);
+                        Log.w(TAG, "解析搜索结果项时出错，跳过", e);
                     }
                 } while (cursor.moveToNext());
             }
 
-            Log.d(TAG, "播放列表加载成功，共 " + playlist.size() + " 首歌曲");
+            // 关键词是纯字母时，再补充按拼音命中的结果（例如 zjl / zhoujielun -> 周杰伦）
+            if (searchResults.size() < limit && PinyinKeys.normalizeQuery(keyword) != null) {
+                Set<Long> foundIds = new HashSet<>();
+                for (MusicSearchResult result : searchResults) {
+                    foundIds.add(result.getMusicInfo().getId());
+                }
+                for (MusicInfo musicInfo : searchMusicByPinyin(keyword, limit)) {
+                    if (searchResults.size() >= limit) break;
+                    if (foundIds.add(musicInfo.getId())) {
+                        searchResults.add(new MusicSearchResult(musicInfo,
+                                musicInfo.getMusicName(), musicInfo.getAuthor()));
+                    }
+                }
+            }
+
+            Log.d(TAG, "搜索完成，关键词: " + keyword + ", 结果数: " + searchResults.size());
 
         } catch (Exception e) {
-            Log.e(TAG, "加载播放列表时出错", e);
+            Log.e(TAG, "搜索音乐时出错", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return playlist;
+        metrics.record("searchMusic", start, searchResults.size());
+        return searchResults;
     }
 
     /**
-     * 获取收藏的音乐列表
-     * @return 收藏的音乐列表
+     * 全文检索的查询语句，?1 为 MATCH 表达式，?2 为小写的关键词
+     * 先由全文索引筛出命中的行，排序只作用于命中结果
      */
-    public List<MusicInfo> getLikedMusicList() {
+    static String searchQuery(int limit) {
+        return "SELECT " + MusicInfoRowMapper.PROJECTION +
+                " FROM " + DatabaseHelper.TABLE_MUSIC_FTS +
+                " JOIN " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = " + DatabaseHelper.TABLE_MUSIC_FTS + ".docid" +
+                " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                " WHERE " + DatabaseHelper.TABLE_MUSIC_FTS + " MATCH ?1" +
+                " ORDER BY CASE" +
+                " WHEN lower(m." + DatabaseHelper.COLUMN_MUSIC_NAME + ") = ?2 THEN 0" +
+                " WHEN instr(lower(m." + DatabaseHelper.COLUMN_MUSIC_NAME + "), ?2) = 1 THEN 1" +
+                " WHEN instr(lower(m." + DatabaseHelper.COLUMN_MUSIC_NAME + "), ?2) > 0 THEN 2" +
+                " WHEN instr(lower(m." + DatabaseHelper.COLUMN_AUTHOR + "), ?2) > 0 THEN 3" +
+                " ELSE 4 END," +
+                " length(m." + DatabaseHelper.COLUMN_MUSIC_NAME + ") ASC" +
+                " LIMIT " + limit;
+    }
+
+    /**
+     * 按拼音全拼或首字母前缀搜索音乐（歌名或歌手）
+     * 例如 "zjl"、"zhoujie"、"zhou jie lun" 都能匹配 周杰伦
+     * @param keyword 拼音关键词，只允许字母、数字和空格
+     * @param limit 最大结果数
+     * @return 匹配的音乐列表，全拼或首字母完全相同的排在前面；其余的在每个键的前 limit 个候选中按歌名拼音排序
+     */
+    public List<MusicInfo> searchMusicByPinyin(String keyword, int limit) {
+        long start = metrics.start();
+        List<MusicInfo> searchResults = new ArrayList<>();
+        String prefix = PinyinKeys.normalizeQuery(keyword);
+        if (prefix == null || limit <= 0) {
+            return searchResults;
+        }
+
         SQLiteDatabase db = null;
         Cursor cursor = null;
-        List<MusicInfo> likedMusicList = new ArrayList<>();
 
         try {
             db = dbHelper.getReadableDatabaseSafe();
 
-            // 查询收藏的音乐，按时间倒序排列
-            String query = "SELECT m.*, l." + DatabaseHelper.COLUMN_IS_LIKED + " as is_liked" +
+            // 每个键按自己的索引顺序做前缀范围查找，只取前 limit 行作为候选，
+            // 排序只作用于最多 4 * limit 个候选，不会对所有前缀命中的行排序。
+            // 完全相同的键在各自的范围中排在最前面，所以一定在候选中
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
                     " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
-                    " INNER JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
                     " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
-                    " WHERE l." + DatabaseHelper.COLUMN_IS_LIKED + " = 1" +
-                    " ORDER BY l." + DatabaseHelper.COLUMN_TIMESTAMP + " DESC";
-
-            cursor = db.rawQuery(query, null);
+                    " WHERE m." + DatabaseHelper.COLUMN_MUSIC_ID + " IN (" +
+                    pinyinCandidates(DatabaseHelper.COLUMN_NAME_PINYIN, limit) +
+                    " UNION " + pinyinCandidates(DatabaseHelper.COLUMN_NAME_INITIALS, limit) +
+                    " UNION " + pinyinCandidates(DatabaseHelper.COLUMN_AUTHOR_PINYIN, limit) +
+                    " UNION " + pinyinCandidates(DatabaseHelper.COLUMN_AUTHOR_INITIALS, limit) + ")" +
+                    " ORDER BY CASE" +
+                    " WHEN m." + DatabaseHelper.COLUMN_NAME_PINYIN + " = ?1" +
+                    " OR m." + DatabaseHelper.COLUMN_NAME_INITIALS + " = ?1 THEN 0" +
+                    " WHEN m." + DatabaseHelper.COLUMN_AUTHOR_PINYIN + " = ?1" +
+                    " OR m." + DatabaseHelper.COLUMN_AUTHOR_INITIALS + " = ?1 THEN 1" +
+                    " ELSE 2 END," +
+                    " m." + DatabaseHelper.COLUMN_NAME_PINYIN + " ASC" +
+                    " LIMIT " + limit;
+
+            cursor = query(db, query, new String[]{prefix, PinyinKeys.prefixUpperBound(prefix)});
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
 
             if (cursor != null && cursor.moveToFirst()) {
+                mapper.bind(cursor);
                 do {
                     try {
-                        MusicInfo musicInfo = cursorToMusicInfo(cursor);
-                        likedMusicList.add(musicInfo);
+                        searchResults.add(mapper.map(cursor));
                     } catch (Exception e) {
-                        Log.w(TAG, "解析收藏音乐项时出错，跳过", e);
+                        Log.w(TAG, "解析搜索结果项时出错，跳过", e);
                     }
                 } while (cursor.moveToNext());
             }
 
-            Log.d(TAG, "收藏音乐列表加载成功，共 " + likedMusicList.size() + " 首歌曲");
+            Log.d(TAG, "拼音搜索完成，关键词: " + keyword + ", 结果数: " + searchResults.size());
 
         } catch (Exception e) {
-            Log.e(TAG, "加载收藏音乐列表时出错", e);
+            Log.e(TAG, "拼音搜索音乐时出错", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return likedMusicList;
+        metrics.record("searchMusicByPinyin", start, searchResults.size());
+        return searchResults;
     }
 
     /**
-     * 根据关键词搜索音乐
-     * @param keyword 搜索关键词
-     * @return 搜索结果列表
+     * column 以 ?1 开头的前 limit 行的 id，按 column 的索引顺序读取
      */
-    public List<MusicInfo> searchMusic(String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            return new ArrayList<>();
+    private static String pinyinCandidates(String column, int limit) {
+        return "SELECT " + DatabaseHelper.COLUMN_MUSIC_ID + " FROM (" +
+                "SELECT " + DatabaseHelper.COLUMN_MUSIC_ID + " FROM " + DatabaseHelper.TABLE_MUSIC_INFO +
+                " WHERE " + column + " >= ?1 AND " + column + " < ?2" +
+                " ORDER BY " + column + " LIMIT " + limit + ")";
+    }
+
+    /**
+     * 分页查询音乐（keyset 分页）
+     * 通过上一页返回的位置继续查询，不使用 OFFSET，翻到第几页都只读取一页的数据
+     * @param sortOrder 排序方式，LIKED_TIME 只返回已收藏的音乐
+     * @param likedOnly 是否只返回已收藏的音乐
+     * @param after 上一页的 getNextKey()，查询第一页时传null
+     * @param pageSize 每页数量
+     * @return 当前页的数据和下一页的位置
+     */
+    public MusicPage<MusicInfo> getMusicPage(SortOrder sortOrder, boolean likedOnly, MusicPageKey after, int pageSize) {
+        return queryPage(new MusicInfoRowMapper(dbHelper.getUrlPrefixes()), sortOrder, likedOnly, after, pageSize);
+    }
+
+    /**
+     * 分页查询列表摘要，只读取列表项显示所需的列，参数同 getMusicPage
+     */
+    public MusicPage<MusicSummary> getMusicSummaryPage(SortOrder sortOrder, boolean likedOnly,
+                                                       MusicPageKey after, int pageSize) {
+        return queryPage(new MusicSummaryRowMapper(), sortOrder, likedOnly, after, pageSize);
+    }
+
+    private <T> MusicPage<T> queryPage(RowMapper<T> mapper, SortOrder sortOrder, boolean likedOnly,
+                                       MusicPageKey after, int pageSize) {
+        long start = metrics.start();
+        List<T> items = new ArrayList<>();
+        MusicPageKey nextKey = null;
+        if (pageSize <= 0) {
+            return new MusicPage<>(items, null);
         }
 
+        boolean liked = likedOnly || sortOrder == SortOrder.LIKED_TIME;
+        String direction = sortOrder.descending ? " DESC" : " ASC";
+
         SQLiteDatabase db = null;
         Cursor cursor = null;
-        List<MusicInfo> searchResults = new ArrayList<>();
-        String searchKeyword = "%" + keyword.trim() + "%";
 
         try {
             db = dbHelper.getReadableDatabaseSafe();
 
-            // 搜索音乐名称或作者包含关键词的音乐
-            String query = "SELECT m.*, COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) as is_liked" +
-                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
-                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
-                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
-                    " WHERE m." + DatabaseHelper.COLUMN_MUSIC_NAME + " LIKE ? OR m." + DatabaseHelper.COLUMN_AUTHOR + " LIKE ?" +
-                    " ORDER BY m." + DatabaseHelper.COLUMN_MUSIC_NAME + " ASC";
+            StringBuilder query = new StringBuilder();
+            query.append("SELECT ").append(mapper.projection())
+                    .append(", ").append(sortOrder.sortColumn).append(" AS page_sort_key")
+                    .append(" FROM ").append(DatabaseHelper.TABLE_MUSIC_INFO).append(" m")
+                    .append(liked ? " INNER JOIN " : " LEFT JOIN ").append(DatabaseHelper.TABLE_LIKED_MUSIC).append(" l")
+                    .append(" ON m.").append(DatabaseHelper.COLUMN_MUSIC_ID)
+                    .append(" = l.").append(DatabaseHelper.COLUMN_LIKED_MUSIC_ID);
+
+            List<String> conditions = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            if (liked) {
+                conditions.add("l." + DatabaseHelper.COLUMN_IS_LIKED + " = 1");
+            }
+            if (after != null) {
+                // 行值比较：(排序列, ID) 严格位于上一页最后一行之后
+                conditions.add("(" + sortOrder.sortColumn + ", " + sortOrder.idColumn + ")" +
+                        (sortOrder.descending ? " < " : " > ") + "(?, ?)");
+                args.add(after.getSortValue());
+                args.add(String.valueOf(after.getMusicId()));
+            }
+            if (!conditions.isEmpty()) {
+                query.append(" WHERE ").append(TextUtils.join(" AND ", conditions));
+            }
+            // 多取一行用于判断是否还有下一页
+            query.append(" ORDER BY ").append(sortOrder.sortColumn).append(direction)
+                    .append(", ").append(sortOrder.idColumn).append(direction)
+                    .append(" LIMIT ").append(pageSize + 1);
+
+            cursor = query(db, query.toString(), args.toArray(new String[0]));
+
+            mapper.bind(cursor);
+            int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID);
+            int sortKeyIndex = cursor.getColumnIndexOrThrow("page_sort_key");
+            String lastSortValue = null;
+            long lastId = -1;
+            while (cursor.moveToNext()) {
+                if (items.size() == pageSize) {
+                    nextKey = new MusicPageKey(lastSortValue, lastId);
+                    break;
+                }
+                lastSortValue = cursor.getString(sortKeyIndex);
+                lastId = cursor.getLong(idIndex);
+                items.add(mapper.map(cursor));
+            }
 
-            cursor = db.rawQuery(query, new String[]{searchKeyword, searchKeyword});
+        } catch (Exception e) {
+            Log.e(TAG, "分页查询音乐时出错", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        metrics.record(sortOrder.metricName, start, items.size());
+        return new MusicPage<>(items, nextKey);
+    }
 
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    try {
-                        MusicInfo musicInfo = cursorToMusicInfo(cursor);
-                        searchResults.add(musicInfo);
-                    } catch (Exception e) {
-                        Log.w(TAG, "解析搜索结果项时出错，跳过", e);
-                    }
-                } while (cursor.moveToNext());
+    /**
+     * 按顺序流式遍历音乐，内部按批分页读取，内存占用与曲库大小无关
+     * 适合导出、统计等需要处理全部数据的场景
+     * @param sortOrder 排序方式
+     * @param likedOnly 是否只遍历已收藏的音乐
+     * @param callback 每一行的回调，返回false时提前结束
+     * @return 遍历的行数
+     */
+    public int forEachMusic(SortOrder sortOrder, boolean likedOnly, MusicCallback callback) {
+        int count = 0;
+        MusicPageKey after = null;
+        do {
+            MusicPage<MusicInfo> page = getMusicPage(sortOrder, likedOnly, after, STREAM_BATCH_SIZE);
+            for (MusicInfo musicInfo : page.getItems()) {
+                count++;
+                if (!callback.onMusic(musicInfo)) {
+                    return count;
+                }
             }
+            after = page.getNextKey();
+        } while (after != null);
+        return count;
+    }
 
-            Log.d(TAG, "搜索完成，关键词: " + keyword + ", 结果数: " + searchResults.size());
+    /**
+     * 分页读取当前播放队列
+     * @see #getPlaylistPage(long, int, int)
+     */
+    public List<MusicInfo> getPlaylistPage(int fromPosition, int pageSize) {
+        return getPlaylistPage(DatabaseHelper.DEFAULT_PLAYLIST_ID, fromPosition, pageSize);
+    }
+
+    /**
+     * 分页读取播放列表
+     * 排序键是稀疏的，位置不能换算成键的范围；子查询在 idx_playlist_order 上跳过前面的行，
+     * 只有本页的行才会读取音乐信息
+     * @param playlistId 播放列表ID
+     * @param fromPosition 起始位置（包含）
+     * @param pageSize 每页数量
+     * @return 从 fromPosition 开始的最多 pageSize 首歌曲
+     */
+    public List<MusicInfo> getPlaylistPage(long playlistId, int fromPosition, int pageSize) {
+        long start = metrics.start();
+        List<MusicInfo> playlist = new ArrayList<>();
+        if (pageSize <= 0) {
+            return playlist;
+        }
+
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+
+        try {
+            db = dbHelper.getReadableDatabaseSafe();
+
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
+                    " FROM " + DatabaseHelper.TABLE_PLAYLIST + " p" +
+                    " INNER JOIN " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = p." + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID +
+                    " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
+                    " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
+                    " WHERE p." + DatabaseHelper.COLUMN_PLAYLIST_ID + " IN (SELECT " + DatabaseHelper.COLUMN_PLAYLIST_ID +
+                    " FROM " + DatabaseHelper.TABLE_PLAYLIST +
+                    " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_OWNER_ID + " = ?" +
+                    " ORDER BY " + DatabaseHelper.COLUMN_SORT_KEY + ", " + DatabaseHelper.COLUMN_PLAYLIST_ID +
+                    " LIMIT " + pageSize + " OFFSET ?)" +
+                    " ORDER BY p." + DatabaseHelper.COLUMN_SORT_KEY + ", p." + DatabaseHelper.COLUMN_PLAYLIST_ID;
+
+            cursor = query(db, query, new String[]{String.valueOf(playlistId),
+                    String.valueOf(Math.max(0, fromPosition))});
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
+            mapper.bind(cursor);
+
+            while (cursor.moveToNext()) {
+                playlist.add(mapper.map(cursor));
+            }
 
         } catch (Exception e) {
-            Log.e(TAG, "搜索音乐时出错", e);
+            Log.e(TAG, "分页读取播放列表时出错", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return searchResults;
+        metrics.record("getPlaylistPage", start, playlist.size());
+        return playlist;
     }
 
     /**
@@ -434,6 +1705,7 @@ public class MusicDao {
      * @return 是否删除成功
      */
     public boolean deleteMusicInfo(long musicId) {
+        long start = metrics.start();
         if (musicId <= 0) {
             Log.w(TAG, "无效的音乐ID: " + musicId);
             return false;
@@ -443,6 +1715,7 @@ public class MusicDao {
         boolean success = false;
 
         try {
+            cache.beginWrite();
             db = dbHelper.getWritableDatabaseSafe();
             db.beginTransaction();
 
@@ -463,6 +1736,7 @@ public class MusicDao {
 
             success = deletedRows > 0;
             db.setTransactionSuccessful();
+            cache.remove(musicId);
 
             Log.d(TAG, "删除音乐信息，ID: " + musicId + ", 成功: " + success);
 
@@ -475,17 +1749,68 @@ public class MusicDao {
                     db.endTransaction();
                 } catch (Exception e) {
                     Log.e(TAG, "结束事务时出错", e);
+                    success = false;
                 }
             }
+            cache.endWrite();
+            // 播放记录和统计由外键级联删除
+            invalidationTracker.onWriteFinished(db, success, DatabaseHelper.TABLE_MUSIC_INFO,
+                    DatabaseHelper.TABLE_LIKED_MUSIC, DatabaseHelper.TABLE_PLAYLIST,
+                    DatabaseHelper.TABLE_PLAY_HISTORY, DatabaseHelper.TABLE_PLAY_STATS);
         }
+        metrics.record("deleteMusicInfo", start, success ? 1 : 0);
         return success;
     }
 
+    /**
+     * 删除 URL 以指定前缀开头的所有音乐，收藏和播放列表记录由外键级联删除
+     * @param urlPrefix URL 前缀，如 https://cdn.example.com/album/
+     * @return 删除的行数，出错时返回-1
+     */
+    public int deleteMusicByUrlPrefix(String urlPrefix) {
+        long start = metrics.start();
+        if (TextUtils.isEmpty(urlPrefix)) {
+            return 0;
+        }
+
+        SQLiteDatabase db = null;
+        int deleted = -1;
+
+        try {
+            cache.beginWrite();
+            db = dbHelper.getWritableDatabaseSafe();
+            String pattern = urlPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            deleted = db.delete(DatabaseHelper.TABLE_MUSIC_INFO,
+                    DatabaseHelper.COLUMN_MUSIC_ID + " IN (SELECT m." + DatabaseHelper.COLUMN_MUSIC_ID +
+                            " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
+                            " LEFT JOIN " + DatabaseHelper.TABLE_URL_PREFIX + " p" +
+                            " ON p." + DatabaseHelper.COLUMN_PREFIX_ID + " = m." + DatabaseHelper.COLUMN_URL_PREFIX_ID +
+                            " WHERE COALESCE(p." + DatabaseHelper.COLUMN_PREFIX + ", '') || m." +
+                            DatabaseHelper.COLUMN_URL_PATH + " LIKE ? ESCAPE '\\')",
+                    new String[]{pattern});
+            Log.d(TAG, "按URL前缀删除音乐信息: " + urlPrefix + ", 删除 " + deleted + " 行");
+
+        } catch (Exception e) {
+            Log.e(TAG, "按URL前缀删除音乐信息时出错", e);
+        } finally {
+            // 级联删除同时影响收藏和播放列表，整体失效
+            cache.invalidateAll();
+            cache.endWrite();
+            invalidationTracker.onWriteFinished(db, deleted > 0, DatabaseHelper.TABLE_MUSIC_INFO,
+                    DatabaseHelper.TABLE_LIKED_MUSIC, DatabaseHelper.TABLE_PLAYLIST,
+                    DatabaseHelper.TABLE_PLAY_HISTORY, DatabaseHelper.TABLE_PLAY_STATS);
+        }
+        metrics.record("deleteMusicByUrlPrefix", start, deleted);
+        return deleted;
+    }
+
     /**
      * 获取所有音乐信息
+     * 一次性读取全部数据；曲库较大时使用 getMusicPage 分页读取或 forEachMusic 流式遍历
      * @return 所有音乐信息列表
      */
     public List<MusicInfo> getAllMusicInfo() {
+        long start = metrics.start();
         SQLiteDatabase db = null;
         Cursor cursor = null;
         List<MusicInfo> allMusicList = new ArrayList<>();
@@ -494,18 +1819,20 @@ public class MusicDao {
             db = dbHelper.getReadableDatabaseSafe();
 
             // 查询所有音乐，同时获取收藏状态
-            String query = "SELECT m.*, COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) as is_liked" +
+            String query = "SELECT " + MusicInfoRowMapper.PROJECTION +
                     " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + " m" +
                     " LEFT JOIN " + DatabaseHelper.TABLE_LIKED_MUSIC + " l" +
                     " ON m." + DatabaseHelper.COLUMN_MUSIC_ID + " = l." + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
                     " ORDER BY m." + DatabaseHelper.COLUMN_MUSIC_ID + " DESC";
 
-            cursor = db.rawQuery(query, null);
+            cursor = query(db, query, null);
+            MusicInfoRowMapper mapper = new MusicInfoRowMapper(dbHelper.getUrlPrefixes());
 
             if (cursor != null && cursor.moveToFirst()) {
+                mapper.bind(cursor);
                 do {
                     try {
-                        MusicInfo musicInfo = cursorToMusicInfo(cursor);
+                        MusicInfo musicInfo = mapper.map(cursor);
                         allMusicList.add(musicInfo);
                     } catch (Exception e) {
                         Log.w(TAG, "解析音乐信息项时出错，跳过", e);
@@ -522,73 +1849,151 @@ public class MusicDao {
                 cursor.close();
             }
         }
+        metrics.record("getAllMusicInfo", start, allMusicList.size());
         return allMusicList;
     }
 
     /**
-     * 从Cursor中解析MusicInfo对象
+     * 执行查询；所有读查询都经过这里，慢查询日志据此记录对应的 SQL
      */
-    private MusicInfo cursorToMusicInfo(Cursor cursor) {
-        MusicInfo musicInfo = new MusicInfo();
+    private Cursor query(SQLiteDatabase db, String sql, String[] args) {
+        metrics.onQuery(sql, args);
+        return db.rawQuery(sql, args);
+    }
 
-        try {
-            musicInfo.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID)));
-            musicInfo.setMusicName(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_NAME)));
-            musicInfo.setAuthor(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR)));
-            musicInfo.setMusicUrl(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_URL)));
-            musicInfo.setCoverUrl(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_URL)));
-            musicInfo.setLyricUrl(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LYRIC_URL)));
-
-            // 尝试获取收藏状态
-            int isLikedIndex = cursor.getColumnIndex("is_liked");
-            if (isLikedIndex != -1) {
-                boolean isLiked = cursor.getInt(isLikedIndex) == 1;
-                musicInfo.setLiked(isLiked);
+    /**
+     * 获取当前线程的预编译语句，嵌套在外层事务中时复用外层编译的语句，数据库被重新打开后重新编译
+     * 调用方在结束事务后必须调用 releaseWriteStatements()
+     */
+    private WriteStatements getWriteStatements(SQLiteDatabase db) {
+        WriteStatements statements = writeStatements.get();
+        if (statements == null || statements.db != db || !db.isOpen()) {
+            if (statements != null) {
+                statements.close();
             }
-        } catch (Exception e) {
-            Log.e(TAG, "解析音乐信息时出错", e);
+            statements = new WriteStatements(db);
+            writeStatements.set(statements);
         }
+        return statements;
+    }
 
-        return musicInfo;
+    /**
+     * 最外层事务结束后关闭当前线程的预编译语句；嵌套在外层事务中时留给外层复用
+     */
+    private void releaseWriteStatements(SQLiteDatabase db) {
+        if (db != null && db.inTransaction()) {
+            return;
+        }
+        WriteStatements statements = writeStatements.get();
+        if (statements != null) {
+            writeStatements.remove();
+            try {
+                statements.close();
+            } catch (Exception e) {
+                Log.w(TAG, "关闭预编译语句时出错", e);
+            }
+        }
+    }
+
+    /**
+     * 重写一首歌的全文检索索引
+     */
+    private void updateSearchIndex(WriteStatements statements, long musicId, MusicInfo musicInfo) {
+        statements.deleteFts.bindLong(1, musicId);
+        statements.deleteFts.executeUpdateDelete();
+
+        SQLiteStatement insert = statements.insertFts;
+        insert.bindLong(1, musicId);
+        insert.bindString(2, SearchTokenizer.toIndexText(musicInfo.getMusicName()));
+        insert.bindString(3, SearchTokenizer.toIndexText(musicInfo.getAuthor()));
+        insert.executeInsert();
+    }
+
+    /**
+     * 重新生成一首歌的拼音检索/排序键
+     */
+    private void updatePinyinKeys(WriteStatements statements, long musicId, MusicInfo musicInfo) {
+        PinyinKeys name = PinyinKeys.ofTitle(musicInfo.getMusicName());
+        PinyinKeys author = PinyinKeys.ofName(musicInfo.getAuthor());
+
+        SQLiteStatement update = statements.updatePinyin;
+        update.bindString(1, name.full);
+        update.bindString(2, name.initials);
+        update.bindString(3, author.full);
+        update.bindString(4, author.initials);
+        update.bindLong(5, musicId);
+        update.executeUpdateDelete();
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     /**
-     * 清理无效数据（清理孤立的收藏和播放列表记录）
+     * 清理无效数据：删除音乐已不存在的收藏记录和播放列表记录
+     * @return 删除的行数，出错时返回-1
      */
-    public void cleanUpInvalidData() {
+    public int cleanUpInvalidData() {
+        long start = metrics.start();
         SQLiteDatabase db = null;
+        int deleted = 0;
 
         try {
             db = dbHelper.getWritableDatabaseSafe();
             db.beginTransaction();
 
             // 清理孤立的收藏记录
-            String cleanLikedSql = "DELETE FROM " + DatabaseHelper.TABLE_LIKED_MUSIC +
-                    " WHERE " + DatabaseHelper.COLUMN_LIKED_MUSIC_ID +
-                    " NOT IN (SELECT " + DatabaseHelper.COLUMN_MUSIC_ID +
-                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + ")";
-            db.execSQL(cleanLikedSql);
+            deleted += db.delete(DatabaseHelper.TABLE_LIKED_MUSIC,
+                    DatabaseHelper.COLUMN_LIKED_MUSIC_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_MUSIC_ID +
+                            " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + ")", null);
 
             // 清理孤立的播放列表记录
-            String cleanPlaylistSql = "DELETE FROM " + DatabaseHelper.TABLE_PLAYLIST +
-                    " WHERE " + DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID +
-                    " NOT IN (SELECT " + DatabaseHelper.COLUMN_MUSIC_ID +
-                    " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + ")";
-            db.execSQL(cleanPlaylistSql);
+            deleted += db.delete(DatabaseHelper.TABLE_PLAYLIST,
+                    DatabaseHelper.COLUMN_PLAYLIST_MUSIC_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_MUSIC_ID +
+                            " FROM " + DatabaseHelper.TABLE_MUSIC_INFO + ")", null);
 
             db.setTransactionSuccessful();
-            Log.d(TAG, "清理无效数据完成");
+            Log.d(TAG, "清理无效数据完成，删除 " + deleted + " 行");
 
         } catch (Exception e) {
             Log.e(TAG, "清理无效数据时出错", e);
+            deleted = -1;
         } finally {
             if (db != null) {
                 try {
                     db.endTransaction();
                 } catch (Exception e) {
                     Log.e(TAG, "结束事务时出错", e);
+                    deleted = -1;
                 }
             }
+            invalidationTracker.onWriteFinished(db, deleted > 0,
+                    DatabaseHelper.TABLE_LIKED_MUSIC, DatabaseHelper.TABLE_PLAYLIST);
+        }
+        metrics.record("cleanUpInvalidData", start, deleted);
+        return deleted;
+    }
+
+    /**
+     * 删除已取消收藏的记录（is_liked = 0）
+     * 没有收藏记录与 is_liked = 0 的查询结果相同，删除后不影响收藏状态，因此不需要使缓存失效
+     * @return 删除的行数，出错时返回-1
+     */
+    public int purgeUnlikedRecords() {
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabaseSafe();
+            int deleted = db.delete(DatabaseHelper.TABLE_LIKED_MUSIC,
+                    DatabaseHelper.COLUMN_IS_LIKED + " = 0", null);
+            invalidationTracker.onWriteFinished(db, deleted > 0, DatabaseHelper.TABLE_LIKED_MUSIC);
+            Log.d(TAG, "清理取消收藏记录 " + deleted + " 行");
+            return deleted;
+        } catch (Exception e) {
+            Log.e(TAG, "清理取消收藏记录时出错", e);
+            return -1;
         }
     }
 }
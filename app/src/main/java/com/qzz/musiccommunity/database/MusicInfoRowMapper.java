@@ -0,0 +1,66 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+/**
+ * 完整音乐信息的映射器
+ * music_url 以前缀ID和剩余部分保存，映射时通过 UrlPrefixDictionary 还原
+ */
+class MusicInfoRowMapper extends RowMapper<MusicInfo> {
+
+    static final String PROJECTION = "m." + DatabaseHelper.COLUMN_MUSIC_ID +
+            ", m." + DatabaseHelper.COLUMN_MUSIC_NAME +
+            ", m." + DatabaseHelper.COLUMN_AUTHOR +
+            ", m." + DatabaseHelper.COLUMN_URL_PREFIX_ID +
+            ", m." + DatabaseHelper.COLUMN_URL_PATH +
+            ", m." + DatabaseHelper.COLUMN_COVER_URL +
+            ", m." + DatabaseHelper.COLUMN_LYRIC_URL +
+            ", COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) AS is_liked";
+
+    private final UrlPrefixDictionary urlPrefixes;
+
+    private int idIndex;
+    private int nameIndex;
+    private int authorIndex;
+    private int urlPrefixIdIndex;
+    private int urlPathIndex;
+    private int coverUrlIndex;
+    private int lyricUrlIndex;
+    private int likedIndex;
+
+    MusicInfoRowMapper(UrlPrefixDictionary urlPrefixes) {
+        this.urlPrefixes = urlPrefixes;
+    }
+
+    @Override
+    String projection() {
+        return PROJECTION;
+    }
+
+    @Override
+    void bind(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID);
+        nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_NAME);
+        authorIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR);
+        urlPrefixIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_URL_PREFIX_ID);
+        urlPathIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_URL_PATH);
+        coverUrlIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_URL);
+        lyricUrlIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LYRIC_URL);
+        likedIndex = cursor.getColumnIndexOrThrow("is_liked");
+    }
+
+    @Override
+    MusicInfo map(Cursor cursor) {
+        MusicInfo musicInfo = new MusicInfo();
+        musicInfo.setId(cursor.getLong(idIndex));
+        musicInfo.setMusicName(cursor.getString(nameIndex));
+        musicInfo.setAuthor(cursor.getString(authorIndex));
+        musicInfo.setMusicUrl(urlPrefixes.decode(cursor.getLong(urlPrefixIdIndex), cursor.getString(urlPathIndex)));
+        musicInfo.setCoverUrl(cursor.getString(coverUrlIndex));
+        musicInfo.setLyricUrl(cursor.getString(lyricUrlIndex));
+        musicInfo.setLiked(cursor.getInt(likedIndex) == 1);
+        return musicInfo;
+    }
+}
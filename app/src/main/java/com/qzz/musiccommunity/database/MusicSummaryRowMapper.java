@@ -0,0 +1,47 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+
+import com.qzz.musiccommunity.database.dto.MusicSummary;
+
+/**
+ * 列表摘要的映射器，只读取列表项需要显示的列
+ */
+class MusicSummaryRowMapper extends RowMapper<MusicSummary> {
+
+    static final String PROJECTION = "m." + DatabaseHelper.COLUMN_MUSIC_ID +
+            ", m." + DatabaseHelper.COLUMN_MUSIC_NAME +
+            ", m." + DatabaseHelper.COLUMN_AUTHOR +
+            ", m." + DatabaseHelper.COLUMN_COVER_URL +
+            ", COALESCE(l." + DatabaseHelper.COLUMN_IS_LIKED + ", 0) AS is_liked";
+
+    private int idIndex;
+    private int nameIndex;
+    private int authorIndex;
+    private int coverUrlIndex;
+    private int likedIndex;
+
+    @Override
+    String projection() {
+        return PROJECTION;
+    }
+
+    @Override
+    void bind(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_ID);
+        nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MUSIC_NAME);
+        authorIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR);
+        coverUrlIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_URL);
+        likedIndex = cursor.getColumnIndexOrThrow("is_liked");
+    }
+
+    @Override
+    MusicSummary map(Cursor cursor) {
+        return new MusicSummary(
+                cursor.getLong(idIndex),
+                cursor.getString(nameIndex),
+                cursor.getString(authorIndex),
+                cursor.getString(coverUrlIndex),
+                cursor.getInt(likedIndex) == 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.qzz.musiccommunity.database;
+
+/**
+ * music_url 的紧凑存储
+ * 1. 以 URL 的64位哈希作为查找键（url_hash 列上的唯一索引），索引中不再保存完整的 URL；
+ *    哈希相同时再比较完整的 URL，不会把两首歌当成同一首
+ * 2. 同一个 CDN 下的 URL 共用协议和主机部分，这部分存入 url_prefix 字典表，music_info 只保存其余部分（url_path）
+ */
+public final class MusicUrls {
+
+    private MusicUrls() {
+    }
+
+    /**
+     * 计算 URL 的64位哈希（FNV-1a，再做一次位混合）
+     */
+    public static long hash(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 字典前缀的长度：协议和主机部分，包括主机后的第一个 "/"
+     * 例如 https://cdn.example.com/a/b.mp3 的前缀为 https://cdn.example.com/
+     * @return 前缀长度，没有可用的前缀时返回0
+     */
+    static int prefixLength(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return 0;
+        }
+        int hostEnd = url.indexOf('/', schemeEnd + 3);
+        return hostEnd < 0 ? 0 : hostEnd + 1;
+    }
+}
@@ -0,0 +1,446 @@
+package com.qzz.musiccommunity.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台写入队列（write-behind）
+ * 所有数据库写操作由唯一的后台线程执行，主线程只负责入队。
+ * 短时间内的连续修改（例如快速删除十首歌）会在合并窗口内被合并成一次事务。
+ * 播放列表的每次修改只记录变更本身；只有需要全量重写时（增量写入失败、变更过多），
+ * 才在主线程上通过 PlaylistSource 复制一次整个播放列表。
+ *
+ * 持久性保证：
+ * 1. 入队的修改最迟在 COALESCE_WINDOW_MS 后提交；播放记录攒批写入，最迟在 PLAY_BATCH_DELAY_MS 后提交
+ * 2. 写入失败的修改重新放回队列（播放列表改为全量重写），RETRY_DELAY_MS 后重试，不会因为一次 SQLite 错误丢失
+ * 3. flush() 返回true时，之前入队的所有修改都已提交到数据库；有修改写入失败、仍在队列中时返回false
+ * 4. 界面进入后台（onStop）和服务销毁时调用 requestFlush() 立即提交，不阻塞主线程
+ * 进程被杀死或崩溃时，尚未提交的修改会丢失（合并窗口内的修改、攒批窗口内的播放记录和等待重试的修改）
+ */
+public class PersistenceQueue {
+    private static final String TAG = "PersistenceQueue";
+
+    // 合并窗口：窗口内的修改合并为一次写入
+    private static final long COALESCE_WINDOW_MS = 100;
+    // 播放记录攒够这么多条立即写入，否则最迟等待 PLAY_BATCH_DELAY_MS
+    private static final int PLAY_BATCH_SIZE = 20;
+    private static final long PLAY_BATCH_DELAY_MS = 30_000;
+    // 写入失败后重试的间隔
+    private static final long RETRY_DELAY_MS = 5_000;
+
+    private static PersistenceQueue instance;
+
+    private final MusicDao musicDao;
+    private final ScheduledExecutorService writer;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+
+    // 以下字段均由 lock 保护
+    private final PlaylistJournal playlistJournal = new PlaylistJournal();
+    private PlaylistSource playlistSource;
+    // 全量重写使用的播放列表副本，只在需要全量重写时才有
+    private List<MusicInfo> latestPlaylist;
+    private final Map<String, PendingLike> pendingLikes = new LinkedHashMap<>();
+    private final List<PendingPlay> pendingPlays = new ArrayList<>();
+    private boolean drainScheduled = false;
+    private boolean playDrainScheduled = false;
+    // 写入线程正在提交取出的修改
+    private boolean draining = false;
+    private boolean shutdown = false;
+
+    /**
+     * 提供当前播放列表的副本，在主线程上调用
+     */
+    public interface PlaylistSource {
+        List<MusicInfo> copyPlaylist();
+    }
+
+    private static class PendingLike {
+        final MusicInfo musicInfo;
+        final boolean isLiked;
+
+        PendingLike(MusicInfo musicInfo, boolean isLiked) {
+            this.musicInfo = musicInfo;
+            this.isLiked = isLiked;
+        }
+    }
+
+    private static class PendingPlay {
+        final MusicInfo musicInfo;
+        final long playedTime;
+
+        PendingPlay(MusicInfo musicInfo, long playedTime) {
+            this.musicInfo = musicInfo;
+            this.playedTime = playedTime;
+        }
+    }
+
+    private PersistenceQueue(Context context) {
+        musicDao = MusicDao.getInstance(context.getApplicationContext());
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "music-db-writer");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * 获取写入队列的单例实例
+     */
+    public static synchronized PersistenceQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new PersistenceQueue(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 设置播放列表的来源，需要全量重写时从这里复制播放列表
+     */
+    public void setPlaylistSource(PlaylistSource source) {
+        synchronized (lock) {
+            playlistSource = source;
+        }
+    }
+
+    /**
+     * 提交一条播放列表增量变更，在主线程上调用
+     * 通常只记录变更；已经需要全量重写时，变更包含在重新复制的播放列表中
+     * @param change 变更记录
+     */
+    public void submitPlaylistChange(PlaylistChange change) {
+        synchronized (lock) {
+            if (playlistJournal.isSnapshotRequired()) {
+                latestPlaylist = copyPlaylistLocked();
+            } else {
+                playlistJournal.record(change);
+            }
+            scheduleDrainLocked();
+        }
+    }
+
+    /**
+     * 提交整个播放列表（全量重写）
+     * @param latestPlaylist 播放列表副本
+     */
+    public void submitPlaylistSnapshot(List<MusicInfo> latestPlaylist) {
+        synchronized (lock) {
+            playlistJournal.requireSnapshot();
+            this.latestPlaylist = latestPlaylist;
+            scheduleDrainLocked();
+        }
+    }
+
+    /**
+     * 提交收藏状态修改，同一首歌在合并窗口内只保留最后一次修改
+     */
+    public void submitLikedStatus(MusicInfo musicInfo, boolean isLiked) {
+        if (musicInfo == null || musicInfo.getMusicUrl() == null) {
+            Log.w(TAG, "收藏状态修改缺少音乐信息，忽略");
+            return;
+        }
+        synchronized (lock) {
+            pendingLikes.remove(musicInfo.getMusicUrl());
+            pendingLikes.put(musicInfo.getMusicUrl(), new PendingLike(musicInfo, isLiked));
+            scheduleDrainLocked();
+        }
+    }
+
+    /**
+     * 提交一条播放记录，只入队不等待，不会阻塞切歌
+     * 播放记录不需要立即可见，攒够 PLAY_BATCH_SIZE 条或等待 PLAY_BATCH_DELAY_MS 后批量写入
+     * @param playedTime 开始播放的时间（毫秒）
+     */
+    public void submitPlay(MusicInfo musicInfo, long playedTime) {
+        if (musicInfo == null || musicInfo.getMusicUrl() == null) {
+            Log.w(TAG, "播放记录缺少音乐信息，忽略");
+            return;
+        }
+        synchronized (lock) {
+            pendingPlays.add(new PendingPlay(musicInfo, playedTime));
+            if (pendingPlays.size() >= PLAY_BATCH_SIZE) {
+                scheduleDrainLocked();
+            } else if (!playDrainScheduled && !shutdown) {
+                playDrainScheduled = true;
+                writer.schedule(this::drain, PLAY_BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 立即提交所有待写入的修改，不等待完成（适合在 onStop 中调用）
+     */
+    public void requestFlush() {
+        synchronized (lock) {
+            if (shutdown) {
+                return;
+            }
+            writer.execute(this::drain);
+        }
+    }
+
+    /**
+     * 立即提交所有待写入的修改并等待完成
+     * @return 在超时前全部提交返回true；超时、写入失败或等待期间又有新的修改入队时返回false
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        Future<?> future;
+        synchronized (lock) {
+            if (shutdown) {
+                return !hasPendingLocked();
+            }
+            future = writer.submit(this::drain);
+        }
+        try {
+            future.get(timeout, unit);
+            synchronized (lock) {
+                return !hasPendingLocked();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            Log.e(TAG, "等待写入完成时出错", e);
+            return false;
+        }
+    }
+
+    /**
+     * 提交剩余修改后停止写入线程
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        boolean flushed = flush(timeout, unit);
+        synchronized (lock) {
+            shutdown = true;
+        }
+        writer.shutdown();
+        return flushed;
+    }
+
+    private void scheduleDrainLocked() {
+        if (shutdown) {
+            Log.w(TAG, "写入队列已关闭，修改不会被保存");
+            return;
+        }
+        if (!drainScheduled) {
+            drainScheduled = true;
+            writer.schedule(this::drain, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 是否有尚未提交的播放列表或收藏修改（包括正在提交的），此时内存中的数据比数据库新
+     * 播放记录只追加，不影响这里的判断
+     */
+    public boolean hasPendingEdits() {
+        synchronized (lock) {
+            return draining || !playlistJournal.isEmpty() || !pendingLikes.isEmpty();
+        }
+    }
+
+    /**
+     * 在主线程上复制当前播放列表，没有设置来源时返回null
+     */
+    private List<MusicInfo> copyPlaylistLocked() {
+        return playlistSource != null ? playlistSource.copyPlaylist() : null;
+    }
+
+    /**
+     * 需要全量重写但还没有播放列表副本时，到主线程上复制一份后再写入
+     */
+    private void requestPlaylistCopyLocked() {
+        mainHandler.post(() -> {
+            synchronized (lock) {
+                if (playlistJournal.isSnapshotRequired() && latestPlaylist == null) {
+                    latestPlaylist = copyPlaylistLocked();
+                    if (latestPlaylist != null) {
+                        scheduleDrainLocked();
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean hasPendingLocked() {
+        return !playlistJournal.isEmpty() || !pendingLikes.isEmpty() || !pendingPlays.isEmpty();
+    }
+
+    /**
+     * 在写入线程上执行：取出合并后的修改并提交
+     * 写入失败的部分放回队列，稍后重试
+     */
+    private void drain() {
+        boolean snapshot;
+        List<PlaylistChange> changes;
+        List<MusicInfo> playlist;
+        List<PendingLike> likes;
+        List<PendingPlay> plays;
+
+        synchronized (lock) {
+            drainScheduled = false;
+            playDrainScheduled = false;
+            playlistJournal.compact();
+            snapshot = playlistJournal.isSnapshotRequired();
+            if (snapshot && latestPlaylist == null) {
+                // 需要全量重写，播放列表副本由主线程复制，这次先不写播放列表
+                requestPlaylistCopyLocked();
+                snapshot = false;
+                changes = new ArrayList<>();
+            } else {
+                changes = playlistJournal.drain();
+            }
+            playlist = latestPlaylist;
+            latestPlaylist = null;
+            likes = new ArrayList<>(pendingLikes.values());
+            pendingLikes.clear();
+            plays = new ArrayList<>(pendingPlays);
+            pendingPlays.clear();
+            draining = true;
+        }
+
+        boolean playlistSaved = false;
+        boolean likesSaved = false;
+        boolean playsSaved = false;
+        try {
+            playlistSaved = writePlaylist(snapshot, changes, playlist);
+            likesSaved = likes.isEmpty() || writeLikes(likes);
+            playsSaved = plays.isEmpty() || writePlays(plays);
+
+            if (snapshot || !changes.isEmpty() || !likes.isEmpty() || !plays.isEmpty()) {
+                Log.d(TAG, "后台写入结束: 播放列表" + (snapshot ? "全量" : changes.size() + "条变更") +
+                        (playlistSaved ? "" : "（失败）") +
+                        "，收藏 " + likes.size() + " 条" + (likesSaved ? "" : "（失败）") +
+                        "，播放记录 " + plays.size() + " 条" + (playsSaved ? "" : "（失败）"));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "后台写入时出错", e);
+        } finally {
+            synchronized (lock) {
+                draining = false;
+                requeueLocked(playlistSaved ? null : playlist, !playlistSaved,
+                        likesSaved ? null : likes, playsSaved ? null : plays);
+            }
+        }
+    }
+
+    /**
+     * 写入播放列表：需要全量重写时整体保存，否则回放增量变更
+     * 增量写入失败时返回false，由 requeueLocked() 改为全量重写
+     * @return 是否写入成功；没有修改时返回true
+     */
+    private boolean writePlaylist(boolean snapshot, List<PlaylistChange> changes, List<MusicInfo> playlist) {
+        if (snapshot) {
+            return musicDao.savePlaylist(playlist);
+        }
+        if (changes.isEmpty() || musicDao.applyPlaylistChanges(changes)) {
+            return true;
+        }
+        Log.w(TAG, "增量写入失败，回退到全量重写");
+        return false;
+    }
+
+    /**
+     * 在一个事务中写入收藏状态；内部任何一步失败都使整个事务回滚并返回false
+     */
+    private boolean writeLikes(List<PendingLike> likes) {
+        return musicDao.runInTransaction(() -> {
+            List<MusicInfo> musicList = new ArrayList<>(likes.size());
+            for (PendingLike like : likes) {
+                musicList.add(like.musicInfo);
+            }
+            long[] musicIds = musicDao.upsertAll(musicList);
+
+            Map<Long, Boolean> likedStatusById = new LinkedHashMap<>();
+            for (int i = 0; i < musicIds.length; i++) {
+                if (musicIds[i] == -1) {
+                    throw new IllegalStateException("写入音乐信息失败: " + musicList.get(i).getMusicUrl());
+                }
+                likedStatusById.put(musicIds[i], likes.get(i).isLiked);
+            }
+            if (!musicDao.setMusicLikedStatusAll(likedStatusById)) {
+                throw new IllegalStateException("写入收藏状态失败");
+            }
+        });
+    }
+
+    /**
+     * 在一个事务中写入播放记录；内部任何一步失败都使整个事务回滚并返回false
+     */
+    private boolean writePlays(List<PendingPlay> plays) {
+        return musicDao.runInTransaction(() -> {
+            List<MusicInfo> musicList = new ArrayList<>(plays.size());
+            long[] playedTimes = new long[plays.size()];
+            for (int i = 0; i < plays.size(); i++) {
+                musicList.add(plays.get(i).musicInfo);
+                playedTimes[i] = plays.get(i).playedTime;
+            }
+            long[] musicIds = musicDao.upsertAll(musicList);
+            for (int i = 0; i < musicIds.length; i++) {
+                if (musicIds[i] == -1) {
+                    throw new IllegalStateException("写入音乐信息失败: " + musicList.get(i).getMusicUrl());
+                }
+            }
+            if (!musicDao.appendPlayHistory(musicIds, playedTimes)) {
+                throw new IllegalStateException("写入播放记录失败");
+            }
+        });
+    }
+
+    /**
+     * 把写入失败的修改放回队列并安排重试；写入期间入队的新修改优先
+     * @param playlist 全量重写失败时的播放列表副本，没有更新的副本时保留；增量写入失败时为null
+     * @param playlistFailed 播放列表是否写入失败，失败时改为全量重写
+     * @param likes 写入失败的收藏状态，为null表示成功
+     * @param plays 写入失败的播放记录，为null表示成功
+     */
+    private void requeueLocked(List<MusicInfo> playlist, boolean playlistFailed,
+                               List<PendingLike> likes, List<PendingPlay> plays) {
+        if (!playlistFailed && likes == null && plays == null) {
+            return;
+        }
+        if (playlistFailed) {
+            // 数据库与内存可能已不一致，之后的增量变更不再可靠，改为全量重写
+            playlistJournal.requireSnapshot();
+            if (latestPlaylist == null) {
+                latestPlaylist = playlist;
+            }
+            if (latestPlaylist == null) {
+                requestPlaylistCopyLocked();
+            }
+        }
+        if (likes != null) {
+            for (PendingLike like : likes) {
+                String musicUrl = like.musicInfo.getMusicUrl();
+                if (!pendingLikes.containsKey(musicUrl)) {
+                    pendingLikes.put(musicUrl, like);
+                }
+            }
+        }
+        if (plays != null) {
+            pendingPlays.addAll(0, plays);
+        }
+        if (shutdown) {
+            Log.w(TAG, "写入队列已关闭，写入失败的修改不会重试");
+            return;
+        }
+        if (!drainScheduled) {
+            drainScheduled = true;
+            writer.schedule(this::drain, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        Log.w(TAG, "部分修改写入失败，已放回队列，" + RETRY_DELAY_MS + "ms 后重试");
+    }
+}
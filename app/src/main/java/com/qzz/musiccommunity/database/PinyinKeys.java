@@ -0,0 +1,126 @@
+package com.qzz.musiccommunity.database;
+
+import android.icu.text.Transliterator;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * 拼音检索/排序键
+ * 全拼：周杰伦 -> zhoujielun，首字母：周杰伦 -> zjl
+ * 英文和数字按单词处理：Jay Chou -> jaychou / jc
+ * 只在写入音乐信息时生成并保存到 music_info，查询时不做转换
+ */
+final class PinyinKeys {
+    private static final String TAG = "PinyinKeys";
+
+    // Latin-ASCII 去掉声调；Han-Latin/Names 对姓氏多音字使用人名读音（单 shan、曾 zeng），只用于歌手名
+    private static final String TITLE_TRANSLITERATOR_ID = "Han-Latin; Latin-ASCII";
+    private static final String NAME_TRANSLITERATOR_ID = "Han-Latin/Names; Latin-ASCII";
+
+    private static Transliterator titleTransliterator;
+    private static Transliterator nameTransliterator;
+    private static boolean transliteratorUnavailable = false;
+
+    final String full;
+    final String initials;
+
+    private PinyinKeys(String full, String initials) {
+        this.full = full;
+        this.initials = initials;
+    }
+
+    /**
+     * 为歌名生成拼音键
+     */
+    static PinyinKeys ofTitle(String title) {
+        return of(title, false);
+    }
+
+    /**
+     * 为歌手名生成拼音键
+     */
+    static PinyinKeys ofName(String name) {
+        return of(name, true);
+    }
+
+    private static PinyinKeys of(String text, boolean personName) {
+        if (text == null || text.isEmpty()) {
+            return new PinyinKeys("", "");
+        }
+
+        String latin = transliterate(text, personName).toLowerCase(Locale.ROOT);
+        StringBuilder full = new StringBuilder(latin.length());
+        StringBuilder initials = new StringBuilder();
+        boolean inWord = false;
+        for (int i = 0; i < latin.length(); i++) {
+            char c = latin.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                full.append(c);
+                if (!inWord) {
+                    initials.append(c);
+                    inWord = true;
+                }
+            } else {
+                // 音译结果中每个汉字的拼音以空格分隔，非字母数字字符都作为单词边界
+                inWord = false;
+            }
+        }
+        return new PinyinKeys(full.toString(), initials.toString());
+    }
+
+    /**
+     * 把用户输入规范化为拼音查询：只保留小写字母和数字
+     * @return 输入中包含非拼音字符（例如汉字）或没有字母时返回null
+     */
+    static String normalizeQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder(keyword.length());
+        boolean hasLetter = false;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = Character.toLowerCase(keyword.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                query.append(c);
+                hasLetter = true;
+            } else if (c >= '0' && c <= '9') {
+                query.append(c);
+            } else if (!Character.isWhitespace(c) && c != '\'') {
+                return null;
+            }
+        }
+        return hasLetter ? query.toString() : null;
+    }
+
+    /**
+     * 前缀查询的上界：键只包含 [a-z0-9]，'{' 排在它们之后，
+     * 因此 key >= prefix AND key < prefix + "{" 即为前缀匹配，可以使用索引
+     */
+    static String prefixUpperBound(String prefix) {
+        return prefix + "{";
+    }
+
+    private static synchronized String transliterate(String text, boolean personName) {
+        if (transliteratorUnavailable) {
+            return text;
+        }
+        try {
+            if (personName) {
+                if (nameTransliterator == null) {
+                    nameTransliterator = Transliterator.getInstance(NAME_TRANSLITERATOR_ID);
+                }
+                return nameTransliterator.transliterate(text);
+            }
+            if (titleTransliterator == null) {
+                titleTransliterator = Transliterator.getInstance(TITLE_TRANSLITERATOR_ID);
+            }
+            return titleTransliterator.transliterate(text);
+        } catch (Exception e) {
+            // 不支持拼音转换时只保留原文中的字母数字
+            Log.w(TAG, "拼音转换不可用", e);
+            transliteratorUnavailable = true;
+            return text;
+        }
+    }
+}
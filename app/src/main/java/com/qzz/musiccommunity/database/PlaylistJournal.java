@@ -0,0 +1,111 @@
+package com.qzz.musiccommunity.database;
+
+import android.util.Log;
+
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 播放列表变更日志
+ * 记录尚未写入数据库的增量变更，并在写入前进行压缩：
+ * 1. CLEAR 之前的变更全部丢弃
+ * 2. 相邻的"插入后立即删除"互相抵消
+ * 3. 变更过多时退化为一次全量快照写入
+ */
+public class PlaylistJournal {
+    private static final String TAG = "PlaylistJournal";
+
+    // 累积变更数超过该阈值时，直接全量重写比逐条回放更便宜
+    private static final int SNAPSHOT_THRESHOLD = 64;
+
+    private final List<PlaylistChange> changes = new ArrayList<>();
+    private boolean snapshotRequired = false;
+
+    /**
+     * 记录一条增量变更
+     */
+    public synchronized void record(PlaylistChange change) {
+        if (change == null || snapshotRequired) {
+            return;
+        }
+        changes.add(change);
+    }
+
+    /**
+     * 标记需要全量快照（例如整个播放列表被替换）
+     */
+    public synchronized void requireSnapshot() {
+        changes.clear();
+        snapshotRequired = true;
+    }
+
+    public synchronized boolean isSnapshotRequired() {
+        return snapshotRequired;
+    }
+
+    public synchronized boolean isEmpty() {
+        return !snapshotRequired && changes.isEmpty();
+    }
+
+    /**
+     * 压缩日志，减少需要回放的变更数
+     */
+    public synchronized void compact() {
+        if (snapshotRequired || changes.isEmpty()) {
+            return;
+        }
+
+        int before = changes.size();
+
+        // CLEAR 之前的所有变更都不再有意义
+        int lastClear = -1;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            if (changes.get(i).getType() == PlaylistChange.Type.CLEAR) {
+                lastClear = i;
+                break;
+            }
+        }
+        if (lastClear > 0) {
+            changes.subList(0, lastClear).clear();
+        }
+
+        // 抵消相邻的"插入后立即删除"
+        List<PlaylistChange> compacted = new ArrayList<>(changes.size());
+        for (PlaylistChange change : changes) {
+            int last = compacted.size() - 1;
+            if (last >= 0 && cancelsOut(compacted.get(last), change)) {
+                compacted.remove(last);
+            } else {
+                compacted.add(change);
+            }
+        }
+        changes.clear();
+        changes.addAll(compacted);
+
+        if (changes.size() > SNAPSHOT_THRESHOLD) {
+            Log.d(TAG, "变更数 " + changes.size() + " 超过阈值，改为全量快照");
+            requireSnapshot();
+        } else if (before != changes.size()) {
+            Log.d(TAG, "日志压缩: " + before + " -> " + changes.size());
+        }
+    }
+
+    /**
+     * 取出所有待写入的变更并清空日志
+     */
+    public synchronized List<PlaylistChange> drain() {
+        List<PlaylistChange> drained = new ArrayList<>(changes);
+        changes.clear();
+        snapshotRequired = false;
+        return drained;
+    }
+
+    private boolean cancelsOut(PlaylistChange previous, PlaylistChange current) {
+        return previous.getType() == PlaylistChange.Type.INSERT
+                && current.getType() == PlaylistChange.Type.REMOVE
+                && previous.getToPosition() == current.getFromPosition()
+                && previous.getMusicInfo() == current.getMusicInfo();
+    }
+}
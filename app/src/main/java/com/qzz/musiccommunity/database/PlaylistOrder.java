@@ -0,0 +1,46 @@
+package com.qzz.musiccommunity.database;
+
+/**
+ * 播放列表排序键
+ * 排序键是稀疏的 long，相邻两首歌之间留有空隙：插入和移动只需为一行分配介于前后两行之间的新键，
+ * 不需要平移其他行。同一位置反复插入会把空隙对半分，空隙用完时由 MusicDao 把整个播放列表重新编号
+ */
+final class PlaylistOrder {
+
+    // 全量写入和重新编号时相邻两行的间隔；在同一位置连续插入约32次后才需要重新编号
+    static final long GAP = 1L << 32;
+    // 前后两行之间没有空隙时 keyBetween 的返回值
+    static final long NO_ROOM = Long.MIN_VALUE;
+
+    private PlaylistOrder() {
+    }
+
+    /**
+     * 全量写入时第 index 行的排序键
+     */
+    static long keyAt(int index) {
+        return index * GAP;
+    }
+
+    /**
+     * 计算介于前后两行之间的排序键
+     * @param before 前一行的排序键，插入到开头时为null
+     * @param after 后一行的排序键，插入到末尾时为null
+     * @return 新的排序键；没有空隙时返回 NO_ROOM，调用方应重新编号后重试
+     */
+    static long keyBetween(Long before, Long after) {
+        if (before == null && after == null) {
+            return 0;
+        }
+        if (after == null) {
+            return before > Long.MAX_VALUE - GAP ? NO_ROOM : before + GAP;
+        }
+        if (before == null) {
+            // Long.MIN_VALUE 用作 NO_ROOM，不能作为排序键
+            return after <= Long.MIN_VALUE + GAP ? NO_ROOM : after - GAP;
+        }
+        // 向下取整的中点，不会溢出
+        long mid = (before >> 1) + (after >> 1) + (before & after & 1);
+        return mid > before && mid < after ? mid : NO_ROOM;
+    }
+}
@@ -0,0 +1,28 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+
+/**
+ * 查询结果行到对象的映射
+ * 每个映射器声明自己需要的查询列（projection），并在遍历前一次性解析列下标，
+ * 避免每一行都按列名查找下标。映射器持有列下标，一个实例只用于一个 Cursor。
+ *
+ * 查询约定：音乐表别名为 m，收藏表别名为 l（LEFT JOIN 或 INNER JOIN）
+ */
+abstract class RowMapper<T> {
+
+    /**
+     * SELECT 子句中的列
+     */
+    abstract String projection();
+
+    /**
+     * 解析列下标，在读取第一行之前调用一次
+     */
+    abstract void bind(Cursor cursor);
+
+    /**
+     * 将当前行映射为对象
+     */
+    abstract T map(Cursor cursor);
+}
@@ -0,0 +1,202 @@
+package com.qzz.musiccommunity.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文检索分词工具
+ * SQLite 内置的分词器会把一整段中文当成一个词，无法按字检索，
+ * 因此写入索引前在 Java 侧分词：中日韩文字逐字成词，字母和数字按连续片段成词，其余字符作为分隔符。
+ * 写入索引和生成查询使用同一套规则，保证两边一致。
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 分词结果，start/end 为在原文中的位置
+     */
+    static class Token {
+        final String text;
+        final int start;
+        final int end;
+
+        Token(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * 对原文分词
+     */
+    static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int wordStart = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+
+            if (isIdeographic(codePoint)) {
+                if (wordStart != -1) {
+                    tokens.add(newToken(text, wordStart, i));
+                    wordStart = -1;
+                }
+                tokens.add(newToken(text, i, next));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                if (wordStart == -1) {
+                    wordStart = i;
+                }
+            } else if (wordStart != -1) {
+                tokens.add(newToken(text, wordStart, i));
+                wordStart = -1;
+            }
+            i = next;
+        }
+        if (wordStart != -1) {
+            tokens.add(newToken(text, wordStart, text.length()));
+        }
+        return tokens;
+    }
+
+    /**
+     * 生成写入全文索引的文本：分词后以空格连接
+     */
+    public static String toIndexText(String text) {
+        StringBuilder builder = new StringBuilder();
+        for (Token token : tokenize(text)) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(token.text);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成 MATCH 查询表达式
+     * 以空白分隔的每一段生成一个短语查询，段内的字必须相邻，最后一个词按前缀匹配；多段之间为 AND
+     * @return 关键词中没有可检索的字符时返回null
+     */
+    public static String toMatchQuery(String keyword) {
+        List<List<Token>> segments = splitSegments(keyword);
+        if (segments.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder query = new StringBuilder();
+        for (List<Token> segment : segments) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('"');
+            for (int i = 0; i < segment.size(); i++) {
+                if (i > 0) {
+                    query.append(' ');
+                }
+                query.append(segment.get(i).text);
+            }
+            query.append("*\"");
+        }
+        return query.toString();
+    }
+
+    /**
+     * 在原文中标记命中的部分
+     * @param text 原文
+     * @param keyword 搜索关键词
+     * @param open 命中部分的起始标记，例如 "<b>"
+     * @param close 命中部分的结束标记，例如 "</b>"
+     * @return 带标记的原文；没有命中时原样返回
+     */
+    public static String highlight(String text, String keyword, String open, String close) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+
+        List<Token> textTokens = tokenize(text);
+        boolean[] marked = new boolean[text.length()];
+        boolean anyMarked = false;
+
+        for (List<Token> segment : splitSegments(keyword)) {
+            for (int start = 0; start + segment.size() <= textTokens.size(); start++) {
+                if (!segmentMatchesAt(textTokens, start, segment)) {
+                    continue;
+                }
+                for (int k = 0; k < segment.size(); k++) {
+                    Token token = textTokens.get(start + k);
+                    // 最后一个词是前缀匹配，只标记前缀部分
+                    int end = k == segment.size() - 1
+                            ? Math.min(token.end, token.start + segment.get(k).text.length())
+                            : token.end;
+                    for (int p = token.start; p < end; p++) {
+                        marked[p] = true;
+                    }
+                }
+                anyMarked = true;
+            }
+        }
+
+        if (!anyMarked) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            if (marked[i] && (i == 0 || !marked[i - 1])) {
+                builder.append(open);
+            }
+            builder.append(text.charAt(i));
+            if (marked[i] && (i == text.length() - 1 || !marked[i + 1])) {
+                builder.append(close);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean segmentMatchesAt(List<Token> textTokens, int start, List<Token> segment) {
+        for (int k = 0; k < segment.size(); k++) {
+            String textToken = textTokens.get(start + k).text;
+            String queryToken = segment.get(k).text;
+            boolean last = k == segment.size() - 1;
+            if (last ? !textToken.startsWith(queryToken) : !textToken.equals(queryToken)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<List<Token>> splitSegments(String keyword) {
+        List<List<Token>> segments = new ArrayList<>();
+        if (keyword == null) {
+            return segments;
+        }
+        for (String part : keyword.trim().split("\\s+")) {
+            List<Token> tokens = tokenize(part);
+            if (!tokens.isEmpty()) {
+                segments.add(tokens);
+            }
+        }
+        return segments;
+    }
+
+    private static Token newToken(String text, int start, int end) {
+        return new Token(text.substring(start, end).toLowerCase(Locale.ROOT), start, end);
+    }
+
+    private static boolean isIdeographic(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
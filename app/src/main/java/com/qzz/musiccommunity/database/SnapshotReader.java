@@ -0,0 +1,222 @@
+package com.qzz.musiccommunity.database;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 曲库快照的解码器，与 SnapshotWriter 对应
+ * fromStream() 边读边计算校验和，读到末尾时才能确认数据完整；
+ * fromBuffer() 读取内存映射的文件，解码前就可以用 verifyChecksum() 检查整个文件
+ */
+abstract class SnapshotReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 单个字符串的最大长度，超出时认为数据已损坏，避免按错误的长度分配内存
+    private static final int MAX_LITERAL_BYTES = 1024 * 1024;
+
+    private final List<String> stringTable = new ArrayList<>();
+    private byte[] literalBuffer = new byte[256];
+
+    static SnapshotReader fromStream(InputStream in) {
+        return new StreamReader(in);
+    }
+
+    static SnapshotReader fromBuffer(ByteBuffer buffer) {
+        return new BufferReader(buffer);
+    }
+
+    abstract int readByte() throws IOException;
+
+    abstract void readBytes(byte[] bytes, int length) throws IOException;
+
+    /**
+     * 已读取的所有字节的 CRC32
+     */
+    abstract int checksumSoFar();
+
+    /**
+     * 解码前检查整个快照的校验和；只有内存映射的文件可以提前检查，流式读取时在末尾由 verifyEnd() 检查
+     */
+    void verifyChecksum() throws IOException {
+    }
+
+    /**
+     * 读取文件末尾的校验和，与已读取内容的校验和比较
+     */
+    void verifyEnd() throws IOException {
+        int expected = checksumSoFar();
+        if (readFixedInt() != expected) {
+            throw new IOException("快照校验和不一致，文件已损坏");
+        }
+    }
+
+    int readFixedInt() throws IOException {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数过长，快照已损坏");
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("整数超出范围，快照已损坏: " + value);
+        }
+        return (int) value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readLiteral() throws IOException {
+        long length = readVarLong() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_LITERAL_BYTES) {
+            throw new IOException("字符串过长，快照已损坏: " + length);
+        }
+        if (literalBuffer.length < length) {
+            literalBuffer = new byte[(int) Math.max(length, literalBuffer.length * 2L)];
+        }
+        readBytes(literalBuffer, (int) length);
+        return new String(literalBuffer, 0, (int) length, StandardCharsets.UTF_8);
+    }
+
+    String readStringRef() throws IOException {
+        long ref = readVarLong();
+        if (ref == SnapshotWriter.REF_NULL) {
+            return null;
+        }
+        if (ref == SnapshotWriter.REF_NEW) {
+            String value = readLiteral();
+            if (value == null) {
+                throw new IOException("字符串表中不能有 null，快照已损坏");
+            }
+            stringTable.add(value);
+            return value;
+        }
+        long index = ref - SnapshotWriter.REF_FIRST_INDEX;
+        if (index >= stringTable.size()) {
+            throw new IOException("字符串编号超出范围，快照已损坏: " + index);
+        }
+        return stringTable.get((int) index);
+    }
+
+    /**
+     * 从输入流读取，带缓冲
+     */
+    private static class StreamReader extends SnapshotReader {
+        private final InputStream in;
+        private final CRC32 crc = new CRC32();
+
+        StreamReader(InputStream in) {
+            this.in = new BufferedInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("快照不完整");
+            }
+            crc.update(b);
+            return b;
+        }
+
+        @Override
+        void readBytes(byte[] bytes, int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                int read = in.read(bytes, offset, length - offset);
+                if (read < 0) {
+                    throw new EOFException("快照不完整");
+                }
+                offset += read;
+            }
+            crc.update(bytes, 0, length);
+        }
+
+        @Override
+        int checksumSoFar() {
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * 从内存映射的文件读取，不经过 Java 堆上的缓冲区
+     */
+    private static class BufferReader extends SnapshotReader {
+        private final ByteBuffer buffer;
+
+        BufferReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int readByte() throws IOException {
+            try {
+                return buffer.get() & 0xFF;
+            } catch (BufferUnderflowException e) {
+                throw new EOFException("快照不完整");
+            }
+        }
+
+        @Override
+        void readBytes(byte[] bytes, int length) throws IOException {
+            try {
+                buffer.get(bytes, 0, length);
+            } catch (BufferUnderflowException e) {
+                throw new EOFException("快照不完整");
+            }
+        }
+
+        @Override
+        int checksumSoFar() {
+            return checksumOf(0, buffer.position());
+        }
+
+        /**
+         * 最后4字节是之前所有字节的 CRC32
+         */
+        @Override
+        void verifyChecksum() throws IOException {
+            int end = buffer.limit() - 4;
+            if (end < 0) {
+                throw new EOFException("快照不完整");
+            }
+            int stored = buffer.getInt(end);
+            if (checksumOf(0, end) != stored) {
+                throw new IOException("快照校验和不一致，文件已损坏");
+            }
+        }
+
+        private int checksumOf(int from, int to) {
+            ByteBuffer range = buffer.duplicate();
+            range.position(from);
+            range.limit(to);
+            CRC32 crc = new CRC32();
+            crc.update(range);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.qzz.musiccommunity.database;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 曲库快照的编码器，格式见 LibrarySnapshot
+ * 整数使用变长编码（每字节7位，最高位表示后面还有字节），有符号数先做 zigzag 变换；
+ * 重复出现的字符串（歌手、URL 目录）写入流式字符串表，第一次出现时写出内容，之后只写编号
+ */
+final class SnapshotWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 字符串引用：0 为 null，1 表示后面紧跟一个新字符串，n >= 2 为字符串表中第 n - 2 个字符串
+    static final int REF_NULL = 0;
+    static final int REF_NEW = 1;
+    static final int REF_FIRST_INDEX = 2;
+
+    private final OutputStream out;
+    private final CRC32 crc = new CRC32();
+    private final Map<String, Integer> stringTable = new HashMap<>();
+    private final byte[] scratch = new byte[10];
+    private long bytesWritten;
+
+    SnapshotWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    void writeByte(int value) throws IOException {
+        scratch[0] = (byte) value;
+        write(scratch, 1);
+    }
+
+    /**
+     * 4字节大端整数，用于文件头的魔数
+     */
+    void writeFixedInt(int value) throws IOException {
+        scratch[0] = (byte) (value >>> 24);
+        scratch[1] = (byte) (value >>> 16);
+        scratch[2] = (byte) (value >>> 8);
+        scratch[3] = (byte) value;
+        write(scratch, 4);
+    }
+
+    /**
+     * 无符号变长整数
+     */
+    void writeVarLong(long value) throws IOException {
+        int length = 0;
+        while ((value & ~0x7FL) != 0) {
+            scratch[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        scratch[length++] = (byte) value;
+        write(scratch, length);
+    }
+
+    /**
+     * 有符号变长整数（zigzag），用于可能为负的差值
+     */
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 直接写出字符串内容，可以为null；长度加1后写出，0 表示 null
+     */
+    void writeLiteral(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        write(bytes, bytes.length);
+    }
+
+    /**
+     * 通过字符串表写出字符串，可以为null
+     */
+    void writeStringRef(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(REF_NULL);
+            return;
+        }
+        Integer index = stringTable.get(value);
+        if (index != null) {
+            writeVarLong(REF_FIRST_INDEX + (long) index);
+            return;
+        }
+        stringTable.put(value, stringTable.size());
+        writeVarLong(REF_NEW);
+        writeLiteral(value);
+    }
+
+    /**
+     * 写出之前所有字节的 CRC32 并刷新缓冲区，之后不能再写入
+     */
+    void finish() throws IOException {
+        int checksum = (int) crc.getValue();
+        writeFixedInt(checksum);
+        out.flush();
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    int getStringTableSize() {
+        return stringTable.size();
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        crc.update(bytes, 0, length);
+        bytesWritten += length;
+    }
+}
@@ -0,0 +1,121 @@
+package com.qzz.musiccommunity.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * URL 前缀字典（url_prefix 表）的内存副本
+ * 前缀的ID就是前缀字符串的64位哈希，同一个前缀在任何时候、任何事务中得到的ID都相同，
+ * 写事务回滚后内存中的映射依然正确，不需要随事务失效；
+ * 两个前缀的哈希相同时，后来的前缀不使用字典（url_prefix_id = NO_PREFIX，url_path 保存完整 URL）
+ */
+final class UrlPrefixDictionary {
+    private static final String TAG = "UrlPrefixDictionary";
+
+    // 不使用前缀，url_path 即完整的 URL
+    static final long NO_PREFIX = 0;
+
+    static final String SQL_INSERT_PREFIX = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_URL_PREFIX +
+            " (" + DatabaseHelper.COLUMN_PREFIX_ID + ", " + DatabaseHelper.COLUMN_PREFIX + ") VALUES (?, ?)";
+
+    private final DatabaseHelper dbHelper;
+    private final Map<Long, String> prefixById = new HashMap<>();
+
+    UrlPrefixDictionary(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * 取得 URL 的前缀ID，必要时把前缀写入字典表；在写事务中调用
+     * @param insertPrefix SQL_INSERT_PREFIX 的预编译语句
+     * @return 前缀ID，不使用字典时返回 NO_PREFIX；url_path 由 pathOf() 计算
+     */
+    synchronized long encodePrefix(SQLiteDatabase db, SQLiteStatement insertPrefix, String url) {
+        int prefixLength = MusicUrls.prefixLength(url);
+        if (prefixLength == 0) {
+            return NO_PREFIX;
+        }
+        String prefix = url.substring(0, prefixLength);
+        long prefixId = MusicUrls.hash(prefix);
+        if (prefixId == NO_PREFIX) {
+            return NO_PREFIX;
+        }
+
+        // 每次都执行 INSERT OR IGNORE（字典表只有几行，已存在时只是一次索引查找），
+        // 保证包含这行音乐信息的事务提交时前缀也一定已提交
+        insertPrefix.bindLong(1, prefixId);
+        insertPrefix.bindString(2, prefix);
+        insertPrefix.executeInsert();
+
+        String existing = prefixById.get(prefixId);
+        if (existing == null) {
+            existing = queryPrefix(db, prefixId);
+            if (existing != null) {
+                prefixById.put(prefixId, existing);
+            }
+        }
+        if (!prefix.equals(existing)) {
+            Log.w(TAG, "前缀哈希冲突，不使用字典: " + prefix + " / " + existing);
+            return NO_PREFIX;
+        }
+        return prefixId;
+    }
+
+    /**
+     * 去掉前缀后保存在 url_path 中的部分
+     */
+    static String pathOf(String url, long prefixId) {
+        return prefixId == NO_PREFIX ? url : url.substring(MusicUrls.prefixLength(url));
+    }
+
+    /**
+     * 由前缀ID和剩余部分还原完整的 URL
+     */
+    String decode(long prefixId, String path) {
+        if (prefixId == NO_PREFIX || path == null) {
+            return path;
+        }
+        String prefix = prefixOf(prefixId);
+        if (prefix == null) {
+            Log.e(TAG, "URL 前缀不存在: " + prefixId);
+            return path;
+        }
+        return prefix + path;
+    }
+
+    private synchronized String prefixOf(long prefixId) {
+        String prefix = prefixById.get(prefixId);
+        if (prefix == null) {
+            // 字典表很小，未命中时整表重新加载
+            loadAll();
+            prefix = prefixById.get(prefixId);
+        }
+        return prefix;
+    }
+
+    private void loadAll() {
+        try (Cursor cursor = dbHelper.getReadableDatabaseSafe().query(DatabaseHelper.TABLE_URL_PREFIX,
+                new String[]{DatabaseHelper.COLUMN_PREFIX_ID, DatabaseHelper.COLUMN_PREFIX},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                prefixById.put(cursor.getLong(0), cursor.getString(1));
+            }
+        }
+        Log.d(TAG, "URL 前缀字典加载完成，共 " + prefixById.size() + " 个前缀");
+    }
+
+    private static String queryPrefix(SQLiteDatabase db, long prefixId) {
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_URL_PREFIX,
+                new String[]{DatabaseHelper.COLUMN_PREFIX},
+                DatabaseHelper.COLUMN_PREFIX_ID + " = ?",
+                new String[]{String.valueOf(prefixId)},
+                null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+}
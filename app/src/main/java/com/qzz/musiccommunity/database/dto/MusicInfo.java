@@ -156,6 +156,24 @@ public class MusicInfo implements Parcelable {
 
     // ==================== 实用方法 ====================
 
+    /**
+     * 复制所有字段
+     * MusicDao 返回的对象可能是 MusicCache 中共享的实例，需要修改时先复制，修改副本
+     */
+    public MusicInfo copy() {
+        MusicInfo copy = new MusicInfo(id, musicName, author, musicUrl);
+        copy.album = album;
+        copy.duration = duration;
+        copy.coverUrl = coverUrl;
+        copy.lyricUrl = lyricUrl;
+        copy.isLiked = isLiked;
+        copy.playCount = playCount;
+        copy.addTime = addTime;
+        copy.quality = quality;
+        copy.fileSize = fileSize;
+        return copy;
+    }
+
     /**
      * 增加播放次数
      */
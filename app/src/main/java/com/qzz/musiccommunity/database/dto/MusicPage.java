@@ -0,0 +1,32 @@
+package com.qzz.musiccommunity.database.dto;
+
+import java.util.List;
+
+/**
+ * 一页查询结果，T 为 MusicInfo 或 MusicSummary 等行类型
+ */
+public class MusicPage<T> {
+
+    private final List<T> items;
+    private final MusicPageKey nextKey;
+
+    public MusicPage(List<T> items, MusicPageKey nextKey) {
+        this.items = items;
+        this.nextKey = nextKey;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 下一页的位置，没有更多数据时为null
+     */
+    public MusicPageKey getNextKey() {
+        return nextKey;
+    }
+
+    public boolean hasMore() {
+        return nextKey != null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.qzz.musiccommunity.database.dto;
+
+/**
+ * 分页位置：上一页最后一行的排序值和ID
+ * 下一页从该位置之后开始查询（keyset 分页），不使用 OFFSET，翻页代价与页码无关
+ */
+public class MusicPageKey {
+
+    private final String sortValue;
+    private final long musicId;
+
+    public MusicPageKey(String sortValue, long musicId) {
+        this.sortValue = sortValue;
+        this.musicId = musicId;
+    }
+
+    public String getSortValue() {
+        return sortValue;
+    }
+
+    public long getMusicId() {
+        return musicId;
+    }
+
+    @Override
+    public String toString() {
+        return "MusicPageKey{" +
+                "sortValue='" + sortValue + '\'' +
+                ", musicId=" + musicId +
+                '}';
+    }
+}
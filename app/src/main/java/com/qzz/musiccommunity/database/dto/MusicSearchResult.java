@@ -0,0 +1,37 @@
+package com.qzz.musiccommunity.database.dto;
+
+/**
+ * 搜索结果：音乐信息 + 带高亮标记的名称和作者
+ */
+public class MusicSearchResult {
+
+    private final MusicInfo musicInfo;
+    private final String highlightedName;
+    private final String highlightedAuthor;
+
+    public MusicSearchResult(MusicInfo musicInfo, String highlightedName, String highlightedAuthor) {
+        this.musicInfo = musicInfo;
+        this.highlightedName = highlightedName;
+        this.highlightedAuthor = highlightedAuthor;
+    }
+
+    public MusicInfo getMusicInfo() {
+        return musicInfo;
+    }
+
+    public String getHighlightedName() {
+        return highlightedName;
+    }
+
+    public String getHighlightedAuthor() {
+        return highlightedAuthor;
+    }
+
+    @Override
+    public String toString() {
+        return "MusicSearchResult{" +
+                "name='" + highlightedName + '\'' +
+                ", author='" + highlightedAuthor + '\'' +
+                '}';
+    }
+}
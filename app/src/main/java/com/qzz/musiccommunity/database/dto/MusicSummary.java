@@ -0,0 +1,52 @@
+package com.qzz.musiccommunity.database.dto;
+
+/**
+ * 音乐列表项摘要
+ * 列表页面只显示名称、作者、封面和收藏状态，不需要加载完整的 MusicInfo
+ */
+public class MusicSummary {
+
+    private final long id;
+    private final String musicName;
+    private final String author;
+    private final String coverUrl;
+    private final boolean liked;
+
+    public MusicSummary(long id, String musicName, String author, String coverUrl, boolean liked) {
+        this.id = id;
+        this.musicName = musicName;
+        this.author = author;
+        this.coverUrl = coverUrl;
+        this.liked = liked;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMusicName() {
+        return musicName;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    public boolean isLiked() {
+        return liked;
+    }
+
+    @Override
+    public String toString() {
+        return "MusicSummary{" +
+                "id=" + id +
+                ", musicName='" + musicName + '\'' +
+                ", author='" + author + '\'' +
+                ", liked=" + liked +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package com.qzz.musiccommunity.database.dto;
+
+/**
+ * 命名播放列表
+ * 当前播放队列也是一个播放列表，ID 为 DatabaseHelper.DEFAULT_PLAYLIST_ID
+ */
+public class NamedPlaylist {
+
+    private final long id;
+    private final String name;
+    private final long createdTime;
+    private final int trackCount;
+
+    public NamedPlaylist(long id, String name, long createdTime, int trackCount) {
+        this.id = id;
+        this.name = name;
+        this.createdTime = createdTime;
+        this.trackCount = trackCount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    @Override
+    public String toString() {
+        return "NamedPlaylist{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", trackCount=" + trackCount +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.qzz.musiccommunity.database.dto;
+
+/**
+ * 播放列表增量变更记录
+ * MusicManager 每次修改内存中的播放列表时生成一条记录，
+ * MusicDao 只根据记录写入受影响的行，而不是整表重写
+ */
+public class PlaylistChange {
+
+    public enum Type {
+        INSERT,  // 在指定位置插入歌曲
+        MOVE,    // 将歌曲从一个位置移动到另一个位置
+        REMOVE,  // 删除指定位置的歌曲
+        CLEAR    // 清空播放列表
+    }
+
+    private final Type type;
+    private final MusicInfo musicInfo;
+    private final int fromPosition;
+    private final int toPosition;
+
+    private PlaylistChange(Type type, MusicInfo musicInfo, int fromPosition, int toPosition) {
+        this.type = type;
+        this.musicInfo = musicInfo;
+        this.fromPosition = fromPosition;
+        this.toPosition = toPosition;
+    }
+
+    public static PlaylistChange insert(MusicInfo musicInfo, int position) {
+        return new PlaylistChange(Type.INSERT, musicInfo, -1, position);
+    }
+
+    public static PlaylistChange move(MusicInfo musicInfo, int fromPosition, int toPosition) {
+        return new PlaylistChange(Type.MOVE, musicInfo, fromPosition, toPosition);
+    }
+
+    public static PlaylistChange remove(MusicInfo musicInfo, int position) {
+        return new PlaylistChange(Type.REMOVE, musicInfo, position, -1);
+    }
+
+    public static PlaylistChange clear() {
+        return new PlaylistChange(Type.CLEAR, null, -1, -1);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public MusicInfo getMusicInfo() {
+        return musicInfo;
+    }
+
+    public int getFromPosition() {
+        return fromPosition;
+    }
+
+    public int getToPosition() {
+        return toPosition;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistChange{" +
+                "type=" + type +
+                ", music=" + (musicInfo != null ? musicInfo.getMusicName() : null) +
+                ", from=" + fromPosition +
+                ", to=" + toPosition +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+package com.qzz.musiccommunity.instance;
+
+import java.util.Arrays;
+
+/**
+ * long 集合，开放寻址 + 线性探测，元素直接存放在 long[] 中，不产生装箱的 Long
+ * 0 用作空槽标记，集合中的 0 单独记录；删除时把后续元素前移，不留删除标记
+ * 非线程安全，由调用方加锁
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long slot = slots[index];
+            if (slot == 0) {
+                return false;
+            }
+            if (slot == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return 是否新加入
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long slot = slots[index];
+            if (slot == 0) {
+                break;
+            }
+            if (slot == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = key;
+        size++;
+        // 装载因子不超过 0.5，保证探测链足够短
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return 是否存在并已删除
+     */
+    boolean remove(long key) {
+        if (key == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long slot = slots[index];
+            if (slot == 0) {
+                return false;
+            }
+            if (slot == key) {
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = 0;
+        size--;
+
+        // 把同一探测链上后面的元素前移到空出的位置
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (slots[next] != 0) {
+            long moved = slots[next];
+            int home = indexOf(moved);
+            // home 不在 (gap, next] 区间内时，该元素可以移到 gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = moved;
+                slots[next] = 0;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        // 混合高低位，避免连续ID或哈希低位相同的键聚集
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(newCapacity);
+        for (long key : old) {
+            if (key != 0) {
+                int index = indexOf(key);
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -1,11 +1,14 @@
 package com.qzz.musiccommunity.instance;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.qzz.musiccommunity.Service.MusicPlayerService;
 import com.qzz.musiccommunity.database.MusicDao;
+import com.qzz.musiccommunity.database.PersistenceQueue;
 import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.database.dto.PlaylistChange;
 import com.qzz.musiccommunity.model.BannerItem;
 import com.qzz.musiccommunity.model.HorizontalCardItem;
 import com.qzz.musiccommunity.model.OneColumnItem;
@@ -20,16 +23,26 @@ public class MusicManager {
     // 单例实例
     private static volatile MusicManager instance;
     private MusicDao musicDao;
+    private PersistenceQueue persistenceQueue;
+    // 收藏和播放列表的成员索引，供列表项绑定时判断状态
+    private final MusicMembershipIndex membershipIndex = new MusicMembershipIndex();
 
     // 音乐列表数据
     private List<MusicInfo> currentPlaylist = new ArrayList<>();
     private int currentPosition = 0;
+    // 播放列表内容每次变化时递增，界面据此判断是否需要重新读取播放列表
+    private int playlistVersion = 0;
 
     // 私有构造函数防止外部实例化
     private MusicManager(Context context) {
         musicDao =  MusicDao.getInstance(context.getApplicationContext());
+        persistenceQueue = PersistenceQueue.getInstance(context.getApplicationContext());
+        // 只有需要全量重写时，写入队列才复制整个播放列表
+        persistenceQueue.setPlaylistSource(this::getPlaylist);
         // 初始化时从本地缓存加载播放列表
         currentPlaylist = musicDao.loadPlaylist();
+        membershipIndex.resetQueued(currentPlaylist);
+        membershipIndex.resetLiked(musicDao.getLikedMusicUrls());
         Log.d(TAG, "MusicManager 单例已创建，并从本地加载 " + currentPlaylist.size() + " 首歌曲");
     }
 
@@ -66,7 +79,9 @@ public class MusicManager {
             currentPlaylist = new ArrayList<>(playlist);
         }
         currentPosition = 0; // 重置播放位置
-        musicDao.savePlaylist(currentPlaylist); // 更新本地缓存
+        playlistVersion++;
+        membershipIndex.resetQueued(currentPlaylist);
+        persistenceQueue.submitPlaylistSnapshot(getPlaylist()); // 整个列表被替换，后台全量写入
         Log.d(TAG, "已更新播放列表，共 " + currentPlaylist.size() + " 首歌曲");
     }
 
@@ -78,6 +93,10 @@ public class MusicManager {
         if (musicInfo == null || musicInfo.getMusicUrl() == null) {
             return -1;
         }
+        // 不在播放列表中时不需要逐个比较
+        if (!membershipIndex.isQueued(musicInfo)) {
+            return -1;
+        }
 
         for (int i = 0; i < currentPlaylist.size(); i++) {
             MusicInfo music = currentPlaylist.get(i);
@@ -106,9 +125,11 @@ public class MusicManager {
         if (existingIndex == -1){
             // 如果歌曲不存在，直接添加到末尾
             currentPlaylist.add(musicInfo);
+            playlistVersion++;
+            membershipIndex.addQueued(musicInfo);
+            persistPlaylist(PlaylistChange.insert(musicInfo, currentPlaylist.size() - 1)); // 更新本地缓存
             Log.d(TAG, "添加新歌曲到末尾: " + musicInfo.getMusicName());
         }
-        musicDao.savePlaylist(currentPlaylist); // 更新本地缓存
     }
 
     /**
@@ -123,21 +144,26 @@ public class MusicManager {
 
         // 检查新歌曲是否已经在播放列表中
         int existingIndex = findMusicIndex(newMusic);
+        PlaylistChange change;
 
         if (existingIndex != -1) {
             // 如果歌曲已存在，将其移到开头
             currentPlaylist.remove(existingIndex);
             currentPlaylist.add(0, newMusic);
+            change = PlaylistChange.move(newMusic, existingIndex, 0);
             Log.d(TAG, "歌曲已存在，移动到开头: " + newMusic.getMusicName());
         } else {
             // 如果歌曲不存在，添加到开头
             currentPlaylist.add(0, newMusic);
+            membershipIndex.addQueued(newMusic);
+            change = PlaylistChange.insert(newMusic, 0);
             Log.d(TAG, "添加新歌曲到开头: " + newMusic.getMusicName());
         }
 
         // 设置当前播放位置为0（新添加的歌曲）
         currentPosition = 0;
-        musicDao.savePlaylist(currentPlaylist); // 更新本地缓存
+        playlistVersion++;
+        persistPlaylist(change); // 更新本地缓存
         Log.d(TAG, "播放列表重新排列完成，当前播放: " + newMusic.getMusicName() + "，列表总数: " + currentPlaylist.size());
     }
 
@@ -154,6 +180,11 @@ public class MusicManager {
 
         MusicInfo removedMusic = currentPlaylist.get(position);
         currentPlaylist.remove(position);
+        playlistVersion++;
+        // 列表中可能有重复的歌曲，没有其他相同的歌曲时才移出索引
+        if (findMusicIndex(removedMusic) == -1) {
+            membershipIndex.removeQueued(removedMusic);
+        }
 
         // 调整当前播放位置
         if (currentPosition > position) {
@@ -170,7 +201,7 @@ public class MusicManager {
             }
             // 如果当前位置仍在有效范围内，保持不变
         }
-        musicDao.savePlaylist(currentPlaylist); // 更新本地缓存
+        persistPlaylist(PlaylistChange.remove(removedMusic, position)); // 更新本地缓存
         Log.d(TAG, "删除歌曲: " + removedMusic.getMusicName() +
                 ", 新的播放位置: " + currentPosition +
                 ", 剩余歌曲数: " + currentPlaylist.size());
@@ -207,11 +238,27 @@ public class MusicManager {
     // 清空播放列表
     public void clearPlaylist() {
         currentPlaylist.clear();
+        playlistVersion++;
+        membershipIndex.resetQueued(currentPlaylist);
         currentPosition = 0;
-        musicDao.savePlaylist(currentPlaylist); // 更新本地缓存
+        persistPlaylist(PlaylistChange.clear()); // 更新本地缓存
         Log.d(TAG, "播放列表已清空");
     }
 
+    /**
+     * 将播放列表变更交给后台写入队列，只记录这一条变更，不复制整个播放列表
+     */
+    private void persistPlaylist(PlaylistChange change) {
+        persistenceQueue.submitPlaylistChange(change);
+    }
+
+    /**
+     * 播放列表版本号，增删、移动歌曲或歌曲信息更新后变化
+     */
+    public int getPlaylistVersion() {
+        return playlistVersion;
+    }
+
     // 获取当前播放列表（返回副本以防止外部修改）
     public List<MusicInfo> getPlaylist() {
         return new ArrayList<>(currentPlaylist);
@@ -303,8 +350,87 @@ public class MusicManager {
     }
 
     public void setMusicLikedStatus(boolean isLiked) {
-        musicDao.setMusicLikedStatus(getCurrentMusic().getId(), isLiked);
-        getCurrentMusic().setLiked(isLiked);
+        MusicInfo currentMusic = getCurrentMusic();
+        if (currentMusic == null) {
+            Log.e(TAG, "setMusicLikedStatus: 当前没有播放的音乐");
+            return;
+        }
+        // 列表中的对象可能是 MusicCache 共享的实例，替换为副本而不是直接修改
+        MusicInfo updated = currentMusic.copy();
+        updated.setLiked(isLiked);
+        currentPlaylist.set(currentPosition, updated);
+        membershipIndex.setLiked(updated, isLiked);
+        persistenceQueue.submitLikedStatus(updated, isLiked); // 后台写入，不阻塞主线程
+    }
+
+    /**
+     * 当前歌曲的播放次数加一
+     * @return 更新后的当前歌曲，没有正在播放的歌曲时返回null
+     */
+    public MusicInfo incrementCurrentPlayCount() {
+        MusicInfo currentMusic = getCurrentMusic();
+        if (currentMusic == null) {
+            return null;
+        }
+        MusicInfo updated = currentMusic.copy();
+        updated.incrementPlayCount();
+        currentPlaylist.set(currentPosition, updated);
+        return updated;
+    }
+
+    /**
+     * 用数据库中的音乐信息更新播放列表中URL相同的歌曲，用于接收其他途径写入的修改（如收藏、信息更新）
+     * 还有未提交的播放列表或收藏修改时内存中的数据更新，不做任何改动，等这些修改提交后会再次收到数据库中的信息
+     * @param stored 从数据库读取的音乐信息
+     * @return 播放列表中是否有歌曲被更新
+     */
+    public boolean applyStoredMusicInfo(MusicInfo stored) {
+        if (stored == null || stored.getMusicUrl() == null || persistenceQueue.hasPendingEdits()) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = 0; i < currentPlaylist.size(); i++) {
+            MusicInfo music = currentPlaylist.get(i);
+            if (music == null || !stored.getMusicUrl().equals(music.getMusicUrl()) || sameStoredInfo(music, stored)) {
+                continue;
+            }
+            MusicInfo updated = music.copy();
+            updated.setMusicName(stored.getMusicName());
+            updated.setAuthor(stored.getAuthor());
+            updated.setCoverUrl(stored.getCoverUrl());
+            updated.setLyricUrl(stored.getLyricUrl());
+            updated.setLiked(stored.isLiked());
+            currentPlaylist.set(i, updated);
+            membershipIndex.setLiked(updated, stored.isLiked());
+            changed = true;
+        }
+        if (changed) {
+            playlistVersion++;
+            Log.d(TAG, "已从数据库更新歌曲信息: " + stored.getMusicName());
+        }
+        return changed;
+    }
+
+    private static boolean sameStoredInfo(MusicInfo music, MusicInfo stored) {
+        return TextUtils.equals(music.getMusicName(), stored.getMusicName())
+                && TextUtils.equals(music.getAuthor(), stored.getAuthor())
+                && TextUtils.equals(music.getCoverUrl(), stored.getCoverUrl())
+                && TextUtils.equals(music.getLyricUrl(), stored.getLyricUrl())
+                && music.isLiked() == stored.isLiked();
+    }
+
+    /**
+     * 获取收藏和播放列表的成员索引
+     */
+    public MusicMembershipIndex getMembershipIndex() {
+        return membershipIndex;
+    }
+
+    /**
+     * 立即提交所有待写入的修改，不等待完成
+     */
+    public void flushPendingWrites() {
+        persistenceQueue.requestFlush();
     }
 }
 
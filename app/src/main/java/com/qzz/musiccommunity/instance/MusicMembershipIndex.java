@@ -0,0 +1,92 @@
+package com.qzz.musiccommunity.instance;
+
+import com.qzz.musiccommunity.database.MusicUrls;
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 收藏和播放列表的内存成员索引，用于列表项绑定时 O(1) 判断"已收藏"、"已在播放列表"
+ * 首页推荐的歌曲来自网络，没有数据库ID，因此以 music_url 的64位哈希作为键
+ * 由 MusicManager 在启动时从数据库预加载，并在收藏/播放列表修改时同步更新
+ */
+public class MusicMembershipIndex {
+
+    private final LongHashSet likedKeys = new LongHashSet();
+    private final LongHashSet queuedKeys = new LongHashSet();
+
+    // 每次内容变化时递增，界面据此判断是否需要刷新标记
+    private volatile int version;
+
+    /**
+     * 计算 music_url 的64位键，与数据库中的 url_hash 相同
+     */
+    public static long keyOf(String musicUrl) {
+        return MusicUrls.hash(musicUrl);
+    }
+
+    public synchronized boolean isLiked(MusicInfo musicInfo) {
+        return musicInfo != null && musicInfo.getMusicUrl() != null
+                && likedKeys.contains(keyOf(musicInfo.getMusicUrl()));
+    }
+
+    public synchronized boolean isQueued(MusicInfo musicInfo) {
+        return musicInfo != null && musicInfo.getMusicUrl() != null
+                && queuedKeys.contains(keyOf(musicInfo.getMusicUrl()));
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 用数据库中的收藏列表重建收藏索引
+     */
+    synchronized void resetLiked(Collection<String> likedMusicUrls) {
+        likedKeys.clear();
+        for (String musicUrl : likedMusicUrls) {
+            if (musicUrl != null) {
+                likedKeys.add(keyOf(musicUrl));
+            }
+        }
+        version++;
+    }
+
+    synchronized void setLiked(MusicInfo musicInfo, boolean isLiked) {
+        if (musicInfo == null || musicInfo.getMusicUrl() == null) {
+            return;
+        }
+        long key = keyOf(musicInfo.getMusicUrl());
+        if (isLiked ? likedKeys.add(key) : likedKeys.remove(key)) {
+            version++;
+        }
+    }
+
+    /**
+     * 用当前播放列表重建播放列表索引
+     */
+    synchronized void resetQueued(List<MusicInfo> playlist) {
+        queuedKeys.clear();
+        for (MusicInfo musicInfo : playlist) {
+            if (musicInfo != null && musicInfo.getMusicUrl() != null) {
+                queuedKeys.add(keyOf(musicInfo.getMusicUrl()));
+            }
+        }
+        version++;
+    }
+
+    synchronized void addQueued(MusicInfo musicInfo) {
+        if (musicInfo != null && musicInfo.getMusicUrl() != null
+                && queuedKeys.add(keyOf(musicInfo.getMusicUrl()))) {
+            version++;
+        }
+    }
+
+    synchronized void removeQueued(MusicInfo musicInfo) {
+        if (musicInfo != null && musicInfo.getMusicUrl() != null
+                && queuedKeys.remove(keyOf(musicInfo.getMusicUrl()))) {
+            version++;
+        }
+    }
+}
@@ -4,14 +4,28 @@ import com.qzz.musiccommunity.network.dto.BaseResponse;
 import com.qzz.musiccommunity.network.dto.ModuleConfig;
 import com.qzz.musiccommunity.network.dto.PagedData;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
+import retrofit2.http.Url;
 
 public interface ApiService {
+    /**
+     * @param cacheControl 请求头 Cache-Control，为null时按缓存策略可能直接返回缓存；
+     *                     用户主动刷新时传 RetrofitClient.CACHE_CONTROL_REVALIDATE
+     */
     @GET("music/homePage")
     Call<BaseResponse<PagedData<ModuleConfig>>> getHomePage(
             @Query("current") int current,
-            @Query("size") int size
+            @Query("size") int size,
+            @Header("Cache-Control") String cacheControl
     );
+
+    /**
+     * 下载歌词文件（完整URL），同一首歌同时多次加载时只下载一次
+     */
+    @GET
+    Call<ResponseBody> downloadLyric(@Url String lyricUrl);
 }
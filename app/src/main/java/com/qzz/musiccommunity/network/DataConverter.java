@@ -6,6 +6,7 @@ import com.qzz.musiccommunity.model.OneColumnItem;
 import com.qzz.musiccommunity.model.TwoColumnItem;
 import com.qzz.musiccommunity.model.iface.ListItem;
 import com.qzz.musiccommunity.network.dto.ModuleConfig;
+import com.qzz.musiccommunity.network.dto.PagedData;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,26 +24,47 @@ public class DataConverter {
         }
 
         for (ModuleConfig moduleConfig : moduleConfigs) {
-            switch (moduleConfig.getStyle()) {
-                case ListItem.TYPE_BANNER:
-                    listItems.add(new BannerItem(moduleConfig));
-                    break;
-                case ListItem.TYPE_HORIZONTAL_CARD:
-                    listItems.add(new HorizontalCardItem(moduleConfig));
-                    break;
-                case ListItem.TYPE_ONE_COLUMN:
-                    listItems.add(new OneColumnItem(moduleConfig));
-                    break;
-                case ListItem.TYPE_TWO_COLUMN:
-                    listItems.add(new TwoColumnItem(moduleConfig));
-                    break;
-                default:
-                    // 未知类型，可以添加默认处理或忽略
-                    break;
+            ListItem item = convertToListItem(moduleConfig);
+            if (item != null) {
+                listItems.add(item);
             }
         }
 
         return listItems;
     }
+
+    /**
+     * 一页模块对应的ListItem列表，解析时已经生成的直接返回
+     * 返回的列表可能与其他调用方共享，只能读取
+     */
+    public static List<ListItem> convertToListItems(PagedData<ModuleConfig> pagedData) {
+        if (pagedData.getListItems() != null) {
+            return pagedData.getListItems();
+        }
+        return convertToListItems(pagedData.getRecords());
+    }
+
+    /**
+     * 将单个ModuleConfig转换为ListItem
+     * @return 未知类型返回null
+     */
+    public static ListItem convertToListItem(ModuleConfig moduleConfig) {
+        if (moduleConfig == null) {
+            return null;
+        }
+        switch (moduleConfig.getStyle()) {
+            case ListItem.TYPE_BANNER:
+                return new BannerItem(moduleConfig);
+            case ListItem.TYPE_HORIZONTAL_CARD:
+                return new HorizontalCardItem(moduleConfig);
+            case ListItem.TYPE_ONE_COLUMN:
+                return new OneColumnItem(moduleConfig);
+            case ListItem.TYPE_TWO_COLUMN:
+                return new TwoColumnItem(moduleConfig);
+            default:
+                // 未知类型，可以添加默认处理或忽略
+                return null;
+        }
+    }
 }
 
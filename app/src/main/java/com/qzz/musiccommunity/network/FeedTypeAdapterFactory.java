@@ -0,0 +1,414 @@
+package com.qzz.musiccommunity.network;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.model.iface.ListItem;
+import com.qzz.musiccommunity.network.dto.BaseResponse;
+import com.qzz.musiccommunity.network.dto.ModuleConfig;
+import com.qzz.musiccommunity.network.dto.PagedData;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 首页接口的 DTO（BaseResponse、PagedData、ModuleConfig、MusicInfo）的流式解析，不使用反射
+ * 字段按名称逐个读取，未知字段跳过；JSON 中为 null 的基本类型字段保持默认值，与 Gson 的反射解析一致
+ * 解析 PagedData<ModuleConfig> 时每读完一个模块就生成对应的列表项，见 PagedData.getListItems()
+ */
+public class FeedTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == MusicInfo.class) {
+            return (TypeAdapter<T>) new MusicInfoAdapter();
+        }
+        if (rawType == ModuleConfig.class) {
+            return (TypeAdapter<T>) new ModuleConfigAdapter(gson.getAdapter(MusicInfo.class));
+        }
+        if (rawType == PagedData.class) {
+            return (TypeAdapter<T>) new PagedDataAdapter<>(gson.getAdapter(typeArgument(type)));
+        }
+        if (rawType == BaseResponse.class) {
+            return (TypeAdapter<T>) new BaseResponseAdapter<>(gson.getAdapter(typeArgument(type)));
+        }
+        return null;
+    }
+
+    /**
+     * 泛型参数的类型，没有指定时按 Object 处理（与反射解析相同）
+     */
+    private static TypeToken<?> typeArgument(TypeToken<?> type) {
+        Type generic = type.getType();
+        if (generic instanceof ParameterizedType) {
+            return TypeToken.get(((ParameterizedType) generic).getActualTypeArguments()[0]);
+        }
+        return TypeToken.get(Object.class);
+    }
+
+    private static final class BaseResponseAdapter<T> extends TypeAdapter<BaseResponse<T>> {
+        private final TypeAdapter<T> dataAdapter;
+
+        BaseResponseAdapter(TypeAdapter<T> dataAdapter) {
+            this.dataAdapter = dataAdapter;
+        }
+
+        @Override
+        public BaseResponse<T> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            BaseResponse<T> response = new BaseResponse<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "code":
+                        response.setCode(in.nextInt());
+                        break;
+                    case "msg":
+                        response.setMsg(in.nextString());
+                        break;
+                    case "data":
+                        response.setData(dataAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, BaseResponse<T> response) throws IOException {
+            if (response == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("code").value(response.getCode());
+            out.name("msg").value(response.getMsg());
+            out.name("data");
+            dataAdapter.write(out, response.getData());
+            out.endObject();
+        }
+    }
+
+    private static final class PagedDataAdapter<T> extends TypeAdapter<PagedData<T>> {
+        private final TypeAdapter<T> recordAdapter;
+
+        PagedDataAdapter(TypeAdapter<T> recordAdapter) {
+            this.recordAdapter = recordAdapter;
+        }
+
+        @Override
+        public PagedData<T> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            PagedData<T> pagedData = new PagedData<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "records":
+                        readRecords(in, pagedData);
+                        break;
+                    case "total":
+                        pagedData.setTotal(in.nextInt());
+                        break;
+                    case "size":
+                        pagedData.setSize(in.nextInt());
+                        break;
+                    case "current":
+                        pagedData.setCurrent(in.nextInt());
+                        break;
+                    case "pages":
+                        pagedData.setPages(in.nextInt());
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return pagedData;
+        }
+
+        /**
+         * 读取记录，记录是模块时同时生成列表项
+         */
+        private void readRecords(JsonReader in, PagedData<T> pagedData) throws IOException {
+            List<T> records = new ArrayList<>();
+            List<ListItem> listItems = null;
+            in.beginArray();
+            while (in.hasNext()) {
+                T record = recordAdapter.read(in);
+                records.add(record);
+                if (record instanceof ModuleConfig) {
+                    if (listItems == null) {
+                        listItems = new ArrayList<>();
+                    }
+                    ListItem item = DataConverter.convertToListItem((ModuleConfig) record);
+                    if (item != null) {
+                        listItems.add(item);
+                    }
+                }
+            }
+            in.endArray();
+            pagedData.setRecords(records);
+            pagedData.setListItems(listItems);
+        }
+
+        @Override
+        public void write(JsonWriter out, PagedData<T> pagedData) throws IOException {
+            if (pagedData == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("records");
+            if (pagedData.getRecords() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (T record : pagedData.getRecords()) {
+                    recordAdapter.write(out, record);
+                }
+                out.endArray();
+            }
+            out.name("total").value(pagedData.getTotal());
+            out.name("size").value(pagedData.getSize());
+            out.name("current").value(pagedData.getCurrent());
+            out.name("pages").value(pagedData.getPages());
+            out.endObject();
+        }
+    }
+
+    private static final class ModuleConfigAdapter extends TypeAdapter<ModuleConfig> {
+        private final TypeAdapter<MusicInfo> musicAdapter;
+
+        ModuleConfigAdapter(TypeAdapter<MusicInfo> musicAdapter) {
+            this.musicAdapter = musicAdapter;
+        }
+
+        @Override
+        public ModuleConfig read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ModuleConfig moduleConfig = new ModuleConfig();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "moduleConfigId":
+                        moduleConfig.setModuleConfigId(in.nextInt());
+                        break;
+                    case "moduleName":
+                        moduleConfig.setModuleName(in.nextString());
+                        break;
+                    case "style":
+                        moduleConfig.setStyle(in.nextInt());
+                        break;
+                    case "musicInfoList":
+                        List<MusicInfo> musicInfoList = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            musicInfoList.add(musicAdapter.read(in));
+                        }
+                        in.endArray();
+                        moduleConfig.setMusicInfoList(musicInfoList);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return moduleConfig;
+        }
+
+        @Override
+        public void write(JsonWriter out, ModuleConfig moduleConfig) throws IOException {
+            if (moduleConfig == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("moduleConfigId").value(moduleConfig.getModuleConfigId());
+            out.name("moduleName").value(moduleConfig.getModuleName());
+            out.name("style").value(moduleConfig.getStyle());
+            out.name("musicInfoList");
+            if (moduleConfig.getMusicInfoList() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (MusicInfo musicInfo : moduleConfig.getMusicInfoList()) {
+                    musicAdapter.write(out, musicInfo);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+    }
+
+    /**
+     * 字段名与 MusicInfo 的成员变量名相同（反射解析使用的名称）
+     */
+    private static final class MusicInfoAdapter extends TypeAdapter<MusicInfo> {
+
+        @Override
+        public MusicInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            MusicInfo musicInfo = new MusicInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    // 字符串字段设为null，基本类型保持默认值
+                    in.nextNull();
+                    setNullString(musicInfo, name);
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        musicInfo.setId(in.nextLong());
+                        break;
+                    case "musicName":
+                        musicInfo.setMusicName(in.nextString());
+                        break;
+                    case "author":
+                        musicInfo.setAuthor(in.nextString());
+                        break;
+                    case "album":
+                        musicInfo.setAlbum(in.nextString());
+                        break;
+                    case "duration":
+                        musicInfo.setDuration(in.nextLong());
+                        break;
+                    case "musicUrl":
+                        musicInfo.setMusicUrl(in.nextString());
+                        break;
+                    case "coverUrl":
+                        musicInfo.setCoverUrl(in.nextString());
+                        break;
+                    case "lyricUrl":
+                        musicInfo.setLyricUrl(in.nextString());
+                        break;
+                    case "isLiked":
+                        musicInfo.setLiked(nextBoolean(in));
+                        break;
+                    case "playCount":
+                        musicInfo.setPlayCount(in.nextLong());
+                        break;
+                    case "addTime":
+                        musicInfo.setAddTime(in.nextLong());
+                        break;
+                    case "quality":
+                        musicInfo.setQuality(in.nextString());
+                        break;
+                    case "fileSize":
+                        musicInfo.setFileSize(in.nextLong());
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return musicInfo;
+        }
+
+        private static void setNullString(MusicInfo musicInfo, String name) {
+            switch (name) {
+                case "musicName":
+                    musicInfo.setMusicName(null);
+                    break;
+                case "author":
+                    musicInfo.setAuthor(null);
+                    break;
+                case "album":
+                    musicInfo.setAlbum(null);
+                    break;
+                case "musicUrl":
+                    musicInfo.setMusicUrl(null);
+                    break;
+                case "coverUrl":
+                    musicInfo.setCoverUrl(null);
+                    break;
+                case "lyricUrl":
+                    musicInfo.setLyricUrl(null);
+                    break;
+                case "quality":
+                    musicInfo.setQuality(null);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 与 Gson 相同，布尔值也接受字符串 "true" / "false"
+         */
+        private static boolean nextBoolean(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                return Boolean.parseBoolean(in.nextString());
+            }
+            return in.nextBoolean();
+        }
+
+        @Override
+        public void write(JsonWriter out, MusicInfo musicInfo) throws IOException {
+            if (musicInfo == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(musicInfo.getId());
+            out.name("musicName").value(musicInfo.getMusicName());
+            out.name("author").value(musicInfo.getAuthor());
+            out.name("album").value(musicInfo.getAlbum());
+            out.name("duration").value(musicInfo.getDuration());
+            out.name("musicUrl").value(musicInfo.getMusicUrl());
+            out.name("coverUrl").value(musicInfo.getCoverUrl());
+            out.name("lyricUrl").value(musicInfo.getLyricUrl());
+            out.name("isLiked").value(musicInfo.isLiked());
+            out.name("playCount").value(musicInfo.getPlayCount());
+            out.name("addTime").value(musicInfo.getAddTime());
+            out.name("quality").value(musicInfo.getQuality());
+            out.name("fileSize").value(musicInfo.getFileSize());
+            out.endObject();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.qzz.musiccommunity.network;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP 缓存的命中统计，由 StaleWhileRevalidateInterceptor 记录
+ */
+public class HttpCacheStats {
+
+    // 缓存未过期，直接使用，没有网络请求
+    private final AtomicLong hitCount = new AtomicLong();
+    // 缓存已过期但在允许的时间内，先返回缓存，同时在后台重新验证
+    private final AtomicLong staleHitCount = new AtomicLong();
+    // 没有可用的缓存，完整下载
+    private final AtomicLong missCount = new AtomicLong();
+    // 带 If-None-Match / If-Modified-Since 的条件请求（包括后台重新验证）
+    private final AtomicLong revalidationCount = new AtomicLong();
+    // 条件请求返回 304，只更新缓存的响应头，没有重新下载
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    // 后台重新验证失败的次数
+    private final AtomicLong revalidationFailureCount = new AtomicLong();
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordStaleHit() {
+        staleHitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    void recordRevalidation(boolean notModified) {
+        revalidationCount.incrementAndGet();
+        if (notModified) {
+            notModifiedCount.incrementAndGet();
+        }
+    }
+
+    void recordRevalidationFailure() {
+        revalidationFailureCount.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    public long getRevalidationFailureCount() {
+        return revalidationFailureCount.get();
+    }
+
+    /**
+     * 不需要完整下载的请求所占的比例
+     */
+    public double getHitRate() {
+        long saved = getHitCount() + getStaleHitCount() + getNotModifiedCount();
+        long total = getHitCount() + getStaleHitCount() + getMissCount() + getRevalidationCount();
+        return total == 0 ? 0 : (double) saved / total;
+    }
+
+    public void reset() {
+        hitCount.set(0);
+        staleHitCount.set(0);
+        missCount.set(0);
+        revalidationCount.set(0);
+        notModifiedCount.set(0);
+        revalidationFailureCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{hit=" + getHitCount() +
+                ", staleHit=" + getStaleHitCount() +
+                ", miss=" + getMissCount() +
+                ", revalidation=" + getRevalidationCount() +
+                ", notModified=" + getNotModifiedCount() +
+                ", revalidationFailure=" + getRevalidationFailureCount() +
+                ", hitRate=" + String.format(Locale.ROOT, "%.2f", getHitRate()) + "}";
+    }
+}
@@ -0,0 +1,55 @@
+package com.qzz.musiccommunity.network;
+
+/**
+ * 网络层配置
+ * 需要在第一次调用 RetrofitClient.getInstance() 之前通过 RetrofitClient.setConfig() 设置，之后修改不生效
+ */
+public class NetworkConfig {
+
+    // 是否按接口统计各阶段耗时和流量
+    private boolean metricsEnabled = true;
+    // 是否记录请求和响应的完整内容；记录时响应体会被整个读入内存，只在调试时打开
+    private boolean bodyLoggingEnabled = false;
+    // 打开完整记录时，被记录的请求所占的比例（0~1）
+    private double bodyLoggingSampleRate = 0.1;
+
+    public static NetworkConfig defaults() {
+        return new NetworkConfig();
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public NetworkConfig setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    public boolean isBodyLoggingEnabled() {
+        return bodyLoggingEnabled;
+    }
+
+    public NetworkConfig setBodyLoggingEnabled(boolean bodyLoggingEnabled) {
+        this.bodyLoggingEnabled = bodyLoggingEnabled;
+        return this;
+    }
+
+    public double getBodyLoggingSampleRate() {
+        return bodyLoggingSampleRate;
+    }
+
+    public NetworkConfig setBodyLoggingSampleRate(double bodyLoggingSampleRate) {
+        this.bodyLoggingSampleRate = Math.max(0, Math.min(1, bodyLoggingSampleRate));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkConfig{" +
+                "metricsEnabled=" + metricsEnabled +
+                ", bodyLoggingEnabled=" + bodyLoggingEnabled +
+                ", bodyLoggingSampleRate=" + bodyLoggingSampleRate +
+                '}';
+    }
+}
@@ -0,0 +1,504 @@
+package com.qzz.musiccommunity.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+import retrofit2.http.Url;
+
+/**
+ * 网络请求的分阶段耗时和流量统计，基于 OkHttp 的 EventListener
+ * 按接口（请求方法 + 主机 + 路径，不含查询参数）分别统计，每个阶段一个耗时直方图：
+ * DNS、建立连接（含TLS）、TLS握手、发送请求、首字节（请求发出到收到响应头）、读取响应体、整个调用
+ * 复用连接或命中缓存的调用没有 DNS / 连接阶段，这些阶段只统计实际发生的次数
+ * 使用 @Url 动态地址的请求（例如下载歌词）和不是由 ApiService 发起的请求按"方法 + 主机/*"归为一类；
+ * 统计的接口数量有上限，超出后新的路径也归入所在主机的这一类，避免统计随地址无限增长
+ */
+public class NetworkMetrics {
+    private static final String TAG = "NetworkMetrics";
+    // 按路径区分统计的接口数量上限
+    private static final int MAX_ENDPOINTS = 50;
+
+    // 直方图各桶的上限（毫秒），最后一桶不设上限
+    private static final long[] BUCKET_BOUNDS_MS = {
+            5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000
+    };
+
+    /**
+     * 统计的阶段
+     */
+    public enum Phase {
+        DNS, CONNECT, TLS, REQUEST, TTFB, RESPONSE_BODY, TOTAL
+    }
+
+    /**
+     * 单个阶段的耗时直方图
+     */
+    public static class PhaseStats {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+
+        PhaseStats() {
+        }
+
+        PhaseStats(PhaseStats other) {
+            this.count = other.count;
+            this.totalNanos = other.totalNanos;
+            this.maxNanos = other.maxNanos;
+            System.arraycopy(other.buckets, 0, buckets, 0, buckets.length);
+        }
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            long millis = nanos / 1_000_000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getAverageMs() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double getMaxMs() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * 按直方图估算的分位耗时（所在桶的上限），落在最后一桶时返回最大耗时
+         * @param percentile 0~100
+         */
+        public double getPercentileMs(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(BUCKET_BOUNDS_MS[i], getMaxMs());
+                }
+            }
+            return getMaxMs();
+        }
+
+        /**
+         * 各桶的计数，与 getBucketBoundsMs() 一一对应，多出的最后一项为超出所有上限的计数
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+    }
+
+    /**
+     * 单个接口的统计，snapshot() 返回的是副本
+     */
+    public static class EndpointStats {
+        public final String endpoint;
+        private long calls;
+        private long failures;
+        private long cacheHits;
+        private long conditionalHits;
+        private long requestBytes;
+        private long responseBytes;
+        private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new PhaseStats());
+            }
+        }
+
+        EndpointStats(EndpointStats other) {
+            this.endpoint = other.endpoint;
+            this.calls = other.calls;
+            this.failures = other.failures;
+            this.cacheHits = other.cacheHits;
+            this.conditionalHits = other.conditionalHits;
+            this.requestBytes = other.requestBytes;
+            this.responseBytes = other.responseBytes;
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new PhaseStats(other.phases.get(phase)));
+            }
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getConditionalHits() {
+            return conditionalHits;
+        }
+
+        /**
+         * 发送的字节数（请求头 + 请求体）
+         */
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        /**
+         * 从网络收到的字节数（响应头 + 响应体，响应体为解压前的大小），命中缓存的调用不计入
+         */
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public PhaseStats getPhase(Phase phase) {
+            return phases.get(phase);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(endpoint)
+                    .append("{calls=").append(calls)
+                    .append(", failures=").append(failures)
+                    .append(", cacheHits=").append(cacheHits)
+                    .append(", conditionalHits=").append(conditionalHits)
+                    .append(", sent=").append(requestBytes)
+                    .append("B, received=").append(responseBytes).append('B');
+            for (Phase phase : Phase.values()) {
+                PhaseStats stats = phases.get(phase);
+                if (stats.getCount() > 0) {
+                    builder.append(String.format(Locale.ROOT, ", %s p50=%.0fms p95=%.0fms max=%.0fms",
+                            phase, stats.getPercentileMs(50), stats.getPercentileMs(95), stats.getMaxMs()));
+                }
+            }
+            return builder.append('}').toString();
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<String, EndpointStats> statsByEndpoint = new LinkedHashMap<>();
+
+    NetworkMetrics(NetworkConfig config) {
+        this.enabled = config.isMetricsEnabled();
+    }
+
+    /**
+     * 添加到 OkHttpClient 的 EventListener 工厂，每个调用一个监听器
+     */
+    EventListener.Factory eventListenerFactory() {
+        return call -> enabled ? new CallListener() : EventListener.NONE;
+    }
+
+    /**
+     * 一次调用结束后合并到对应接口的统计
+     */
+    private synchronized void record(Endpoint endpoint, long[] phaseNanos, boolean failed,
+                                     boolean cacheHit, boolean conditionalHit,
+                                     long requestBytes, long responseBytes) {
+        String key = endpoint.key;
+        if (!statsByEndpoint.containsKey(key) && statsByEndpoint.size() >= MAX_ENDPOINTS) {
+            key = endpoint.fallbackKey;
+        }
+        EndpointStats stats = statsByEndpoint.get(key);
+        if (stats == null) {
+            stats = new EndpointStats(key);
+            statsByEndpoint.put(key, stats);
+        }
+        stats.calls++;
+        if (failed) {
+            stats.failures++;
+        }
+        if (cacheHit) {
+            stats.cacheHits++;
+        }
+        if (conditionalHit) {
+            stats.conditionalHits++;
+        }
+        stats.requestBytes += requestBytes;
+        stats.responseBytes += responseBytes;
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos >= 0) {
+                stats.phases.get(phase).add(nanos);
+            }
+        }
+    }
+
+    /**
+     * 各接口统计的副本，按第一次调用的顺序排列
+     */
+    public synchronized List<EndpointStats> snapshot() {
+        List<EndpointStats> copies = new ArrayList<>(statsByEndpoint.size());
+        for (EndpointStats stats : statsByEndpoint.values()) {
+            copies.add(new EndpointStats(stats));
+        }
+        return copies;
+    }
+
+    public synchronized void reset() {
+        statsByEndpoint.clear();
+    }
+
+    public static long[] getBucketBoundsMs() {
+        return BUCKET_BOUNDS_MS.clone();
+    }
+
+    /**
+     * 把当前统计输出到日志，用于调试
+     */
+    public void dump() {
+        for (EndpointStats stats : snapshot()) {
+            Log.i(TAG, stats.toString());
+        }
+    }
+
+    /**
+     * 以 CSV 导出各接口各阶段的统计和直方图，每行一个接口的一个阶段
+     */
+    public void exportCsv(Writer writer) throws IOException {
+        StringBuilder header = new StringBuilder(
+                "endpoint,phase,calls,failures,cache_hits,conditional_hits,request_bytes,response_bytes," +
+                "count,avg_ms,p50_ms,p95_ms,p99_ms,max_ms");
+        for (long bound : BUCKET_BOUNDS_MS) {
+            header.append(",le_").append(bound).append("ms");
+        }
+        header.append(",gt_").append(BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1]).append("ms\n");
+        writer.write(header.toString());
+
+        for (EndpointStats stats : snapshot()) {
+            for (Phase phase : Phase.values()) {
+                PhaseStats phaseStats = stats.getPhase(phase);
+                StringBuilder line = new StringBuilder();
+                line.append('"').append(stats.endpoint.replace("\"", "\"\"")).append('"')
+                        .append(',').append(phase)
+                        .append(',').append(stats.calls)
+                        .append(',').append(stats.failures)
+                        .append(',').append(stats.cacheHits)
+                        .append(',').append(stats.conditionalHits)
+                        .append(',').append(stats.requestBytes)
+                        .append(',').append(stats.responseBytes)
+                        .append(',').append(phaseStats.getCount())
+                        .append(String.format(Locale.ROOT, ",%.2f,%.2f,%.2f,%.2f,%.2f",
+                                phaseStats.getAverageMs(), phaseStats.getPercentileMs(50),
+                                phaseStats.getPercentileMs(95), phaseStats.getPercentileMs(99),
+                                phaseStats.getMaxMs()));
+                for (long count : phaseStats.buckets) {
+                    line.append(',').append(count);
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * 调用所属的接口：按路径区分的键，和超出数量上限或动态地址时使用的"方法 + 主机/*"
+     */
+    private static final class Endpoint {
+        final String key;
+        final String fallbackKey;
+
+        Endpoint(Request request) {
+            HttpUrl url = request.url();
+            fallbackKey = request.method() + " " + url.host() + "/*";
+            key = isFixedPath(request) ? request.method() + " " + url.host() + url.encodedPath() : fallbackKey;
+        }
+
+        /**
+         * 由 ApiService 的方法发起、且地址不是 @Url 参数传入的请求
+         */
+        private static boolean isFixedPath(Request request) {
+            Invocation invocation = request.tag(Invocation.class);
+            if (invocation == null) {
+                return false;
+            }
+            for (Annotation[] annotations : invocation.method().getParameterAnnotations()) {
+                for (Annotation annotation : annotations) {
+                    if (annotation instanceof Url) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 单个调用的监听器，只在该调用的线程上按顺序回调
+     * 缓存拦截器先于连接，命中缓存的调用只有 callStart / cacheHit / callEnd
+     */
+    private class CallListener extends EventListener {
+        private Endpoint endpoint;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long requestEnd;
+        private long responseBodyStart;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private boolean cacheHit;
+        private boolean conditionalHit;
+        private long requestBytes;
+        private long responseBytes;
+
+        CallListener() {
+            Arrays.fill(phaseNanos, -1);
+        }
+
+        private void add(Phase phase, long start) {
+            if (start == 0) {
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            int index = phase.ordinal();
+            // 重试或多次连接时累加
+            phaseNanos[index] = phaseNanos[index] < 0 ? nanos : phaseNanos[index] + nanos;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            endpoint = new Endpoint(call.request());
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            add(Phase.DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            add(Phase.TLS, secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            add(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            add(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            requestBytes += request.headers().byteCount();
+            requestEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestBytes += byteCount;
+            requestEnd = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (requestStart != 0) {
+                phaseNanos[Phase.REQUEST.ordinal()] = requestEnd - requestStart;
+            }
+            add(Phase.TTFB, requestEnd);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            responseBytes += response.headers().byteCount();
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            responseBytes += byteCount;
+            add(Phase.RESPONSE_BODY, responseBodyStart);
+        }
+
+        @Override
+        public void cacheHit(Call call, Response response) {
+            cacheHit = true;
+        }
+
+        @Override
+        public void cacheConditionalHit(Call call, Response cachedResponse) {
+            conditionalHit = true;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(false);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            if (endpoint == null) {
+                return;
+            }
+            add(Phase.TOTAL, callStart);
+            record(endpoint, phaseNanos, failed, cacheHit, conditionalHit, requestBytes, responseBytes);
+            endpoint = null;
+        }
+    }
+}
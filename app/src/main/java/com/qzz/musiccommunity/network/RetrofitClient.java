@@ -1,44 +1,116 @@
 package com.qzz.musiccommunity.network;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
+    private static final String TAG = "RetrofitClient";
     private static final String BASE_URL = "https://hotfix-service-prod.g.mi.com/";
+
+    // HTTP 磁盘缓存
+    private static final String HTTP_CACHE_DIR = "http-cache";
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
+    // 服务器没有返回缓存头时，响应的有效期
+    private static final int DEFAULT_MAX_AGE_SECONDS = 60;
+    // 缓存过期后仍可先显示、同时在后台更新的时间
+    private static final int STALE_WINDOW_SECONDS = 24 * 60 * 60;
+    // 使用 stale-while-revalidate 缓存策略的接口，只有首页；歌词等其他请求按服务器的缓存头处理
+    private static final Set<String> CACHED_ENDPOINTS = Collections.singleton(BASE_URL + "music/homePage");
+
+    /**
+     * 请求头 Cache-Control 的取值：不使用过期的缓存，有缓存时发起条件请求（用于用户主动刷新）
+     */
+    public static final String CACHE_CONTROL_REVALIDATE = "max-age=0";
+
+    // 调试版导出网络统计的文件名
+    private static final String METRICS_EXPORT_FILE = "network-metrics.csv";
+
     private static RetrofitClient instance;
+    private static NetworkConfig config = NetworkConfig.defaults();
+    private final Context context;
     private Retrofit retrofit;
     private ApiService apiService;
+    private final Cache httpCache;
+    private final HttpCacheStats cacheStats = new HttpCacheStats();
+    private final NetworkMetrics metrics;
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private RetrofitClient(Context context, NetworkConfig networkConfig) {
+        this.context = context;
+        metrics = new NetworkMetrics(networkConfig);
+        Log.d(TAG, "网络配置: " + networkConfig);
 
-    private RetrofitClient() {
-        // 添加日志拦截器
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+        httpCache = new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
+        StaleWhileRevalidateInterceptor cacheInterceptor =
+                new StaleWhileRevalidateInterceptor(STALE_WINDOW_SECONDS, cacheStats, CACHED_ENDPOINTS);
 
         // 创建OkHttpClient
-        OkHttpClient client = new OkHttpClient.Builder()
-                .addInterceptor(loggingInterceptor)
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .cache(httpCache)
+                .eventListenerFactory(metrics.eventListenerFactory())
+                .addInterceptor(cacheInterceptor);
+        // 完整内容的日志需要把响应体读入内存，默认关闭，打开时也只抽样记录
+        if (networkConfig.isBodyLoggingEnabled()) {
+            builder.addInterceptor(new SampledBodyLoggingInterceptor(networkConfig.getBodyLoggingSampleRate()));
+        }
+        OkHttpClient client = builder
+                .addNetworkInterceptor(StaleWhileRevalidateInterceptor.networkInterceptor(DEFAULT_MAX_AGE_SECONDS, CACHED_ENDPOINTS))
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(15, TimeUnit.SECONDS)
                 .writeTimeout(15, TimeUnit.SECONDS)
                 .build();
+        cacheInterceptor.attach(client);
+
+        // 首页接口的数据使用流式解析，不走反射
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new FeedTypeAdapterFactory())
+                .create();
 
         // 创建Retrofit实例
         retrofit = new Retrofit.Builder()
                 .baseUrl(BASE_URL)
                 .client(client)
-                .addConverterFactory(GsonConverterFactory.create())
+                // 同时发起的相同请求共享一次网络调用
+                .addCallAdapterFactory(singleFlight.callAdapterFactory())
+                .addConverterFactory(GsonConverterFactory.create(gson))
                 .build();
 
         apiService = retrofit.create(ApiService.class);
     }
 
-    public static synchronized RetrofitClient getInstance() {
+    /**
+     * 设置网络配置，必须在第一次调用 getInstance() 之前调用
+     */
+    public static synchronized void setConfig(NetworkConfig networkConfig) {
+        if (instance != null) {
+            Log.w(TAG, "网络客户端已创建，配置修改不生效");
+            return;
+        }
+        config = networkConfig;
+    }
+
+    public static synchronized RetrofitClient getInstance(Context context) {
         if (instance == null) {
-            instance = new RetrofitClient();
+            instance = new RetrofitClient(context.getApplicationContext(), config);
         }
         return instance;
     }
@@ -46,5 +118,53 @@ public class RetrofitClient {
     public ApiService getApiService() {
         return apiService;
     }
-}
 
+    /**
+     * HTTP 缓存的命中、未命中和重新验证次数
+     */
+    public HttpCacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * 相同请求的合并次数
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * 各接口的分阶段耗时和流量统计
+     */
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 导出网络统计（CSV）到应用的外部文件目录，只在可调试的版本中可用
+     * @return 导出的文件，不是调试版或导出失败时返回null
+     */
+    public File exportMetricsForDebug() {
+        if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            Log.w(TAG, "只有调试版可以导出网络统计");
+            return null;
+        }
+        File dir = context.getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : context.getFilesDir(), METRICS_EXPORT_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            metrics.exportCsv(writer);
+            Log.i(TAG, "网络统计已导出到 " + file.getAbsolutePath() + "，" + cacheStats + "，" + singleFlight);
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "导出网络统计失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * HTTP 磁盘缓存，用于查看大小或清空
+     */
+    public Cache getHttpCache() {
+        return httpCache;
+    }
+}
@@ -0,0 +1,31 @@
+package com.qzz.musiccommunity.network;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * 按比例抽样记录请求和响应的完整内容
+ * 未抽中的请求直接放行，响应体不会被读入内存
+ */
+class SampledBodyLoggingInterceptor implements Interceptor {
+
+    private final HttpLoggingInterceptor bodyLogger = new HttpLoggingInterceptor();
+    private final double sampleRate;
+
+    SampledBodyLoggingInterceptor(double sampleRate) {
+        this.sampleRate = sampleRate;
+        bodyLogger.setLevel(HttpLoggingInterceptor.Level.BODY);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return bodyLogger.intercept(chain);
+        }
+        return chain.proceed(chain.request());
+    }
+}
@@ -0,0 +1,390 @@
+package com.qzz.musiccommunity.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * 相同请求的合并（single-flight）
+ *
+ * 同时发起的相同 GET 请求（方法、URL 和 Cache-Control 请求头都相同）只进行一次网络调用，所有调用方共享结果
+ * 每个调用方拿到的是自己的 Call：cancel() 只让这个调用方退出并收到 "Canceled" 失败回调，
+ * 最后一个调用方退出时才取消实际的网络调用
+ * 响应体是 ResponseBody 时先读入内存，每个调用方得到一份副本；
+ * 其他类型（例如 BaseResponse<PagedData<ModuleConfig>> 及其中的 records、listItems）是所有调用方共享的同一个对象，
+ * 调用方只能读取，需要修改时先复制（例如把列表项 addAll 到自己的列表）
+ * 通过 callAdapterFactory() 添加到 Retrofit 后，ApiService 的所有 Call 自动合并
+ */
+public class SingleFlight {
+    private static final String TAG = "SingleFlight";
+
+    // 正在进行的调用，按请求的键区分
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+    private long flightCount = 0;
+    private long joinedCount = 0;
+
+    /**
+     * 一次实际的网络调用和等待它的调用方
+     */
+    private static final class Flight<T> {
+        final String key;
+        final Call<T> call;
+        final List<SharedCall<T>> waiters = new ArrayList<>();
+        boolean done;
+
+        Flight(String key, Call<T> call) {
+            this.key = key;
+            this.call = call;
+        }
+    }
+
+    /**
+     * 添加到 Retrofit.Builder 的 CallAdapter 工厂，返回类型为 Call 的接口方法使用合并后的 Call
+     */
+    public CallAdapter.Factory callAdapterFactory() {
+        return new CallAdapter.Factory() {
+            @Override
+            public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                         @NonNull Retrofit retrofit) {
+                if (getRawType(returnType) != Call.class || !(returnType instanceof ParameterizedType)) {
+                    return null;
+                }
+                Type responseType = getParameterUpperBound(0, (ParameterizedType) returnType);
+                Executor callbackExecutor = retrofit.callbackExecutor();
+                return new CallAdapter<Object, Call<?>>() {
+                    @Override
+                    public Type responseType() {
+                        return responseType;
+                    }
+
+                    @Override
+                    public Call<?> adapt(@NonNull Call<Object> call) {
+                        return new SharedCall<>(call, callbackExecutor);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * 实际发起的网络调用次数
+     */
+    public synchronized long getFlightCount() {
+        return flightCount;
+    }
+
+    /**
+     * 加入了已有调用、没有重复请求的次数
+     */
+    public synchronized long getJoinedCount() {
+        return joinedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SingleFlight{flights=" + flightCount + ", joined=" + joinedCount +
+                ", inFlight=" + flights.size() + '}';
+    }
+
+    /**
+     * 只合并 GET 请求；Cache-Control 不同的请求（例如用户主动刷新）不合并
+     */
+    private static String keyOf(Request request) {
+        if (!"GET".equals(request.method())) {
+            return null;
+        }
+        String cacheControl = request.header("Cache-Control");
+        return request.url() + (cacheControl != null ? "|" + cacheControl : "");
+    }
+
+    /**
+     * 加入相同请求的调用，没有时由 call 发起
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void join(SharedCall<T> waiter) {
+        String key = keyOf(waiter.delegate.request());
+        Flight<T> flight;
+        boolean start = false;
+        synchronized (this) {
+            flight = key != null ? (Flight<T>) flights.get(key) : null;
+            if (flight == null) {
+                flight = new Flight<>(key, waiter.delegate);
+                if (key != null) {
+                    flights.put(key, flight);
+                }
+                flightCount++;
+                start = true;
+            } else {
+                joinedCount++;
+                Log.d(TAG, "合并相同的请求: " + key + "，等待的调用方 " + (flight.waiters.size() + 1));
+            }
+            flight.waiters.add(waiter);
+            waiter.flight = flight;
+        }
+        if (start) {
+            Flight<T> started = flight;
+            started.call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    complete(started, response, null);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    complete(started, null, t);
+                }
+            });
+        }
+    }
+
+    /**
+     * 调用方退出；没有其他调用方时取消实际的调用
+     * @return 调用方还在等待（之前没有收到结果）时返回true
+     */
+    private <T> boolean leave(SharedCall<T> waiter) {
+        Flight<T> flight = waiter.flight;
+        if (flight == null) {
+            return false;
+        }
+        boolean cancelFlight;
+        synchronized (this) {
+            if (flight.done || !flight.waiters.remove(waiter)) {
+                return false;
+            }
+            cancelFlight = flight.waiters.isEmpty();
+            if (cancelFlight) {
+                flight.done = true;
+                if (flight.key != null) {
+                    flights.remove(flight.key);
+                }
+            }
+        }
+        if (cancelFlight) {
+            flight.call.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * 实际调用结束，把结果分给所有还在等待的调用方
+     */
+    private <T> void complete(Flight<T> flight, Response<T> response, Throwable error) {
+        List<SharedCall<T>> waiters;
+        synchronized (this) {
+            if (flight.done) {
+                return;
+            }
+            flight.done = true;
+            if (flight.key != null) {
+                flights.remove(flight.key);
+            }
+            waiters = new ArrayList<>(flight.waiters);
+        }
+        // 响应体只能读一次，多个调用方时先读入内存；其他类型的结果直接共享，见类注释
+        byte[] bodyBytes = null;
+        MediaType contentType = null;
+        ResponseBody body = response != null && waiters.size() > 1 ? bodyOf(response) : null;
+        if (body != null) {
+            try {
+                contentType = body.contentType();
+                bodyBytes = body.bytes();
+            } catch (IOException e) {
+                response = null;
+                error = e;
+            }
+        }
+        for (SharedCall<T> waiter : waiters) {
+            waiter.deliver(bodyBytes != null ? withBody(response, bodyBytes, contentType) : response, error);
+        }
+    }
+
+    private static ResponseBody bodyOf(Response<?> response) {
+        if (response.isSuccessful()) {
+            return response.body() instanceof ResponseBody ? (ResponseBody) response.body() : null;
+        }
+        return response.errorBody();
+    }
+
+    /**
+     * 使用新的响应体副本的响应
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Response<T> withBody(Response<T> response, byte[] bytes, MediaType contentType) {
+        ResponseBody copy = ResponseBody.create(bytes, contentType);
+        if (response.isSuccessful()) {
+            return Response.success((T) copy, response.raw());
+        }
+        return Response.error(copy, response.raw());
+    }
+
+    /**
+     * 单个调用方的 Call
+     */
+    private final class SharedCall<T> implements Call<T> {
+        final Call<T> delegate;
+        private final Executor callbackExecutor;
+        // 以下字段由 SingleFlight 的锁保护
+        Flight<T> flight;
+        private boolean executed;
+        private volatile boolean canceled;
+        private Callback<T> callback;
+        // 同步调用的结果
+        private CountDownLatch latch;
+        private Response<T> response;
+        private Throwable error;
+
+        SharedCall(Call<T> delegate, Executor callbackExecutor) {
+            this.delegate = delegate;
+            this.callbackExecutor = callbackExecutor;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            synchronized (SingleFlight.this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                this.callback = callback;
+            }
+            if (canceled) {
+                deliver(null, new IOException("Canceled"));
+                return;
+            }
+            join(this);
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            CountDownLatch done = new CountDownLatch(1);
+            synchronized (SingleFlight.this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                latch = done;
+            }
+            if (canceled) {
+                throw new IOException("Canceled");
+            }
+            join(this);
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待合并的请求时被中断");
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw new IOException(error);
+            }
+            return response;
+        }
+
+        /**
+         * 把结果交给这个调用方，异步调用在 Retrofit 的回调线程上执行
+         */
+        void deliver(Response<T> result, Throwable failure) {
+            if (canceled && failure == null) {
+                // 退出时调用已经结束，按取消处理
+                result = null;
+                failure = new IOException("Canceled");
+            }
+            Response<T> finalResult = result;
+            Throwable finalFailure = failure;
+            Callback<T> target;
+            synchronized (SingleFlight.this) {
+                target = callback;
+                callback = null;
+                response = result;
+                error = failure;
+            }
+            if (latch != null) {
+                latch.countDown();
+                return;
+            }
+            if (target == null) {
+                return;
+            }
+            Runnable notify = () -> {
+                if (finalResult != null) {
+                    target.onResponse(this, finalResult);
+                } else {
+                    target.onFailure(this, finalFailure);
+                }
+            };
+            if (callbackExecutor != null) {
+                callbackExecutor.execute(notify);
+            } else {
+                notify.run();
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            synchronized (SingleFlight.this) {
+                return executed;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            if (leave(this)) {
+                deliver(null, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new SharedCall<>(delegate.clone(), callbackExecutor);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
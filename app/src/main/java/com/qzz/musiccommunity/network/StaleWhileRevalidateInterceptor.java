@@ -0,0 +1,201 @@
+package com.qzz.musiccommunity.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * GET 请求的 stale-while-revalidate 策略，配合 OkHttp 的磁盘缓存（Cache）使用
+ *
+ * 1. 缓存未过期：直接返回缓存，不访问网络
+ * 2. 缓存已过期，但过期时间不超过 staleWindowSeconds：立即返回缓存，同时在后台发起条件请求更新缓存，
+ *    下一次请求得到更新后的内容
+ * 3. 没有缓存或过期太久：正常请求，有缓存时 OkHttp 自动带上 If-None-Match / If-Modified-Since，
+ *    服务器返回 304 时不重新下载
+ * 请求头带 Cache-Control: max-age=0 或 no-cache 时（例如用户下拉刷新）不返回过期的缓存
+ * 服务器响应没有缓存头时由 networkInterceptor() 补上 max-age，响应带 no-store / must-revalidate 时按服务器的要求处理
+ * 只处理构造时指定的接口（不含查询参数的 URL），其他请求（例如歌词下载）原样交给 OkHttp
+ */
+public class StaleWhileRevalidateInterceptor implements Interceptor {
+    private static final String TAG = "HttpCache";
+
+    // OkHttp 在返回过期的缓存时加上的警告头
+    private static final String WARNING_STALE = "110";
+
+    private final int staleWindowSeconds;
+    private final HttpCacheStats stats;
+    private final Set<String> cachedEndpoints;
+    // 正在后台重新验证的 URL，同一个 URL 只发起一次
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private volatile OkHttpClient client;
+
+    /**
+     * 后台重新验证请求的标记，这些请求不再走 stale-while-revalidate
+     */
+    private static final class Revalidation {
+    }
+
+    /**
+     * @param staleWindowSeconds 缓存过期后仍可先返回的时间
+     * @param stats 命中统计
+     * @param cachedEndpoints 使用本策略的接口，不含查询参数的完整 URL
+     */
+    public StaleWhileRevalidateInterceptor(int staleWindowSeconds, HttpCacheStats stats, Set<String> cachedEndpoints) {
+        this.staleWindowSeconds = staleWindowSeconds;
+        this.stats = stats;
+        this.cachedEndpoints = cachedEndpoints;
+    }
+
+    /**
+     * 设置发起后台重新验证的客户端，即添加了本拦截器的客户端
+     */
+    public void attach(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isCachedEndpoint(request, cachedEndpoints)) {
+            return chain.proceed(request);
+        }
+        CacheControl requestCaching = request.cacheControl();
+        boolean mustRevalidate = requestCaching.noCache() || requestCaching.maxAgeSeconds() == 0;
+        if (!"GET".equals(request.method()) || mustRevalidate || request.tag(Revalidation.class) != null) {
+            return record(chain.proceed(request));
+        }
+
+        // 先只查缓存，允许在过期后 staleWindowSeconds 内使用
+        Request cacheOnly = request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(staleWindowSeconds, TimeUnit.SECONDS)
+                        .build())
+                .build();
+        Response cached = chain.proceed(cacheOnly);
+        if (cached.cacheResponse() == null) {
+            // 没有可用的缓存时 OkHttp 返回 504
+            closeQuietly(cached);
+            return record(chain.proceed(request));
+        }
+
+        if (isStale(cached)) {
+            stats.recordStaleHit();
+            revalidateInBackground(request);
+        } else {
+            stats.recordHit();
+        }
+        return cached.newBuilder().request(request).build();
+    }
+
+    /**
+     * 按网络请求的结果记录统计
+     */
+    private Response record(Response response) {
+        Response networkResponse = response.networkResponse();
+        if (networkResponse == null) {
+            if (response.cacheResponse() != null) {
+                stats.recordHit();
+            }
+        } else if (response.cacheResponse() != null) {
+            stats.recordRevalidation(networkResponse.code() == 304);
+        } else {
+            stats.recordMiss();
+        }
+        return response;
+    }
+
+    private static boolean isCachedEndpoint(Request request, Set<String> cachedEndpoints) {
+        HttpUrl endpoint = request.url().newBuilder().query(null).build();
+        return cachedEndpoints.contains(endpoint.toString());
+    }
+
+    private static boolean isStale(Response cached) {
+        for (String warning : cached.headers("Warning")) {
+            if (warning.startsWith(WARNING_STALE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在后台发起条件请求；响应体需要读完，OkHttp 才会把新的内容写入缓存
+     */
+    private void revalidateInBackground(Request request) {
+        OkHttpClient httpClient = client;
+        String url = request.url().toString();
+        if (httpClient == null || !revalidating.add(url)) {
+            return;
+        }
+        Request revalidation = request.newBuilder()
+                .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build())
+                .tag(Revalidation.class, new Revalidation())
+                .build();
+        httpClient.newCall(revalidation).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (body != null) {
+                        body.bytes();
+                    }
+                    Log.d(TAG, "后台重新验证完成: " + url + "，响应码 " +
+                            (response.networkResponse() != null ? response.networkResponse().code() : response.code()));
+                } catch (IOException e) {
+                    stats.recordRevalidationFailure();
+                    Log.w(TAG, "读取重新验证的响应时出错: " + url, e);
+                } finally {
+                    revalidating.remove(url);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                revalidating.remove(url);
+                stats.recordRevalidationFailure();
+                Log.w(TAG, "后台重新验证失败: " + url, e);
+            }
+        });
+    }
+
+    /**
+     * 网络拦截器：服务器响应没有任何缓存头时补上 max-age，使响应可以被缓存
+     * ETag / Last-Modified 保持不变，用于之后的条件请求
+     * @param maxAgeSeconds 补上的有效期
+     * @param cachedEndpoints 补上有效期的接口，与构造参数相同
+     */
+    public static Interceptor networkInterceptor(int maxAgeSeconds, Set<String> cachedEndpoints) {
+        return chain -> {
+            Response response = chain.proceed(chain.request());
+            if (!"GET".equals(chain.request().method()) || !isCachedEndpoint(chain.request(), cachedEndpoints) ||
+                    response.header("Cache-Control") != null || response.header("Expires") != null) {
+                return response;
+            }
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "max-age=" + maxAgeSeconds)
+                    .build();
+        };
+    }
+
+    private static void closeQuietly(Response response) {
+        try {
+            response.close();
+        } catch (Exception ignored) {
+            // 504 响应没有响应体
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.qzz.musiccommunity.network.dto;
 
+import com.qzz.musiccommunity.model.iface.ListItem;
+
 import java.util.List;
 
 public class PagedData<T> {
@@ -8,6 +10,9 @@ public class PagedData<T> {
     private int size;
     private int current;
     private int pages;
+    // 流式解析时由模块直接生成的列表项，不参与序列化；其他来源的数据为null
+    // 合并的请求（见 SingleFlight）中多个调用方共享同一个对象，只能读取
+    private transient List<ListItem> listItems;
 
     // getters and setters
 
@@ -50,4 +55,12 @@ public class PagedData<T> {
     public void setPages(int pages) {
         this.pages = pages;
     }
+
+    public List<ListItem> getListItems() {
+        return listItems;
+    }
+
+    public void setListItems(List<ListItem> listItems) {
+        this.listItems = listItems;
+    }
 }
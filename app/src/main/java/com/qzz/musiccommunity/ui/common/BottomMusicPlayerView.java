@@ -5,6 +5,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.IBinder;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -19,6 +20,9 @@ import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.qzz.musiccommunity.R;
 import com.qzz.musiccommunity.Service.MusicPlayerService;
+import com.qzz.musiccommunity.database.DatabaseHelper;
+import com.qzz.musiccommunity.database.InvalidationTracker;
+import com.qzz.musiccommunity.database.MusicDao;
 import com.qzz.musiccommunity.database.dto.MusicInfo;
 import com.qzz.musiccommunity.instance.MusicManager;
 import com.qzz.musiccommunity.ui.views.MusicPlayer.MusicPlayerActivity;
@@ -40,6 +44,16 @@ public class BottomMusicPlayerView extends FrameLayout {
     private OnBottomPlayerActionListener actionListener;
     private boolean needUpdatePlaybackState = true;
 
+    // 当前显示的歌曲信息，没有变化时不重新设置文字和加载封面
+    private String shownMusicUrl;
+    private String shownSongName;
+    private String shownArtistName;
+    private String shownCoverUrl;
+
+    // 观察当前歌曲在数据库中的信息，其他途径更新了歌曲信息时刷新
+    private InvalidationTracker.Subscription currentMusicSubscription;
+    private String observedMusicUrl;
+
     public interface OnBottomPlayerActionListener {
         void onBottomPlayerClick();
         void onPlaylistButtonClick();
@@ -242,16 +256,24 @@ public class BottomMusicPlayerView extends FrameLayout {
     public void updatePlayerView() {
         MusicInfo currentMusic = musicManager.getCurrentMusic();
         if (currentMusic != null) {
-            tvSongName.setText(currentMusic.getMusicName());
-            tvArtistName.setText(currentMusic.getAuthor());
-            RequestOptions options = new RequestOptions()
-                    .transform(new CircleCrop())
-                    .placeholder(R.drawable.default_album_art)
-                    .error(R.drawable.default_album_art);
-            Glide.with(getContext())
-                    .load(currentMusic.getCoverUrl())
-                    .apply(options)
-                    .into(ivAlbumArt);
+            // onStart、onResume、服务连接等多处都会调用，歌曲信息没有变化时只同步播放状态
+            if (!isShowing(currentMusic)) {
+                shownMusicUrl = currentMusic.getMusicUrl();
+                shownSongName = currentMusic.getMusicName();
+                shownArtistName = currentMusic.getAuthor();
+                shownCoverUrl = currentMusic.getCoverUrl();
+                tvSongName.setText(shownSongName);
+                tvArtistName.setText(shownArtistName);
+                RequestOptions options = new RequestOptions()
+                        .transform(new CircleCrop())
+                        .placeholder(R.drawable.default_album_art)
+                        .error(R.drawable.default_album_art);
+                Glide.with(getContext())
+                        .load(shownCoverUrl)
+                        .apply(options)
+                        .into(ivAlbumArt);
+            }
+            observeCurrentMusic(currentMusic.getMusicUrl());
             if (isServiceBound && musicService != null) {
                 updatePlayPauseButton(musicService.isPlaying());
             }
@@ -260,10 +282,62 @@ public class BottomMusicPlayerView extends FrameLayout {
             }
         } else {
             // 没有当前音乐时隐藏
+            shownMusicUrl = null;
+            observeCurrentMusic(null);
             setVisibility(View.GONE);
         }
     }
 
+    private boolean isShowing(MusicInfo musicInfo) {
+        return TextUtils.equals(shownMusicUrl, musicInfo.getMusicUrl())
+                && TextUtils.equals(shownSongName, musicInfo.getMusicName())
+                && TextUtils.equals(shownArtistName, musicInfo.getAuthor())
+                && TextUtils.equals(shownCoverUrl, musicInfo.getCoverUrl());
+    }
+
+    /**
+     * 切换观察的歌曲，歌曲没有变化时保留原来的观察
+     * @param musicUrl 当前歌曲的URL，为null时取消观察
+     */
+    private void observeCurrentMusic(String musicUrl) {
+        if (TextUtils.equals(musicUrl, observedMusicUrl)) {
+            return;
+        }
+        if (currentMusicSubscription != null) {
+            currentMusicSubscription.cancel();
+            currentMusicSubscription = null;
+        }
+        observedMusicUrl = musicUrl;
+        if (musicUrl == null || !isAttachedToWindow()) {
+            observedMusicUrl = null;
+            return;
+        }
+        MusicDao musicDao = MusicDao.getInstance(getContext());
+        currentMusicSubscription = musicDao.getInvalidationTracker().observe(
+                () -> musicDao.getMusicInfoByUrl(musicUrl),
+                stored -> {
+                    if (musicManager.applyStoredMusicInfo(stored)) {
+                        updatePlayerView();
+                    }
+                },
+                DatabaseHelper.TABLE_MUSIC_INFO);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        MusicInfo currentMusic = musicManager.getCurrentMusic();
+        if (currentMusic != null) {
+            observeCurrentMusic(currentMusic.getMusicUrl());
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        observeCurrentMusic(null);
+        super.onDetachedFromWindow();
+    }
+
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
@@ -38,6 +38,9 @@ public class MusicPlaylistDialog extends DialogFragment implements MusicPlaylist
     private RecyclerView rvMusicList;
     private MusicPlaylistAdapter adapter;
     private MusicManager musicManager;
+    // 列表中显示的播放列表版本和当前歌曲，没有变化时不重新复制播放列表
+    private int shownPlaylistVersion = -1;
+    private MusicInfo shownCurrentMusic;
     private MusicPlayerService.PlayMode currentPlayMode = MusicPlayerService.PlayMode.SEQUENCE;
 
     // 播放列表变化的监听器接口
@@ -118,7 +121,9 @@ public class MusicPlaylistDialog extends DialogFragment implements MusicPlaylist
 
     private void setupRecyclerView() {
         List<MusicInfo> playlist = musicManager.getPlaylist();
-        adapter = new MusicPlaylistAdapter(playlist, musicManager.getCurrentMusic(), this);
+        shownPlaylistVersion = musicManager.getPlaylistVersion();
+        shownCurrentMusic = musicManager.getCurrentMusic();
+        adapter = new MusicPlaylistAdapter(playlist, shownCurrentMusic, this);
         rvMusicList.setLayoutManager(new LinearLayoutManager(getContext()));
         rvMusicList.setAdapter(adapter);
     }
@@ -175,9 +180,18 @@ public class MusicPlaylistDialog extends DialogFragment implements MusicPlaylist
     private void updatePlaylistTitle() {
         String title = getString(R.string.current_playing_count, musicManager.getPlaylistSize());
         tvPlaylistTitle.setText(title);
-        if (adapter != null) {
-            adapter.updatePlaylist(musicManager.getPlaylist(), musicManager.getCurrentMusic());
+        if (adapter == null) {
+            return;
         }
+        // 删除歌曲时对话框和Activity都会调用这里，播放列表已经是最新的就不再复制
+        int version = musicManager.getPlaylistVersion();
+        MusicInfo currentMusic = musicManager.getCurrentMusic();
+        if (version == shownPlaylistVersion && currentMusic == shownCurrentMusic) {
+            return;
+        }
+        shownPlaylistVersion = version;
+        shownCurrentMusic = currentMusic;
+        adapter.updatePlaylist(musicManager.getPlaylist(), currentMusic);
     }
 
     @Override
@@ -222,7 +236,8 @@ public class MusicPlaylistDialog extends DialogFragment implements MusicPlaylist
      * 外部调用此方法通知播放列表发生变化
      */
     public void notifyPlaylistChanged() {
-        if (adapter != null) {
+        // 数据库中的歌曲信息变化时异步回调，对话框可能已经关闭
+        if (adapter != null && isAdded()) {
             updatePlaylistTitle();
         }
     }
@@ -38,6 +38,9 @@ import com.bumptech.glide.request.target.CustomTarget;
 import com.bumptech.glide.request.transition.Transition;
 import com.qzz.musiccommunity.R;
 import com.qzz.musiccommunity.Service.MusicPlayerService;
+import com.qzz.musiccommunity.database.DatabaseHelper;
+import com.qzz.musiccommunity.database.InvalidationTracker;
+import com.qzz.musiccommunity.database.MusicDao;
 import com.qzz.musiccommunity.instance.MusicManager;
 import com.qzz.musiccommunity.database.dto.MusicInfo;
 import com.qzz.musiccommunity.ui.common.musicList.MusicPlaylistDialog;
@@ -88,6 +91,12 @@ public class MusicPlayerActivity extends AppCompatActivity
     private boolean isActivityVisible = false;
     private boolean needToRefreshOnResume = false;
     private boolean isRotationPaused = false;
+    // 已加载的封面和歌词地址，同一首歌反复刷新时不重新加载
+    private String shownCoverUrl;
+    private String shownLyricUrl;
+    // 观察当前歌曲的信息和收藏状态，在其他地方被修改时同步到界面
+    private InvalidationTracker.Subscription currentMusicSubscription;
+    private String observedMusicUrl;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -138,6 +147,8 @@ public class MusicPlayerActivity extends AppCompatActivity
         super.onStop();
         Log.d(TAG, "onStop: 活动不可见");
         needToRefreshOnResume = true;
+        // 界面不可见时立即提交待写入的播放列表和收藏修改
+        musicManager.flushPendingWrites();
     }
 
     /**
@@ -536,6 +547,11 @@ public class MusicPlayerActivity extends AppCompatActivity
         // 清理Handler回调
         mainHandler.removeCallbacks(updateProgressRunnable);
 
+        if (currentMusicSubscription != null) {
+            currentMusicSubscription.cancel();
+            currentMusicSubscription = null;
+        }
+
         // 解绑服务
         unbindMusicService();
 
@@ -599,21 +615,56 @@ public class MusicPlayerActivity extends AppCompatActivity
             tvSongName.setText(musicInfo.getMusicName());
             tvArtistName.setText(musicInfo.getAuthor());
 
-            // 从重试次数0开始加载图片
-            loadCoverImage(musicInfo.getCoverUrl(), 0);
+            // 切歌、删除歌曲、服务回调都会调用这里，封面和歌词没有变化时不重新加载
+            if (shownCoverUrl == null || !shownCoverUrl.equals(musicInfo.getCoverUrl())) {
+                shownCoverUrl = musicInfo.getCoverUrl();
+                // 从重试次数0开始加载图片
+                loadCoverImage(shownCoverUrl, 0);
+            }
 
-            if (lyricFragment != null) {
-                lyricFragment.updateLyric(musicInfo.getLyricUrl());
+            if (lyricFragment != null && (shownLyricUrl == null || !shownLyricUrl.equals(musicInfo.getLyricUrl()))) {
+                shownLyricUrl = musicInfo.getLyricUrl();
+                lyricFragment.updateLyric(shownLyricUrl);
             }
 
             isLiked = musicInfo.isLiked();
             updateLikeButton();
+            observeCurrentMusic(musicInfo.getMusicUrl());
 
         } catch (Exception e) {
             Log.e(TAG, "更新歌曲信息时出错: " + e.getMessage());
         }
     }
 
+    /**
+     * 观察当前歌曲在数据库中的信息和收藏状态，切歌时切换观察对象
+     */
+    private void observeCurrentMusic(String musicUrl) {
+        if (musicUrl == null || musicUrl.equals(observedMusicUrl)) {
+            return;
+        }
+        if (currentMusicSubscription != null) {
+            currentMusicSubscription.cancel();
+        }
+        observedMusicUrl = musicUrl;
+        MusicDao musicDao = MusicDao.getInstance(this);
+        currentMusicSubscription = musicDao.getInvalidationTracker().observe(
+                () -> musicDao.getMusicInfoByUrl(musicUrl),
+                stored -> {
+                    if (isFinishing() || isDestroyed() || !musicManager.applyStoredMusicInfo(stored)) {
+                        return;
+                    }
+                    MusicInfo currentMusic = musicManager.getCurrentMusic();
+                    if (currentMusic != null && musicUrl.equals(currentMusic.getMusicUrl())) {
+                        updateSongInfo(currentMusic);
+                    }
+                    if (currentPlaylistDialog != null) {
+                        currentPlaylistDialog.notifyPlaylistChanged();
+                    }
+                },
+                DatabaseHelper.TABLE_MUSIC_INFO, DatabaseHelper.TABLE_LIKED_MUSIC);
+    }
+
     private void loadCoverImage(String coverUrl, int retryCount) {
         Glide.with(this)
                 .asBitmap()
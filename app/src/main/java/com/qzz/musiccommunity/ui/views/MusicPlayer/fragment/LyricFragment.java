@@ -2,6 +2,7 @@ package com.qzz.musiccommunity.ui.views.MusicPlayer.fragment;
 
 import static android.content.ContentValues.TAG;
 
+import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.graphics.drawable.ColorDrawable;
@@ -24,14 +25,11 @@ import androidx.core.widget.NestedScrollView;
 import androidx.fragment.app.Fragment;
 
 import com.qzz.musiccommunity.R;
+import com.qzz.musiccommunity.network.ApiService;
+import com.qzz.musiccommunity.network.RetrofitClient;
 import com.qzz.musiccommunity.ui.views.MusicPlayer.iface.ColorAwareComponent;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -40,6 +38,10 @@ import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
 public class LyricFragment extends Fragment implements ColorAwareComponent {
 
     private NestedScrollView scrollView;
@@ -48,6 +50,11 @@ public class LyricFragment extends Fragment implements ColorAwareComponent {
     private List<TextView> lyricTextViews = new ArrayList<>();
     private int currentHighlightIndex = -1;
     private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private ApiService apiService;
+    // 正在下载的歌词，换歌或界面销毁时取消；相同的歌词同时被多处加载时只下载一次
+    private volatile Call<ResponseBody> lyricCall;
+    // 正在加载的歌词URL，重复调用 updateLyric() 时不再排队下载
+    private volatile String loadingLyricUrl;
     // 记录背景色，默认为深色背景
     private int backgroundColor = Color.BLACK;
 
@@ -89,6 +96,12 @@ public class LyricFragment extends Fragment implements ColorAwareComponent {
         }
     }
 
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        apiService = RetrofitClient.getInstance(context).getApiService();
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -227,59 +240,92 @@ public class LyricFragment extends Fragment implements ColorAwareComponent {
 
     public void updateLyric(String lyricUrl) {
         if (lyricUrl == null || lyricUrl.isEmpty()) {
+            cancelLyricDownload();
             showDefaultLyric();
             return;
         }
+        if (lyricUrl.equals(loadingLyricUrl)) {
+            // 同一首歌的歌词正在加载，完成后会显示
+            return;
+        }
+        // 换歌后不再等待上一首的歌词
+        cancelLyricDownload();
+        loadingLyricUrl = lyricUrl;
 
         executorService.execute(() -> {
+            boolean posted = false;
             try {
                 String lyricContent = downloadLyric(lyricUrl);
                 List<LyricLine> parsedLyrics = parseLyric(lyricContent);
 
-                if (getActivity() != null) {
+                // 下载期间已经换歌时不再显示
+                if (lyricUrl.equals(loadingLyricUrl) && getActivity() != null) {
+                    posted = true;
                     getActivity().runOnUiThread(() -> {
+                        // 切换到主线程之前也可能已经换歌
+                        if (!lyricUrl.equals(loadingLyricUrl)) {
+                            return;
+                        }
+                        loadingLyricUrl = null;
                         lyricLines = parsedLyrics;
                         displayLyrics();
                     });
                 }
             } catch (Exception e) {
+                if (!lyricUrl.equals(loadingLyricUrl)) {
+                    // 已经取消，正在加载其他歌词
+                    return;
+                }
                 e.printStackTrace();
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(this::showDefaultLyric);
                 }
+            } finally {
+                // 已交给主线程显示时由主线程清除
+                if (!posted && lyricUrl.equals(loadingLyricUrl)) {
+                    loadingLyricUrl = null;
+                }
             }
         });
     }
 
-    private String downloadLyric(String lyricUrl) throws IOException {
-        return downloadLyricWithRetry(lyricUrl, 0);
+    /**
+     * 取消正在下载的歌词，只有没有其他地方在等待同一个歌词时才会真正中断下载
+     */
+    private void cancelLyricDownload() {
+        loadingLyricUrl = null;
+        Call<ResponseBody> call = lyricCall;
+        if (call != null) {
+            call.cancel();
+        }
     }
 
-    private String downloadLyricWithRetry(String lyricUrl, int retryCount) throws IOException {
-        try {
-            URL url = new URL(lyricUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            InputStream inputStream = connection.getInputStream();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-
-            StringBuilder content = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-
-            reader.close();
-            inputStream.close();
-            connection.disconnect();
-
-            return content.toString();
-
-        } catch (IOException e) {
-            if (retryCount < 3) {
+    private String downloadLyric(String lyricUrl) throws IOException {
+        if (apiService == null) {
+            throw new IOException("网络服务未初始化");
+        }
+        Call<ResponseBody> call = apiService.downloadLyric(lyricUrl);
+        for (int retryCount = 0; ; retryCount++) {
+            lyricCall = call;
+            try {
+                Response<ResponseBody> response = call.execute();
+                if (!response.isSuccessful() || response.body() == null) {
+                    if (response.errorBody() != null) {
+                        response.errorBody().close();
+                    }
+                    throw new IOException("歌词下载失败，响应码: " + response.code());
+                }
+                try (ResponseBody body = response.body()) {
+                    return body.string();
+                }
+            } catch (IOException e) {
+                if (call.isCanceled()) {
+                    throw e;
+                }
+                if (retryCount >= 3) {
+                    Log.e(TAG, "歌词下载失败，已重试3次: " + e.getMessage());
+                    throw e; // 重试3次后仍失败，抛出原始异常
+                }
                 Log.w(TAG, "歌词下载失败，正在重试: " + (retryCount + 1) + "/3 - " + e.getMessage());
                 try {
                     // 延迟1秒后重试
@@ -288,10 +334,10 @@ public class LyricFragment extends Fragment implements ColorAwareComponent {
                     Thread.currentThread().interrupt();
                     throw new IOException("重试过程被中断", ie);
                 }
-                return downloadLyricWithRetry(lyricUrl, retryCount + 1);
-            } else {
-                Log.e(TAG, "歌词下载失败，已重试3次: " + e.getMessage());
-                throw e; // 重试3次后仍失败，抛出原始异常
+                if (call.isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                call = call.clone();
             }
         }
     }
@@ -475,6 +521,7 @@ public class LyricFragment extends Fragment implements ColorAwareComponent {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        cancelLyricDownload();
         if (executorService != null) {
             executorService.shutdown();
         }
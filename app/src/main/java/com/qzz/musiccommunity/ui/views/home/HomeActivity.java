@@ -4,6 +4,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
@@ -20,6 +21,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.qzz.musiccommunity.R;
 import com.qzz.musiccommunity.Service.MusicPlayerService;
+import com.qzz.musiccommunity.database.ModuleDao;
 import com.qzz.musiccommunity.instance.MusicManager;
 import com.qzz.musiccommunity.model.BannerItem;
 import com.qzz.musiccommunity.model.HorizontalCardItem;
@@ -45,6 +47,9 @@ import com.scwang.smart.refresh.layout.listener.OnRefreshListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -57,6 +62,8 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
     // UI组件
     private RecyclerView recyclerViewSwipe;
     private MultiTypeAdapter adapter;
+    // 列表项绑定时成员索引的版本
+    private int boundMembershipVersion = -1;
     private SmartRefreshLayout swipeRefreshLayout;
 
     // 底部播放器
@@ -68,10 +75,22 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
     private ApiService apiService;
     private List<ListItem> currentData = new ArrayList<>();
 
+    // 首页缓存：启动时先显示上次保存的页，网络返回后再替换
+    private ModuleDao moduleDao;
+    private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // 列表当前显示的是缓存内容，还没有被网络数据替换
+    private boolean showingCachedData = false;
+    // 显示的缓存页，用于与网络返回的第1页比较
+    private List<PagedData<ModuleConfig>> cachedPages = new ArrayList<>();
+    // 已经显示过网络数据，之后读完的缓存不再显示
+    private boolean networkDataShown = false;
+
     // 分页参数
     private int currentPage = 1;
     private final int pageSize = 10;
     private boolean isLoading = false;
+    // 加载更多由预加载分页器负责，页大小从 pageSize 开始自适应
+    private HomePagePrefetcher prefetcher;
 
     // Handler for UI operations
     private Handler mainHandler;
@@ -114,6 +133,9 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         try {
             initializeComponents();
 
+            // 先显示缓存的首页，不等网络
+            loadCachedHomePage();
+
             // 绑定音乐播放服务
             bindMusicService();
 
@@ -151,6 +173,9 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
             bottomMusicPlayerView.registerPlaybackStateChangeListener();
             bottomMusicPlayerView.updatePlayerView();
         }
+
+        // 在播放页收藏或修改了播放列表后，刷新卡片上的标记
+        refreshMembershipBadges();
     }
 
     @Override
@@ -163,6 +188,18 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // 界面不可见时立即提交待写入的播放列表和收藏修改
+        MusicManager.getInstance(this).flushPendingWrites();
+        // 调试版在界面进入后台时导出网络统计，导出写文件，放到后台线程
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0 && !executorService.isShutdown()) {
+            RetrofitClient client = RetrofitClient.getInstance(this);
+            executorService.execute(client::exportMetricsForDebug);
+        }
+    }
+
     /**
      * 绑定音乐播放服务
      */
@@ -204,6 +241,26 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         // 初始化网络服务
         initNetworkService();
 
+        moduleDao = ModuleDao.getInstance(this);
+
+        prefetcher = new HomePagePrefetcher(apiService,
+                PrefetchConfig.defaults().setBasePageSize(pageSize), new HomePagePrefetcher.Listener() {
+            @Override
+            public void onPageReady(PagedData<ModuleConfig> page) {
+                handleNextPage(page);
+            }
+
+            @Override
+            public void onPageFailed(Throwable t) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                finishRefreshAndLoadMore();
+                Log.e(TAG, "加载更多失败", t);
+                showError("加载更多失败: " + getErrorMessage(t));
+            }
+        });
+
         // 设置RecyclerView
         setupRecyclerView();
 
@@ -246,7 +303,7 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
      */
     private void initNetworkService() {
         try {
-            apiService = RetrofitClient.getInstance().getApiService();
+            apiService = RetrofitClient.getInstance(this).getApiService();
             if (apiService == null) {
                 throw new IllegalStateException("ApiService初始化失败");
             }
@@ -274,6 +331,24 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
 
             recyclerViewSwipe.setAdapter(adapter);
 
+            // 按滑动位置和速度提前加载下一页
+            recyclerViewSwipe.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    if (dy <= 0 || isLoading || prefetcher == null) {
+                        return;
+                    }
+                    prefetcher.onScrolled(layoutManager.findLastVisibleItemPosition(), adapter.getItemCount());
+                }
+
+                @Override
+                public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                    if (newState == RecyclerView.SCROLL_STATE_IDLE && prefetcher != null) {
+                        prefetcher.onScrollIdle();
+                    }
+                }
+            });
+
             Log.d(TAG, "RecyclerView设置完成，初始适配器ItemCount: " + adapter.getItemCount());
 
         } catch (Exception e) {
@@ -407,7 +482,8 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
                     Log.d(TAG, "用户触发下拉刷新");
                     // 重置无更多数据状态
                     refreshLayout.resetNoMoreData();
-                    loadHomePageData(true);
+                    // 用户主动刷新，不使用过期的 HTTP 缓存
+                    loadHomePageData(true, RetrofitClient.CACHE_CONTROL_REVALIDATE);
                 }
             });
 
@@ -438,10 +514,112 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         }
     }
 
+    /**
+     * 在后台读取缓存的首页并显示，网络数据已经显示时忽略
+     */
+    private void loadCachedHomePage() {
+        executorService.execute(() -> {
+            List<PagedData<ModuleConfig>> pages = moduleDao.loadCachedPages(pageSize);
+            if (pages.isEmpty()) {
+                return;
+            }
+            List<ListItem> items = new ArrayList<>();
+            for (PagedData<ModuleConfig> page : pages) {
+                items.addAll(DataConverter.convertToListItems(page.getRecords()));
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed() || networkDataShown || !currentData.isEmpty()) {
+                    return;
+                }
+                cachedPages = pages;
+                showingCachedData = true;
+                currentPage = pages.size();
+                prefetcher.reset(countModules(pages), pages.get(pages.size() - 1).getTotal(), true);
+                currentData.addAll(items);
+                updateAdapter();
+                checkNoMoreData(pages.get(pages.size() - 1));
+                Log.d(TAG, "显示缓存的首页 " + pages.size() + " 页，共 " + items.size() + " 项");
+            });
+        });
+    }
+
+    /**
+     * 在后台保存从网络获取的一页
+     */
+    private void saveHomePage(PagedData<ModuleConfig> pagedData) {
+        saveHomePage(pagedData, false);
+    }
+
+    /**
+     * @param dropOtherPages 同时删除数据库中缓存的其他页
+     */
+    private void saveHomePage(PagedData<ModuleConfig> pagedData, boolean dropOtherPages) {
+        if (moduleDao == null || executorService.isShutdown()) {
+            return;
+        }
+        executorService.execute(() -> moduleDao.savePage(pagedData, dropOtherPages));
+    }
+
+    private static int countModules(List<PagedData<ModuleConfig>> pages) {
+        int count = 0;
+        for (PagedData<ModuleConfig> page : pages) {
+            count += page.getRecords() != null ? page.getRecords().size() : 0;
+        }
+        return count;
+    }
+
+    /**
+     * 网络返回的第1页与显示的缓存第1页是否相同（模块和其中的歌曲都相同）
+     */
+    private boolean matchesCachedFirstPage(List<ModuleConfig> moduleConfigs) {
+        if (cachedPages.isEmpty()) {
+            return false;
+        }
+        List<ModuleConfig> cached = cachedPages.get(0).getRecords();
+        if (cached == null || cached.size() != moduleConfigs.size()) {
+            return false;
+        }
+        for (int i = 0; i < cached.size(); i++) {
+            ModuleConfig a = cached.get(i);
+            ModuleConfig b = moduleConfigs.get(i);
+            if (a.getModuleConfigId() != b.getModuleConfigId() || a.getStyle() != b.getStyle() ||
+                    !Objects.equals(a.getModuleName(), b.getModuleName()) ||
+                    !sameMusicUrls(a.getMusicInfoList(), b.getMusicInfoList())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameMusicUrls(List<MusicInfo> a, List<MusicInfo> b) {
+        int sizeA = a == null ? 0 : a.size();
+        int sizeB = b == null ? 0 : b.size();
+        if (sizeA != sizeB) {
+            return false;
+        }
+        for (int i = 0; i < sizeA; i++) {
+            MusicInfo musicA = a.get(i);
+            MusicInfo musicB = b.get(i);
+            if (!Objects.equals(musicA.getMusicUrl(), musicB.getMusicUrl()) ||
+                    !Objects.equals(musicA.getMusicName(), musicB.getMusicName()) ||
+                    !Objects.equals(musicA.getCoverUrl(), musicB.getCoverUrl())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 修正后的网络请求方法
      */
     private void loadHomePageData(boolean isRefresh) {
+        loadHomePageData(isRefresh, null);
+    }
+
+    /**
+     * @param cacheControl 请求头 Cache-Control，为null时允许直接使用 HTTP 缓存
+     */
+    private void loadHomePageData(boolean isRefresh, String cacheControl) {
         if (isLoading || isFinishing() || isDestroyed()) {
             Log.w(TAG, "数据正在加载中或Activity状态异常，跳过请求");
             finishRefreshAndLoadMore();
@@ -458,6 +636,8 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
 
         if (isRefresh) {
             currentPage = 1;
+            // 刷新期间不再追加旧列表的下一页
+            prefetcher.cancel();
             Log.d(TAG, "刷新数据，重置页码到1");
         } else {
             Log.d(TAG, "加载第" + currentPage + "页数据");
@@ -465,7 +645,7 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
 
         cancelCurrentRequest();
 
-        currentCall = apiService.getHomePage(currentPage, pageSize);
+        currentCall = apiService.getHomePage(currentPage, pageSize, cacheControl);
         currentCall.enqueue(new Callback<BaseResponse<PagedData<ModuleConfig>>>() {
             @Override
             public void onResponse(@NonNull Call<BaseResponse<PagedData<ModuleConfig>>> call,
@@ -516,7 +696,11 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
 
                     if (!call.isCanceled()) {
                         Log.e(TAG, "网络请求失败", t);
-                        showError("网络请求失败: " + getErrorMessage(t));
+                        if (showingCachedData && isRefresh) {
+                            showToast("网络不可用，当前显示的是缓存内容");
+                        } else {
+                            showError("网络请求失败: " + getErrorMessage(t));
+                        }
                     }
                 });
             }
@@ -534,6 +718,10 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
                 if (baseResponse.getCode() == 200 && baseResponse.getData() != null) {
                     PagedData<ModuleConfig> pagedData = baseResponse.getData();
                     List<ModuleConfig> moduleConfigs = pagedData.getRecords();
+                    // 第1页与显示的缓存一致时保留缓存的后续页；否则后续页已经错位，一起删除
+                    boolean keepCachedPages = isRefresh && showingCachedData && moduleConfigs != null &&
+                            matchesCachedFirstPage(moduleConfigs);
+                    saveHomePage(pagedData, pagedData.getCurrent() <= 1 && !keepCachedPages);
 
                     if (moduleConfigs != null && !moduleConfigs.isEmpty()) {
                         processSuccessfulData(moduleConfigs, pagedData, isRefresh);
@@ -560,8 +748,22 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
      */
     private void processSuccessfulData(List<ModuleConfig> moduleConfigs, PagedData<ModuleConfig> pagedData, boolean isRefresh) {
         try {
+            if (isRefresh && showingCachedData && matchesCachedFirstPage(moduleConfigs)) {
+                // 第1页没有变化，继续显示缓存的所有页，加载更多从缓存的最后一页之后开始
+                showingCachedData = false;
+                networkDataShown = true;
+                currentPage = cachedPages.size();
+                prefetcher.reset(countModules(cachedPages), pagedData.getTotal(), true);
+                Log.d(TAG, "网络数据与缓存一致，保留缓存的 " + cachedPages.size() + " 页");
+                checkNoMoreData(cachedPages.get(cachedPages.size() - 1));
+                return;
+            }
+            showingCachedData = false;
+            networkDataShown = true;
+
             // 转换数据
-            List<ListItem> newItems = DataConverter.convertToListItems(moduleConfigs);
+            // 流式解析时已经生成了列表项，不需要再转换一遍
+            List<ListItem> newItems = DataConverter.convertToListItems(pagedData);
             Log.d(TAG, "转换得到 " + newItems.size() + " 个数据项");
 
             // 修正：对于初始加载或刷新，使用刷新逻辑
@@ -570,6 +772,10 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
                 currentData.clear();
                 currentData.addAll(newItems);
                 updateAdapter();
+                if (isRefresh) {
+                    // 内容可能已经变化，内存中缓存的后续页不再使用
+                    prefetcher.reset(moduleConfigs.size(), pagedData.getTotal(), false);
+                }
                 Log.d(TAG, "刷新完成，当前数据总数: " + currentData.size());
             } else {
                 // 加载更多：追加数据
@@ -595,9 +801,12 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
      * 处理空数据
      */
     private void processEmptyData(boolean isRefresh) {
+        showingCachedData = false;
+        networkDataShown = true;
         if (isRefresh || currentData.isEmpty()) {
             currentData.clear();
             updateAdapter();
+            prefetcher.reset(0, 0, false);
             showToast("暂无数据");
         } else {
             setNoMoreData();
@@ -619,8 +828,35 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
      * 辅助方法：加载更多数据
      */
     private void loadMoreData() {
-        currentPage++;
-        loadHomePageData(false);
+        if (isLoading) {
+            // 正在刷新，刷新完成后再加载更多
+            finishRefreshAndLoadMore();
+            return;
+        }
+        if (!prefetcher.loadNext()) {
+            finishRefreshAndLoadMore();
+            setNoMoreData();
+        }
+    }
+
+    /**
+     * 预加载分页器取到的下一页，追加到列表
+     */
+    private void handleNextPage(PagedData<ModuleConfig> page) {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        finishRefreshAndLoadMore();
+        // 数据库缓存只保存基础页大小的页，与 loadCachedPages(pageSize) 对应
+        if (page.getSize() == pageSize) {
+            saveHomePage(page);
+        }
+        List<ModuleConfig> moduleConfigs = page.getRecords();
+        if (moduleConfigs != null && !moduleConfigs.isEmpty()) {
+            processSuccessfulData(moduleConfigs, page, false);
+        } else {
+            processEmptyData(false);
+        }
     }
 
     /**
@@ -632,6 +868,17 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         }
     }
 
+    /**
+     * 辅助方法：收藏或播放列表变化后重新绑定列表项，更新"已收藏"、"已在列表"标记
+     */
+    private void refreshMembershipBadges() {
+        int version = MusicManager.getInstance(this).getMembershipIndex().getVersion();
+        if (version != boundMembershipVersion) {
+            boundMembershipVersion = version;
+            updateAdapter();
+        }
+    }
+
     /**
      * 辅助方法：通知适配器插入新项
      */
@@ -706,9 +953,16 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
             bottomMusicPlayerView.unbindMusicService();
         }
         cancelCurrentRequest();
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
         if (mainHandler != null) {
             mainHandler.removeCallbacksAndMessages(null);
         }
+        // 已提交的保存任务会继续执行完
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.shutdown();
+        }
         super.onDestroy();
         Log.d(TAG, "Activity销毁");
     }
@@ -736,6 +990,7 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         Log.d(TAG, "点击了播放按钮: " + musicInfo.getMusicName() + ", 位置: " + position);
         // 将点击的音乐添加到播放列表的开头并设置为当前播放
         MusicManager.getInstance(this).addToPlaylist(musicInfo);
+        refreshMembershipBadges();
 
         // 修正1：添加歌时判断BottomMusicPlayerView显示
         checkAndUpdateBottomPlayerVisibility();
@@ -763,6 +1018,7 @@ public class HomeActivity extends AppCompatActivity implements OnMusicItemClickL
         if(musicService != null){
             musicService.forcePlayAtPosition(position);
         }
+        refreshMembershipBadges();
     }
     @Override
     public void onPlayModeChanged(MusicPlayerService.PlayMode playMode) {
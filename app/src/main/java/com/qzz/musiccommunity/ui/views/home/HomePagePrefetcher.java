@@ -0,0 +1,328 @@
+package com.qzz.musiccommunity.ui.views.home;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.qzz.musiccommunity.network.ApiService;
+import com.qzz.musiccommunity.network.dto.BaseResponse;
+import com.qzz.musiccommunity.network.dto.ModuleConfig;
+import com.qzz.musiccommunity.network.dto.PagedData;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 首页的预加载分页器
+ *
+ * 根据列表滑动的位置和速度提前请求下一页，取到的页先放入内存缓存（按 current 和 size 区分），
+ * 滑到接近末尾或上拉加载时直接从缓存追加，不用等网络
+ * 页大小按滑动速度和请求耗时调整：滑得快、请求慢时一次取更多模块，减少请求次数
+ * 页大小总是基础页大小的整数倍，并且能整除已加载的模块数，保证按 current 和 size 计算的位置连续
+ * 只在主线程使用，Retrofit 的回调在主线程执行
+ */
+class HomePagePrefetcher {
+    private static final String TAG = "HomePagePrefetcher";
+
+    // 请求耗时和滑动速度的平滑系数
+    private static final double SMOOTHING = 0.3;
+    // 还没有请求过时假定的请求耗时
+    private static final long INITIAL_LATENCY_MS = 500;
+    // 自适应页大小时，一页至少要够用户按当前速度滑动多少个请求耗时
+    private static final double PAGE_SIZE_LATENCY_FACTOR = 2.0;
+
+    /**
+     * 取到的页准备好追加到列表时回调
+     */
+    interface Listener {
+        void onPageReady(PagedData<ModuleConfig> page);
+
+        /**
+         * 用户正在等待的页加载失败；后台预加载失败只记录日志
+         */
+        void onPageFailed(Throwable t);
+    }
+
+    /**
+     * 内存缓存中的一页
+     */
+    private static class CachedPage {
+        final PagedData<ModuleConfig> page;
+        final int current;
+        final int size;
+        final long fetchedTime;
+
+        CachedPage(PagedData<ModuleConfig> page, int current, int size, long fetchedTime) {
+            this.page = page;
+            this.current = current;
+            this.size = size;
+            this.fetchedTime = fetchedTime;
+        }
+    }
+
+    private final ApiService apiService;
+    private final PrefetchConfig config;
+    private final Listener listener;
+    private final Map<Long, CachedPage> pageCache;
+
+    // 列表中已有的模块数和服务器返回的模块总数
+    private int loadedCount = 0;
+    private int total = 0;
+    // reset() 时递增，之前发出的请求返回后不再追加
+    private int generation = 0;
+
+    private Call<BaseResponse<PagedData<ModuleConfig>>> inFlightCall;
+    // 用户已经滑到末尾，正在请求的页返回后立即追加
+    private boolean waitingForPage = false;
+    // 上次预加载失败的时间，-1 表示没有失败过
+    private long lastFailureTime = -1;
+
+    private double latencyMs = INITIAL_LATENCY_MS;
+    private double itemsPerSecond = 0;
+    private int lastVisiblePosition = -1;
+    private long lastScrollTime = 0;
+
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+
+    HomePagePrefetcher(ApiService apiService, PrefetchConfig config, Listener listener) {
+        this.apiService = apiService;
+        this.config = config;
+        this.listener = listener;
+        int maxEntries = config.getPageCacheSize();
+        // 按访问顺序淘汰最久未用的页
+        this.pageCache = new LinkedHashMap<Long, CachedPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPage> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Log.d(TAG, "预加载配置: " + config);
+    }
+
+    /**
+     * 列表内容被整体替换后（刷新或显示数据库缓存）调用
+     * @param loadedCount 列表中的模块数
+     * @param total 模块总数
+     * @param keepCache 列表内容与之前一致时保留内存缓存的页，否则清空
+     */
+    void reset(int loadedCount, int total, boolean keepCache) {
+        cancel();
+        generation++;
+        this.loadedCount = loadedCount;
+        this.total = total;
+        if (!keepCache) {
+            pageCache.clear();
+        }
+        Log.d(TAG, "重置分页: 已加载 " + loadedCount + "/" + total + "，保留缓存: " + keepCache);
+    }
+
+    boolean hasMore() {
+        return loadedCount < total && loadedCount % config.getBasePageSize() == 0;
+    }
+
+    /**
+     * 列表滑动时调用，更新滑动速度，并按距离末尾的项数决定是否预加载或追加
+     * @param lastVisiblePosition 最后一个可见项的位置
+     * @param itemCount 列表项总数
+     */
+    void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (lastVisiblePosition < 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (this.lastVisiblePosition >= 0 && now > lastScrollTime) {
+            double speed = Math.max(0, lastVisiblePosition - this.lastVisiblePosition) * 1000.0 / (now - lastScrollTime);
+            itemsPerSecond = itemsPerSecond * (1 - SMOOTHING) + speed * SMOOTHING;
+        }
+        this.lastVisiblePosition = lastVisiblePosition;
+        lastScrollTime = now;
+
+        if (!hasMore()) {
+            return;
+        }
+        int remaining = itemCount - 1 - lastVisiblePosition;
+        boolean canRetry = lastFailureTime < 0 || now - lastFailureTime >= config.getRetryDelayMs();
+        if (remaining <= config.getAppendDistance()) {
+            // 刚失败过时不在滑动中反复重试，上拉加载仍会立即重试
+            if (canRetry || inFlightCall != null || findCachedPage(loadedCount) != null) {
+                loadNext();
+            }
+            return;
+        }
+        // 按当前速度，在请求返回前会滑过的项数
+        int lookahead = (int) Math.ceil(itemsPerSecond * latencyMs / 1000.0);
+        if (remaining <= config.getPrefetchDistance() + lookahead && canRetry &&
+                findCachedPage(loadedCount) == null) {
+            fetchNextPage();
+        }
+    }
+
+    /**
+     * 停止滑动后速度清零
+     */
+    void onScrollIdle() {
+        itemsPerSecond = 0;
+        lastVisiblePosition = -1;
+    }
+
+    /**
+     * 追加下一页：缓存中有时立即回调，否则请求返回后回调
+     * @return 没有更多数据时返回false
+     */
+    boolean loadNext() {
+        if (!hasMore()) {
+            return false;
+        }
+        CachedPage cached = findCachedPage(loadedCount);
+        if (cached != null) {
+            cacheHits++;
+            Log.d(TAG, "从内存缓存追加第 " + cached.current + " 页（每页 " + cached.size + "）");
+            deliver(cached.page);
+            return true;
+        }
+        waitingForPage = true;
+        if (inFlightCall == null) {
+            cacheMisses++;
+            fetchNextPage();
+        }
+        return true;
+    }
+
+    /**
+     * 取消正在进行的请求，不清空缓存
+     */
+    void cancel() {
+        waitingForPage = false;
+        if (inFlightCall != null) {
+            inFlightCall.cancel();
+            inFlightCall = null;
+        }
+    }
+
+    void clearCache() {
+        pageCache.clear();
+    }
+
+    private void deliver(PagedData<ModuleConfig> page) {
+        waitingForPage = false;
+        List<ModuleConfig> records = page.getRecords();
+        loadedCount += records != null ? records.size() : 0;
+        total = page.getTotal();
+        if (records == null || records.isEmpty()) {
+            // 没有更多数据，不再请求
+            total = loadedCount;
+        }
+        Log.d(TAG, "追加到 " + loadedCount + "/" + total + "，缓存命中 " + cacheHits + "，未命中 " + cacheMisses);
+        listener.onPageReady(page);
+    }
+
+    /**
+     * 内存缓存中从 offset 开始的页，过期的页顺便移除
+     */
+    private CachedPage findCachedPage(int offset) {
+        long now = SystemClock.uptimeMillis();
+        CachedPage found = null;
+        Iterator<CachedPage> iterator = pageCache.values().iterator();
+        while (iterator.hasNext()) {
+            CachedPage cached = iterator.next();
+            if (now - cached.fetchedTime > config.getPageCacheTtlMs()) {
+                iterator.remove();
+            } else if (found == null && (cached.current - 1) * cached.size == offset) {
+                found = cached;
+            }
+        }
+        if (found != null) {
+            // 更新访问顺序
+            pageCache.get(cacheKey(found.current, found.size));
+        }
+        return found;
+    }
+
+    /**
+     * 按滑动速度和请求耗时计算下一页的大小
+     */
+    private int nextPageSize() {
+        int base = config.getBasePageSize();
+        double wanted = itemsPerSecond * latencyMs / 1000.0 * PAGE_SIZE_LATENCY_FACTOR;
+        int multiple = Math.max(1, (int) Math.ceil(wanted / base));
+        multiple = Math.min(multiple, config.getMaxPageSize() / base);
+        // 页的起点必须正好是已加载的模块数
+        while (multiple > 1 && loadedCount % (multiple * base) != 0) {
+            multiple--;
+        }
+        return Math.max(1, multiple) * base;
+    }
+
+    private void fetchNextPage() {
+        if (inFlightCall != null || !hasMore()) {
+            return;
+        }
+        int size = nextPageSize();
+        int current = loadedCount / size + 1;
+        int offset = loadedCount;
+        int requestGeneration = generation;
+        long start = SystemClock.uptimeMillis();
+        Log.d(TAG, "预加载第 " + current + " 页（每页 " + size + "），速度 " +
+                String.format(Locale.ROOT, "%.1f", itemsPerSecond) + " 项/秒，请求耗时约 " + (long) latencyMs + "ms");
+
+        Call<BaseResponse<PagedData<ModuleConfig>>> call = apiService.getHomePage(current, size, null);
+        inFlightCall = call;
+        call.enqueue(new Callback<BaseResponse<PagedData<ModuleConfig>>>() {
+            @Override
+            public void onResponse(@NonNull Call<BaseResponse<PagedData<ModuleConfig>>> call,
+                                   @NonNull Response<BaseResponse<PagedData<ModuleConfig>>> response) {
+                if (call.isCanceled() || requestGeneration != generation) {
+                    return;
+                }
+                inFlightCall = null;
+                long elapsed = SystemClock.uptimeMillis() - start;
+                latencyMs = latencyMs * (1 - SMOOTHING) + elapsed * SMOOTHING;
+
+                BaseResponse<PagedData<ModuleConfig>> body = response.body();
+                if (!response.isSuccessful() || body == null || body.getCode() != 200 || body.getData() == null) {
+                    String message = body != null && body.getMsg() != null ? body.getMsg() : "响应码 " + response.code();
+                    onFetchFailed(new IllegalStateException("服务器返回错误: " + message));
+                    return;
+                }
+                PagedData<ModuleConfig> page = body.getData();
+                pageCache.put(cacheKey(current, size),
+                        new CachedPage(page, current, size, SystemClock.uptimeMillis()));
+                if (waitingForPage && offset == loadedCount) {
+                    deliver(page);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<BaseResponse<PagedData<ModuleConfig>>> call, @NonNull Throwable t) {
+                if (call.isCanceled() || requestGeneration != generation) {
+                    return;
+                }
+                inFlightCall = null;
+                onFetchFailed(t);
+            }
+        });
+    }
+
+    private void onFetchFailed(Throwable t) {
+        lastFailureTime = SystemClock.uptimeMillis();
+        if (waitingForPage) {
+            waitingForPage = false;
+            listener.onPageFailed(t);
+        } else {
+            Log.w(TAG, "后台预加载失败", t);
+        }
+    }
+
+    private static long cacheKey(int current, int size) {
+        return ((long) current << 32) | (size & 0xffffffffL);
+    }
+}
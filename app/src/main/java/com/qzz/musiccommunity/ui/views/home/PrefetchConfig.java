@@ -0,0 +1,104 @@
+package com.qzz.musiccommunity.ui.views.home;
+
+/**
+ * 首页预加载配置
+ * 距离列表末尾不到 prefetchDistance 项时开始请求下一页，滑动越快提前得越多；
+ * 距离末尾不到 appendDistance 项时把已经取到的页追加到列表
+ */
+public class PrefetchConfig {
+
+    // 基础每页模块数，页大小总是它的整数倍
+    private int basePageSize = 10;
+    // 自适应时的最大每页模块数
+    private int maxPageSize = 30;
+    // 距离末尾多少项时开始预加载下一页
+    private int prefetchDistance = 5;
+    // 距离末尾多少项时追加已经取到的页
+    private int appendDistance = 2;
+    // 内存中最多缓存的页数
+    private int pageCacheSize = 8;
+    // 内存缓存的页的有效期
+    private long pageCacheTtlMs = 5 * 60 * 1000L;
+    // 预加载失败后，多久之后才再次自动预加载
+    private long retryDelayMs = 3000L;
+
+    public static PrefetchConfig defaults() {
+        return new PrefetchConfig();
+    }
+
+    public int getBasePageSize() {
+        return basePageSize;
+    }
+
+    public PrefetchConfig setBasePageSize(int basePageSize) {
+        this.basePageSize = Math.max(1, basePageSize);
+        return this;
+    }
+
+    public int getMaxPageSize() {
+        return Math.max(basePageSize, maxPageSize);
+    }
+
+    public PrefetchConfig setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+        return this;
+    }
+
+    public int getPrefetchDistance() {
+        return prefetchDistance;
+    }
+
+    public PrefetchConfig setPrefetchDistance(int prefetchDistance) {
+        this.prefetchDistance = Math.max(0, prefetchDistance);
+        return this;
+    }
+
+    public int getAppendDistance() {
+        return Math.min(appendDistance, prefetchDistance);
+    }
+
+    public PrefetchConfig setAppendDistance(int appendDistance) {
+        this.appendDistance = Math.max(0, appendDistance);
+        return this;
+    }
+
+    public int getPageCacheSize() {
+        return pageCacheSize;
+    }
+
+    public PrefetchConfig setPageCacheSize(int pageCacheSize) {
+        this.pageCacheSize = Math.max(1, pageCacheSize);
+        return this;
+    }
+
+    public long getPageCacheTtlMs() {
+        return pageCacheTtlMs;
+    }
+
+    public PrefetchConfig setPageCacheTtlMs(long pageCacheTtlMs) {
+        this.pageCacheTtlMs = pageCacheTtlMs;
+        return this;
+    }
+
+    public long getRetryDelayMs() {
+        return retryDelayMs;
+    }
+
+    public PrefetchConfig setRetryDelayMs(long retryDelayMs) {
+        this.retryDelayMs = retryDelayMs;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchConfig{" +
+                "basePageSize=" + basePageSize +
+                ", maxPageSize=" + maxPageSize +
+                ", prefetchDistance=" + prefetchDistance +
+                ", appendDistance=" + appendDistance +
+                ", pageCacheSize=" + pageCacheSize +
+                ", pageCacheTtlMs=" + pageCacheTtlMs +
+                ", retryDelayMs=" + retryDelayMs +
+                '}';
+    }
+}
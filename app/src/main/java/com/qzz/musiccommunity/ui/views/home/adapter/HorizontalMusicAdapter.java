@@ -21,6 +21,7 @@ import com.bumptech.glide.request.transition.Transition;
 import com.qzz.musiccommunity.R;
 import com.qzz.musiccommunity.database.dto.MusicInfo;
 import com.qzz.musiccommunity.ui.views.MusicPlayer.iface.OnMusicItemClickListener;
+import com.qzz.musiccommunity.ui.views.home.viewholder.MusicBadges;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -86,11 +87,13 @@ public class HorizontalMusicAdapter extends RecyclerView.Adapter<HorizontalMusic
     class MusicViewHolder extends RecyclerView.ViewHolder {
         private TextView leftContent;
         private ImageView rightContent;
+        private TextView badgeContent;
 
         MusicViewHolder(@NonNull View itemView) {
             super(itemView);
             leftContent = itemView.findViewById(R.id.leftContent);
             rightContent = itemView.findViewById(R.id.rightContent);
+            badgeContent = itemView.findViewById(R.id.badgeContent);
         }
 
         void bind(MusicInfo music, int position) {
@@ -106,6 +109,7 @@ public class HorizontalMusicAdapter extends RecyclerView.Adapter<HorizontalMusic
                     String musicName = music.getMusicName();
                     leftContent.setText(musicName != null ? musicName : "未知歌曲");
                 }
+                MusicBadges.bind(badgeContent, music);
 
                 // 使用优化后的方法加载封面图片
                 loadCoverAsBackground(itemView, music.getCoverUrl());
@@ -182,6 +186,7 @@ public class HorizontalMusicAdapter extends RecyclerView.Adapter<HorizontalMusic
                 if (leftContent != null) {
                     leftContent.setText("");
                 }
+                MusicBadges.clear(badgeContent);
                 if (itemView != null) {
                     itemView.setBackgroundResource(R.drawable.round_20);
                     itemView.setOnClickListener(null);
@@ -0,0 +1,50 @@
+package com.qzz.musiccommunity.ui.views.home.viewholder;
+
+import android.view.View;
+import android.widget.TextView;
+
+import com.qzz.musiccommunity.R;
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.instance.MusicManager;
+import com.qzz.musiccommunity.instance.MusicMembershipIndex;
+
+/**
+ * 首页歌曲卡片上的"已收藏"、"已在列表"标记
+ * 状态来自 MusicManager 的成员索引，绑定时不查询数据库、不遍历播放列表
+ */
+public final class MusicBadges {
+
+    private MusicBadges() {
+    }
+
+    public static void bind(TextView badgeView, MusicInfo music) {
+        if (badgeView == null) {
+            return;
+        }
+        if (music == null || !MusicManager.isInitialized()) {
+            badgeView.setVisibility(View.GONE);
+            return;
+        }
+
+        MusicMembershipIndex index = MusicManager.getInstance().getMembershipIndex();
+        boolean liked = index.isLiked(music);
+        boolean queued = index.isQueued(music);
+        if (liked && queued) {
+            badgeView.setText(R.string.badge_liked_and_queued);
+        } else if (liked) {
+            badgeView.setText(R.string.badge_liked);
+        } else if (queued) {
+            badgeView.setText(R.string.badge_queued);
+        } else {
+            badgeView.setVisibility(View.GONE);
+            return;
+        }
+        badgeView.setVisibility(View.VISIBLE);
+    }
+
+    public static void clear(TextView badgeView) {
+        if (badgeView != null) {
+            badgeView.setVisibility(View.GONE);
+        }
+    }
+}
@@ -27,6 +27,7 @@ public class OneColumnViewHolder extends RecyclerView.ViewHolder {
     private View musicItemLayout;
     private TextView leftContent;
     private ImageView rightContent;
+    private TextView badgeContent;
     private OnMusicItemClickListener listener; // 添加监听器接口引用
     public OneColumnViewHolder(@NonNull View itemView) {
         super(itemView);
@@ -34,6 +35,7 @@ public class OneColumnViewHolder extends RecyclerView.ViewHolder {
         if (musicItemLayout != null) {
             leftContent = musicItemLayout.findViewById(R.id.leftContent);
             rightContent = musicItemLayout.findViewById(R.id.rightContent);
+            badgeContent = musicItemLayout.findViewById(R.id.badgeContent);
         }
     }
     public void bind(OneColumnItem item, OnMusicItemClickListener listener) {
@@ -71,6 +73,7 @@ public class OneColumnViewHolder extends RecyclerView.ViewHolder {
                 String musicName = music.getMusicName();
                 leftContent.setText(musicName != null ? musicName : "未知歌曲");
             }
+            MusicBadges.bind(badgeContent, music);
             // 加载封面图片到背景
             if (musicItemLayout != null) {
                 loadCoverAsBackground(musicItemLayout, music.getCoverUrl());
@@ -149,6 +152,7 @@ public class OneColumnViewHolder extends RecyclerView.ViewHolder {
             if (leftContent != null) {
                 leftContent.setText("");
             }
+            MusicBadges.clear(badgeContent);
             if (musicItemLayout != null) {
                 musicItemLayout.setBackgroundResource(R.drawable.round_20);
             }
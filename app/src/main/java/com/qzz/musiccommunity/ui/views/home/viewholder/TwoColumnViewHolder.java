@@ -42,10 +42,12 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
     // 左侧子View
     private TextView leftImageLeftContent;
     private ImageView leftImageRightContent;
+    private TextView leftImageBadge;
 
     // 右侧子View
     private TextView rightImageLeftContent;
     private ImageView rightImageRightContent;
+    private TextView rightImageBadge;
 
     // 添加监听器接口引用
     private OnMusicItemClickListener listener;
@@ -66,12 +68,14 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
             if (leftImageView != null) {
                 leftImageLeftContent = leftImageView.findViewById(R.id.leftContent);
                 leftImageRightContent = leftImageView.findViewById(R.id.rightContent);
+                leftImageBadge = leftImageView.findViewById(R.id.badgeContent);
             }
 
             // 初始化右侧子View
             if (rightImageView != null) {
                 rightImageLeftContent = rightImageView.findViewById(R.id.leftContent);
                 rightImageRightContent = rightImageView.findViewById(R.id.rightContent);
+                rightImageBadge = rightImageView.findViewById(R.id.badgeContent);
             }
 
             logInitializationStatus();
@@ -206,6 +210,7 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
                 String musicName = music.getMusicName();
                 leftImageLeftContent.setText(musicName != null ? musicName : "未知歌曲");
             }
+            MusicBadges.bind(leftImageBadge, music);
             // 使用Glide加载封面图片作为背景
             if (leftImageView != null) {
                 loadCoverAsBackground(leftImageView, music.getCoverUrl());
@@ -251,6 +256,7 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
                 String musicName = music.getMusicName();
                 rightImageLeftContent.setText(musicName != null ? musicName : "未知歌曲");
             }
+            MusicBadges.bind(rightImageBadge, music);
             // 使用Glide加载封面图片作为背景
             if (rightImageView != null) {
                 loadCoverAsBackground(rightImageView, music.getCoverUrl());
@@ -392,6 +398,7 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
             if (leftImageLeftContent != null) {
                 leftImageLeftContent.setText("");
             }
+            MusicBadges.clear(leftImageBadge);
             if (leftImageView != null) {
                 leftImageView.setBackgroundResource(R.drawable.round_20);
             }
@@ -411,6 +418,7 @@ public class TwoColumnViewHolder extends RecyclerView.ViewHolder {
             if (rightImageLeftContent != null) {
                 rightImageLeftContent.setText("");
             }
+            MusicBadges.clear(rightImageBadge);
             if (rightImageView != null) {
                 rightImageView.setBackgroundResource(R.drawable.round_20);
             }
@@ -17,6 +17,7 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.qzz.musiccommunity.R;
+import com.qzz.musiccommunity.Service.DatabaseMaintenanceJobService;
 import com.qzz.musiccommunity.ui.views.home.HomeActivity;
 
 public class SplashActivity extends AppCompatActivity implements TermsDialogFragment.TermsDialogListener {
@@ -63,6 +64,9 @@ public class SplashActivity extends AppCompatActivity implements TermsDialogFrag
 
         initView();
 
+        // 注册数据库后台维护任务（已注册时不会重复注册）
+        DatabaseMaintenanceJobService.schedule(this);
+
         // 判断是否首次启动应用，如果是则显示条款弹窗
         if (isFirstStart()) {
             showTermsDialog();
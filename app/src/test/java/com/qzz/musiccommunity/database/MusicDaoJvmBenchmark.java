@@ -0,0 +1,208 @@
+package com.qzz.musiccommunity.database;
+
+import android.app.Application;
+
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * MusicDao 在 JVM 上的基准测试，使用 Robolectric 的原生 SQLite（与设备相同的 SQLite 引擎，支持 FTS4）
+ * 曲库依次增长到 dao.benchmark.sizes 指定的规模，每个规模下测量常用操作的吞吐量和 p99，
+ * 结果写入 build/reports/benchmarks/music-dao.csv，用于对比 DAO 修改前后的性能
+ * 没有指定 dao.benchmark.sizes 时跳过，普通的单元测试不运行
+ *
+ * 运行：./gradlew testDebugUnitTest --tests '*MusicDaoJvmBenchmark' -PdaoBenchmarkSizes=1000,10000,100000
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class MusicDaoJvmBenchmark {
+
+    private static final String URL_PREFIX = "https://bench.musiccommunity.test/jvm/";
+    private static final String SIZES_PROPERTY = "dao.benchmark.sizes";
+    private static final String REPORT_PATH = "build/reports/benchmarks/music-dao.csv";
+
+    private static final int INSERT_BATCH = 1000;
+    private static final int PLAYLIST_SIZE = 500;
+    private static final int NAMED_TRACK_INTERVAL = 100;
+    private static final int WARMUP = 3;
+
+    private static final String[] TITLE_WORDS = {"晴天", "七里香", "稻香", "夜曲", "告白气球", "Love", "Story", "Night"};
+    private static final String[] ARTISTS = {"周杰伦", "林俊杰", "陈奕迅", "Taylor Swift", "Coldplay"};
+
+    private static int[] librarySizes;
+
+    /**
+     * 一项操作在一个曲库规模下的测量结果
+     */
+    private static class Result {
+        final int librarySize;
+        final String operation;
+        final int iterations;
+        final double throughput;
+        final double p50Ms;
+        final double p99Ms;
+
+        Result(int librarySize, String operation, long[] samples) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long sample : sorted) {
+                total += sample;
+            }
+            this.librarySize = librarySize;
+            this.operation = operation;
+            this.iterations = sorted.length;
+            this.throughput = sorted.length / (total / 1e9);
+            this.p50Ms = sorted[percentileIndex(sorted.length, 50)] / 1e6;
+            this.p99Ms = sorted[percentileIndex(sorted.length, 99)] / 1e6;
+        }
+
+        private static int percentileIndex(int count, int percentile) {
+            return Math.max(0, (int) Math.ceil(count * percentile / 100.0) - 1);
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%s,%d,%.1f,%.3f,%.3f",
+                    librarySize, operation, iterations, throughput, p50Ms, p99Ms);
+        }
+    }
+
+    @BeforeClass
+    public static void readSizes() {
+        String sizes = System.getProperty(SIZES_PROPERTY);
+        Assume.assumeTrue("没有指定 " + SIZES_PROPERTY + "，跳过 DAO 基准测试", sizes != null);
+        String[] parts = sizes.split(",");
+        librarySizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            librarySizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        Arrays.sort(librarySizes);
+    }
+
+    @Test
+    public void libraryScale() throws IOException {
+        MusicDao musicDao = MusicDao.getInstance(RuntimeEnvironment.getApplication());
+        Random random = new Random(42);
+        List<Long> musicIds = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+
+        for (int librarySize : librarySizes) {
+            long[] upsertSamples = grow(musicDao, musicIds, librarySize);
+            if (upsertSamples.length > 0) {
+                results.add(new Result(librarySize, "upsertAll(" + INSERT_BATCH + ")", upsertSamples));
+            }
+            int iterations = librarySize >= 100_000 ? 20 : 50;
+
+            List<MusicInfo> playlist = new ArrayList<>(PLAYLIST_SIZE);
+            for (int i = 0; i < PLAYLIST_SIZE; i++) {
+                playlist.add(track(random.nextInt(librarySize)));
+            }
+            results.add(new Result(librarySize, "savePlaylist", measure(iterations,
+                    () -> musicDao.savePlaylist(playlist))));
+            results.add(new Result(librarySize, "loadPlaylist", measure(iterations, () ->
+                    assertEquals(PLAYLIST_SIZE, musicDao.loadPlaylist().size()))));
+
+            results.add(new Result(librarySize, "searchMusic", measure(iterations, () ->
+                    assertFalse(musicDao.searchMusic(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]).isEmpty()))));
+
+            results.add(new Result(librarySize, "toggleLiked", measure(iterations * 4, () ->
+                    musicDao.setMusicLikedStatus(musicIds.get(random.nextInt(musicIds.size())), random.nextBoolean()))));
+
+            // 读取整个曲库，规模大时次数少一些
+            results.add(new Result(librarySize, "getAllMusicInfo", measure(Math.max(3, 50_000 / librarySize), () ->
+                    assertEquals(librarySize, musicDao.getAllMusicInfo().size()))));
+        }
+
+        musicDao.savePlaylist(new ArrayList<>());
+        report(results);
+    }
+
+    /**
+     * 曲库增长到 targetSize，每批写入的耗时作为 upsertAll 的样本
+     */
+    private static long[] grow(MusicDao musicDao, List<Long> musicIds, int targetSize) {
+        int batches = (targetSize - musicIds.size() + INSERT_BATCH - 1) / INSERT_BATCH;
+        long[] samples = new long[Math.max(0, batches)];
+        for (int b = 0; b < samples.length; b++) {
+            int from = musicIds.size();
+            int to = Math.min(targetSize, from + INSERT_BATCH);
+            List<MusicInfo> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                batch.add(track(i));
+            }
+            long start = System.nanoTime();
+            long[] ids = musicDao.upsertAll(batch);
+            samples[b] = System.nanoTime() - start;
+            for (long id : ids) {
+                assertTrue(id > 0);
+                musicIds.add(id);
+            }
+        }
+        return samples;
+    }
+
+    private static long[] measure(int iterations, Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    /**
+     * 第 i 首曲目；每100首中有1首带真实歌名/歌手，使搜索命中的比例接近真实曲库
+     */
+    private static MusicInfo track(int i) {
+        String title;
+        String artist;
+        if (i % NAMED_TRACK_INTERVAL == 0) {
+            int k = i / NAMED_TRACK_INTERVAL;
+            title = TITLE_WORDS[k % TITLE_WORDS.length] + " " + i;
+            artist = ARTISTS[(k / TITLE_WORDS.length) % ARTISTS.length];
+        } else {
+            title = "Track " + i;
+            artist = "Artist " + (i % 5000);
+        }
+        return new MusicInfo(0, title, artist, URL_PREFIX + i + ".mp3");
+    }
+
+    private static void report(List<Result> results) throws IOException {
+        File file = new File(REPORT_PATH);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent);
+        }
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.println("library_size,operation,iterations,throughput_ops_per_s,p50_ms,p99_ms");
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.qzz.musiccommunity.instance;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * LongHashSet 与 HashSet<Long> 的随机对比，以及删除时前移元素、探测链绕回数组开头的情况
+ */
+public class LongHashSetTest {
+
+    // 默认构造的容量：MIN_CAPACITY 个元素按装载因子 0.5 计算
+    private static final int DEFAULT_CAPACITY = 32;
+
+    @Test
+    public void randomOperations_matchHashSet() {
+        Random random = new Random(20240611L);
+        for (int range : new int[]{8, 64, 4096}) {
+            LongHashSet set = new LongHashSet();
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < 200_000; i++) {
+                // 键的范围包含 0 和负数；范围小时删除频繁，范围大时多次扩容
+                long key = random.nextInt(2 * range + 1) - range;
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    assertEquals("add " + key, expected.add(key), set.add(key));
+                } else if (op < 8) {
+                    assertEquals("remove " + key, expected.remove(key), set.remove(key));
+                } else {
+                    assertEquals("contains " + key, expected.contains(key), set.contains(key));
+                }
+                assertEquals(expected.size(), set.size());
+            }
+            for (long key = -range - 1; key <= range + 1; key++) {
+                assertEquals("contains " + key, expected.contains(key), set.contains(key));
+            }
+        }
+    }
+
+    @Test
+    public void remove_shiftsWrappedProbeChain() {
+        int mask = DEFAULT_CAPACITY - 1;
+        // A、B、D 的起始位置是最后一个槽，C 的起始位置是第一个槽，B、C、D 依次绕回数组开头
+        List<Long> lastSlot = keysWithHome(mask, mask, 3);
+        long a = lastSlot.get(0);
+        long b = lastSlot.get(1);
+        long d = lastSlot.get(2);
+        long c = keysWithHome(0, mask, 1).get(0);
+
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(a));
+        assertTrue(set.add(b));
+        assertTrue(set.add(c));
+        assertTrue(set.add(d));
+
+        // 删除链头后，B、C、D 都要前移，否则查找会在空槽处提前结束
+        assertTrue(set.remove(a));
+        assertFalse(set.contains(a));
+        assertTrue(set.contains(b));
+        assertTrue(set.contains(c));
+        assertTrue(set.contains(d));
+
+        assertTrue(set.remove(c));
+        assertTrue(set.contains(b));
+        assertTrue(set.contains(d));
+        assertFalse(set.contains(c));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void zeroKey_isTrackedSeparately() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(1));
+        assertEquals(2, set.size());
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(1));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void rehash_keepsAllKeys() {
+        LongHashSet set = new LongHashSet(1);
+        int count = 10_000;
+        for (long key = 1; key <= count; key++) {
+            // 连续ID和相隔 2^32 的键都要在扩容后找得到
+            assertTrue(set.add(key));
+            assertTrue(set.add(key << 32));
+        }
+        assertEquals(2 * count, set.size());
+        for (long key = 1; key <= count; key++) {
+            assertTrue(set.contains(key));
+            assertTrue(set.contains(key << 32));
+        }
+        assertFalse(set.contains(count + 1));
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(1));
+    }
+
+    /**
+     * 与 LongHashSet.indexOf() 相同的起始位置计算
+     */
+    private static List<Long> keysWithHome(int home, int mask, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & mask) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
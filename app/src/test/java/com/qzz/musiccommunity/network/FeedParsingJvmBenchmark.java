@@ -0,0 +1,298 @@
+package com.qzz.musiccommunity.network;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.qzz.musiccommunity.database.dto.MusicInfo;
+import com.qzz.musiccommunity.model.iface.ListItem;
+import com.qzz.musiccommunity.network.dto.BaseResponse;
+import com.qzz.musiccommunity.network.dto.ModuleConfig;
+import com.qzz.musiccommunity.network.dto.PagedData;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * 首页数据解析在 JVM 上的对比：Gson 反射解析 + DataConverter 转换，与 FeedTypeAdapterFactory 的流式解析
+ * 合成一页很大的首页数据（默认 2000 个模块、每个 20 首歌），两种方式解析出的内容必须完全相同，
+ * 两种方式的结果比较每次都运行；解析耗时（p50 / p99）和每次解析分配内存的测量只在指定 feed.benchmark 时运行，
+ * 结果写入 build/reports/benchmarks/feed-parsing.csv
+ *
+ * 运行：./gradlew testDebugUnitTest --tests '*FeedParsingJvmBenchmark' -PfeedBenchmark
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+public class FeedParsingJvmBenchmark {
+
+    private static final String BENCHMARK_PROPERTY = "feed.benchmark";
+    private static final String REPORT_PATH = "build/reports/benchmarks/feed-parsing.csv";
+
+    private static final int MODULES = 2000;
+    private static final int TRACKS_PER_MODULE = 20;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final TypeToken<BaseResponse<PagedData<ModuleConfig>>> FEED_TYPE =
+            new TypeToken<BaseResponse<PagedData<ModuleConfig>>>() {
+            };
+
+    private static byte[] feedJson;
+
+    /**
+     * 一种解析方式的测量结果
+     */
+    private static class Result {
+        final String parser;
+        final double p50Ms;
+        final double p99Ms;
+        final long allocatedBytes;
+
+        Result(String parser, long[] samples, long allocatedBytes) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            this.parser = parser;
+            this.p50Ms = sorted[percentileIndex(sorted.length, 50)] / 1e6;
+            this.p99Ms = sorted[percentileIndex(sorted.length, 99)] / 1e6;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        private static int percentileIndex(int count, int percentile) {
+            return Math.max(0, (int) Math.ceil(count * percentile / 100.0) - 1);
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.3f,%d",
+                    parser, MODULES, MODULES * TRACKS_PER_MODULE, p50Ms, p99Ms, allocatedBytes);
+        }
+    }
+
+    /**
+     * 一种解析方式：从响应体的字节解析到列表项
+     */
+    private interface FeedParser {
+        List<ListItem> parse(byte[] json) throws IOException;
+    }
+
+    @BeforeClass
+    public static void buildFeed() throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginObject();
+            writer.name("code").value(200);
+            writer.name("msg").value("success");
+            writer.name("data").beginObject();
+            writer.name("records").beginArray();
+            for (int m = 0; m < MODULES; m++) {
+                writer.beginObject();
+                writer.name("moduleConfigId").value(m + 1);
+                writer.name("moduleName").value("模块 " + m);
+                writer.name("style").value(m % 4 + 1);
+                writer.name("musicInfoList").beginArray();
+                for (int t = 0; t < TRACKS_PER_MODULE; t++) {
+                    int id = m * TRACKS_PER_MODULE + t;
+                    writer.beginObject();
+                    writer.name("id").value(id);
+                    writer.name("musicName").value("Track " + id);
+                    writer.name("author").value("Artist " + (id % 500));
+                    writer.name("musicUrl").value("https://bench.musiccommunity.test/feed/" + id + ".mp3");
+                    writer.name("coverUrl").value("https://bench.musiccommunity.test/feed/" + id + ".jpg");
+                    writer.name("lyricUrl").value("https://bench.musiccommunity.test/feed/" + id + ".lrc");
+                    writer.name("addTime").value(1_700_000_000_000L + id);
+                    // 服务器可能返回客户端不认识的字段
+                    writer.name("extra").beginObject().name("tags").beginArray().value("pop").endArray().endObject();
+                    writer.endObject();
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.name("total").value(MODULES);
+            writer.name("size").value(MODULES);
+            writer.name("current").value(1);
+            writer.name("pages").value(1);
+            writer.endObject();
+            writer.endObject();
+        }
+        feedJson = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void streamingMatchesReflective() throws IOException {
+        BaseResponse<PagedData<ModuleConfig>> reflective = read(new Gson(), feedJson);
+        BaseResponse<PagedData<ModuleConfig>> streaming = read(streamingGson(), feedJson);
+
+        assertEquals(reflective.getCode(), streaming.getCode());
+        assertEquals(reflective.getMsg(), streaming.getMsg());
+        PagedData<ModuleConfig> expectedPage = reflective.getData();
+        PagedData<ModuleConfig> actualPage = streaming.getData();
+        assertEquals(expectedPage.getTotal(), actualPage.getTotal());
+        assertEquals(expectedPage.getSize(), actualPage.getSize());
+        assertEquals(expectedPage.getCurrent(), actualPage.getCurrent());
+        assertEquals(expectedPage.getPages(), actualPage.getPages());
+        assertEquals(MODULES, actualPage.getRecords().size());
+
+        for (int m = 0; m < MODULES; m++) {
+            ModuleConfig expected = expectedPage.getRecords().get(m);
+            ModuleConfig actual = actualPage.getRecords().get(m);
+            assertEquals(expected.getModuleConfigId(), actual.getModuleConfigId());
+            assertEquals(expected.getModuleName(), actual.getModuleName());
+            assertEquals(expected.getStyle(), actual.getStyle());
+            assertEquals(TRACKS_PER_MODULE, actual.getMusicInfoList().size());
+            for (int t = 0; t < TRACKS_PER_MODULE; t++) {
+                assertSameMusic(expected.getMusicInfoList().get(t), actual.getMusicInfoList().get(t));
+            }
+        }
+
+        // 解析时生成的列表项与 DataConverter 转换的结果一致
+        assertNull(expectedPage.getListItems());
+        List<ListItem> converted = DataConverter.convertToListItems(expectedPage.getRecords());
+        List<ListItem> parsed = actualPage.getListItems();
+        assertNotNull(parsed);
+        assertEquals(converted.size(), parsed.size());
+        for (int i = 0; i < converted.size(); i++) {
+            assertEquals(converted.get(i).getClass(), parsed.get(i).getClass());
+            assertEquals(converted.get(i).getItemType(), parsed.get(i).getItemType());
+        }
+    }
+
+    @Test
+    public void nullsAndUnknownFields() throws IOException {
+        String json = "{\"code\":200,\"msg\":null,\"unknown\":[1,2],\"data\":{\"records\":[" +
+                "{\"moduleConfigId\":\"7\",\"moduleName\":null,\"style\":1,\"musicInfoList\":[" +
+                "{\"id\":1,\"musicName\":null,\"duration\":null,\"isLiked\":\"true\"},null]}]," +
+                "\"total\":1,\"size\":10,\"current\":1,\"pages\":null}}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        BaseResponse<PagedData<ModuleConfig>> reflective = read(new Gson(), bytes);
+        BaseResponse<PagedData<ModuleConfig>> streaming = read(streamingGson(), bytes);
+
+        assertNull(streaming.getMsg());
+        ModuleConfig expected = reflective.getData().getRecords().get(0);
+        ModuleConfig actual = streaming.getData().getRecords().get(0);
+        assertEquals(7, actual.getModuleConfigId());
+        assertEquals(expected.getModuleConfigId(), actual.getModuleConfigId());
+        assertNull(actual.getModuleName());
+        assertEquals(2, actual.getMusicInfoList().size());
+        assertNull(actual.getMusicInfoList().get(1));
+        MusicInfo music = actual.getMusicInfoList().get(0);
+        assertSameMusic(expected.getMusicInfoList().get(0), music);
+        assertTrue(music.isLiked());
+        assertEquals(0, streaming.getData().getPages());
+    }
+
+    @Test
+    public void parseTime() throws IOException {
+        Assume.assumeTrue("没有指定 " + BENCHMARK_PROPERTY + "，跳过解析耗时测量", Boolean.getBoolean(BENCHMARK_PROPERTY));
+        Gson reflectiveGson = new Gson();
+        Gson streamingGson = streamingGson();
+        List<Result> results = new ArrayList<>();
+        results.add(measure("reflective", json -> {
+            PagedData<ModuleConfig> page = read(reflectiveGson, json).getData();
+            return DataConverter.convertToListItems(page.getRecords());
+        }));
+        results.add(measure("streaming", json ->
+                DataConverter.convertToListItems(read(streamingGson, json).getData())));
+        report(results);
+    }
+
+    private static Gson streamingGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new FeedTypeAdapterFactory())
+                .create();
+    }
+
+    /**
+     * 与 Retrofit 的 GsonConverterFactory 相同：从响应体的字符流读取
+     */
+    private static BaseResponse<PagedData<ModuleConfig>> read(Gson gson, byte[] json) throws IOException {
+        TypeAdapter<BaseResponse<PagedData<ModuleConfig>>> adapter = gson.getAdapter(FEED_TYPE);
+        try (JsonReader reader = gson.newJsonReader(
+                new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+            return adapter.read(reader);
+        }
+    }
+
+    private static Result measure(String name, FeedParser parser) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(MODULES, parser.parse(feedJson).size());
+        }
+        long[] samples = new long[ITERATIONS];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            List<ListItem> items = parser.parse(feedJson);
+            samples[i] = System.nanoTime() - start;
+            assertEquals(MODULES, items.size());
+        }
+        long allocatedAfter = allocatedBytes();
+        long allocated = allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / ITERATIONS;
+        return new Result(name, samples, allocated);
+    }
+
+    /**
+     * 当前线程累计分配的字节数，JVM 不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void assertSameMusic(MusicInfo expected, MusicInfo actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getMusicName(), actual.getMusicName());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getAlbum(), actual.getAlbum());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getMusicUrl(), actual.getMusicUrl());
+        assertEquals(expected.getCoverUrl(), actual.getCoverUrl());
+        assertEquals(expected.getLyricUrl(), actual.getLyricUrl());
+        assertEquals(expected.isLiked(), actual.isLiked());
+        assertEquals(expected.getPlayCount(), actual.getPlayCount());
+        assertEquals(expected.getQuality(), actual.getQuality());
+        assertEquals(expected.getFileSize(), actual.getFileSize());
+    }
+
+    private static void report(List<Result> results) throws IOException {
+        File file = new File(REPORT_PATH);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent);
+        }
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.println("parser,modules,tracks,p50_ms,p99_ms,allocated_bytes_per_parse");
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+    }
+}
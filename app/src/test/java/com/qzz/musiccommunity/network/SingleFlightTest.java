@@ -0,0 +1,274 @@
+package com.qzz.musiccommunity.network;
+
+import android.app.Application;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+import static org.junit.Assert.*;
+
+/**
+ * SingleFlight 的合并、取消和响应体复制
+ * 网络调用由 FakeCallFactory 代替，测试决定调用何时结束，不访问网络
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+public class SingleFlightTest {
+
+    private static final String BODY = "{\"code\":200}";
+
+    interface TestApi {
+        @GET("music/homePage")
+        Call<ResponseBody> getPage(@Query("current") int current);
+    }
+
+    private FakeCallFactory callFactory;
+    private SingleFlight singleFlight;
+    private TestApi api;
+
+    @Before
+    public void setUp() {
+        callFactory = new FakeCallFactory();
+        singleFlight = new SingleFlight();
+        api = new Retrofit.Builder()
+                .baseUrl("https://example.com/")
+                .callFactory(callFactory)
+                // 回调直接在结束调用的线程上执行
+                .callbackExecutor(Runnable::run)
+                .addCallAdapterFactory(singleFlight.callAdapterFactory())
+                .build()
+                .create(TestApi.class);
+    }
+
+    @Test
+    public void identicalRequests_shareOneNetworkCall() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        api.getPage(1).enqueue(first);
+        api.getPage(1).enqueue(second);
+
+        assertEquals(1, callFactory.enqueued().size());
+        assertEquals(1, singleFlight.getFlightCount());
+        assertEquals(1, singleFlight.getJoinedCount());
+
+        callFactory.enqueued().get(0).respond(BODY);
+        assertEquals(1, first.invocations);
+        assertEquals(1, second.invocations);
+        assertNotNull(first.response);
+        assertNotNull(second.response);
+
+        // 调用结束后再发起的相同请求是新的网络调用
+        api.getPage(1).enqueue(new RecordingCallback());
+        assertEquals(2, callFactory.enqueued().size());
+    }
+
+    @Test
+    public void differentRequests_areNotMerged() {
+        api.getPage(1).enqueue(new RecordingCallback());
+        api.getPage(2).enqueue(new RecordingCallback());
+
+        assertEquals(2, callFactory.enqueued().size());
+        assertEquals(0, singleFlight.getJoinedCount());
+    }
+
+    @Test
+    public void cancelOneWaiter_otherStillReceivesResponse() {
+        RecordingCallback canceled = new RecordingCallback();
+        RecordingCallback waiting = new RecordingCallback();
+        Call<ResponseBody> canceledCall = api.getPage(1);
+        canceledCall.enqueue(canceled);
+        api.getPage(1).enqueue(waiting);
+
+        canceledCall.cancel();
+        assertTrue(canceledCall.isCanceled());
+        assertEquals(1, canceled.invocations);
+        assertNotNull(canceled.failure);
+        assertFalse("还有调用方在等待，不能取消实际的调用", callFactory.enqueued().get(0).canceled);
+
+        callFactory.enqueued().get(0).respond(BODY);
+        assertEquals("取消后不再收到结果", 1, canceled.invocations);
+        assertEquals(1, waiting.invocations);
+        assertNotNull(waiting.response);
+        assertTrue(waiting.response.isSuccessful());
+    }
+
+    @Test
+    public void cancelLastWaiter_cancelsNetworkCall() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        Call<ResponseBody> firstCall = api.getPage(1);
+        Call<ResponseBody> secondCall = api.getPage(1);
+        firstCall.enqueue(first);
+        secondCall.enqueue(second);
+
+        firstCall.cancel();
+        secondCall.cancel();
+        assertTrue(callFactory.enqueued().get(0).canceled);
+        assertNotNull(first.failure);
+        assertNotNull(second.failure);
+
+        // 实际调用已取消，之后的相同请求重新发起
+        api.getPage(1).enqueue(new RecordingCallback());
+        assertEquals(2, callFactory.enqueued().size());
+    }
+
+    @Test
+    public void eachWaiter_readsItsOwnBody() throws IOException {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingCallback third = new RecordingCallback();
+        api.getPage(1).enqueue(first);
+        api.getPage(1).enqueue(second);
+        api.getPage(1).enqueue(third);
+
+        callFactory.enqueued().get(0).respond(BODY);
+
+        ResponseBody firstBody = first.response.body();
+        ResponseBody secondBody = second.response.body();
+        ResponseBody thirdBody = third.response.body();
+        assertNotSame(firstBody, secondBody);
+        assertNotSame(secondBody, thirdBody);
+        // 响应体只能读一次，每个调用方都要读到完整的内容
+        assertEquals(BODY, firstBody.string());
+        assertEquals(BODY, secondBody.string());
+        assertEquals(BODY, thirdBody.string());
+        assertEquals("json", secondBody.contentType().subtype());
+    }
+
+    /**
+     * 记录回调次数和结果
+     */
+    private static final class RecordingCallback implements Callback<ResponseBody> {
+        int invocations;
+        Response<ResponseBody> response;
+        Throwable failure;
+
+        @Override
+        public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            invocations++;
+            this.response = response;
+        }
+
+        @Override
+        public void onFailure(Call<ResponseBody> call, Throwable t) {
+            invocations++;
+            failure = t;
+        }
+    }
+
+    /**
+     * 记录 Retrofit 创建的每个 OkHttp 调用
+     */
+    private static final class FakeCallFactory implements okhttp3.Call.Factory {
+        final List<FakeCall> calls = new ArrayList<>();
+
+        /**
+         * 实际发起的调用；Retrofit 在读取 request() 时也会创建调用，这些调用不会发起
+         */
+        List<FakeCall> enqueued() {
+            List<FakeCall> result = new ArrayList<>();
+            for (FakeCall call : calls) {
+                if (call.executed) {
+                    result.add(call);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public okhttp3.Call newCall(Request request) {
+            FakeCall call = new FakeCall(request);
+            calls.add(call);
+            return call;
+        }
+    }
+
+    /**
+     * 由测试调用 respond() 结束的 OkHttp 调用
+     */
+    private static final class FakeCall implements okhttp3.Call {
+        private final Request request;
+        private okhttp3.Callback callback;
+        boolean executed;
+        boolean canceled;
+
+        FakeCall(Request request) {
+            this.request = request;
+        }
+
+        void respond(String body) {
+            okhttp3.Response response = new okhttp3.Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(body, MediaType.get("application/json")))
+                    .build();
+            try {
+                callback.onResponse(this, response);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public okhttp3.Response execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(okhttp3.Callback responseCallback) {
+            executed = true;
+            callback = responseCallback;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public okhttp3.Call clone() {
+            return new FakeCall(request);
+        }
+    }
+}